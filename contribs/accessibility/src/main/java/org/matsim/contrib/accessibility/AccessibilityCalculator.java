@@ -24,9 +24,15 @@ import org.matsim.facilities.ActivityFacility;
 import javax.inject.Inject;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * improvements aug'12<ul>
@@ -50,6 +56,11 @@ import java.util.concurrent.ConcurrentHashMap;
  * <li> replaced [[??]]
  * </ul> 
  * <p/> 
+ * improvements oct'16<ul>
+ * <li> origin nodes are processed in parallel on global.numberOfThreads threads, each with its own contribution calculators
+ * <li> opportunities farther away than {@link AccessibilityConfigGroup#getOpportunityCutoffDistance()} can be skipped
+ * </ul>
+ * <p/> 
  * Design comments:<ul>
  * <li> yyyy This class is quite brittle, since it does not use a central disutility object, but produces its own.  Should be changed.
  * </ul>
@@ -65,8 +76,15 @@ public final class AccessibilityCalculator {
 	private ActivityFacilitiesImpl measuringPoints;
 	// destinations, opportunities like jobs etc ...
 	private AggregationObject[] aggregatedOpportunities;
+	// coordinates of the nearest nodes of the aggregated opportunities, for the cut-off
+	private double[] opportunityX;
+	private double[] opportunityY;
 
+	// the calculators of the first thread; the other threads create their own
 	private final Map<Modes4Accessibility, AccessibilityContributionCalculator> calculators = new HashMap<>();
+	private final Map<String, TravelTime> travelTimes;
+	private final Map<String, TravelDisutilityFactory> travelDisutilityFactories;
+	private PtMatrix ptMatrix = null;
 
 	private final ArrayList<FacilityDataExchangeInterface> zoneDataExchangeListeners = new ArrayList<>();
 
@@ -114,6 +132,16 @@ public final class AccessibilityCalculator {
 		betaWalkTMC = -planCalcScoreConfigGroup.getMarginalUtilityOfMoney();
 
 		this.scenario = scenario;
+		this.travelTimes = travelTimes;
+		this.travelDisutilityFactories = travelDisutilityFactories;
+		createCalculators(calculators);
+	}
+
+	/**
+	 * Creates a new set of contribution calculators. The calculators keep the least cost path trees of the current
+	 * origin node, so each thread needs its own set.
+	 */
+	private void createCalculators(Map<Modes4Accessibility, AccessibilityContributionCalculator> calculators) {
 		calculators.put(
 				Modes4Accessibility.car,
 				new NetworkModeAccessibilityContributionCalculator(
@@ -136,6 +164,13 @@ public final class AccessibilityCalculator {
 				new ConstantSpeedAccessibilityContributionCalculator(
 						TransportMode.bike,
 						scenario));
+		if (ptMatrix != null) {
+			calculators.put(
+					Modes4Accessibility.pt,
+					PtMatrixAccessibilityContributionCalculator.create(
+							ptMatrix,
+							scenario.getConfig()));
+		}
 	}
 
 	public void addFacilityDataExchangeListener(FacilityDataExchangeInterface l){
@@ -203,18 +238,17 @@ public final class AccessibilityCalculator {
 		}
 		log.info("Aggregated " + opportunities.getFacilities().size() + " number of opportunities to " + opportunityClusterMap.size() + " nodes.");
 		this.aggregatedOpportunities = opportunityClusterMap.values().toArray(new AggregationObject[opportunityClusterMap.size()]);
+		this.opportunityX = new double[this.aggregatedOpportunities.length];
+		this.opportunityY = new double[this.aggregatedOpportunities.length];
+		for (int ii = 0; ii < this.aggregatedOpportunities.length; ii++) {
+			this.opportunityX[ii] = this.aggregatedOpportunities[ii].getNearestNode().getCoord().getX();
+			this.opportunityY[ii] = this.aggregatedOpportunities[ii].getNearestNode().getCoord().getY();
+		}
 	}
 
 	
 	public final void computeAccessibilities( Double departureTime, ActivityFacilities opportunities) {
 		aggregateOpportunities(opportunities, scenario.getNetwork());
-		SumOfExpUtils[] gcs = new SumOfExpUtils[Modes4Accessibility.values().length] ;
-		// this could just be a double array, or a Map.  Not using a Map for computational speed reasons (untested);
-		// not using a simple double array for type safety in long argument lists. kai, feb'14
-		for ( int ii=0 ; ii<gcs.length ; ii++ ) {
-			gcs[ii] = new SumOfExpUtils() ;
-		}
-
 
 		// this data structure condense measuring points (origins) that have the same nearest node on the network ...
 		Map<Id<Node>,ArrayList<ActivityFacility>> aggregatedOrigins = new ConcurrentHashMap<>();
@@ -239,78 +273,202 @@ public final class AccessibilityCalculator {
 		log.info("");
 		log.info("Number of measurement points (origins): " + measuringPoints.getFacilities().values().size());
 		log.info("Number of aggregated measurement points (origins): " + aggregatedOrigins.size());
-		log.info("Now going through all origins:");
-
-		ProgressBar bar = new ProgressBar( aggregatedOrigins.size() );
-		// ========================================================================
-		// go through all nodes (keys) that have a measuring point (origin) assigned
-		for ( Id<Node> nodeId : aggregatedOrigins.keySet() ) {
-			
-			bar.update();
-
-			Node fromNode = scenario.getNetwork().getNodes().get( nodeId );
 
-			for ( AccessibilityContributionCalculator calculator : calculators.values() ) {
-				calculator.notifyNewOriginNode( fromNode, departureTime );
+		// the origins in the order of their nodes, so each node's origins are origins[firstOrigin[i]] to origins[firstOrigin[i+1]-1]:
+		final List<Node> originNodes = new ArrayList<>(aggregatedOrigins.size());
+		final List<ActivityFacility> origins = new ArrayList<>(measuringPoints.getFacilities().size());
+		final int[] firstOrigin = new int[aggregatedOrigins.size() + 1];
+		for ( Map.Entry<Id<Node>, ArrayList<ActivityFacility>> entry : aggregatedOrigins.entrySet() ) {
+			firstOrigin[originNodes.size()] = origins.size();
+			originNodes.add(scenario.getNetwork().getNodes().get(entry.getKey()));
+			origins.addAll(entry.getValue());
+		}
+		firstOrigin[originNodes.size()] = origins.size();
+
+		final Modes4Accessibility[] modes = config.getIsComputingMode().toArray(new Modes4Accessibility[0]);
+		// sum of exp(utility) per origin and mode
+		final double[] expSums = new double[origins.size() * modes.length];
+
+		int numberOfThreads = Math.max(1, Math.min(scenario.getConfig().global().getNumberOfThreads(), originNodes.size()));
+		log.info("Now going through all origins using " + numberOfThreads + " threads:");
+		final AtomicInteger nextOriginNode = new AtomicInteger(0);
+		final AtomicInteger finishedOriginNodes = new AtomicInteger(0);
+		final long startTime = System.currentTimeMillis();
+		List<OriginNodeWorker> workers = new ArrayList<>();
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		List<Future<?>> futures = new ArrayList<>();
+		for ( int ii = 0 ; ii < numberOfThreads ; ii++ ) {
+			Map<Modes4Accessibility, AccessibilityContributionCalculator> threadCalculators = this.calculators;
+			if ( ii > 0 ) {
+				threadCalculators = new HashMap<>();
+				createCalculators(threadCalculators);
 			}
+			OriginNodeWorker worker = new OriginNodeWorker(threadCalculators, modes, departureTime, originNodes, origins, firstOrigin,
+					expSums, nextOriginNode, finishedOriginNodes, startTime);
+			workers.add(worker);
+			futures.add(executor.submit(worker));
+		}
+		try {
+			for ( Future<?> future : futures ) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdown();
+		}
 
-			// get list with origins that are assigned to "fromNode"
-			for ( ActivityFacility origin : aggregatedOrigins.get( nodeId ) ) {
-				assert( origin.getCoord() != null );
-				
-				for (SumOfExpUtils gc : gcs) {
-					gc.reset();
-				}
-
-				// --------------------------------------------------------------------------------------------------------------
-				// goes through all opportunities, e.g. jobs, (nearest network node) and calculate/add their exp(U) contributions:
-				for (final AggregationObject aggregatedFacility : this.aggregatedOpportunities) {
-					computeAndAddExpUtilContributions( gcs, origin, aggregatedFacility, departureTime );
-				}
-				// --------------------------------------------------------------------------------------------------------------
-				// What does the aggregation of the starting locations save if we do the just ended loop for all starting
-				// points separately anyways?  Answer: The trees need to be computed only once.  (But one could save more.) kai, feb'14
-
-				// aggregated value
-				Map< Modes4Accessibility, Double> accessibilities  = new HashMap<>() ;
-
-				for ( Modes4Accessibility mode : config.getIsComputingMode() ) {
-					if(!useRawSum){ 	// get log sum
-//						System.err.println(" ------------------ gcs[mode.ordinal()].getSum() = " + gcs[mode.ordinal()].getSum());
-						// does not seem to ever be "-infinity"
-//						System.err.println(" ------------- inverseOfLogitScaleParameter * Math.log( gcs[mode.ordinal()].getSum() ) = " + inverseOfLogitScaleParameter * Math.log( gcs[mode.ordinal()].getSum() ));
-						accessibilities.put( mode, inverseOfLogitScaleParameter * Math.log( gcs[mode.ordinal()].getSum() ) ) ;
-					} else {
-						// this was used by IVT within SustainCity.  Not sure if we should maintain this; they could, after all, just exp the log results. kai, may'15
-						accessibilities.put( mode, gcs[mode.ordinal()].getSum() ) ;
-//							accessibilities.put( mode, inverseOfLogitScaleParameter * gcs[mode.ordinal()].getSum() ) ;
-						// yyyy why _multiply_ with "inverseOfLogitScaleParameter"??  If anything, would need to take the power:
-						// a * ln(b) = ln( b^a ).  kai, jan'14
-					}
-				}
+		long evaluated = 0;
+		long skipped = 0;
+		for ( OriginNodeWorker worker : workers ) {
+			evaluated += worker.evaluatedOpportunities;
+			skipped += worker.skippedOpportunities;
+		}
+		double seconds = Math.max(1, System.currentTimeMillis() - startTime) / 1000.;
+		log.info("Computed accessibilities for " + origins.size() + " measuring points in " + seconds + " seconds ("
+				+ (long) (origins.size() / seconds) + " measuring points per second, "
+				+ (long) (evaluated / seconds) + " opportunities per second).");
+		if ( skipped > 0 ) {
+			log.info("Skipped " + skipped + " of " + (evaluated + skipped) + " opportunities beyond the cut-off distance.");
+		}
 
-				for (FacilityDataExchangeInterface zoneDataExchangeInterface : this.zoneDataExchangeListeners) {
-					//log.info("here");
-					zoneDataExchangeInterface.setFacilityAccessibilities(origin, departureTime, accessibilities);
+		// the listeners are notified in the order of the origins, as without threads
+		for ( int oo = 0 ; oo < origins.size() ; oo++ ) {
+			ActivityFacility origin = origins.get(oo);
+
+			// aggregated value
+			Map< Modes4Accessibility, Double> accessibilities  = new HashMap<>() ;
+
+			for ( int mm = 0 ; mm < modes.length ; mm++ ) {
+				double sum = expSums[oo * modes.length + mm];
+				if(!useRawSum){ 	// get log sum
+					// does not seem to ever be "-infinity"
+					accessibilities.put( modes[mm], inverseOfLogitScaleParameter * Math.log( sum ) ) ;
+				} else {
+					// this was used by IVT within SustainCity.  Not sure if we should maintain this; they could, after all, just exp the log results. kai, may'15
+					accessibilities.put( modes[mm], sum ) ;
+					// yyyy why _multiply_ with "inverseOfLogitScaleParameter"??  If anything, would need to take the power:
+					// a * ln(b) = ln( b^a ).  kai, jan'14
 				}
-
 			}
 
+			for (FacilityDataExchangeInterface zoneDataExchangeInterface : this.zoneDataExchangeListeners) {
+				zoneDataExchangeInterface.setFacilityAccessibilities(origin, departureTime, accessibilities);
+			}
 		}
 		for (FacilityDataExchangeInterface zoneDataExchangeInterface : this.zoneDataExchangeListeners) {
 			zoneDataExchangeInterface.finish();
 		}
 	}
 
-	
-	private void computeAndAddExpUtilContributions( SumOfExpUtils[] gcs, ActivityFacility origin, 
-			final AggregationObject aggregatedFacility, Double departureTime) {
-		for ( Map.Entry<Modes4Accessibility, AccessibilityContributionCalculator> calculatorEntry : calculators.entrySet() ) {
-			if ( !this.config.getIsComputingMode().contains(calculatorEntry.getKey()) ) continue; // XXX should be configured by adding only the relevant calculators
-			final double expVhk = calculatorEntry.getValue().computeContributionOfOpportunity( origin , aggregatedFacility, departureTime );
-			//System.err.println("--------------- expVhk " + expVhk);
-			// does not seem to be "-infinity"
-			gcs[ calculatorEntry.getKey().ordinal() ].addExpUtils( expVhk );
+	/**
+	 * Computes the sums of exp(utility) of the origins of one origin node after the other, taking the next origin node
+	 * not yet handled by any other worker.
+	 */
+	private final class OriginNodeWorker implements Runnable {
+		private final AccessibilityContributionCalculator[] modeCalculators;
+		private final Modes4Accessibility[] modes;
+		private final Double departureTime;
+		private final List<Node> originNodes;
+		private final List<ActivityFacility> origins;
+		private final int[] firstOrigin;
+		private final double[] expSums;
+		private final AtomicInteger nextOriginNode;
+		private final AtomicInteger finishedOriginNodes;
+		private final long startTime;
+		private final int[] opportunities;
+
+		long evaluatedOpportunities = 0;
+		long skippedOpportunities = 0;
+
+		OriginNodeWorker(Map<Modes4Accessibility, AccessibilityContributionCalculator> calculators, Modes4Accessibility[] modes,
+				Double departureTime, List<Node> originNodes, List<ActivityFacility> origins, int[] firstOrigin, double[] expSums,
+				AtomicInteger nextOriginNode, AtomicInteger finishedOriginNodes, long startTime) {
+			this.modes = modes;
+			// modes without calculator keep a sum of zero, as before
+			this.modeCalculators = new AccessibilityContributionCalculator[modes.length];
+			for ( int mm = 0 ; mm < modes.length ; mm++ ) {
+				this.modeCalculators[mm] = calculators.get(modes[mm]);
+			}
+			this.departureTime = departureTime;
+			this.originNodes = originNodes;
+			this.origins = origins;
+			this.firstOrigin = firstOrigin;
+			this.expSums = expSums;
+			this.nextOriginNode = nextOriginNode;
+			this.finishedOriginNodes = finishedOriginNodes;
+			this.startTime = startTime;
+			this.opportunities = new int[aggregatedOpportunities.length];
+		}
+
+		@Override
+		public void run() {
+			final Double cutoffDistance = config.getOpportunityCutoffDistance();
+			final int nOriginNodes = this.originNodes.size();
+			final int logInterval = Math.max(1, nOriginNodes / 10);
+			int nodeIndex;
+			while ( (nodeIndex = this.nextOriginNode.getAndIncrement()) < nOriginNodes ) {
+				Node fromNode = this.originNodes.get(nodeIndex);
+
+				for ( AccessibilityContributionCalculator calculator : this.modeCalculators ) {
+					if ( calculator != null ) {
+						calculator.notifyNewOriginNode( fromNode, this.departureTime );
+					}
+				}
+
+				// the opportunities to take into account from this node
+				int nOpportunities = 0;
+				if ( cutoffDistance == null ) {
+					for ( int kk = 0 ; kk < aggregatedOpportunities.length ; kk++ ) {
+						this.opportunities[nOpportunities++] = kk;
+					}
+				} else {
+					double maxDistanceSquared = cutoffDistance * cutoffDistance;
+					double x = fromNode.getCoord().getX();
+					double y = fromNode.getCoord().getY();
+					for ( int kk = 0 ; kk < aggregatedOpportunities.length ; kk++ ) {
+						double dx = opportunityX[kk] - x;
+						double dy = opportunityY[kk] - y;
+						if ( dx * dx + dy * dy <= maxDistanceSquared ) {
+							this.opportunities[nOpportunities++] = kk;
+						}
+					}
+				}
+
+				// get list with origins that are assigned to "fromNode"
+				for ( int oo = this.firstOrigin[nodeIndex] ; oo < this.firstOrigin[nodeIndex + 1] ; oo++ ) {
+					ActivityFacility origin = this.origins.get(oo);
+					assert( origin.getCoord() != null );
+
+					// --------------------------------------------------------------------------------------------------------------
+					// goes through all opportunities, e.g. jobs, (nearest network node) and calculate/add their exp(U) contributions:
+					for ( int mm = 0 ; mm < this.modes.length ; mm++ ) {
+						AccessibilityContributionCalculator calculator = this.modeCalculators[mm];
+						if ( calculator == null ) {
+							continue;
+						}
+						double sum = 0.;
+						for ( int ii = 0 ; ii < nOpportunities ; ii++ ) {
+							sum += calculator.computeContributionOfOpportunity( origin, aggregatedOpportunities[this.opportunities[ii]], this.departureTime );
+						}
+						this.expSums[oo * this.modes.length + mm] = sum;
+					}
+					// --------------------------------------------------------------------------------------------------------------
+					// What does the aggregation of the starting locations save if we do the just ended loop for all starting
+					// points separately anyways?  Answer: The trees need to be computed only once.  (But one could save more.) kai, feb'14
+					this.evaluatedOpportunities += nOpportunities;
+					this.skippedOpportunities += aggregatedOpportunities.length - nOpportunities;
+				}
+
+				int finished = this.finishedOriginNodes.incrementAndGet();
+				if ( finished % logInterval == 0 ) {
+					double seconds = Math.max(1, System.currentTimeMillis() - this.startTime) / 1000.;
+					log.info("Accessibility computation: " + finished + " of " + nOriginNodes + " origin nodes ("
+							+ (100L * finished / nOriginNodes) + "%), " + (long) (finished / seconds) + " origin nodes per second.");
+				}
+			}
 		}
 	}
 
@@ -323,29 +481,8 @@ public final class AccessibilityCalculator {
 		return this.config.getIsComputingMode();
 	}
 
-	/**
-	 * stores travel disutilities for different modes
-	 */
-	static class SumOfExpUtils {
-		// could just use Map<Modes4Accessibility,Double>, but since it is fairly far inside the loop, I leave it with primitive
-		// variables on the (unfounded) intuition that this helps with computational speed.  kai, 
-
-		private double sum  	= 0.;
-
-		void reset() {
-			this.sum		  	= 0.;
-		}
-
-		void addExpUtils(double val){
-			this.sum += val;
-		}
-
-		double getSum(){
-			return this.sum;
-		}
-	}
-
 	public final void setPtMatrix(PtMatrix ptMatrix) {
+		this.ptMatrix = ptMatrix;
 		calculators.put(
 				Modes4Accessibility.pt,
 				PtMatrixAccessibilityContributionCalculator.create(
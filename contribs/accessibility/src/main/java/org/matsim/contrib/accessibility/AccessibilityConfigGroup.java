@@ -38,8 +38,10 @@ public final class AccessibilityConfigGroup extends ReflectiveConfigGroup{
 	
 	private static final String USING_RAW_SUMS_WITHOUT_LN = "usingRawSumsWithoutLn";
 	private static final String ACCESSIBILITY_DESTINATION_SAMPLING_RATE = "accessibilityDestinationSamplingRate";
+	private static final String OPPORTUNITY_CUTOFF_DISTANCE = "opportunityCutoffDistance";
 	// ===
 	private Double accessibilityDestinationSamplingRate;
+	private Double opportunityCutoffDistance = null;
 	private Boolean usingRawSumsWithoutLn = false ;
 
 	private double boundingBoxTop;
@@ -75,6 +77,10 @@ public final class AccessibilityConfigGroup extends ReflectiveConfigGroup{
 		map.put(ACCESSIBILITY_DESTINATION_SAMPLING_RATE, "if only a sample of destinations should be used " +
 				"(reduces accuracy -- not recommended except when necessary for computational speed reasons)" ) ;
 		
+		map.put(OPPORTUNITY_CUTOFF_DISTANCE, "if set, opportunities whose nearest node is farther away from the nearest node of the " +
+				"measuring point than this beeline distance are ignored, assuming that their distance decay term exp(beta * disutility) is " +
+				"negligible for all modes (reduces accuracy, but saves a lot of computing time on large areas)" ) ;
+		
 		map.put(USING_RAW_SUMS_WITHOUT_LN, "econometric accessibility usually returns the logsum. " +
 				"Set to true if you just want the sum (without the ln)") ;
 		
@@ -148,6 +154,17 @@ public final class AccessibilityConfigGroup extends ReflectiveConfigGroup{
 	public void setAccessibilityDestinationSamplingRate(Double sampleRate){
 		this.accessibilityDestinationSamplingRate = sampleRate;
 	}
+	@StringGetter(OPPORTUNITY_CUTOFF_DISTANCE)
+	public Double getOpportunityCutoffDistance() {
+		return this.opportunityCutoffDistance;
+	}
+	@StringSetter(OPPORTUNITY_CUTOFF_DISTANCE)
+	public void setOpportunityCutoffDistance(Double distance) {
+		if (distance != null && distance <= 0) {
+			throw new IllegalArgumentException("Opportunity cut-off distance must be greater than zero.");
+		}
+		this.opportunityCutoffDistance = distance;
+	}
     @StringGetter(USING_RAW_SUMS_WITHOUT_LN)
     public Boolean isUsingRawSumsWithoutLn() {
         return usingRawSumsWithoutLn;
@@ -0,0 +1,199 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * AccessibilityCalculatorTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.accessibility;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.accessibility.gis.GridUtils;
+import org.matsim.contrib.accessibility.interfaces.FacilityDataExchangeInterface;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.RandomizingTimeDistanceTravelDisutilityFactory;
+import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacilitiesImpl;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.facilities.FacilitiesUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class AccessibilityCalculatorTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	private static final int GRID_SIZE = 5;
+	private static final double GRID_SPACING = 1000.;
+
+	@Test
+	public void testSameAccessibilitiesWithSeveralThreads() {
+		Scenario scenario = createScenario(1, null);
+		ActivityFacilities opportunities = createOpportunities(scenario.getNetwork());
+		ActivityFacilitiesImpl measuringPoints = GridUtils.createGridLayerByGridSizeByBoundingBoxV2(0., 0.,
+				(GRID_SIZE - 1) * GRID_SPACING, (GRID_SIZE - 1) * GRID_SPACING, 500.);
+		Map<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> expected = computeAccessibilities(scenario, measuringPoints, opportunities);
+
+		scenario.getConfig().global().setNumberOfThreads(4);
+		Map<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> actual = computeAccessibilities(scenario, measuringPoints, opportunities);
+
+		Assert.assertEquals(measuringPoints.getFacilities().size(), expected.size());
+		assertSameAccessibilities(expected, actual);
+	}
+
+	@Test
+	public void testOpportunitiesBeyondCutoffDistanceAreIgnored() {
+		ActivityFacilitiesImpl measuringPoints = new ActivityFacilitiesImpl();
+		// the nearest node of the measuring point is the node at (0,0)
+		measuringPoints.addActivityFacility(measuringPoints.getFactory().createActivityFacility(
+				Id.create("origin", ActivityFacility.class), new Coord(10., 0.)));
+
+		Scenario cutScenario = createScenario(2, 1500.);
+		ActivityFacilities allOpportunities = createOpportunities(cutScenario.getNetwork());
+		Map<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> cut = computeAccessibilities(cutScenario, measuringPoints, allOpportunities);
+
+		// without cut-off, but only with the opportunities at the nodes at most 1500m away from (0,0)
+		Scenario scenario = createScenario(2, null);
+		ActivityFacilities nearOpportunities = FacilitiesUtils.createActivityFacilities();
+		for ( ActivityFacility opportunity : createOpportunities(scenario.getNetwork()).getFacilities().values() ) {
+			if ( NetworkUtils.getEuclideanDistance(opportunity.getCoord(), new Coord(0., 0.)) <= 1500. ) {
+				nearOpportunities.addActivityFacility(opportunity);
+			}
+		}
+		Assert.assertEquals(4, nearOpportunities.getFacilities().size());
+		Map<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> near = computeAccessibilities(scenario, measuringPoints, nearOpportunities);
+		Map<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> all = computeAccessibilities(scenario, measuringPoints, allOpportunities);
+
+		assertSameAccessibilities(near, cut);
+		for ( Map.Entry<Modes4Accessibility, Double> entry : all.get(Id.create("origin", ActivityFacility.class)).entrySet() ) {
+			double cutSum = cut.get(Id.create("origin", ActivityFacility.class)).get(entry.getKey());
+			Assert.assertTrue("the far opportunities should contribute to " + entry.getKey() + " without cut-off",
+					entry.getValue() > cutSum);
+		}
+	}
+
+	private static void assertSameAccessibilities(Map<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> expected,
+			Map<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> actual) {
+		Assert.assertEquals(expected.keySet(), actual.keySet());
+		for ( Map.Entry<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> entry : expected.entrySet() ) {
+			Map<Modes4Accessibility, Double> actualAccessibilities = actual.get(entry.getKey());
+			Assert.assertEquals(entry.getValue().keySet(), actualAccessibilities.keySet());
+			for ( Map.Entry<Modes4Accessibility, Double> modeEntry : entry.getValue().entrySet() ) {
+				Assert.assertEquals("accessibility of " + entry.getKey() + " by " + modeEntry.getKey(),
+						modeEntry.getValue(), actualAccessibilities.get(modeEntry.getKey()), MatsimTestUtils.EPSILON);
+			}
+		}
+	}
+
+	private static Map<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> computeAccessibilities(Scenario scenario,
+			ActivityFacilitiesImpl measuringPoints, ActivityFacilities opportunities) {
+		Map<String, TravelTime> travelTimes = new HashMap<>();
+		travelTimes.put(TransportMode.car, new FreeSpeedTravelTime());
+		Map<String, TravelDisutilityFactory> travelDisutilityFactories = new HashMap<>();
+		travelDisutilityFactories.put(TransportMode.car,
+				new RandomizingTimeDistanceTravelDisutilityFactory(TransportMode.car, scenario.getConfig().planCalcScore()));
+
+		AccessibilityCalculator calculator = new AccessibilityCalculator(travelTimes, travelDisutilityFactories, scenario);
+		calculator.setMeasuringPoints(measuringPoints);
+		for ( Modes4Accessibility mode : Modes4Accessibility.values() ) {
+			calculator.setComputingAccessibilityForMode(mode, mode != Modes4Accessibility.pt);
+		}
+		final Map<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> results = new HashMap<>();
+		calculator.addFacilityDataExchangeListener(new FacilityDataExchangeInterface() {
+			@Override
+			public void setFacilityAccessibilities(ActivityFacility measurePoint, Double timeOfDay, Map<Modes4Accessibility, Double> accessibilities) {
+				Assert.assertNull("measuring point reported twice", results.put(measurePoint.getId(), accessibilities));
+			}
+
+			@Override
+			public void finish() {
+			}
+		});
+		calculator.computeAccessibilities(8. * 3600., opportunities);
+		return results;
+	}
+
+	/**
+	 * Creates a scenario with a grid network of GRID_SIZE x GRID_SIZE nodes, the raw sums of exp(utility) as
+	 * accessibilities and the given cut-off distance.
+	 */
+	private static Scenario createScenario(int numberOfThreads, Double cutoffDistance) {
+		Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads(numberOfThreads);
+		AccessibilityConfigGroup acg = ConfigUtils.addOrGetModule(config, AccessibilityConfigGroup.GROUP_NAME, AccessibilityConfigGroup.class);
+		acg.setUsingRawSumsWithoutLn(true);
+		acg.setOpportunityCutoffDistance(cutoffDistance);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+
+		Network network = scenario.getNetwork();
+		Node[][] nodes = new Node[GRID_SIZE][GRID_SIZE];
+		for ( int xx = 0 ; xx < GRID_SIZE ; xx++ ) {
+			for ( int yy = 0 ; yy < GRID_SIZE ; yy++ ) {
+				nodes[xx][yy] = NetworkUtils.createAndAddNode(network, Id.create(xx + "_" + yy, Node.class),
+						new Coord(xx * GRID_SPACING, yy * GRID_SPACING));
+			}
+		}
+		for ( int xx = 0 ; xx < GRID_SIZE ; xx++ ) {
+			for ( int yy = 0 ; yy < GRID_SIZE ; yy++ ) {
+				if ( xx + 1 < GRID_SIZE ) {
+					createLinks(network, nodes[xx][yy], nodes[xx + 1][yy]);
+				}
+				if ( yy + 1 < GRID_SIZE ) {
+					createLinks(network, nodes[xx][yy], nodes[xx][yy + 1]);
+				}
+			}
+		}
+		return scenario;
+	}
+
+	private static void createLinks(Network network, Node node1, Node node2) {
+		// the links of the first row are faster, so car and walk accessibilities differ
+		double freespeed = node1.getCoord().getY() == 0. && node2.getCoord().getY() == 0. ? 27. : 13.;
+		NetworkUtils.createAndAddLink(network, Id.create(node1.getId() + "-" + node2.getId(), Link.class), node1, node2,
+				GRID_SPACING, freespeed, 1000., 1.);
+		NetworkUtils.createAndAddLink(network, Id.create(node2.getId() + "-" + node1.getId(), Link.class), node2, node1,
+				GRID_SPACING, freespeed, 1000., 1.);
+	}
+
+	/**
+	 * Creates one opportunity at each node of the network.
+	 */
+	private static ActivityFacilities createOpportunities(Network network) {
+		ActivityFacilities opportunities = FacilitiesUtils.createActivityFacilities();
+		for ( Node node : network.getNodes().values() ) {
+			opportunities.addActivityFacility(opportunities.getFactory().createActivityFacility(
+					Id.create(node.getId(), ActivityFacility.class), node.getCoord()));
+		}
+		return opportunities;
+	}
+}
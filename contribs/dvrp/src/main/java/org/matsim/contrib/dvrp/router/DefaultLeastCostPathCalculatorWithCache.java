@@ -19,37 +19,52 @@
 
 package org.matsim.contrib.dvrp.router;
 
-import org.matsim.api.core.v01.Id;
-import org.matsim.api.core.v01.network.Node;
+import java.util.*;
+
+import org.matsim.api.core.v01.network.*;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.contrib.dvrp.util.TimeDiscretizer;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.vehicles.Vehicle;
 
-import com.google.common.collect.*;
-
 
+/**
+ * Caches the paths calculated by the underlying calculator per (fromNode, toNode, time bin). Paths are stored as
+ * arrays of link indices. The memory is bounded by the total number of cached links; once exceeded, the least
+ * recently used paths are evicted.
+ */
 public class DefaultLeastCostPathCalculatorWithCache
     implements LeastCostPathCalculatorWithCache
 {
+    public static final int DEFAULT_MAX_CACHED_LINK_COUNT = 10_000_000;
+
     private final LeastCostPathCalculator calculator;
     private final TimeDiscretizer timeDiscretizer;
-    private final Table<Id<Node>, Id<Node>, Path>[] pathCache;
+    private final long maxCachedLinkCount;
+
+    //link index -> link, filled with the links of the cached paths
+    private Link[] linksByIndex = new Link[0];
+
+    private final LinkedHashMap<PathKey, CachedPath> pathCache = new LinkedHashMap<>(16, 0.75f,
+            true);//access order, i.e. LRU
+    private long cachedLinkCount = 0;
 
     private CacheStats cacheStats = new CacheStats();
 
 
-    @SuppressWarnings("unchecked")
     public DefaultLeastCostPathCalculatorWithCache(LeastCostPathCalculator calculator,
             TimeDiscretizer timeDiscretizer)
+    {
+        this(calculator, timeDiscretizer, DEFAULT_MAX_CACHED_LINK_COUNT);
+    }
+
+
+    public DefaultLeastCostPathCalculatorWithCache(LeastCostPathCalculator calculator,
+            TimeDiscretizer timeDiscretizer, long maxCachedLinkCount)
     {
         this.calculator = calculator;
         this.timeDiscretizer = timeDiscretizer;
-
-        pathCache = new Table[timeDiscretizer.getIntervalCount()];
-        for (int i = 0; i < pathCache.length; i++) {
-            pathCache[i] = HashBasedTable.create();
-        }
+        this.maxCachedLinkCount = maxCachedLinkCount;
     }
 
 
@@ -57,26 +72,133 @@ public class DefaultLeastCostPathCalculatorWithCache
     public Path calcLeastCostPath(Node fromNode, Node toNode, double startTime, Person person,
             Vehicle vehicle)
     {
-        Table<Id<Node>, Id<Node>, Path> spCacheSlice = pathCache[timeDiscretizer.getIdx(startTime)];
-        Path path = spCacheSlice.get(fromNode.getId(), toNode.getId());
-
-        if (path == null) {
-            cacheStats.incMisses();
-            path = calculator.calcLeastCostPath(fromNode, toNode,
-                    timeDiscretizer.discretize(startTime), person, vehicle);
-            spCacheSlice.put(fromNode.getId(), toNode.getId(), path);
-        }
-        else {
+        PathKey key = new PathKey(timeDiscretizer.getIdx(startTime), fromNode.getId().index(),
+                toNode.getId().index());
+        CachedPath cachedPath = pathCache.get(key);
+
+        if (cachedPath != null) {
             cacheStats.incHits();
+            return cachedPath.createPath(fromNode, linksByIndex);
+        }
+
+        cacheStats.incMisses();
+        Path path = calculator.calcLeastCostPath(fromNode, toNode,
+                timeDiscretizer.discretize(startTime), person, vehicle);
+
+        if (path != null) {
+            registerLinks(path);
+            cachedPath = new CachedPath(path);
+            pathCache.put(key, cachedPath);
+            cachedLinkCount += cachedPath.linkIndices.length + 1;//+1: empty paths also count
+            evict();
         }
 
         return path;
     }
 
 
+    private void registerLinks(Path path)
+    {
+        for (Link link : path.links) {
+            int idx = link.getId().index();
+            if (idx >= linksByIndex.length) {
+                linksByIndex = Arrays.copyOf(linksByIndex,
+                        Math.max(idx + 1, 2 * linksByIndex.length));
+            }
+            linksByIndex[idx] = link;
+        }
+    }
+
+
+    private void evict()
+    {
+        Iterator<CachedPath> iter = pathCache.values().iterator();
+        while (cachedLinkCount > maxCachedLinkCount && iter.hasNext()) {
+            cachedLinkCount -= iter.next().linkIndices.length + 1;
+            iter.remove();
+            cacheStats.incEvictions();
+        }
+    }
+
+
+    public int getCachedPathCount()
+    {
+        return pathCache.size();
+    }
+
+
     @Override
     public CacheStats getCacheStats()
     {
         return cacheStats;
     }
+
+
+    private static class PathKey
+    {
+        private final int timeIdx;
+        private final int fromNodeIdx;
+        private final int toNodeIdx;
+
+
+        private PathKey(int timeIdx, int fromNodeIdx, int toNodeIdx)
+        {
+            this.timeIdx = timeIdx;
+            this.fromNodeIdx = fromNodeIdx;
+            this.toNodeIdx = toNodeIdx;
+        }
+
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof PathKey)) {
+                return false;
+            }
+
+            PathKey other = (PathKey)obj;
+            return timeIdx == other.timeIdx && fromNodeIdx == other.fromNodeIdx
+                    && toNodeIdx == other.toNodeIdx;
+        }
+
+
+        @Override
+        public int hashCode()
+        {
+            return (31 * timeIdx + fromNodeIdx) * 31 + toNodeIdx;
+        }
+    }
+
+
+    private static class CachedPath
+    {
+        private final int[] linkIndices;
+        private final double travelTime;
+        private final double travelCost;
+
+
+        private CachedPath(Path path)
+        {
+            linkIndices = new int[path.links.size()];
+            for (int i = 0; i < linkIndices.length; i++) {
+                linkIndices[i] = path.links.get(i).getId().index();
+            }
+            travelTime = path.travelTime;
+            travelCost = path.travelCost;
+        }
+
+
+        private Path createPath(Node fromNode, Link[] linksByIndex)
+        {
+            List<Link> links = new ArrayList<>(linkIndices.length);
+            List<Node> nodes = new ArrayList<>(linkIndices.length + 1);
+            nodes.add(fromNode);
+            for (int idx : linkIndices) {
+                Link link = linksByIndex[idx];
+                links.add(link);
+                nodes.add(link.getToNode());
+            }
+            return new Path(nodes, links, travelTime, travelCost);
+        }
+    }
 }
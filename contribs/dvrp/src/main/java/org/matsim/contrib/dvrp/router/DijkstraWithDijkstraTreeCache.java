@@ -19,43 +19,64 @@
 
 package org.matsim.contrib.dvrp.router;
 
-import java.util.Map;
+import java.util.*;
 
-import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.*;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.contrib.dvrp.util.TimeDiscretizer;
 import org.matsim.core.router.util.*;
 import org.matsim.vehicles.Vehicle;
 
-import com.google.common.collect.Maps;
-
 
+/**
+ * Answers (one-to-many) queries from a shared {@link DijkstraTree} per (fromNode, time bin). Since each tree holds
+ * data for all nodes of the network, the number of cached trees is bounded; once exceeded, the least recently used
+ * trees are evicted.
+ */
 public class DijkstraWithDijkstraTreeCache
     implements LeastCostPathCalculatorWithCache
 {
+    public static final int DEFAULT_MAX_CACHED_TREE_COUNT = 1000;
+
     private final Network network;
     private final TravelDisutility costFunction;
     private final TravelTime timeFunction;
     private final TimeDiscretizer timeDiscretizer;
-    private final Map<Id<Node>, DijkstraTree>[] treeCache;
+    private final int maxCachedTreeCount;
+
+    private final LinkedHashMap<TreeKey, DijkstraTree> treeCache;
 
     private CacheStats cacheStats = new CacheStats();
 
 
-    @SuppressWarnings("unchecked")
     public DijkstraWithDijkstraTreeCache(Network network, TravelDisutility costFunction,
             final TravelTime timeFunction, TimeDiscretizer timeDiscretizer)
+    {
+        this(network, costFunction, timeFunction, timeDiscretizer, DEFAULT_MAX_CACHED_TREE_COUNT);
+    }
+
+
+    public DijkstraWithDijkstraTreeCache(Network network, TravelDisutility costFunction,
+            final TravelTime timeFunction, TimeDiscretizer timeDiscretizer,
+            final int maxCachedTreeCount)
     {
         this.network = network;
         this.costFunction = costFunction;
         this.timeFunction = timeFunction;
         this.timeDiscretizer = timeDiscretizer;
-
-        treeCache = new Map[timeDiscretizer.getIntervalCount()];
-        for (int i = 0; i < treeCache.length; i++) {
-            treeCache[i] = Maps.newHashMap();
-        }
+        this.maxCachedTreeCount = maxCachedTreeCount;
+
+        treeCache = new LinkedHashMap<TreeKey, DijkstraTree>(16, 0.75f, true) {//access order, i.e. LRU
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TreeKey, DijkstraTree> eldest)
+            {
+                if (size() > maxCachedTreeCount) {
+                    cacheStats.incEvictions();
+                    return true;
+                }
+                return false;
+            }
+        };
     }
 
 
@@ -68,16 +89,20 @@ public class DijkstraWithDijkstraTreeCache
     }
 
 
+    /**
+     * Returns the shortest path tree for the given origin and time bin; it answers the queries to all
+     * destinations, so it should be used for one-to-many queries.
+     */
     public DijkstraTree getTree(Node fromNode, double startTime)
     {
-        Map<Id<Node>, DijkstraTree> treeCacheSlice = treeCache[timeDiscretizer.getIdx(startTime)];
-        DijkstraTree tree = treeCacheSlice.get(fromNode.getId());
+        TreeKey key = new TreeKey(timeDiscretizer.getIdx(startTime), fromNode.getId().index());
+        DijkstraTree tree = treeCache.get(key);
 
         if (tree == null) {
             cacheStats.incMisses();
             tree = new DijkstraTree(network, costFunction, timeFunction);
             tree.calcLeastCostPathTree(fromNode, timeDiscretizer.discretize(startTime));
-            treeCacheSlice.put(fromNode.getId(), tree);
+            treeCache.put(key, tree);
         }
         else {
             cacheStats.incHits();
@@ -87,9 +112,48 @@ public class DijkstraWithDijkstraTreeCache
     }
 
 
+    public int getCachedTreeCount()
+    {
+        return treeCache.size();
+    }
+
+
     @Override
     public CacheStats getCacheStats()
     {
         return cacheStats;
     }
+
+
+    private static class TreeKey
+    {
+        private final int timeIdx;
+        private final int fromNodeIdx;
+
+
+        private TreeKey(int timeIdx, int fromNodeIdx)
+        {
+            this.timeIdx = timeIdx;
+            this.fromNodeIdx = fromNodeIdx;
+        }
+
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof TreeKey)) {
+                return false;
+            }
+
+            TreeKey other = (TreeKey)obj;
+            return timeIdx == other.timeIdx && fromNodeIdx == other.fromNodeIdx;
+        }
+
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * timeIdx + fromNodeIdx;
+        }
+    }
 }
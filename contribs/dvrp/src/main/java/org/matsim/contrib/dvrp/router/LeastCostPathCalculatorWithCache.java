@@ -29,6 +29,7 @@ public interface LeastCostPathCalculatorWithCache
     {
         private int hits = 0;
         private int misses = 0;
+        private int evictions = 0;
 
 
         public void incHits()
@@ -43,6 +44,12 @@ public interface LeastCostPathCalculatorWithCache
         }
 
 
+        public void incEvictions()
+        {
+            evictions++;
+        }
+
+
         public int getHits()
         {
             return hits;
@@ -53,6 +60,12 @@ public interface LeastCostPathCalculatorWithCache
         {
             return misses;
         }
+
+
+        public int getEvictions()
+        {
+            return evictions;
+        }
     }
 
 
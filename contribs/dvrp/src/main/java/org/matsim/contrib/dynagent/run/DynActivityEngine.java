@@ -95,6 +95,16 @@ public class DynActivityEngine
     }
 
 
+    @Override
+    public double getNextRelevantTime(double now)
+    {
+        if (!dynAgents.isEmpty() || !newDynAgents.isEmpty()) {
+            return now;//dyn agents are simulated in every time step
+        }
+        return super.getNextRelevantTime(now);
+    }
+
+
     @Override
     public boolean handleActivity(MobsimAgent agent)
     {
@@ -0,0 +1,155 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.router;
+
+import org.junit.*;
+import org.matsim.api.core.v01.*;
+import org.matsim.api.core.v01.network.*;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.Dijkstra;
+import org.matsim.core.router.util.*;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.vehicles.Vehicle;
+
+
+public class DefaultLeastCostPathCalculatorWithCacheTest
+{
+    private Network network;
+    private Node[] nodes;
+    private CountingCalculator calculator;
+
+
+    @Before
+    public void setUp()
+    {
+        //a line: 0 -> 1 -> 2 -> 3 -> 4
+        network = NetworkUtils.createNetwork();
+        nodes = new Node[5];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = NetworkUtils.createAndAddNode(network, Id.createNodeId("cache_" + i),
+                    new Coord(100 * i, 0));
+        }
+        for (int i = 0; i < nodes.length - 1; i++) {
+            NetworkUtils.createAndAddLink(network, Id.createLinkId("cache_" + i), nodes[i],
+                    nodes[i + 1], 100, 10, 1000, 1);
+        }
+
+        TravelTime travelTime = new FreeSpeedTravelTime();
+        calculator = new CountingCalculator(
+                new Dijkstra(network, new TimeAsTravelDisutility(travelTime), travelTime));
+    }
+
+
+    @Test
+    public void testHitsAndMisses()
+    {
+        DefaultLeastCostPathCalculatorWithCache cache = new DefaultLeastCostPathCalculatorWithCache(
+                calculator, TimeDiscretizer.ACYCLIC_1_HOUR);
+
+        Path path = cache.calcLeastCostPath(nodes[0], nodes[3], 0, null, null);
+        Path cachedPath = cache.calcLeastCostPath(nodes[0], nodes[3], 1000, null, null);
+        assertEqualPaths(path, cachedPath);
+        Assert.assertEquals(3, cachedPath.links.size());
+
+        //another time bin
+        cache.calcLeastCostPath(nodes[0], nodes[3], 3600, null, null);
+
+        Assert.assertEquals(1, cache.getCacheStats().getHits());
+        Assert.assertEquals(2, cache.getCacheStats().getMisses());
+        Assert.assertEquals(0, cache.getCacheStats().getEvictions());
+        Assert.assertEquals(2, calculator.calls);
+        Assert.assertEquals(2, cache.getCachedPathCount());
+    }
+
+
+    @Test
+    public void testLeastRecentlyUsedEviction()
+    {
+        //a path takes (number of links + 1)
+        DefaultLeastCostPathCalculatorWithCache cache = new DefaultLeastCostPathCalculatorWithCache(
+                calculator, TimeDiscretizer.ACYCLIC_1_HOUR, 6);
+
+        cache.calcLeastCostPath(nodes[0], nodes[2], 0, null, null);//3
+        cache.calcLeastCostPath(nodes[0], nodes[1], 0, null, null);//2
+        cache.calcLeastCostPath(nodes[0], nodes[2], 0, null, null);//hit, 0->1 is now the eldest
+        Assert.assertEquals(0, cache.getCacheStats().getEvictions());
+
+        cache.calcLeastCostPath(nodes[2], nodes[3], 0, null, null);//2, exceeds the bound
+        Assert.assertEquals(1, cache.getCacheStats().getEvictions());
+        Assert.assertEquals(2, cache.getCachedPathCount());
+
+        Assert.assertEquals(3, calculator.calls);
+        cache.calcLeastCostPath(nodes[0], nodes[2], 0, null, null);//still cached
+        Assert.assertEquals(3, calculator.calls);
+        cache.calcLeastCostPath(nodes[0], nodes[1], 0, null, null);//evicted
+        Assert.assertEquals(4, calculator.calls);
+
+        Assert.assertEquals(2, cache.getCacheStats().getHits());
+        Assert.assertEquals(4, cache.getCacheStats().getMisses());
+    }
+
+
+    @Test
+    public void testPathLongerThanBoundIsNotKept()
+    {
+        DefaultLeastCostPathCalculatorWithCache cache = new DefaultLeastCostPathCalculatorWithCache(
+                calculator, TimeDiscretizer.ACYCLIC_1_HOUR, 3);
+
+        Path path = cache.calcLeastCostPath(nodes[0], nodes[4], 0, null, null);
+        Assert.assertEquals(4, path.links.size());
+        Assert.assertEquals(0, cache.getCachedPathCount());
+        Assert.assertEquals(1, cache.getCacheStats().getEvictions());
+    }
+
+
+    private static void assertEqualPaths(Path expected, Path actual)
+    {
+        Assert.assertEquals(expected.nodes, actual.nodes);
+        Assert.assertEquals(expected.links, actual.links);
+        Assert.assertEquals(expected.travelTime, actual.travelTime, 0);
+        Assert.assertEquals(expected.travelCost, actual.travelCost, 0);
+    }
+
+
+    private static class CountingCalculator
+        implements LeastCostPathCalculator
+    {
+        private final LeastCostPathCalculator delegate;
+        private int calls = 0;
+
+
+        private CountingCalculator(LeastCostPathCalculator delegate)
+        {
+            this.delegate = delegate;
+        }
+
+
+        @Override
+        public Path calcLeastCostPath(Node fromNode, Node toNode, double starttime, Person person,
+                Vehicle vehicle)
+        {
+            calls++;
+            return delegate.calcLeastCostPath(fromNode, toNode, starttime, person, vehicle);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BatchedEmissionCalculation.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.contrib.emissions;
+
+import gnu.trove.list.array.TIntArrayList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Offline emission calculation for an events file (xml or binary) using several threads.
+ * <p/>
+ * The events are read in batches. All state of the {@link WarmEmissionHandler} and the {@link ColdEmissionHandler} is kept
+ * per vehicle, so the vehicles are partitioned into shards, each with its own pair of handlers, and the shards of a
+ * batch are processed in parallel. Afterwards, the emission events of all shards are thrown into the output events
+ * manager in the order of the events which triggered them, i.e. in the same order as in a sequential calculation.
+ * <p/>
+ * Usage:
+ * <pre>
+ * EmissionModule emissionModule = new EmissionModule(scenario);
+ * emissionModule.createLookupTables();
+ * new BatchedEmissionCalculation(emissionModule, numberOfThreads).run(eventsFile, emissionEventsManager);
+ * </pre>
+ */
+public final class BatchedEmissionCalculation {
+	private static final Logger log = Logger.getLogger(BatchedEmissionCalculation.class);
+
+	private final EmissionModule emissionModule;
+	private final int numberOfThreads;
+	private int batchSize = 100000;
+
+	public BatchedEmissionCalculation(EmissionModule emissionModule, int numberOfThreads) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("Number of threads must be at least 1, but is " + numberOfThreads);
+		}
+		this.emissionModule = emissionModule;
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	/**
+	 * Sets the number of events which are buffered before they are processed in parallel. Default is 100000.
+	 */
+	public void setBatchSize(int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be at least 1, but is " + batchSize);
+		}
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Calculates the emissions for the given events file and throws the resulting emission events into
+	 * <code>emissionEventsManager</code>.
+	 */
+	public void run(String eventsFile, EventsManager emissionEventsManager) {
+		log.info("calculating emissions for " + eventsFile + " using " + numberOfThreads + " threads...");
+		Shard[] shards = new Shard[numberOfThreads];
+		for (int i = 0; i < numberOfThreads; i++) {
+			shards[i] = new Shard(emissionModule);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		try {
+			BatchingHandler batchingHandler = new BatchingHandler(shards, executor, emissionEventsManager);
+			EventsManager eventsManager = EventsUtils.createEventsManager();
+			eventsManager.addHandler(batchingHandler);
+			new MatsimEventsReader(eventsManager).readFile(eventsFile);
+			batchingHandler.processBatch();
+		} finally {
+			executor.shutdown();
+		}
+
+		logInformation(shards);
+	}
+
+	private static void logInformation(Shard[] shards) {
+		int linkLeaveCnt = 0;
+		int linkLeaveWarnCnt = 0;
+		int warmEmissionEventCnt = 0;
+		int freeFlowCnt = 0;
+		int stopGoCnt = 0;
+		int fractionCnt = 0;
+		double km = 0.;
+		double freeFlowKm = 0.;
+		double stopGoKm = 0.;
+		for (Shard shard : shards) {
+			linkLeaveCnt += shard.warmEmissionHandler.getLinkLeaveCnt();
+			linkLeaveWarnCnt += shard.warmEmissionHandler.getLinkLeaveWarnCnt();
+			WarmEmissionAnalysisModule wam = shard.warmEmissionHandler.getWarmEmissionAnalysisModule();
+			warmEmissionEventCnt += wam.getWarmEmissionEventCounter();
+			freeFlowCnt += wam.getFreeFlowOccurences();
+			stopGoCnt += wam.getStopGoOccurences();
+			fractionCnt += wam.getFractionOccurences();
+			km += wam.getKmCounter();
+			freeFlowKm += wam.getFreeFlowKmCounter();
+			stopGoKm += wam.getStopGoKmCounter();
+		}
+		log.info("Warm emissions were not calculated for " + linkLeaveWarnCnt + " of " + linkLeaveCnt + " link leave events (no corresponding link enter event).");
+		log.info("Emission calculation based on `Free flow only' occured for " + freeFlowCnt + " of " + warmEmissionEventCnt + " warm emission events.");
+		log.info("Emission calculation based on `Stop&Go only' occured for " + stopGoCnt + " of " + warmEmissionEventCnt + " warm emission events.");
+		log.info("Emission calculation based on `Fractions' occured for " + fractionCnt + " of " + warmEmissionEventCnt + " warm emission events.");
+		log.info("Free flow occured on " + freeFlowKm + " km of total " + km + " km, where emissions were calculated.");
+		log.info("Stop&Go occured on " + stopGoKm + " km of total " + km + " km, where emissions were calculated.");
+	}
+
+	private static Id<Vehicle> getVehicleId(Event event) {
+		if (event instanceof LinkLeaveEvent) {
+			return ((LinkLeaveEvent) event).getVehicleId();
+		} else if (event instanceof LinkEnterEvent) {
+			return ((LinkEnterEvent) event).getVehicleId();
+		} else if (event instanceof VehicleEntersTrafficEvent) {
+			return ((VehicleEntersTrafficEvent) event).getVehicleId();
+		} else if (event instanceof VehicleLeavesTrafficEvent) {
+			return ((VehicleLeavesTrafficEvent) event).getVehicleId();
+		}
+		return null;
+	}
+
+	/**
+	 * Buffers the relevant events of the input, assigns them to the shards and processes a batch once it is full.
+	 */
+	private final class BatchingHandler implements BasicEventHandler {
+		private final Shard[] shards;
+		private final ExecutorService executor;
+		private final EventsManager emissionEventsManager;
+		private final List<Event> batch = new ArrayList<>();
+		private final TIntArrayList batchShards = new TIntArrayList();
+
+		BatchingHandler(Shard[] shards, ExecutorService executor, EventsManager emissionEventsManager) {
+			this.shards = shards;
+			this.executor = executor;
+			this.emissionEventsManager = emissionEventsManager;
+		}
+
+		@Override
+		public void handleEvent(Event event) {
+			Id<Vehicle> vehicleId = getVehicleId(event);
+			if (vehicleId == null) {
+				return; // not relevant for the emission handlers
+			}
+			int shardIndex = (vehicleId.hashCode() & Integer.MAX_VALUE) % shards.length;
+			shards[shardIndex].add(batch.size(), event);
+			batch.add(event);
+			batchShards.add(shardIndex);
+			if (batch.size() >= batchSize) {
+				processBatch();
+			}
+		}
+
+		@Override
+		public void reset(int iteration) {
+		}
+
+		void processBatch() {
+			if (batch.isEmpty()) {
+				return;
+			}
+			List<Future<?>> futures = new ArrayList<>();
+			for (final Shard shard : shards) {
+				futures.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						shard.process();
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				try {
+					future.get();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				} catch (ExecutionException e) {
+					throw new RuntimeException(e.getCause());
+				}
+			}
+
+			// merge the emission events in the order of the events which caused them
+			int[] position = new int[shards.length];
+			for (int i = 0; i < batch.size(); i++) {
+				int shardIndex = batchShards.get(i);
+				Shard shard = shards[shardIndex];
+				int pos = position[shardIndex];
+				while (pos < shard.emissionEvents.size() && shard.emissionEventCauses.get(pos) == i) {
+					emissionEventsManager.processEvent(shard.emissionEvents.get(pos));
+					pos++;
+				}
+				position[shardIndex] = pos;
+			}
+
+			for (Shard shard : shards) {
+				shard.clear();
+			}
+			batch.clear();
+			batchShards.clear();
+		}
+	}
+
+	/**
+	 * The emission handlers for a subset of the vehicles, together with the events of the current batch for these vehicles
+	 * and the emission events resulting from them.
+	 */
+	private static final class Shard implements BasicEventHandler {
+		private final EventsManager eventsManager = EventsUtils.createEventsManager();
+		private final WarmEmissionHandler warmEmissionHandler;
+		private final ColdEmissionHandler coldEmissionHandler;
+
+		private final List<Event> events = new ArrayList<>();
+		private final TIntArrayList eventIndices = new TIntArrayList();
+		private final List<Event> emissionEvents = new ArrayList<>();
+		private final TIntArrayList emissionEventCauses = new TIntArrayList();
+		private int currentEventIndex = -1;
+
+		Shard(EmissionModule emissionModule) {
+			EventsManager shardEmissionEventsManager = EventsUtils.createEventsManager();
+			shardEmissionEventsManager.addHandler(this);
+			// same order as in the sequential calculation: warm emissions before cold emissions
+			this.warmEmissionHandler = emissionModule.createWarmEmissionHandler(shardEmissionEventsManager);
+			this.coldEmissionHandler = emissionModule.createColdEmissionHandler(shardEmissionEventsManager);
+			this.eventsManager.addHandler(this.warmEmissionHandler);
+			this.eventsManager.addHandler(this.coldEmissionHandler);
+		}
+
+		void add(int eventIndex, Event event) {
+			events.add(event);
+			eventIndices.add(eventIndex);
+		}
+
+		void process() {
+			for (int i = 0; i < events.size(); i++) {
+				currentEventIndex = eventIndices.get(i);
+				eventsManager.processEvent(events.get(i));
+			}
+			currentEventIndex = -1;
+		}
+
+		void clear() {
+			events.clear();
+			eventIndices.clear();
+			emissionEvents.clear();
+			emissionEventCauses.clear();
+		}
+
+		/**
+		 * Collects the emission events thrown by the handlers of this shard.
+		 */
+		@Override
+		public void handleEvent(Event event) {
+			emissionEvents.add(event);
+			emissionEventCauses.add(currentEventIndex);
+		}
+
+		@Override
+		public void reset(int iteration) {
+		}
+	}
+}
@@ -21,6 +21,8 @@
  * *********************************************************************** */
 package org.matsim.contrib.emissions;
 
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -32,6 +34,7 @@ import org.matsim.contrib.emissions.events.ColdEmissionEvent;
 import org.matsim.contrib.emissions.types.ColdPollutant;
 import org.matsim.contrib.emissions.types.HbefaColdEmissionFactor;
 import org.matsim.contrib.emissions.types.HbefaColdEmissionFactorKey;
+import org.matsim.contrib.emissions.types.HbefaColdEmissionFactorTable;
 import org.matsim.contrib.emissions.types.HbefaVehicleAttributes;
 import org.matsim.contrib.emissions.types.HbefaVehicleCategory;
 import org.matsim.contrib.emissions.utils.EmissionsConfigGroup;
@@ -72,8 +75,11 @@ import org.matsim.vehicles.VehicleType;
 public class ColdEmissionAnalysisModule {
 	private static final Logger logger = Logger.getLogger(ColdEmissionAnalysisModule.class);
 	
-	private final Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> avgHbefaColdTable;
-	private final Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> detailedHbefaColdTable;
+	private final HbefaColdEmissionFactorTable avgHbefaColdTable;
+	private final HbefaColdEmissionFactorTable detailedHbefaColdTable;
+	
+	private final Map<Id<VehicleType>, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes>> vehicleTypeId2Information = new HashMap<>();
+	private final double[] coldEmissionsOfEvent = new double[ColdPollutant.values().length];
 	
 	private final EventsManager eventsManager;
 	private final Double emissionEfficiencyFactor;
@@ -82,15 +88,24 @@ public class ColdEmissionAnalysisModule {
 	private int vehAttributesNotSpecifiedCnt = 0;
 	private static final int maxWarnCnt = 3;
 
+	/**
+	 * As in {@link WarmEmissionAnalysisModuleParameter}, the cold emission factor tables are compiled when the parameter
+	 * object is created, and the table fields are unmodifiable views.
+	 */
 	public static class ColdEmissionAnalysisModuleParameter {
 		public final Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> avgHbefaColdTable;
 		public final Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> detailedHbefaColdTable;
+		// the tables above compiled into dense arrays; shared by all modules created with this parameter object
+		final HbefaColdEmissionFactorTable avgHbefaColdFactorTable;
+		final HbefaColdEmissionFactorTable detailedHbefaColdFactorTable;
 
 		public ColdEmissionAnalysisModuleParameter(
 				Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> avgHbefaColdTable,
 				Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> detailedHbefaColdTable) {
-			this.avgHbefaColdTable = avgHbefaColdTable;
-			this.detailedHbefaColdTable = detailedHbefaColdTable;
+			this.avgHbefaColdTable = avgHbefaColdTable == null ? null : Collections.unmodifiableMap(avgHbefaColdTable);
+			this.detailedHbefaColdTable = detailedHbefaColdTable == null ? null : Collections.unmodifiableMap(detailedHbefaColdTable);
+			this.avgHbefaColdFactorTable = avgHbefaColdTable == null ? null : new HbefaColdEmissionFactorTable(avgHbefaColdTable);
+			this.detailedHbefaColdFactorTable = detailedHbefaColdTable == null ? null : new HbefaColdEmissionFactorTable(detailedHbefaColdTable);
 		}
 	}
 
@@ -98,8 +113,8 @@ public class ColdEmissionAnalysisModule {
 			ColdEmissionAnalysisModuleParameter parameterObject,
 			EventsManager emissionEventsManager, Double emissionEfficiencyFactor) {
 
-		this.avgHbefaColdTable = parameterObject.avgHbefaColdTable;
-		this.detailedHbefaColdTable = parameterObject.detailedHbefaColdTable;
+		this.avgHbefaColdTable = parameterObject.avgHbefaColdFactorTable;
+		this.detailedHbefaColdTable = parameterObject.detailedHbefaColdFactorTable;
 		this.eventsManager = emissionEventsManager;
 		this.emissionEfficiencyFactor = emissionEfficiencyFactor;
 	}
@@ -124,41 +139,45 @@ public class ColdEmissionAnalysisModule {
 					"Please make sure that requirements for emission vehicles in "
 					+ EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
 		}
-		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = convertVehicleTypeId2VehicleInformationTuple(vehicleTypeId);
+		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = this.vehicleTypeId2Information.get(vehicleTypeId);
+		if (vehicleInformationTuple == null){
+			vehicleInformationTuple = convertVehicleTypeId2VehicleInformationTuple(vehicleTypeId);
+			this.vehicleTypeId2Information.put(vehicleTypeId, vehicleInformationTuple);
+		}
 		if (vehicleInformationTuple.getFirst() == null){
 			throw new RuntimeException("Vehicle category for vehicle " + vehicleId + " is not valid. " +
 					"Please make sure that requirements for emission vehicles in " + 
 					EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
 		}
-        coldEmissions = getColdPollutantDoubleMap(vehicleId, parkingDuration, vehicleInformationTuple, distance_km);
+        double[] coldEmissionsOfEvent = this.coldEmissionsOfEvent;
+        calculateColdEmissions(vehicleId, parkingDuration, vehicleInformationTuple, distance_km, coldEmissionsOfEvent);
 
 		// a basic apporach to introduce emission reduced cars:
 		if(emissionEfficiencyFactor != null){
-			coldEmissions = rescaleColdEmissions(coldEmissions);
+			rescaleColdEmissions(coldEmissionsOfEvent);
+		}
+		coldEmissions = new EnumMap<>(ColdPollutant.class);
+		for (ColdPollutant coldPollutant : ColdPollutant.values()) {
+			coldEmissions.put(coldPollutant, coldEmissionsOfEvent[coldPollutant.ordinal()]);
 		}
 		Event coldEmissionEvent = new ColdEmissionEvent(eventTime, coldEmissionEventLinkId, vehicleId, coldEmissions);
 		this.eventsManager.processEvent(coldEmissionEvent);
 	}
 
-	private Map<ColdPollutant, Double> rescaleColdEmissions(Map<ColdPollutant, Double> coldEmissions) {
-		Map<ColdPollutant, Double> rescaledColdEmissions = new HashMap<>();
-		
-		for(ColdPollutant wp : coldEmissions.keySet()){
-			Double orgValue = coldEmissions.get(wp);
-			Double rescaledValue = emissionEfficiencyFactor * orgValue;
-			rescaledColdEmissions.put(wp, rescaledValue);
+	private void rescaleColdEmissions(double[] coldEmissions) {
+		for(int i = 0; i < coldEmissions.length; i++){
+			coldEmissions[i] = emissionEfficiencyFactor * coldEmissions[i];
 		}
-		return rescaledColdEmissions;
 	}
 
-    private Map<ColdPollutant, Double> getColdPollutantDoubleMap(Id<Vehicle> vehicleId, double parkingDuration, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, int distance_km) {
-        Map<ColdPollutant, Double> coldEmissionsOfEvent = new HashMap<>();
-
-        HbefaColdEmissionFactorKey key = new HbefaColdEmissionFactorKey();
+    /**
+     * Calculates the emissions of all cold pollutants into the array, indexed by {@link ColdPollutant#ordinal()}.
+     */
+    private void calculateColdEmissions(Id<Vehicle> vehicleId, double parkingDuration, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, int distance_km, double[] coldEmissionsOfEvent) {
+        HbefaVehicleCategory hbefaVehicleCategory;
 
         if(vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE)){
-            key.setHbefaVehicleCategory(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE);
-            key.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
+            hbefaVehicleCategory = HbefaVehicleCategory.PASSENGER_CAR;
             if(vehInfoWarnHDVCnt < maxWarnCnt) {
                 vehInfoWarnHDVCnt++;
                 logger.warn("HBEFA 3.1 does not provide cold start emission factors for " +
@@ -167,44 +186,40 @@ public class ColdEmissionAnalysisModule {
                 if(vehInfoWarnHDVCnt == maxWarnCnt) logger.warn(Gbl.FUTURE_SUPPRESSED);
             }
         } else{
-            key.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
+            hbefaVehicleCategory = HbefaVehicleCategory.PASSENGER_CAR;
         }
 
 
         int parkingDuration_h = Math.max(1, (int) (parkingDuration / 3600));
         if (parkingDuration_h >= 12) parkingDuration_h = 13;
 
-        key.setHbefaParkingTime(parkingDuration_h);
+        // without detailed table, the fleet average values are looked up with average vehicle attributes
+        HbefaVehicleAttributes hbefaVehicleAttributes = this.detailedHbefaColdTable != null ? vehicleInformationTuple.getSecond() : new HbefaVehicleAttributes();
+        int avgAttributesIndex = this.avgHbefaColdTable == null ? -1 : this.avgHbefaColdTable.getVehicleAttributesIndex(hbefaVehicleAttributes);
+        int detailedAttributesIndex = this.detailedHbefaColdTable == null ? -1 : this.detailedHbefaColdTable.getVehicleAttributesIndex(hbefaVehicleAttributes);
 
         for (ColdPollutant coldPollutant : ColdPollutant.values()) {
             double generatedEmissions;
             if (distance_km == 1) {
-               generatedEmissions = getTableEmissions(vehicleId, vehicleInformationTuple, 1, key, coldPollutant);
+               generatedEmissions = getTableEmissions(vehicleId, vehicleInformationTuple, hbefaVehicleCategory, parkingDuration_h, 1, avgAttributesIndex, detailedAttributesIndex, coldPollutant);
             } else {
-               generatedEmissions = getTableEmissions(vehicleId, vehicleInformationTuple, 2, key, coldPollutant) - getTableEmissions(vehicleId, vehicleInformationTuple, 1, key, coldPollutant);
+               generatedEmissions = getTableEmissions(vehicleId, vehicleInformationTuple, hbefaVehicleCategory, parkingDuration_h, 2, avgAttributesIndex, detailedAttributesIndex, coldPollutant)
+            		   - getTableEmissions(vehicleId, vehicleInformationTuple, hbefaVehicleCategory, parkingDuration_h, 1, avgAttributesIndex, detailedAttributesIndex, coldPollutant);
             }
-            coldEmissionsOfEvent.put(coldPollutant, generatedEmissions);
+            coldEmissionsOfEvent[coldPollutant.ordinal()] = generatedEmissions;
         }
-        return coldEmissionsOfEvent;
     }
 
-    private double getTableEmissions(Id<Vehicle> vehicleId, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, int distance_km, HbefaColdEmissionFactorKey key, ColdPollutant coldPollutant) {
-        key.setHbefaDistance(distance_km);
+    private double getTableEmissions(Id<Vehicle> vehicleId, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple,
+    		HbefaVehicleCategory hbefaVehicleCategory, int parkingDuration_h, int distance_km, int avgAttributesIndex, int detailedAttributesIndex, ColdPollutant coldPollutant) {
         double generatedEmissions;
 
-        key.setHbefaComponent(coldPollutant);
-
         if(this.detailedHbefaColdTable != null){ // check if detailed emission factors file is set in config
-            HbefaVehicleAttributes hbefaVehicleAttributes = new HbefaVehicleAttributes();
-            hbefaVehicleAttributes.setHbefaTechnology(vehicleInformationTuple.getSecond().getHbefaTechnology());
-            hbefaVehicleAttributes.setHbefaSizeClass(vehicleInformationTuple.getSecond().getHbefaSizeClass());
-            hbefaVehicleAttributes.setHbefaEmConcept(vehicleInformationTuple.getSecond().getHbefaEmConcept());
-            key.setHbefaVehicleAttributes(hbefaVehicleAttributes);
-
-            if(this.detailedHbefaColdTable.containsKey(key)){
-                generatedEmissions = this.detailedHbefaColdTable.get(key).getColdEmissionFactor();
+            int detailed = this.detailedHbefaColdTable.getOffset(hbefaVehicleCategory, parkingDuration_h, distance_km, detailedAttributesIndex);
+            if(this.detailedHbefaColdTable.contains(detailed, coldPollutant)){
+                generatedEmissions = this.detailedHbefaColdTable.getColdEmissionFactor(detailed, coldPollutant);
             } else {
-                generatedEmissions = this.avgHbefaColdTable.get(key).getColdEmissionFactor();
+                generatedEmissions = getAvgTableEmissions(vehicleInformationTuple, hbefaVehicleCategory, parkingDuration_h, distance_km, avgAttributesIndex, coldPollutant);
 
                 if(vehAttributesNotSpecifiedCnt < maxWarnCnt) {
                     vehAttributesNotSpecifiedCnt++;
@@ -214,11 +229,21 @@ public class ColdEmissionAnalysisModule {
                 }
             }
         } else {
-            generatedEmissions = this.avgHbefaColdTable.get(key).getColdEmissionFactor();
+            generatedEmissions = getAvgTableEmissions(vehicleInformationTuple, hbefaVehicleCategory, parkingDuration_h, distance_km, avgAttributesIndex, coldPollutant);
         }
         return generatedEmissions;
     }
 
+    private double getAvgTableEmissions(Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple,
+    		HbefaVehicleCategory hbefaVehicleCategory, int parkingDuration_h, int distance_km, int avgAttributesIndex, ColdPollutant coldPollutant) {
+        int avg = this.avgHbefaColdTable == null ? -1 : this.avgHbefaColdTable.getOffset(hbefaVehicleCategory, parkingDuration_h, distance_km, avgAttributesIndex);
+        if(avg < 0 || !this.avgHbefaColdTable.contains(avg, coldPollutant)){
+            throw new RuntimeException("No average cold emission factor for " + coldPollutant + " for " + hbefaVehicleCategory + " with parking time " +
+                    parkingDuration_h + " h, distance " + distance_km + " km and vehicle attributes `" + vehicleInformationTuple.getSecond() + "'. Aborting...");
+        }
+        return this.avgHbefaColdTable.getColdEmissionFactor(avg, coldPollutant);
+    }
+
     private Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> convertVehicleTypeId2VehicleInformationTuple(Id<VehicleType> vehicleTypeId) {
 		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple;
 		HbefaVehicleCategory hbefaVehicleCategory = null;
@@ -21,7 +21,6 @@ package org.matsim.contrib.emissions;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Scenario;
-import org.matsim.api.core.v01.network.Network;
 import org.matsim.contrib.emissions.ColdEmissionAnalysisModule.ColdEmissionAnalysisModuleParameter;
 import org.matsim.contrib.emissions.WarmEmissionAnalysisModule.WarmEmissionAnalysisModuleParameter;
 import org.matsim.contrib.emissions.types.*;
@@ -73,6 +72,8 @@ public class EmissionModule {
 	private Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> detailedHbefaWarmTable;
 	private Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> detailedHbefaColdTable;
 
+	private WarmEmissionAnalysisModuleParameter warmParameterObject;
+	private ColdEmissionAnalysisModuleParameter coldParameterObject;
 
 	public EmissionModule(Scenario scenario) {
 		this.scenario = scenario;
@@ -103,6 +104,8 @@ public class EmissionModule {
 		else{
 			logger.warn("Detailed emission calculation is switched off in " + VspExperimentalConfigGroup.GROUP_NAME + " config group; Using fleet average values for all vehicles.");
 		}
+		warmParameterObject = null;
+		coldParameterObject = null;
 		logger.info("leaving createLookupTables");
 	}
 
@@ -124,16 +127,34 @@ public class EmissionModule {
 		logger.info("entering createEmissionHandler");
 		
 		emissionEventsManager = EventsUtils.createEventsManager();
-		Network network = scenario.getNetwork() ;
 
-		WarmEmissionAnalysisModuleParameter parameterObject = new WarmEmissionAnalysisModuleParameter(roadTypeMapping, avgHbefaWarmTable, detailedHbefaWarmTable);
-		ColdEmissionAnalysisModuleParameter parameterObject2 = new ColdEmissionAnalysisModuleParameter(avgHbefaColdTable, detailedHbefaColdTable);
-		
-		warmEmissionHandler = new WarmEmissionHandler(emissionVehicles,	network, parameterObject, emissionEventsManager, emissionEfficiencyFactor);
-		coldEmissionHandler = new ColdEmissionHandler(emissionVehicles, network, parameterObject2, emissionEventsManager, emissionEfficiencyFactor);
+		warmEmissionHandler = createWarmEmissionHandler(emissionEventsManager);
+		coldEmissionHandler = createColdEmissionHandler(emissionEventsManager);
 		logger.info("leaving createEmissionHandler");
 	}
 
+	/**
+	 * Creates an additional warm emission handler which throws its emission events into the given events manager.
+	 * All handlers created by this module share the same (compiled) lookup tables.
+	 */
+	WarmEmissionHandler createWarmEmissionHandler(EventsManager eventsManager) {
+		if (warmParameterObject == null) {
+			warmParameterObject = new WarmEmissionAnalysisModuleParameter(roadTypeMapping, avgHbefaWarmTable, detailedHbefaWarmTable);
+		}
+		return new WarmEmissionHandler(emissionVehicles, scenario.getNetwork(), warmParameterObject, eventsManager, emissionEfficiencyFactor);
+	}
+
+	/**
+	 * Creates an additional cold emission handler which throws its emission events into the given events manager.
+	 * All handlers created by this module share the same (compiled) lookup tables.
+	 */
+	ColdEmissionHandler createColdEmissionHandler(EventsManager eventsManager) {
+		if (coldParameterObject == null) {
+			coldParameterObject = new ColdEmissionAnalysisModuleParameter(avgHbefaColdTable, detailedHbefaColdTable);
+		}
+		return new ColdEmissionHandler(emissionVehicles, scenario.getNetwork(), coldParameterObject, eventsManager, emissionEfficiencyFactor);
+	}
+
 	private Map<Integer, String> createRoadTypeMapping(String filename){
 		logger.info("entering createRoadTypeMapping ...") ;
 		
@@ -21,6 +21,8 @@
  * *********************************************************************** */
 package org.matsim.contrib.emissions;
 
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -34,6 +36,7 @@ import org.matsim.contrib.emissions.types.HbefaVehicleAttributes;
 import org.matsim.contrib.emissions.types.HbefaVehicleCategory;
 import org.matsim.contrib.emissions.types.HbefaWarmEmissionFactor;
 import org.matsim.contrib.emissions.types.HbefaWarmEmissionFactorKey;
+import org.matsim.contrib.emissions.types.HbefaWarmEmissionFactorTable;
 import org.matsim.contrib.emissions.types.WarmPollutant;
 import org.matsim.contrib.emissions.utils.EmissionsConfigGroup;
 import org.matsim.core.api.experimental.events.EventsManager;
@@ -52,8 +55,11 @@ public class WarmEmissionAnalysisModule {
 
 	private final Map<Integer, String> roadTypeMapping;
 
-	private final Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> avgHbefaWarmTable;
-	private final Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> detailedHbefaWarmTable;
+	private final HbefaWarmEmissionFactorTable avgHbefaWarmTable;
+	private final HbefaWarmEmissionFactorTable detailedHbefaWarmTable;
+
+	private final Map<Id<VehicleType>, VehicleInformation> vehicleTypeId2Information = new HashMap<>();
+	private final double[] warmEmissionsOfEvent = new double[WarmPollutant.values().length];
 
 	private final EventsManager eventsManager;
 	private final Double emissionEfficiencyFactor;
@@ -74,19 +80,26 @@ public class WarmEmissionAnalysisModule {
 	private double stopGoKmCounter = 0.0;
 
 
+	/**
+	 * The warm emission factor tables are compiled into dense arrays when the parameter object is created. Changes to
+	 * the table maps after that have no effect on the emission calculation, so the table fields are unmodifiable views.
+	 */
 	public static class WarmEmissionAnalysisModuleParameter {
 
 		public final Map<Integer, String> roadTypeMapping;
 		public final Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> avgHbefaWarmTable;
 		public final Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> detailedHbefaWarmTable;
+		// the tables above compiled into dense arrays; shared by all modules created with this parameter object
+		final HbefaWarmEmissionFactorTable avgHbefaWarmFactorTable;
+		final HbefaWarmEmissionFactorTable detailedHbefaWarmFactorTable;
 
 		public WarmEmissionAnalysisModuleParameter(
 				Map<Integer, String> roadTypeMapping,
 				Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> avgHbefaWarmTable,
 				Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> detailedHbefaWarmTable) {
 			this.roadTypeMapping = roadTypeMapping;
-			this.avgHbefaWarmTable = avgHbefaWarmTable;
-			this.detailedHbefaWarmTable = detailedHbefaWarmTable;
+			this.avgHbefaWarmTable = avgHbefaWarmTable == null ? null : Collections.unmodifiableMap(avgHbefaWarmTable);
+			this.detailedHbefaWarmTable = detailedHbefaWarmTable == null ? null : Collections.unmodifiableMap(detailedHbefaWarmTable);
 			// check if all needed tables are non-null
 			if(roadTypeMapping == null){
 				 logger.error("Road type mapping not set. Aborting...");
@@ -96,6 +109,8 @@ public class WarmEmissionAnalysisModule {
 				 logger.error("Neither average nor detailed table vor Hbefa warm emissions set. Aborting...");
 				 System.exit(0);
 			}
+			this.avgHbefaWarmFactorTable = avgHbefaWarmTable == null ? null : new HbefaWarmEmissionFactorTable(avgHbefaWarmTable);
+			this.detailedHbefaWarmFactorTable = detailedHbefaWarmTable == null ? null : new HbefaWarmEmissionFactorTable(detailedHbefaWarmTable);
 		}
 	}
 
@@ -112,8 +127,8 @@ public class WarmEmissionAnalysisModule {
 			System.exit(0);
 		}
 		this.roadTypeMapping = parameterObject.roadTypeMapping;
-		this.avgHbefaWarmTable = parameterObject.avgHbefaWarmTable;
-		this.detailedHbefaWarmTable = parameterObject.detailedHbefaWarmTable;
+		this.avgHbefaWarmTable = parameterObject.avgHbefaWarmFactorTable;
+		this.detailedHbefaWarmTable = parameterObject.detailedHbefaWarmFactorTable;
 		this.eventsManager = emissionEventsManager;
 		this.emissionEfficiencyFactor = emissionEfficiencyFactor;
 		
@@ -147,73 +162,64 @@ public class WarmEmissionAnalysisModule {
 			double linkLength,
 			double travelTime) {
 
-		Map<WarmPollutant, Double> warmEmissions;
 		if(vehicle == null || vehicle.getType() == null || vehicle.getType().getId() == null){
 			throw new RuntimeException("Vehicle type description for vehicle " + vehicle + "is missing. " +
 					"Please make sure that requirements for emission vehicles in "
 					+ EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
 		}
 		
-		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = convertVehicleTypeId2VehicleInformationTuple(vehicle.getType().getId());
-		if (vehicleInformationTuple.getFirst() == null){
+		VehicleInformation vehicleInformation = getVehicleInformation(vehicle.getType().getId());
+		if (vehicleInformation.hbefaVehicleCategory == null){
 			throw new RuntimeException("Vehicle category for vehicle " + vehicle + " is not valid. " +
 					"Please make sure that requirements for emission vehicles in " + 
 					EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
 		}
-		warmEmissions = calculateWarmEmissions(vehicle.getId(), travelTime, roadType, freeVelocity, linkLength, vehicleInformationTuple);
+		double[] warmEmissions = this.warmEmissionsOfEvent;
+		calculateWarmEmissions(vehicle.getId(), travelTime, roadType, freeVelocity, linkLength, vehicleInformation, warmEmissions);
 		
 		// a basic apporach to introduce emission reduced cars:
 		if(emissionEfficiencyFactor != null){
-			warmEmissions = rescaleWarmEmissions(warmEmissions);
+			rescaleWarmEmissions(warmEmissions);
+		}
+		
+		Map<WarmPollutant, Double> warmEmissionsOfEvent = new EnumMap<>(WarmPollutant.class);
+		for (WarmPollutant warmPollutant : WarmPollutant.values()) {
+			warmEmissionsOfEvent.put(warmPollutant, warmEmissions[warmPollutant.ordinal()]);
 		}
-		return warmEmissions;
+		return warmEmissionsOfEvent;
 	}
 	
-	private Map<WarmPollutant, Double> rescaleWarmEmissions(Map<WarmPollutant, Double> warmEmissions) {
-		Map<WarmPollutant, Double> rescaledWarmEmissions = new HashMap<>();
-		
-		for(WarmPollutant wp : warmEmissions.keySet()){
-			Double orgValue = warmEmissions.get(wp);
-			Double rescaledValue = emissionEfficiencyFactor * orgValue;
-			rescaledWarmEmissions.put(wp, rescaledValue);
+	private void rescaleWarmEmissions(double[] warmEmissions) {
+		for(int i = 0; i < warmEmissions.length; i++){
+			warmEmissions[i] = emissionEfficiencyFactor * warmEmissions[i];
 		}
-		return rescaledWarmEmissions;
 	}
 
-	private Map<WarmPollutant, Double> calculateWarmEmissions(
+	/**
+	 * Calculates the emissions of all warm pollutants into the array, indexed by {@link WarmPollutant#ordinal()}.
+	 */
+	private void calculateWarmEmissions(
 			Id<Vehicle> vehicleId,
 			double travelTime,
 			int roadType,
 			double freeVelocity,
 			double linkLength,
-			Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple) {
-
-		Map<WarmPollutant, Double> warmEmissionsOfEvent = new HashMap<>();
+			VehicleInformation vehicleInformation,
+			double[] warmEmissionsOfEvent) {
 
 		String hbefaRoadTypeName = this.roadTypeMapping.get(roadType);
 
-		HbefaWarmEmissionFactorKey keyFreeFlow = new HbefaWarmEmissionFactorKey();
-		HbefaWarmEmissionFactorKey keyStopAndGo = new HbefaWarmEmissionFactorKey();
-
-		if(vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE)){
-			keyFreeFlow.setHbefaVehicleCategory(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE);
-			keyStopAndGo.setHbefaVehicleCategory(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE);
-		} else{
-			keyFreeFlow.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
-			keyStopAndGo.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
-		}
-		keyFreeFlow.setHbefaRoadCategory(hbefaRoadTypeName);
-		keyStopAndGo.setHbefaRoadCategory(hbefaRoadTypeName);
-		keyFreeFlow.setHbefaTrafficSituation(HbefaTrafficSituation.FREEFLOW);
-		keyStopAndGo.setHbefaTrafficSituation(HbefaTrafficSituation.STOPANDGO);
-
+		int avgFreeFlow = this.avgHbefaWarmTable == null ? -1 : this.avgHbefaWarmTable.getOffset(this.avgHbefaWarmTable.getRoadCategoryIndex(hbefaRoadTypeName),
+				HbefaTrafficSituation.FREEFLOW, vehicleInformation.hbefaVehicleCategory, vehicleInformation.avgAttributesIndex);
+		int avgStopAndGo = this.avgHbefaWarmTable == null ? -1 : this.avgHbefaWarmTable.getOffset(this.avgHbefaWarmTable.getRoadCategoryIndex(hbefaRoadTypeName),
+				HbefaTrafficSituation.STOPANDGO, vehicleInformation.hbefaVehicleCategory, vehicleInformation.avgAttributesIndex);
+		int detailedFreeFlow = -1;
+		int detailedStopAndGo = -1;
 		if(this.detailedHbefaWarmTable != null){ // check if detailed emission factors file is set in config
-			HbefaVehicleAttributes hbefaVehicleAttributes = new HbefaVehicleAttributes();
-			hbefaVehicleAttributes.setHbefaTechnology(vehicleInformationTuple.getSecond().getHbefaTechnology());
-			hbefaVehicleAttributes.setHbefaSizeClass(vehicleInformationTuple.getSecond().getHbefaSizeClass());
-			hbefaVehicleAttributes.setHbefaEmConcept(vehicleInformationTuple.getSecond().getHbefaEmConcept());
-			keyFreeFlow.setHbefaVehicleAttributes(hbefaVehicleAttributes);
-			keyStopAndGo.setHbefaVehicleAttributes(hbefaVehicleAttributes);
+			detailedFreeFlow = this.detailedHbefaWarmTable.getOffset(this.detailedHbefaWarmTable.getRoadCategoryIndex(hbefaRoadTypeName),
+					HbefaTrafficSituation.FREEFLOW, vehicleInformation.hbefaVehicleCategory, vehicleInformation.detailedAttributesIndex);
+			detailedStopAndGo = this.detailedHbefaWarmTable.getOffset(this.detailedHbefaWarmTable.getRoadCategoryIndex(hbefaRoadTypeName),
+					HbefaTrafficSituation.STOPANDGO, vehicleInformation.hbefaVehicleCategory, vehicleInformation.detailedAttributesIndex);
 		}
 		
 		double linkLength_km = linkLength / 1000;
@@ -229,36 +235,35 @@ public class WarmEmissionAnalysisModule {
 		for (WarmPollutant warmPollutant : WarmPollutant.values()) {
 			double generatedEmissions;
 
-			keyFreeFlow.setHbefaComponent(warmPollutant);
-			keyStopAndGo.setHbefaComponent(warmPollutant);
-			
 			if(this.detailedHbefaWarmTable != null){
-				if(this.detailedHbefaWarmTable.get(keyFreeFlow) != null && this.detailedHbefaWarmTable.get(keyStopAndGo) != null){
-					stopGoSpeedFromTable_kmh = this.detailedHbefaWarmTable.get(keyStopAndGo).getSpeed();
-					efFreeFlow_gpkm = this.detailedHbefaWarmTable.get(keyFreeFlow).getWarmEmissionFactor();
-					efStopGo_gpkm = this.detailedHbefaWarmTable.get(keyStopAndGo).getWarmEmissionFactor();
-					freeFlowSpeedFromTable_kmh = this.detailedHbefaWarmTable.get(keyFreeFlow).getSpeed();
+				if(this.detailedHbefaWarmTable.contains(detailedFreeFlow, warmPollutant) && this.detailedHbefaWarmTable.contains(detailedStopAndGo, warmPollutant)){
+					stopGoSpeedFromTable_kmh = this.detailedHbefaWarmTable.getSpeed(detailedStopAndGo, warmPollutant);
+					efFreeFlow_gpkm = this.detailedHbefaWarmTable.getWarmEmissionFactor(detailedFreeFlow, warmPollutant);
+					efStopGo_gpkm = this.detailedHbefaWarmTable.getWarmEmissionFactor(detailedStopAndGo, warmPollutant);
+					freeFlowSpeedFromTable_kmh = this.detailedHbefaWarmTable.getSpeed(detailedFreeFlow, warmPollutant);
 
 				} else {
 					vehAttributesNotSpecifiedCnt++;
-					stopGoSpeedFromTable_kmh = this.avgHbefaWarmTable.get(keyStopAndGo).getSpeed();
-					efFreeFlow_gpkm = this.avgHbefaWarmTable.get(keyFreeFlow).getWarmEmissionFactor();
-					efStopGo_gpkm = this.avgHbefaWarmTable.get(keyStopAndGo).getWarmEmissionFactor();
-					freeFlowSpeedFromTable_kmh = this.avgHbefaWarmTable.get(keyFreeFlow).getSpeed();
+					checkAvgFactors(avgFreeFlow, avgStopAndGo, warmPollutant, hbefaRoadTypeName, vehicleInformation);
+					stopGoSpeedFromTable_kmh = this.avgHbefaWarmTable.getSpeed(avgStopAndGo, warmPollutant);
+					efFreeFlow_gpkm = this.avgHbefaWarmTable.getWarmEmissionFactor(avgFreeFlow, warmPollutant);
+					efStopGo_gpkm = this.avgHbefaWarmTable.getWarmEmissionFactor(avgStopAndGo, warmPollutant);
+					freeFlowSpeedFromTable_kmh = this.avgHbefaWarmTable.getSpeed(avgFreeFlow, warmPollutant);
 
                     int maxWarnCnt = 3;
                     if(vehAttributesNotSpecifiedCnt <= maxWarnCnt) {
 						logger.warn("Detailed vehicle attributes are not specified correctly for vehicle " + vehicleId + ": " + 
-								"`" + vehicleInformationTuple.getSecond() + "'. Using fleet average values instead.");
+								"`" + vehicleInformation.hbefaVehicleAttributes + "'. Using fleet average values instead.");
 						if(vehAttributesNotSpecifiedCnt == maxWarnCnt) logger.warn(Gbl.FUTURE_SUPPRESSED);
 					}
 //					vehAttributesNotSpecified.add(personId);
 				}
 			} else {
-				stopGoSpeedFromTable_kmh = this.avgHbefaWarmTable.get(keyStopAndGo).getSpeed();
-				efFreeFlow_gpkm = this.avgHbefaWarmTable.get(keyFreeFlow).getWarmEmissionFactor();
-				efStopGo_gpkm = this.avgHbefaWarmTable.get(keyStopAndGo).getWarmEmissionFactor();
-				freeFlowSpeedFromTable_kmh = this.avgHbefaWarmTable.get(keyFreeFlow).getSpeed();
+				checkAvgFactors(avgFreeFlow, avgStopAndGo, warmPollutant, hbefaRoadTypeName, vehicleInformation);
+				stopGoSpeedFromTable_kmh = this.avgHbefaWarmTable.getSpeed(avgStopAndGo, warmPollutant);
+				efFreeFlow_gpkm = this.avgHbefaWarmTable.getWarmEmissionFactor(avgFreeFlow, warmPollutant);
+				efStopGo_gpkm = this.avgHbefaWarmTable.getWarmEmissionFactor(avgStopAndGo, warmPollutant);
+				freeFlowSpeedFromTable_kmh = this.avgHbefaWarmTable.getSpeed(avgFreeFlow, warmPollutant);
 //				vehAttributesNotSpecified.add(personId);
 			}
 			
@@ -294,11 +299,37 @@ public class WarmEmissionAnalysisModule {
 				freeFlowKmCounter = freeFlowKmCounter + distanceFreeFlow_km;
 			}
 			kmCounter = kmCounter + linkLength_km;
-			warmEmissionsOfEvent.put(warmPollutant, generatedEmissions);
+			warmEmissionsOfEvent[warmPollutant.ordinal()] = generatedEmissions;
 		}
 		emissionEventCounter++;
 //		vehicleIdSet.add(personId);
-		return warmEmissionsOfEvent;
+	}
+
+	private void checkAvgFactors(int avgFreeFlow, int avgStopAndGo, WarmPollutant warmPollutant, String hbefaRoadTypeName, VehicleInformation vehicleInformation) {
+		if(this.avgHbefaWarmTable == null || !this.avgHbefaWarmTable.contains(avgFreeFlow, warmPollutant) || !this.avgHbefaWarmTable.contains(avgStopAndGo, warmPollutant)){
+			throw new RuntimeException("No average warm emission factors for " + warmPollutant + " on road category " + hbefaRoadTypeName + " for " +
+					vehicleInformation.hbefaVehicleCategory + " with vehicle attributes `" + vehicleInformation.hbefaVehicleAttributes + "'. Aborting...");
+		}
+	}
+
+	private VehicleInformation getVehicleInformation(Id<VehicleType> vehicleTypeId) {
+		VehicleInformation vehicleInformation = this.vehicleTypeId2Information.get(vehicleTypeId);
+		if(vehicleInformation == null){
+			Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = convertVehicleTypeId2VehicleInformationTuple(vehicleTypeId);
+			HbefaVehicleCategory hbefaVehicleCategory = null;
+			if(vehicleInformationTuple.getFirst() != null){
+				hbefaVehicleCategory = vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE) ?
+						HbefaVehicleCategory.HEAVY_GOODS_VEHICLE : HbefaVehicleCategory.PASSENGER_CAR;
+			}
+			// without detailed table, the fleet average values are looked up with average vehicle attributes
+			HbefaVehicleAttributes hbefaVehicleAttributes = this.detailedHbefaWarmTable != null ?
+					vehicleInformationTuple.getSecond() : new HbefaVehicleAttributes();
+			vehicleInformation = new VehicleInformation(hbefaVehicleCategory, hbefaVehicleAttributes,
+					this.avgHbefaWarmTable == null ? -1 : this.avgHbefaWarmTable.getVehicleAttributesIndex(hbefaVehicleAttributes),
+					this.detailedHbefaWarmTable == null ? -1 : this.detailedHbefaWarmTable.getVehicleAttributesIndex(hbefaVehicleAttributes));
+			this.vehicleTypeId2Information.put(vehicleTypeId, vehicleInformation);
+		}
+		return vehicleInformation;
 	}
 
 	private Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> convertVehicleTypeId2VehicleInformationTuple(Id<VehicleType> vehicleTypeId) {
@@ -351,5 +382,23 @@ public class WarmEmissionAnalysisModule {
 	public int getWarmEmissionEventCounter() {
 		return emissionEventCounter;
 	}
+
+	/**
+	 * The information of a vehicle type, with the indices of its vehicle attributes in the emission factor tables.
+	 */
+	private static final class VehicleInformation {
+		final HbefaVehicleCategory hbefaVehicleCategory;
+		final HbefaVehicleAttributes hbefaVehicleAttributes;
+		final int avgAttributesIndex;
+		final int detailedAttributesIndex;
+
+		VehicleInformation(HbefaVehicleCategory hbefaVehicleCategory, HbefaVehicleAttributes hbefaVehicleAttributes,
+				int avgAttributesIndex, int detailedAttributesIndex) {
+			this.hbefaVehicleCategory = hbefaVehicleCategory;
+			this.hbefaVehicleAttributes = hbefaVehicleAttributes;
+			this.avgAttributesIndex = avgAttributesIndex;
+			this.detailedAttributesIndex = detailedAttributesIndex;
+		}
+	}
 	
 }
\ No newline at end of file
@@ -0,0 +1,115 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HbefaColdEmissionFactorTable.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.emissions.types;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A table of HBEFA cold emission factors, compiled into dense arrays indexed by vehicle category, parking time,
+ * distance, vehicle attributes and pollutant.
+ * <p/>
+ * The vehicle attributes are mapped to an index first; the factors of all pollutants of one combination are
+ * stored next to each other, starting at the offset returned by
+ * {@link #getOffset(HbefaVehicleCategory, int, int, int)}.
+ * 
+ */
+public final class HbefaColdEmissionFactorTable {
+
+	private static final int VEHICLE_CATEGORIES = HbefaVehicleCategory.values().length;
+	private static final int POLLUTANTS = ColdPollutant.values().length;
+
+	private final Map<HbefaVehicleAttributes, Integer> vehicleAttributesIndices = new HashMap<>();
+	private final int parkingTimes;
+	private final int distances;
+	private final boolean[] defined;
+	private final double[] factors;
+
+	public HbefaColdEmissionFactorTable(Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> table) {
+		int maxParkingTime = 0;
+		int maxDistance = 0;
+		for (HbefaColdEmissionFactorKey key : table.keySet()) {
+			if (isComplete(key)) {
+				maxParkingTime = Math.max(maxParkingTime, key.getHbefaParkingTime());
+				maxDistance = Math.max(maxDistance, key.getHbefaDistance());
+				if (!this.vehicleAttributesIndices.containsKey(key.getHbefaVehicleAttributes())) {
+					this.vehicleAttributesIndices.put(key.getHbefaVehicleAttributes(), this.vehicleAttributesIndices.size());
+				}
+			}
+		}
+		this.parkingTimes = maxParkingTime + 1;
+		this.distances = maxDistance + 1;
+
+		long size = (long) VEHICLE_CATEGORIES * this.parkingTimes * this.distances * this.vehicleAttributesIndices.size() * POLLUTANTS;
+		if (size > Integer.MAX_VALUE) {
+			throw new RuntimeException("The cold emission factor table with " + this.vehicleAttributesIndices.size()
+					+ " vehicle attributes is too large to be stored densely. Aborting...");
+		}
+		this.defined = new boolean[(int) size];
+		this.factors = new double[(int) size];
+
+		for (Entry<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> e : table.entrySet()) {
+			HbefaColdEmissionFactorKey key = e.getKey();
+			if (isComplete(key)) {
+				int index = getOffset(key.getHbefaVehicleCategory(), key.getHbefaParkingTime(), key.getHbefaDistance(),
+						getVehicleAttributesIndex(key.getHbefaVehicleAttributes())) + key.getHbefaComponent().ordinal();
+				this.defined[index] = true;
+				this.factors[index] = e.getValue().getColdEmissionFactor();
+			}
+		}
+	}
+
+	private static boolean isComplete(HbefaColdEmissionFactorKey key) {
+		// e.g. components which are no cold pollutants are not needed
+		return key.getHbefaVehicleCategory() != null && key.getHbefaComponent() != null && key.getHbefaParkingTime() != null
+				&& key.getHbefaParkingTime() >= 0 && key.getHbefaDistance() != null && key.getHbefaDistance() >= 0
+				&& key.getHbefaVehicleAttributes() != null;
+	}
+
+	/**
+	 * @return the index of the vehicle attributes, -1 if there is no factor for them
+	 */
+	public int getVehicleAttributesIndex(HbefaVehicleAttributes hbefaVehicleAttributes) {
+		Integer index = this.vehicleAttributesIndices.get(hbefaVehicleAttributes);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @return the offset of the factors of all pollutants of this combination, -1 if there is no factor for it
+	 */
+	public int getOffset(HbefaVehicleCategory hbefaVehicleCategory, int parkingTime, int distance, int vehicleAttributesIndex) {
+		if (parkingTime < 0 || parkingTime >= this.parkingTimes || distance < 0 || distance >= this.distances || vehicleAttributesIndex < 0) {
+			return -1;
+		}
+		return (((hbefaVehicleCategory.ordinal() * this.parkingTimes + parkingTime) * this.distances + distance)
+				* this.vehicleAttributesIndices.size() + vehicleAttributesIndex) * POLLUTANTS;
+	}
+
+	public boolean contains(int offset, ColdPollutant coldPollutant) {
+		return offset >= 0 && this.defined[offset + coldPollutant.ordinal()];
+	}
+
+	public double getColdEmissionFactor(int offset, ColdPollutant coldPollutant) {
+		return this.factors[offset + coldPollutant.ordinal()];
+	}
+
+}
@@ -0,0 +1,128 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HbefaWarmEmissionFactorTable.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.emissions.types;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A table of HBEFA warm emission factors, compiled into dense arrays indexed by road category, traffic situation,
+ * vehicle category, vehicle attributes and pollutant.
+ * <p/>
+ * The road category and the vehicle attributes are mapped to indices first; the factors of all pollutants of one
+ * combination are stored next to each other, starting at the offset returned by
+ * {@link #getOffset(int, HbefaTrafficSituation, HbefaVehicleCategory, int)}. Thus, no key objects need to be created,
+ * hashed and compared for each pollutant.
+ * 
+ */
+public final class HbefaWarmEmissionFactorTable {
+
+	private static final int TRAFFIC_SITUATIONS = HbefaTrafficSituation.values().length;
+	private static final int VEHICLE_CATEGORIES = HbefaVehicleCategory.values().length;
+	private static final int POLLUTANTS = WarmPollutant.values().length;
+
+	private final Map<String, Integer> roadCategoryIndices = new HashMap<>();
+	private final Map<HbefaVehicleAttributes, Integer> vehicleAttributesIndices = new HashMap<>();
+	private final boolean[] defined;
+	private final double[] speeds;
+	private final double[] factors;
+
+	public HbefaWarmEmissionFactorTable(Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> table) {
+		for (HbefaWarmEmissionFactorKey key : table.keySet()) {
+			if (isComplete(key)) {
+				if (!this.roadCategoryIndices.containsKey(key.getHbefaRoadCategory())) {
+					this.roadCategoryIndices.put(key.getHbefaRoadCategory(), this.roadCategoryIndices.size());
+				}
+				if (!this.vehicleAttributesIndices.containsKey(key.getHbefaVehicleAttributes())) {
+					this.vehicleAttributesIndices.put(key.getHbefaVehicleAttributes(), this.vehicleAttributesIndices.size());
+				}
+			}
+		}
+
+		long size = (long) this.roadCategoryIndices.size() * TRAFFIC_SITUATIONS * VEHICLE_CATEGORIES * this.vehicleAttributesIndices.size() * POLLUTANTS;
+		if (size > Integer.MAX_VALUE) {
+			throw new RuntimeException("The warm emission factor table with " + this.roadCategoryIndices.size() + " road categories and "
+					+ this.vehicleAttributesIndices.size() + " vehicle attributes is too large to be stored densely. Aborting...");
+		}
+		this.defined = new boolean[(int) size];
+		this.speeds = new double[(int) size];
+		this.factors = new double[(int) size];
+
+		for (Entry<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> e : table.entrySet()) {
+			HbefaWarmEmissionFactorKey key = e.getKey();
+			if (isComplete(key)) {
+				int index = getOffset(getRoadCategoryIndex(key.getHbefaRoadCategory()), key.getHbefaTrafficSituation(),
+						key.getHbefaVehicleCategory(), getVehicleAttributesIndex(key.getHbefaVehicleAttributes())) + key.getHbefaComponent().ordinal();
+				this.defined[index] = true;
+				this.speeds[index] = e.getValue().getSpeed();
+				this.factors[index] = e.getValue().getWarmEmissionFactor();
+			}
+		}
+	}
+
+	private static boolean isComplete(HbefaWarmEmissionFactorKey key) {
+		// e.g. components which are no warm pollutants are not needed
+		return key.getHbefaVehicleCategory() != null && key.getHbefaComponent() != null && key.getHbefaRoadCategory() != null
+				&& key.getHbefaTrafficSituation() != null && key.getHbefaVehicleAttributes() != null;
+	}
+
+	/**
+	 * @return the index of the road category, -1 if there is no factor for it
+	 */
+	public int getRoadCategoryIndex(String hbefaRoadCategory) {
+		Integer index = this.roadCategoryIndices.get(hbefaRoadCategory);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @return the index of the vehicle attributes, -1 if there is no factor for them
+	 */
+	public int getVehicleAttributesIndex(HbefaVehicleAttributes hbefaVehicleAttributes) {
+		Integer index = this.vehicleAttributesIndices.get(hbefaVehicleAttributes);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @return the offset of the factors of all pollutants of this combination, -1 if the road category or vehicle attributes index is -1
+	 */
+	public int getOffset(int roadCategoryIndex, HbefaTrafficSituation hbefaTrafficSituation, HbefaVehicleCategory hbefaVehicleCategory,
+			int vehicleAttributesIndex) {
+		if (roadCategoryIndex < 0 || vehicleAttributesIndex < 0) {
+			return -1;
+		}
+		return (((roadCategoryIndex * TRAFFIC_SITUATIONS + hbefaTrafficSituation.ordinal()) * VEHICLE_CATEGORIES
+				+ hbefaVehicleCategory.ordinal()) * this.vehicleAttributesIndices.size() + vehicleAttributesIndex) * POLLUTANTS;
+	}
+
+	public boolean contains(int offset, WarmPollutant warmPollutant) {
+		return offset >= 0 && this.defined[offset + warmPollutant.ordinal()];
+	}
+
+	public double getSpeed(int offset, WarmPollutant warmPollutant) {
+		return this.speeds[offset + warmPollutant.ordinal()];
+	}
+
+	public double getWarmEmissionFactor(int offset, WarmPollutant warmPollutant) {
+		return this.factors[offset + warmPollutant.ordinal()];
+	}
+
+}
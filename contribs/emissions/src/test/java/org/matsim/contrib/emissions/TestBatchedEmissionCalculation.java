@@ -0,0 +1,139 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TestBatchedEmissionCalculation.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.contrib.emissions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.contrib.emissions.utils.EmissionsConfigGroup;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Checks that the batched parallel calculation yields the same emission events, in the same order, as the sequential one.
+ */
+public class TestBatchedEmissionCalculation {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	private static final String[] vehicleIds = { "555928.1#7278", "570902.2#10897", "570902.2#14854", "570902.2#2983",
+			"pv_car_10041_9162_1", "pv_car_5315_9162_1", "gv_4499", "gv_4500" };
+
+	private static final String[][] routes = { { "link12", "link23", "link36" }, { "link36", "link63", "link32" } };
+
+	@Test
+	public final void testSameEmissionEventsAsSequentialCalculation() {
+		String eventsFile = utils.getOutputDirectory() + "events.xml.gz";
+		writeEvents(eventsFile);
+
+		EmissionModule emissionModule = createEmissionModule();
+
+		// sequential
+		emissionModule.createEmissionHandler();
+		EventCollector sequential = new EventCollector();
+		emissionModule.getEmissionEventsManager().addHandler(sequential);
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		eventsManager.addHandler(emissionModule.getWarmEmissionHandler());
+		eventsManager.addHandler(emissionModule.getColdEmissionHandler());
+		new MatsimEventsReader(eventsManager).readFile(eventsFile);
+
+		// batched, with batches which do not contain complete trips
+		EventCollector batched = new EventCollector();
+		EventsManager emissionEventsManager = EventsUtils.createEventsManager();
+		emissionEventsManager.addHandler(batched);
+		BatchedEmissionCalculation calculation = new BatchedEmissionCalculation(emissionModule, 3);
+		calculation.setBatchSize(7);
+		calculation.run(eventsFile, emissionEventsManager);
+
+		Assert.assertFalse("no emission events were calculated", sequential.events.isEmpty());
+		Assert.assertEquals(sequential.events, batched.events);
+	}
+
+	private static EmissionModule createEmissionModule() {
+		Config config = ConfigUtils.loadConfig("./test/input/org/matsim/contrib/emissions/config.xml", new EmissionsConfigGroup());
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		EmissionModule emissionModule = new EmissionModule(scenario);
+		emissionModule.createLookupTables();
+		return emissionModule;
+	}
+
+	private static void writeEvents(String eventsFile) {
+		EventWriterXML writer = new EventWriterXML(eventsFile);
+		double time = 6 * 3600.;
+		for (String[] route : routes) {
+			// all vehicles drive the route at the same time, so their events are interleaved
+			for (String vehicleId : vehicleIds) {
+				Id<Link> firstLinkId = Id.createLinkId(route[0]);
+				writer.handleEvent(new VehicleEntersTrafficEvent(time, Id.create(vehicleId, Person.class), firstLinkId, Id.create(vehicleId, Vehicle.class), "car", 1.0));
+			}
+			for (int i = 0; i < route.length; i++) {
+				time += 30.;
+				for (int v = 0; v < vehicleIds.length; v++) {
+					Id<Vehicle> vehicleId = Id.create(vehicleIds[v], Vehicle.class);
+					Id<Link> linkId = Id.createLinkId(route[i]);
+					if (i > 0) {
+						writer.handleEvent(new LinkEnterEvent(time - 20. + v, vehicleId, linkId));
+					}
+					if (i < route.length - 1) {
+						writer.handleEvent(new LinkLeaveEvent(time + v, vehicleId, linkId));
+					} else {
+						writer.handleEvent(new VehicleLeavesTrafficEvent(time + v, Id.create(vehicleIds[v], Person.class), linkId, vehicleId, "car", 1.0));
+					}
+				}
+			}
+			time += 4 * 3600.;
+		}
+		writer.closeFile();
+	}
+
+	private static class EventCollector implements BasicEventHandler {
+		private final List<Event> events = new ArrayList<>();
+
+		@Override
+		public void handleEvent(Event event) {
+			events.add(event);
+		}
+
+		@Override
+		public void reset(int iteration) {
+		}
+	}
+}
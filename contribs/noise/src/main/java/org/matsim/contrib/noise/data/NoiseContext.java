@@ -72,6 +72,7 @@ public class NoiseContext {
 	private double eventTime = Double.MIN_VALUE;
 
 	private final Map<Id<ReceiverPoint>, NoiseReceiverPoint> noiseReceiverPoints;
+	private final ReceiverPointLinkMatrix receiverPointLinkMatrix;
 	
 	// ############################################
 	
@@ -96,6 +97,8 @@ public class NoiseContext {
 		
 		checkConsistency();
 		setRelevantLinkInfo();
+		
+		this.receiverPointLinkMatrix = new ReceiverPointLinkMatrix(scenario.getNetwork(), this.noiseReceiverPoints.values());
 	}
 
 	// for routing purposes
@@ -457,6 +460,10 @@ public class NoiseContext {
 		return noiseReceiverPoints;
 	}
 	
+	public final ReceiverPointLinkMatrix getReceiverPointLinkMatrix() {
+		return receiverPointLinkMatrix;
+	}
+
 	public final NoiseConfigGroup getNoiseParams() {
 		return noiseParams;
 	}
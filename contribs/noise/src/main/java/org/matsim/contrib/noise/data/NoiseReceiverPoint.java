@@ -50,10 +50,7 @@ public class NoiseReceiverPoint extends ReceiverPoint {
 	private Map<Id<Link>, Double> linkId2distanceCorrection = new HashMap<Id<Link>, Double>();
 	private Map<Id<Link>, Double> linkId2angleCorrection = new HashMap<Id<Link>, Double>();
 			
-	// time-specific information
-	private Map<Id<Link>, Double> linkId2IsolatedImmission = new HashMap<Id<Link>, Double>();
-	private Map<Id<Link>, Double> linkId2IsolatedImmissionPlusOneCar = new HashMap<Id<Link>, Double>();
-	private Map<Id<Link>, Double> linkId2IsolatedImmissionPlusOneHGV = new HashMap<Id<Link>, Double>(); 
+	// time-specific information; the isolated immissions per link are stored by the NoiseTimeTracker along the ReceiverPointLinkMatrix
 	private double finalImmission = 0.;
 	private double affectedAgentUnits = 0.;
 	private double damageCosts;
@@ -84,14 +81,6 @@ public class NoiseReceiverPoint extends ReceiverPoint {
 		this.linkId2angleCorrection = linkId2angleCorrection;
 	}
 
-	public Map<Id<Link>, Double> getLinkId2IsolatedImmission() {
-		return linkId2IsolatedImmission;
-	}
-
-	public void setLinkId2IsolatedImmission(Map<Id<Link>, Double> linkId2IsolatedImmission) {
-		this.linkId2IsolatedImmission = linkId2IsolatedImmission;
-	}
-
 	public double getFinalImmission() {
 		return finalImmission;
 	}
@@ -125,34 +114,12 @@ public class NoiseReceiverPoint extends ReceiverPoint {
 		this.affectedAgentUnits = affectedAgentsUnits;
 	}
 
-	public Map<Id<Link>, Double> getLinkId2IsolatedImmissionPlusOneCar() {
-		return linkId2IsolatedImmissionPlusOneCar;
-	}
-
-	public void setLinkId2IsolatedImmissionPlusOneCar(
-			Map<Id<Link>, Double> linkId2IsolatedImmissionPlusOneCar) {
-		this.linkId2IsolatedImmissionPlusOneCar = linkId2IsolatedImmissionPlusOneCar;
-	}
-
-	public Map<Id<Link>, Double> getLinkId2IsolatedImmissionPlusOneHGV() {
-		return linkId2IsolatedImmissionPlusOneHGV;
-	}
-
-	public void setLinkId2IsolatedImmissionPlusOneHGV(
-			Map<Id<Link>, Double> linkId2IsolatedImmissionPlusOneHGV) {
-		this.linkId2IsolatedImmissionPlusOneHGV = linkId2IsolatedImmissionPlusOneHGV;
-	}
-
 	@Override
 	public String toString() {
 		return "NoiseReceiverPoint [personId2actInfos=" + personId2actInfos
 				+ ", linkId2distanceCorrection=" + linkId2distanceCorrection
 				+ ", linkId2angleCorrection=" + linkId2angleCorrection
-				+ ", linkId2IsolatedImmission=" + linkId2IsolatedImmission
-				+ ", linkId2IsolatedImmissionPlusOneCar="
-				+ linkId2IsolatedImmissionPlusOneCar
-				+ ", linkId2IsolatedImmissionPlusOneHGV="
-				+ linkId2IsolatedImmissionPlusOneHGV + ", finalImmission="
+				+ ", finalImmission="
 				+ finalImmission + ", affectedAgentUnits=" + affectedAgentUnits
 				+ ", damageCosts=" + damageCosts + ", damageCostsPerAffectedAgentUnit="
 				+ damageCostsPerAffectedAgentUnit + "]";
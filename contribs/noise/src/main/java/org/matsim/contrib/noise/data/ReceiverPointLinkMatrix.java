@@ -0,0 +1,122 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ReceiverPointLinkMatrix.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.noise.data;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+
+/**
+ * The relevant links of all receiver points as a sparse matrix in compressed row storage.
+ * The rows are the receiver points, the columns the links of the network.
+ * <p/>
+ * The entries of row <code>r</code> are stored at the indices <code>getRowStart(r)</code> (inclusive) to
+ * <code>getRowStart(r + 1)</code> (exclusive) of the entry arrays, in the iteration order of the receiver point's
+ * distance correction map. For each entry, the link index, the distance correction and the angle correction are stored.
+ * 
+ */
+public final class ReceiverPointLinkMatrix {
+
+	private final NoiseReceiverPoint[] receiverPoints;
+	private final Id<Link>[] linkIds;
+	private final int[] rowStart;
+	private final int[] linkIndex;
+	private final double[] distanceCorrection;
+	private final double[] angleCorrection;
+
+	@SuppressWarnings("unchecked")
+	public ReceiverPointLinkMatrix(Network network, Collection<NoiseReceiverPoint> receiverPoints) {
+		this.linkIds = network.getLinks().keySet().toArray(new Id[network.getLinks().size()]);
+		Map<Id<Link>, Integer> linkId2index = new HashMap<>();
+		for (int i = 0; i < this.linkIds.length; i++) {
+			linkId2index.put(this.linkIds[i], i);
+		}
+
+		this.receiverPoints = receiverPoints.toArray(new NoiseReceiverPoint[receiverPoints.size()]);
+		this.rowStart = new int[this.receiverPoints.length + 1];
+		int entries = 0;
+		for (int r = 0; r < this.receiverPoints.length; r++) {
+			this.rowStart[r] = entries;
+			entries += this.receiverPoints[r].getLinkId2distanceCorrection().size();
+		}
+		this.rowStart[this.receiverPoints.length] = entries;
+
+		this.linkIndex = new int[entries];
+		this.distanceCorrection = new double[entries];
+		this.angleCorrection = new double[entries];
+		for (int r = 0; r < this.receiverPoints.length; r++) {
+			NoiseReceiverPoint rp = this.receiverPoints[r];
+			int entry = this.rowStart[r];
+			for (Entry<Id<Link>, Double> e : rp.getLinkId2distanceCorrection().entrySet()) {
+				Integer index = linkId2index.get(e.getKey());
+				if (index == null) {
+					throw new RuntimeException("Link " + e.getKey() + " of receiver point " + rp.getId() + " is not part of the network. Aborting...");
+				}
+				this.linkIndex[entry] = index;
+				this.distanceCorrection[entry] = e.getValue();
+				this.angleCorrection[entry] = rp.getLinkId2angleCorrection().get(e.getKey());
+				entry++;
+			}
+		}
+	}
+
+	public int getRowCount() {
+		return this.receiverPoints.length;
+	}
+
+	public int getEntryCount() {
+		return this.linkIndex.length;
+	}
+
+	public NoiseReceiverPoint getReceiverPoint(int row) {
+		return this.receiverPoints[row];
+	}
+
+	public int getLinkCount() {
+		return this.linkIds.length;
+	}
+
+	public Id<Link> getLinkId(int linkIndex) {
+		return this.linkIds[linkIndex];
+	}
+
+	public int getRowStart(int row) {
+		return this.rowStart[row];
+	}
+
+	public int getLinkIndex(int entry) {
+		return this.linkIndex[entry];
+	}
+
+	public double getDistanceCorrection(int entry) {
+		return this.distanceCorrection[entry];
+	}
+
+	public double getAngleCorrection(int entry) {
+		return this.angleCorrection[entry];
+	}
+
+}
@@ -92,7 +92,30 @@ public class NoiseEquations {
 		}
 		return resultingNoiseImmission;
 	}
-	
+
+	/**
+	 * Same as {@link #calculateResultingNoiseImmission(Collection)} for the immissions stored at the indices <code>from</code> (inclusive) to <code>to</code> (exclusive).
+	 */
+	public static double calculateResultingNoiseImmission (double[] immissions, int from, int to){
+
+		double resultingNoiseImmission = 0.;
+
+		if (to > from) {
+			double sumTmp = 0.;
+			for (int i = from; i < to; i++) {
+				double noiseImmission = immissions[i];
+				if (noiseImmission > 0.) {
+					sumTmp = sumTmp + (Math.pow(10, (0.1 * noiseImmission)));
+				}
+			}
+			resultingNoiseImmission = 10 * Math.log10(sumTmp);
+			if (resultingNoiseImmission < 0) {
+				resultingNoiseImmission = 0.;
+			}
+		}
+		return resultingNoiseImmission;
+	}
+
 	public static double calculateLCar(double vCar) {
 		
 		double lCar = 27.7 + (10 * Math.log10(1.0 + Math.pow(0.02 * vCar, 3.0)));
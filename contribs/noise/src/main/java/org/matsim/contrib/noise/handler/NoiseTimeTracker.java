@@ -23,10 +23,15 @@
 package org.matsim.contrib.noise.handler;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -42,7 +47,7 @@ import org.matsim.contrib.noise.data.NoiseContext;
 import org.matsim.contrib.noise.data.NoiseLink;
 import org.matsim.contrib.noise.data.NoiseReceiverPoint;
 import org.matsim.contrib.noise.data.PersonActivityInfo;
-import org.matsim.contrib.noise.data.ReceiverPoint;
+import org.matsim.contrib.noise.data.ReceiverPointLinkMatrix;
 import org.matsim.contrib.noise.events.NoiseEventAffected;
 import org.matsim.contrib.noise.events.NoiseEventCaused;
 import org.matsim.core.api.experimental.events.EventsManager;
@@ -77,11 +82,30 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 	
 	private boolean useCompression = false ;
 	
+	// time-specific information per entry of the receiver point link matrix
+	private final ReceiverPointLinkMatrix matrix;
+	private final int numberOfThreads;
+	private ExecutorService executor = null;
+	private final double[] isolatedImmission;
+	private final double[] isolatedImmissionPlusOneCar;
+	private final double[] isolatedImmissionPlusOneHGV;
+	private final double[] entryValueCar;
+	private final double[] entryValueHGV;
+	
 	public NoiseTimeTracker(NoiseContext noiseContext, EventsManager events, String outputDirectory) {
 		this.noiseContext = noiseContext;
 		this.outputDirectoryBasic = outputDirectory;
 		this.outputDirectory = outputDirectory;
 		this.events = events;	
+		
+		this.matrix = noiseContext.getReceiverPointLinkMatrix();
+		this.numberOfThreads = noiseContext.getScenario().getConfig().global().getNumberOfThreads();
+		int entries = this.matrix.getEntryCount();
+		this.isolatedImmission = new double[entries];
+		this.isolatedImmissionPlusOneCar = new double[entries];
+		this.isolatedImmissionPlusOneHGV = new double[entries];
+		this.entryValueCar = new double[entries];
+		this.entryValueHGV = new double[entries];
 	}
 	
 	int cWarn1 = 0;
@@ -141,7 +165,6 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 		this.noiseContext.setCurrentTimeBinEndTime(this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation());
 		
 		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-			rp.getLinkId2IsolatedImmission().clear();
 			rp.setFinalImmission(0.);
 			rp.setAffectedAgentUnits(0.);
 			rp.getPersonId2actInfos().clear();
@@ -156,7 +179,6 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 		this.noiseContext.getNoiseLinks().clear();
 		
 		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-			rp.getLinkId2IsolatedImmission().clear();
 			rp.setFinalImmission(0.);
 			rp.setAffectedAgentUnits(0.);
 			rp.setDamageCosts(0.);
@@ -348,17 +370,27 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 	 */
 	private void calculateDamagePerReceiverPoint() {
 		
-		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-				
-			double noiseImmission = rp.getFinalImmission();
-			double affectedAgentUnits = rp.getAffectedAgentUnits();
-			
-			double damageCost = NoiseEquations.calculateDamageCosts(noiseImmission, affectedAgentUnits, this.noiseContext.getCurrentTimeBinEndTime(), this.noiseContext.getNoiseParams().getAnnualCostRate(), this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation());
-			double damageCostPerAffectedAgentUnit = NoiseEquations.calculateDamageCosts(noiseImmission, 1., this.noiseContext.getCurrentTimeBinEndTime(), this.noiseContext.getNoiseParams().getAnnualCostRate(), this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation());
-				
-			rp.setDamageCosts(damageCost);
-			rp.setDamageCostsPerAffectedAgentUnit(damageCostPerAffectedAgentUnit);
-		}
+		final double currentTimeBinEndTime = this.noiseContext.getCurrentTimeBinEndTime();
+		final double annualCostRate = this.noiseContext.getNoiseParams().getAnnualCostRate();
+		final double timeBinSize = this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation();
+		
+		runParallel(new ReceiverPointTask() {
+			@Override
+			public void run(int fromRow, int toRow) {
+				for (int r = fromRow; r < toRow; r++) {
+					NoiseReceiverPoint rp = matrix.getReceiverPoint(r);
+					
+					double noiseImmission = rp.getFinalImmission();
+					double affectedAgentUnits = rp.getAffectedAgentUnits();
+					
+					double damageCost = NoiseEquations.calculateDamageCosts(noiseImmission, affectedAgentUnits, currentTimeBinEndTime, annualCostRate, timeBinSize);
+					double damageCostPerAffectedAgentUnit = NoiseEquations.calculateDamageCosts(noiseImmission, 1., currentTimeBinEndTime, annualCostRate, timeBinSize);
+					
+					rp.setDamageCosts(damageCost);
+					rp.setDamageCostsPerAffectedAgentUnit(damageCostPerAffectedAgentUnit);
+				}
+			}
+		});
 	}
 
 	/*
@@ -382,38 +414,41 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 	 */
 	private void calculateCostSharesPerLinkPerTimeInterval() {
 		
-		Map<Id<ReceiverPoint>, Map<Id<Link>, Double>> rpId2linkId2costShare = new HashMap<Id<ReceiverPoint>, Map<Id<Link>,Double>>();
-
-		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-										
-			Map<Id<Link>,Double> linkId2costShare = new HashMap<Id<Link>, Double>();
+		final double[] costShares = this.entryValueCar;
+		
+		runParallel(new ReceiverPointTask() {
+			@Override
+			public void run(int fromRow, int toRow) {
+				for (int r = fromRow; r < toRow; r++) {
+					NoiseReceiverPoint rp = matrix.getReceiverPoint(r);
+					
+					if (rp.getDamageCosts() != 0.) {
+						for (int e = matrix.getRowStart(r); e < matrix.getRowStart(r + 1); e++) {
 							
-			if (rp.getDamageCosts() != 0.) {
-				for (Id<Link> linkId : rp.getLinkId2IsolatedImmission().keySet()) {
-										
-					double noiseImmission = rp.getLinkId2IsolatedImmission().get(linkId);
-					double costs = 0.;
-						
-					if (!(noiseImmission == 0.)) {
-						double costShare = NoiseEquations.calculateShareOfResultingNoiseImmission(noiseImmission, rp.getFinalImmission());
-						costs = costShare * rp.getDamageCosts();	
+							double noiseImmission = isolatedImmission[e];
+							double costs = 0.;
+							
+							if (!(noiseImmission == 0.)) {
+								double costShare = NoiseEquations.calculateShareOfResultingNoiseImmission(noiseImmission, rp.getFinalImmission());
+								costs = costShare * rp.getDamageCosts();	
+							}
+							costShares[e] = costs;
+						}
 					}
-					linkId2costShare.put(linkId, costs);
 				}
 			}
-			
-			rpId2linkId2costShare.put(rp.getId(), linkId2costShare);
-		}
+		});
 		
-		// summing up the link-based costs
-		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-
-			if (rp.getDamageCosts() != 0.) {
+		// summing up the link-based costs, in the order of the receiver points
+		NoiseLink[] noiseLinks = getNoiseLinksByIndex();
+		for (int r = 0; r < this.matrix.getRowCount(); r++) {
+			
+			if (this.matrix.getReceiverPoint(r).getDamageCosts() != 0.) {
 				
-				for (Id<Link> linkId : this.noiseContext.getReceiverPoints().get(rp.getId()).getLinkId2distanceCorrection().keySet()) {
-					if (this.noiseContext.getNoiseLinks().containsKey(linkId)) {
-						double sum = this.noiseContext.getNoiseLinks().get(linkId).getDamageCost() + rpId2linkId2costShare.get(rp.getId()).get(linkId);
-						this.noiseContext.getNoiseLinks().get(linkId).setDamageCost(sum);
+				for (int e = this.matrix.getRowStart(r); e < this.matrix.getRowStart(r + 1); e++) {
+					NoiseLink noiseLink = noiseLinks[this.matrix.getLinkIndex(e)];
+					if (noiseLink != null) {
+						noiseLink.setDamageCost(noiseLink.getDamageCost() + costShares[e]);
 					}		
 				}
 			}
@@ -514,49 +549,75 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 	 * Noise allocation approach: MarginalCost
 	 */
 	private void calculateMarginalDamageCost() {
-		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-
-			if (rp.getAffectedAgentUnits() != 0.) {
-				for (Id<Link> thisLink : rp.getLinkId2IsolatedImmission().keySet()) {
-										
-					double noiseImmissionPlusOneCarThisLink = NoiseEquations.calculateResultingNoiseImmissionPlusOneVehicle(rp.getFinalImmission(), rp.getLinkId2IsolatedImmission().get(thisLink), rp.getLinkId2IsolatedImmissionPlusOneCar().get(thisLink));
-					double noiseImmissionPlusOneHGVThisLink = NoiseEquations.calculateResultingNoiseImmissionPlusOneVehicle(rp.getFinalImmission(), rp.getLinkId2IsolatedImmission().get(thisLink), rp.getLinkId2IsolatedImmissionPlusOneHGV().get(thisLink));
-					
-					double damageCostsPlusOneCarThisLink = NoiseEquations.calculateDamageCosts(noiseImmissionPlusOneCarThisLink, rp.getAffectedAgentUnits(), this.noiseContext.getCurrentTimeBinEndTime(), this.noiseContext.getNoiseParams().getAnnualCostRate(), this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation());
-					double marginalDamageCostCarThisLink = (damageCostsPlusOneCarThisLink - rp.getDamageCosts()) / this.noiseContext.getNoiseParams().getScaleFactor();
-					
-					if (marginalDamageCostCarThisLink < 0.0) {
-						if (Math.abs(marginalDamageCostCarThisLink) < 0.0000000001) {
-							marginalDamageCostCarThisLink = 0.;
-						} else {
-							log.warn("The marginal damage cost per car on link " + thisLink.toString() + " for receiver point " + rp.getId().toString() + " is " + marginalDamageCostCarThisLink + ".");
-							log.warn("final immission: " + rp.getFinalImmission() + " - immission plus one car " + noiseImmissionPlusOneCarThisLink + " - marginal damage cost car: " + marginalDamageCostCarThisLink);
-							log.warn("Setting the marginal damage cost per car to 0.");
-							marginalDamageCostCarThisLink = 0.;
-						}
-					}
-					
-					double damageCostsPlusOneHGVThisLink = NoiseEquations.calculateDamageCosts(noiseImmissionPlusOneHGVThisLink, rp.getAffectedAgentUnits(), this.noiseContext.getCurrentTimeBinEndTime(), this.noiseContext.getNoiseParams().getAnnualCostRate(), this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation());
-					double marginalDamageCostHGVThisLink = (damageCostsPlusOneHGVThisLink - rp.getDamageCosts()) / this.noiseContext.getNoiseParams().getScaleFactor();
+		
+		final double[] marginalDamageCostsCar = this.entryValueCar;
+		final double[] marginalDamageCostsHGV = this.entryValueHGV;
+		final double currentTimeBinEndTime = this.noiseContext.getCurrentTimeBinEndTime();
+		final double annualCostRate = this.noiseContext.getNoiseParams().getAnnualCostRate();
+		final double timeBinSize = this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation();
+		final double scaleFactor = this.noiseContext.getNoiseParams().getScaleFactor();
+		
+		runParallel(new ReceiverPointTask() {
+			@Override
+			public void run(int fromRow, int toRow) {
+				for (int r = fromRow; r < toRow; r++) {
+					NoiseReceiverPoint rp = matrix.getReceiverPoint(r);
 					
-					if (marginalDamageCostHGVThisLink < 0.0) {
-						if (Math.abs(marginalDamageCostHGVThisLink) < 0.0000000001) {
-							marginalDamageCostHGVThisLink = 0.;
-						} else {
-							log.warn("The marginal damage cost per HGV on link " + thisLink.toString() + " for receiver point " + rp.getId().toString() + " is " + marginalDamageCostHGVThisLink + ".");
-							log.warn("final immission: " + rp.getFinalImmission() + " - immission plus one car " + noiseImmissionPlusOneCarThisLink + " - marginal damage cost car: " + marginalDamageCostHGVThisLink);
-							log.warn("Setting the marginal damage cost per HGV to 0.");
-							marginalDamageCostHGVThisLink = 0.;
+					if (rp.getAffectedAgentUnits() != 0.) {
+						for (int e = matrix.getRowStart(r); e < matrix.getRowStart(r + 1); e++) {
+							Id<Link> thisLink = matrix.getLinkId(matrix.getLinkIndex(e));
+							
+							double noiseImmissionPlusOneCarThisLink = NoiseEquations.calculateResultingNoiseImmissionPlusOneVehicle(rp.getFinalImmission(), isolatedImmission[e], isolatedImmissionPlusOneCar[e]);
+							double noiseImmissionPlusOneHGVThisLink = NoiseEquations.calculateResultingNoiseImmissionPlusOneVehicle(rp.getFinalImmission(), isolatedImmission[e], isolatedImmissionPlusOneHGV[e]);
+							
+							double damageCostsPlusOneCarThisLink = NoiseEquations.calculateDamageCosts(noiseImmissionPlusOneCarThisLink, rp.getAffectedAgentUnits(), currentTimeBinEndTime, annualCostRate, timeBinSize);
+							double marginalDamageCostCarThisLink = (damageCostsPlusOneCarThisLink - rp.getDamageCosts()) / scaleFactor;
+							
+							if (marginalDamageCostCarThisLink < 0.0) {
+								if (Math.abs(marginalDamageCostCarThisLink) < 0.0000000001) {
+									marginalDamageCostCarThisLink = 0.;
+								} else {
+									log.warn("The marginal damage cost per car on link " + thisLink.toString() + " for receiver point " + rp.getId().toString() + " is " + marginalDamageCostCarThisLink + ".");
+									log.warn("final immission: " + rp.getFinalImmission() + " - immission plus one car " + noiseImmissionPlusOneCarThisLink + " - marginal damage cost car: " + marginalDamageCostCarThisLink);
+									log.warn("Setting the marginal damage cost per car to 0.");
+									marginalDamageCostCarThisLink = 0.;
+								}
+							}
+							
+							double damageCostsPlusOneHGVThisLink = NoiseEquations.calculateDamageCosts(noiseImmissionPlusOneHGVThisLink, rp.getAffectedAgentUnits(), currentTimeBinEndTime, annualCostRate, timeBinSize);
+							double marginalDamageCostHGVThisLink = (damageCostsPlusOneHGVThisLink - rp.getDamageCosts()) / scaleFactor;
+							
+							if (marginalDamageCostHGVThisLink < 0.0) {
+								if (Math.abs(marginalDamageCostHGVThisLink) < 0.0000000001) {
+									marginalDamageCostHGVThisLink = 0.;
+								} else {
+									log.warn("The marginal damage cost per HGV on link " + thisLink.toString() + " for receiver point " + rp.getId().toString() + " is " + marginalDamageCostHGVThisLink + ".");
+									log.warn("final immission: " + rp.getFinalImmission() + " - immission plus one car " + noiseImmissionPlusOneCarThisLink + " - marginal damage cost car: " + marginalDamageCostHGVThisLink);
+									log.warn("Setting the marginal damage cost per HGV to 0.");
+									marginalDamageCostHGVThisLink = 0.;
+								}
+							}
+							
+							marginalDamageCostsCar[e] = marginalDamageCostCarThisLink;
+							marginalDamageCostsHGV[e] = marginalDamageCostHGVThisLink;
 						}
 					}
-					
-					double marginalDamageCostCarSum = this.noiseContext.getNoiseLinks().get(thisLink).getMarginalDamageCostPerCar() + marginalDamageCostCarThisLink;
-					this.noiseContext.getNoiseLinks().get(thisLink).setMarginalDamageCostPerCar(marginalDamageCostCarSum);
-					
-					double marginalDamageCostHGVSum = this.noiseContext.getNoiseLinks().get(thisLink).getMarginalDamageCostPerHgv() + marginalDamageCostHGVThisLink;
-					this.noiseContext.getNoiseLinks().get(thisLink).setMarginalDamageCostPerHgv(marginalDamageCostHGVSum);
-				}			
-			}	
+				}
+			}
+		});
+		
+		// summing up the link-based marginal costs, in the order of the receiver points
+		NoiseLink[] noiseLinks = getNoiseLinksByIndex();
+		for (int r = 0; r < this.matrix.getRowCount(); r++) {
+			
+			if (this.matrix.getReceiverPoint(r).getAffectedAgentUnits() != 0.) {
+				
+				for (int e = this.matrix.getRowStart(r); e < this.matrix.getRowStart(r + 1); e++) {
+					NoiseLink noiseLink = noiseLinks[this.matrix.getLinkIndex(e)];
+					noiseLink.setMarginalDamageCostPerCar(noiseLink.getMarginalDamageCostPerCar() + marginalDamageCostsCar[e]);
+					noiseLink.setMarginalDamageCostPerHgv(noiseLink.getMarginalDamageCostPerHgv() + marginalDamageCostsHGV[e]);
+				}
+			}
 		}
 	}
 
@@ -650,82 +711,145 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 	 */
 	private void calculateNoiseImmission() {
 		
-		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
+		// the emissions are looked up once per link, not once per receiver point and link
+		final int linkCount = this.matrix.getLinkCount();
+		final boolean[] tunnel = new boolean[linkCount];
+		final double[] emission = new double[linkCount];
+		final double[] emissionPlusOneCar = new double[linkCount];
+		final double[] emissionPlusOneHGV = new double[linkCount];
+		
+		NoiseLink[] noiseLinks = getNoiseLinksByIndex();
+		for (int l = 0; l < linkCount; l++) {
+			tunnel[l] = this.noiseContext.getNoiseParams().getTunnelLinkIDsSet().contains(this.matrix.getLinkId(l));
+			if (noiseLinks[l] != null) {
+				emission[l] = noiseLinks[l].getEmission();
+				emissionPlusOneCar[l] = noiseLinks[l].getEmissionPlusOneCar();
+				emissionPlusOneHGV[l] = noiseLinks[l].getEmissionPlusOneHGV();
+			}
+		}
+		
+		runParallel(new ReceiverPointTask() {
+			@Override
+			public void run(int fromRow, int toRow) {
+				for (int r = fromRow; r < toRow; r++) {
+					int rowStart = matrix.getRowStart(r);
+					int rowEnd = matrix.getRowStart(r + 1);
 					
-			Map<Id<Link>, Double> linkId2isolatedImmission = new HashMap<Id<Link>, Double>();
-			Map<Id<Link>, Double> linkId2isolatedImmissionPlusOneCar = new HashMap<Id<Link>, Double>();
-			Map<Id<Link>, Double> linkId2isolatedImmissionPlusOneHGV = new HashMap<Id<Link>, Double>();
-			
-			for(Id<Link> linkId : rp.getLinkId2distanceCorrection().keySet()) {
-				if (this.noiseContext.getNoiseParams().getTunnelLinkIDsSet().contains(linkId)) {
-					linkId2isolatedImmission.put(linkId, 0.);
-					linkId2isolatedImmissionPlusOneCar.put(linkId, 0.);
-					linkId2isolatedImmissionPlusOneHGV.put(linkId, 0.);
-								 			
-			 	} else {
-				
-			 		double noiseImmission = 0.;
-			 		double noiseImmissionPlusOneCar = 0.;
-			 		double noiseImmissionPlusOneHGV = 0.;
-		 		
-			 		if (this.noiseContext.getNoiseLinks().containsKey(linkId)) {
-						if (!(this.noiseContext.getNoiseLinks().get(linkId).getEmission() == 0.)) {
-							noiseImmission = this.noiseContext.getNoiseLinks().get(linkId).getEmission()
-									+ this.noiseContext.getReceiverPoints().get(rp.getId()).getLinkId2distanceCorrection().get(linkId)
-									+ this.noiseContext.getReceiverPoints().get(rp.getId()).getLinkId2angleCorrection().get(linkId)
-									;
+					for (int e = rowStart; e < rowEnd; e++) {
+						int l = matrix.getLinkIndex(e);
+						
+						double noiseImmission = 0.;
+						double noiseImmissionPlusOneCar = 0.;
+						double noiseImmissionPlusOneHGV = 0.;
+						
+						if (!tunnel[l]) {
+							if (!(emission[l] == 0.)) {
+								noiseImmission = emission[l] + matrix.getDistanceCorrection(e) + matrix.getAngleCorrection(e);
+								
+								if (noiseImmission < 0.) {
+									noiseImmission = 0.;
+								}
+							}
 							
-							if (noiseImmission < 0.) {
-								noiseImmission = 0.;
+							if (!(emissionPlusOneCar[l] == 0.)) {
+								noiseImmissionPlusOneCar = emissionPlusOneCar[l] + matrix.getDistanceCorrection(e) + matrix.getAngleCorrection(e);
+								
+								if (noiseImmissionPlusOneCar < 0.) {
+									noiseImmissionPlusOneCar = 0.;
+								}
 							}
-						}
-						
-						if (!(this.noiseContext.getNoiseLinks().get(linkId).getEmissionPlusOneCar() == 0.)) {
-							noiseImmissionPlusOneCar = this.noiseContext.getNoiseLinks().get(linkId).getEmissionPlusOneCar()
-									+ this.noiseContext.getReceiverPoints().get(rp.getId()).getLinkId2distanceCorrection().get(linkId)
-									+ this.noiseContext.getReceiverPoints().get(rp.getId()).getLinkId2angleCorrection().get(linkId)
-									;
 							
-							if (noiseImmissionPlusOneCar < 0.) {
-								noiseImmissionPlusOneCar = 0.;
+							if (!(emissionPlusOneHGV[l] == 0.)) {
+								noiseImmissionPlusOneHGV = emissionPlusOneHGV[l] + matrix.getDistanceCorrection(e) + matrix.getAngleCorrection(e);
+								
+								if (noiseImmissionPlusOneHGV < 0.) {
+									noiseImmissionPlusOneHGV = 0.;
+								}
 							}
-						}
-						
-						if (!(this.noiseContext.getNoiseLinks().get(linkId).getEmissionPlusOneHGV() == 0.)) {
-							noiseImmissionPlusOneHGV = this.noiseContext.getNoiseLinks().get(linkId).getEmissionPlusOneHGV()
-									+ this.noiseContext.getReceiverPoints().get(rp.getId()).getLinkId2distanceCorrection().get(linkId)
-									+ this.noiseContext.getReceiverPoints().get(rp.getId()).getLinkId2angleCorrection().get(linkId)
-									;
 							
-							if (noiseImmissionPlusOneHGV < 0.) {
-								noiseImmissionPlusOneHGV = 0.;
+							if (noiseImmissionPlusOneCar < noiseImmission || noiseImmissionPlusOneHGV < noiseImmission) {
+								throw new RuntimeException("noise immission: " + noiseImmission + " - noise immission plus one car: " + noiseImmissionPlusOneCar + " - noise immission plus one hgv: " + noiseImmissionPlusOneHGV + ". This should not happen. Aborting..."); 
 							}
 						}
-
-					}
-			 		
-			 		if (noiseImmissionPlusOneCar < noiseImmission || noiseImmissionPlusOneHGV < noiseImmission) {
-						throw new RuntimeException("noise immission: " + noiseImmission + " - noise immission plus one car: " + noiseImmissionPlusOneCar + " - noise immission plus one hgv: " + noiseImmissionPlusOneHGV + ". This should not happen. Aborting..."); 
+						
+						isolatedImmission[e] = noiseImmission;
+						isolatedImmissionPlusOneCar[e] = noiseImmissionPlusOneCar;
+						isolatedImmissionPlusOneHGV[e] = noiseImmissionPlusOneHGV;
 					}
-			 		
-					linkId2isolatedImmission.put(linkId, noiseImmission);
-					linkId2isolatedImmissionPlusOneCar.put(linkId, noiseImmissionPlusOneCar);
-					linkId2isolatedImmissionPlusOneHGV.put(linkId, noiseImmissionPlusOneHGV);
-			 	}
+					
+					matrix.getReceiverPoint(r).setFinalImmission(NoiseEquations.calculateResultingNoiseImmission(isolatedImmission, rowStart, rowEnd));
+				}
 			}
-			
-			double finalNoiseImmission = 0.;
-			if (!linkId2isolatedImmission.isEmpty()) {
-				finalNoiseImmission = NoiseEquations.calculateResultingNoiseImmission(linkId2isolatedImmission.values());
+		});
+	}
+	
+	/**
+	 * @return the noise links of the current time interval, indexed as the links of the receiver point link matrix; <code>null</code> for links without a noise link
+	 */
+	private NoiseLink[] getNoiseLinksByIndex() {
+		NoiseLink[] noiseLinks = new NoiseLink[this.matrix.getLinkCount()];
+		for (int l = 0; l < noiseLinks.length; l++) {
+			noiseLinks[l] = this.noiseContext.getNoiseLinks().get(this.matrix.getLinkId(l));
+		}
+		return noiseLinks;
+	}
+	
+	/**
+	 * Runs the task for disjoint ranges of rows of the receiver point link matrix, using the number of threads of the global config group.
+	 * A task must only write information of its own receiver points and matrix entries.
+	 * <p/>
+	 * The threads are kept for all time bins and iterations; they are daemon threads which end after some time without tasks.
+	 */
+	private void runParallel(final ReceiverPointTask task) {
+		int rows = this.matrix.getRowCount();
+		final int nOfThreads = Math.max(1, Math.min(this.numberOfThreads, rows));
+		if (nOfThreads == 1) {
+			task.run(0, rows);
+			return;
+		}
+		
+		if (this.executor == null) {
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(nOfThreads, nOfThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				private int count = 0;
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, NoiseTimeTracker.class.getSimpleName() + "." + this.count++);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			pool.allowCoreThreadTimeOut(true);
+			this.executor = pool;
+		}
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < nOfThreads; i++) {
+			final int from = (int) ((long) i * rows / nOfThreads);
+			final int to = (int) ((long) (i + 1) * rows / nOfThreads);
+			futures.add(this.executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					task.run(from, to);
+				}
+			}));
+		}
+		try {
+			for (Future<?> future : futures) {
+				future.get();
 			}
-			
-			rp.setFinalImmission(finalNoiseImmission);
-			rp.setLinkId2IsolatedImmission(linkId2isolatedImmission);
-			rp.setLinkId2IsolatedImmissionPlusOneCar(linkId2isolatedImmissionPlusOneCar);
-			rp.setLinkId2IsolatedImmissionPlusOneHGV(linkId2isolatedImmissionPlusOneHGV);
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
 		}
 	}
 	
+	private interface ReceiverPointTask {
+		void run(int fromRow, int toRow);
+	}
+	
 	/*
 	 * Emission
 	 */
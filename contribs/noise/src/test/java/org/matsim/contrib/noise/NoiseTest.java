@@ -50,6 +50,7 @@ import org.matsim.contrib.noise.data.NoiseContext;
 import org.matsim.contrib.noise.data.NoiseReceiverPoint;
 import org.matsim.contrib.noise.data.PersonActivityInfo;
 import org.matsim.contrib.noise.data.ReceiverPoint;
+import org.matsim.contrib.noise.data.ReceiverPointLinkMatrix;
 import org.matsim.contrib.noise.events.NoiseEventAffected;
 import org.matsim.contrib.noise.events.NoiseEventCaused;
 import org.matsim.contrib.noise.handler.NoiseEquations;
@@ -136,6 +137,22 @@ public class NoiseTest {
 		double angle4 = 180;
 		double immissionCorrection4 = 10 * Math.log10((angle4) / (180));
 		Assert.assertEquals("wrong immission angle correction for receiver point 8 and link0", immissionCorrection4, noiseContext.getReceiverPoints().get(Id.create("8", ReceiverPoint.class)).getLinkId2angleCorrection().get(Id.create("link0", Link.class)), MatsimTestUtils.EPSILON);
+		
+		// test the receiver point link matrix
+		ReceiverPointLinkMatrix matrix = noiseContext.getReceiverPointLinkMatrix();
+		Assert.assertEquals("wrong number of rows", 16, matrix.getRowCount());
+		int entries = 0;
+		for (int r = 0; r < matrix.getRowCount(); r++) {
+			NoiseReceiverPoint rp = matrix.getReceiverPoint(r);
+			Assert.assertEquals("wrong number of entries for receiver point " + rp.getId(), rp.getLinkId2distanceCorrection().size(), matrix.getRowStart(r + 1) - matrix.getRowStart(r));
+			for (int e = matrix.getRowStart(r); e < matrix.getRowStart(r + 1); e++) {
+				Id<Link> linkId = matrix.getLinkId(matrix.getLinkIndex(e));
+				Assert.assertEquals("wrong distance correction for receiver point " + rp.getId() + " and " + linkId, rp.getLinkId2distanceCorrection().get(linkId), matrix.getDistanceCorrection(e), 0.);
+				Assert.assertEquals("wrong angle correction for receiver point " + rp.getId() + " and " + linkId, rp.getLinkId2angleCorrection().get(linkId), matrix.getAngleCorrection(e), 0.);
+			}
+			entries += rp.getLinkId2distanceCorrection().size();
+		}
+		Assert.assertEquals("wrong number of entries", entries, matrix.getEntryCount());
 	}
 	
 	// tests the noise emissions, immissions, considered agent units, damages (receiver points), damages (per link), damages (per vehicle) based on the generated *.csv output
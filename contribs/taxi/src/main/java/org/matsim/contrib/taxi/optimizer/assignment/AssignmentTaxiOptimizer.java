@@ -41,6 +41,7 @@ public class AssignmentTaxiOptimizer
     protected final FastMultiNodeDijkstra router;
     protected final BackwardFastMultiNodeDijkstra backwardRouter;
     private final VehicleAssignmentProblem<TaxiRequest> assignmentProblem;
+    private final SparseVehicleAssignmentProblem<TaxiRequest> sparseAssignmentProblem;
     private final TaxiToRequestAssignmentCostProvider assignmentCostProvider;
 
 
@@ -50,27 +51,25 @@ public class AssignmentTaxiOptimizer
         super(optimContext, params, new TreeSet<TaxiRequest>(Requests.ABSOLUTE_COMPARATOR), true);
         this.params = params;
 
-        //TODO bug: cannot cast ImaginaryNode to RoutingNetworkNode
-        //PreProcessDijkstra preProcessDijkstra = new PreProcessDijkstra();
-        //preProcessDijkstra.run(optimContext.network);
-        PreProcessDijkstra preProcessDijkstra = null;
-        FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
-
-        RoutingNetwork routingNetwork = new ArrayRoutingNetworkFactory(preProcessDijkstra)
-                .createRoutingNetwork(optimContext.network);
-        router = new FastMultiNodeDijkstra(routingNetwork, optimContext.travelDisutility,
-                optimContext.travelTime, preProcessDijkstra, fastRouterFactory, true);
-
-        RoutingNetwork inverseRoutingNetwork = new InverseArrayRoutingNetworkFactory(
-                preProcessDijkstra).createRoutingNetwork(optimContext.network);
-        backwardRouter = new BackwardFastMultiNodeDijkstra(inverseRoutingNetwork,
-                optimContext.travelDisutility, optimContext.travelTime, preProcessDijkstra,
-                fastRouterFactory, true);
-
-        assignmentProblem = new VehicleAssignmentProblem<>(optimContext.travelTime, router,
-                backwardRouter,
-                StraightLineKnnFinders.createRequestEntryFinder(params.nearestRequestsLimit),
-                StraightLineKnnFinders.createVehicleDepartureFinder(params.nearestVehiclesLimit));
+        if (params.sparse) {
+            //the sparse problem uses its own routers, one per thread
+            router = null;
+            backwardRouter = null;
+            assignmentProblem = null;
+            sparseAssignmentProblem = new SparseVehicleAssignmentProblem<>(optimContext,
+                    StraightLineKnnFinders.createRequestEntryFinder(params.nearestRequestsLimit),
+                    StraightLineKnnFinders.createVehicleDepartureFinder(params.nearestVehiclesLimit),
+                    params.numberOfThreads);
+        }
+        else {
+            router = createRouter(optimContext);
+            backwardRouter = createBackwardRouter(optimContext);
+            assignmentProblem = new VehicleAssignmentProblem<>(optimContext.travelTime, router,
+                    backwardRouter,
+                    StraightLineKnnFinders.createRequestEntryFinder(params.nearestRequestsLimit),
+                    StraightLineKnnFinders.createVehicleDepartureFinder(params.nearestVehiclesLimit));
+            sparseAssignmentProblem = null;
+        }
 
         assignmentCostProvider = new TaxiToRequestAssignmentCostProvider(params);
     }
@@ -91,8 +90,9 @@ public class AssignmentTaxiOptimizer
         }
 
         AssignmentCost<TaxiRequest> cost = assignmentCostProvider.getCost(rData, vData);
-        List<Dispatch<TaxiRequest>> assignments = assignmentProblem.findAssignments(vData, rData,
-                cost);
+        List<Dispatch<TaxiRequest>> assignments = params.sparse ? //
+                sparseAssignmentProblem.findAssignments(vData, rData, cost)
+                : assignmentProblem.findAssignments(vData, rData, cost);
 
         for (Dispatch<TaxiRequest> a : assignments) {
             optimContext.scheduler.scheduleRequest(a.vehicle, a.destination, a.path);
@@ -101,6 +101,34 @@ public class AssignmentTaxiOptimizer
     }
 
 
+    static FastMultiNodeDijkstra createRouter(TaxiOptimizerContext optimContext)
+    {
+        //TODO bug: cannot cast ImaginaryNode to RoutingNetworkNode
+        //PreProcessDijkstra preProcessDijkstra = new PreProcessDijkstra();
+        //preProcessDijkstra.run(optimContext.network);
+        PreProcessDijkstra preProcessDijkstra = null;
+        FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
+
+        RoutingNetwork routingNetwork = new ArrayRoutingNetworkFactory(preProcessDijkstra)
+                .createRoutingNetwork(optimContext.network);
+        return new FastMultiNodeDijkstra(routingNetwork, optimContext.travelDisutility,
+                optimContext.travelTime, preProcessDijkstra, fastRouterFactory, true);
+    }
+
+
+    static BackwardFastMultiNodeDijkstra createBackwardRouter(TaxiOptimizerContext optimContext)
+    {
+        PreProcessDijkstra preProcessDijkstra = null;
+        FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
+
+        RoutingNetwork inverseRoutingNetwork = new InverseArrayRoutingNetworkFactory(
+                preProcessDijkstra).createRoutingNetwork(optimContext.network);
+        return new BackwardFastMultiNodeDijkstra(inverseRoutingNetwork,
+                optimContext.travelDisutility, optimContext.travelTime, preProcessDijkstra,
+                fastRouterFactory, true);
+    }
+
+
     private VehicleData initVehicleData(AssignmentRequestData rData)
     {
         int idleVehs = Iterables.size(Iterables.filter(optimContext.taxiData.getVehicles().values(),
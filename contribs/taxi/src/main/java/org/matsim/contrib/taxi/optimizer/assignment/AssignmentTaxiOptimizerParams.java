@@ -37,6 +37,9 @@ public class AssignmentTaxiOptimizerParams
     public static final String NEAREST_REQUESTS_LIMIT = "nearestRequestsLimit";
     public static final String NEAREST_VEHICLES_LIMIT = "nearestVehiclesLimit";
 
+    public static final String SPARSE = "sparse";
+    public static final String NUMBER_OF_THREADS = "numberOfThreads";
+
     public final Mode mode;
     public final double nullPathCost;
 
@@ -46,6 +49,10 @@ public class AssignmentTaxiOptimizerParams
     public final int nearestRequestsLimit;
     public final int nearestVehiclesLimit;
 
+    //only the nearest requests/vehicles are assignment candidates (for large fleets)
+    public final boolean sparse;
+    public final int numberOfThreads;//used for path search in the sparse mode
+
 
     public AssignmentTaxiOptimizerParams(Configuration optimizerConfig)
     {
@@ -62,5 +69,8 @@ public class AssignmentTaxiOptimizerParams
 
         nearestRequestsLimit = optimizerConfig.getInt(NEAREST_REQUESTS_LIMIT);
         nearestVehiclesLimit = optimizerConfig.getInt(NEAREST_VEHICLES_LIMIT);
+
+        sparse = optimizerConfig.getBoolean(SPARSE, false);
+        numberOfThreads = optimizerConfig.getInt(NUMBER_OF_THREADS, 1);
     }
 }
@@ -0,0 +1,301 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.taxi.optimizer.assignment;
+
+import java.util.Arrays;
+
+
+/**
+ * Solves the assignment problem on a sparse bipartite graph (rows x columns, only some pairs are
+ * feasible) by computing shortest augmenting paths row by row (in the spirit of Jonker-Volgenant),
+ * with Dijkstra's algorithm on the reduced costs.
+ * <p>
+ * Among all assignments with the maximum number of assigned rows, the one with the minimum total
+ * cost is found. To this end, each row has a private dummy column ("unassigned") with a cost that
+ * is higher than any saving possible by leaving the row unassigned.
+ * <p>
+ * The column prices (dual variables) can be taken over from the previous solution, which typically
+ * shortens the augmenting path searches if the problem has changed only slightly (warm start).
+ */
+public class SparseAssignmentSolver
+{
+    private final int rowCount;
+    private final int colCount;
+    private final int[][] rowCols;
+    private final double[][] rowCosts;
+    private final double dummyCost;
+
+    private final double[] v;//column prices
+    private final int[] rowCol;
+    private final int[] colRow;
+
+    //Dijkstra
+    private final double[] dist;
+    private final int[] pred;
+    private final int[] scanned;
+    private final boolean[] isScanned;
+    private int scannedCount;
+    private final int[] touched;
+    private int touchedCount;
+
+    //indexed binary heap of columns ordered by dist
+    private final int[] heap;
+    private final int[] heapPos;
+    private int heapSize;
+
+
+    /**
+     * @param colCount
+     *            number of columns
+     * @param rowCols
+     *            for each row, the feasible columns
+     * @param rowCosts
+     *            for each row, the costs of assigning the feasible columns (same order as in
+     *            {@code rowCols})
+     */
+    public SparseAssignmentSolver(int colCount, int[][] rowCols, double[][] rowCosts)
+    {
+        this.rowCount = rowCols.length;
+        this.colCount = colCount;
+        this.rowCols = rowCols;
+        this.rowCosts = rowCosts;
+
+        double minCost = Double.POSITIVE_INFINITY;
+        double maxCost = Double.NEGATIVE_INFINITY;
+        for (double[] costs : rowCosts) {
+            for (double c : costs) {
+                minCost = Math.min(minCost, c);
+                maxCost = Math.max(maxCost, c);
+            }
+        }
+        dummyCost = maxCost < minCost ? 1 : //no feasible pairs at all
+                maxCost + rowCount * (maxCost - minCost) + 1;
+
+        int size = colCount + rowCount;//a dummy column for each row
+        v = new double[size];
+        rowCol = new int[rowCount];
+        colRow = new int[size];
+        dist = new double[size];
+        pred = new int[size];
+        scanned = new int[size];
+        isScanned = new boolean[size];
+        touched = new int[size];
+        heap = new int[size];
+        heapPos = new int[size];
+    }
+
+
+    /**
+     * @param colPrices
+     *            initial column prices, e.g. from the previous solution (or {@code null}); if not
+     *            {@code null}, it is updated with the final prices
+     * @return for each row, the assigned column, or -1 if the row remains unassigned
+     */
+    public int[] solve(double[] colPrices)
+    {
+        Arrays.fill(v, 0);
+        if (colPrices != null) {
+            System.arraycopy(colPrices, 0, v, 0, colCount);
+        }
+        Arrays.fill(rowCol, -1);
+        Arrays.fill(colRow, -1);
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(heapPos, -1);
+
+        for (int r = 0; r < rowCount; r++) {
+            augment(r);
+        }
+
+        if (colPrices != null) {
+            //shift the prices to keep them in a reasonable range (only the differences matter)
+            double maxPrice = Double.NEGATIVE_INFINITY;
+            for (int c = 0; c < colCount; c++) {
+                maxPrice = Math.max(maxPrice, v[c]);
+            }
+            for (int c = 0; c < colCount; c++) {
+                colPrices[c] = v[c] - maxPrice;
+            }
+        }
+
+        int[] assignments = new int[rowCount];
+        for (int r = 0; r < rowCount; r++) {
+            assignments[r] = rowCol[r] < colCount ? rowCol[r] : -1;
+        }
+        return assignments;
+    }
+
+
+    private void augment(int row)
+    {
+        scannedCount = 0;
+        touchedCount = 0;
+
+        //reduced costs of the new row are shifted by its min, so that they are non-negative
+        double u = dummyCost - v[colCount + row];
+        for (int k = 0; k < rowCols[row].length; k++) {
+            u = Math.min(u, rowCosts[row][k] - v[rowCols[row][k]]);
+        }
+        relax(row, 0, u);
+
+        int freeCol;
+        while (true) {
+            int c = pollMin();
+            scanned[scannedCount++] = c;
+            isScanned[c] = true;
+            if (colRow[c] == -1) {
+                freeCol = c;
+                break;
+            }
+
+            int r = colRow[c];
+            relax(r, dist[c], getCost(r, c) - v[c]);
+        }
+
+        //update prices
+        double maxDist = dist[freeCol];
+        for (int i = 0; i < scannedCount; i++) {
+            int c = scanned[i];
+            v[c] += dist[c] - maxDist;
+        }
+
+        //augment along the path
+        int c = freeCol;
+        while (true) {
+            int r = pred[c];
+            int prevCol = rowCol[r];
+            rowCol[r] = c;
+            colRow[c] = r;
+            if (r == row) {
+                break;
+            }
+            c = prevCol;
+        }
+
+        //clean up
+        for (int i = 0; i < touchedCount; i++) {
+            dist[touched[i]] = Double.POSITIVE_INFINITY;
+        }
+        for (int i = 0; i < scannedCount; i++) {
+            isScanned[scanned[i]] = false;
+        }
+        for (int i = 0; i < heapSize; i++) {
+            heapPos[heap[i]] = -1;
+        }
+        heapSize = 0;
+    }
+
+
+    private void relax(int r, double baseDist, double u)
+    {
+        for (int k = 0; k < rowCols[r].length; k++) {
+            relaxColumn(r, rowCols[r][k], baseDist + rowCosts[r][k] - v[rowCols[r][k]] - u);
+        }
+
+        int dummyCol = colCount + r;
+        relaxColumn(r, dummyCol, baseDist + dummyCost - v[dummyCol] - u);
+    }
+
+
+    private void relaxColumn(int r, int c, double newDist)
+    {
+        if (!isScanned[c] && newDist < dist[c]) {
+            if (dist[c] == Double.POSITIVE_INFINITY) {
+                touched[touchedCount++] = c;
+                heapPos[c] = heapSize;
+                heap[heapSize++] = c;
+            }
+            dist[c] = newDist;
+            pred[c] = r;
+            siftUp(heapPos[c]);
+        }
+    }
+
+
+    private double getCost(int r, int c)
+    {
+        if (c >= colCount) {
+            return dummyCost;
+        }
+
+        int[] cols = rowCols[r];
+        for (int k = 0; k < cols.length; k++) {
+            if (cols[k] == c) {
+                return rowCosts[r][k];
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+
+    private int pollMin()
+    {
+        int min = heap[0];
+        heapPos[min] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapPos[heap[0]] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+
+    private void siftUp(int pos)
+    {
+        int c = heap[pos];
+        while (pos > 0) {
+            int parentPos = (pos - 1) / 2;
+            int parent = heap[parentPos];
+            if (dist[parent] <= dist[c]) {
+                break;
+            }
+            heap[pos] = parent;
+            heapPos[parent] = pos;
+            pos = parentPos;
+        }
+        heap[pos] = c;
+        heapPos[c] = pos;
+    }
+
+
+    private void siftDown(int pos)
+    {
+        int c = heap[pos];
+        while (true) {
+            int childPos = 2 * pos + 1;
+            if (childPos >= heapSize) {
+                break;
+            }
+            if (childPos + 1 < heapSize && dist[heap[childPos + 1]] < dist[heap[childPos]]) {
+                childPos++;
+            }
+            int child = heap[childPos];
+            if (dist[c] <= dist[child]) {
+                break;
+            }
+            heap[pos] = child;
+            heapPos[child] = pos;
+            pos = childPos;
+        }
+        heap[pos] = c;
+        heapPos[c] = pos;
+    }
+}
@@ -0,0 +1,424 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.taxi.optimizer.assignment;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.apache.log4j.Logger;
+import org.matsim.contrib.dvrp.data.Vehicle;
+import org.matsim.contrib.dvrp.path.*;
+import org.matsim.contrib.locationchoice.router.BackwardFastMultiNodeDijkstra;
+import org.matsim.contrib.taxi.optimizer.*;
+import org.matsim.contrib.taxi.optimizer.BestDispatchFinder.Dispatch;
+import org.matsim.contrib.taxi.optimizer.assignment.AssignmentDestinationData.DestEntry;
+import org.matsim.contrib.taxi.optimizer.assignment.VehicleAssignmentProblem.*;
+import org.matsim.core.router.FastMultiNodeDijkstra;
+
+
+/**
+ * Sparse variant of {@link VehicleAssignmentProblem} for large fleets. Only the k nearest (straight
+ * line) requests/vehicles are assignment candidates, so instead of a full cost matrix, only the
+ * candidate pairs are evaluated. The paths are computed in parallel (one search tree per vehicle
+ * or request), and the assignment is solved by {@link SparseAssignmentSolver}, warm-started with the
+ * prices of the previous optimization.
+ * <p>
+ * Vehicles and requests that remain unassigned (all their candidates are taken) are re-considered
+ * in subsequent rounds, with the candidates searched among the remaining ones.
+ */
+public class SparseVehicleAssignmentProblem<D>
+{
+    private static final Logger log = Logger.getLogger(SparseVehicleAssignmentProblem.class);
+
+    private final TaxiOptimizerContext optimContext;
+    private final StraightLineKnnFinder<VehicleData.Entry, DestEntry<D>> destinationFinder;
+    private final StraightLineKnnFinder<DestEntry<D>, VehicleData.Entry> vehicleFinder;
+    private final int numberOfThreads;
+
+    //one router per thread
+    private final FastMultiNodeDijkstra[] routers;
+    private final BackwardFastMultiNodeDijkstra[] backwardRouters;
+
+    //created on first use and kept for all optimizations; daemon threads, so no shutdown is needed
+    private ExecutorService executor = null;
+
+    //prices of the previous optimization (warm start)
+    private Map<Vehicle, Double> vehiclePrices = new HashMap<>();
+    private Map<D, Double> destinationPrices = new HashMap<>();
+
+    private final Timings timings = new Timings();
+
+
+    public SparseVehicleAssignmentProblem(TaxiOptimizerContext optimContext,
+            StraightLineKnnFinder<VehicleData.Entry, DestEntry<D>> destinationFinder,
+            StraightLineKnnFinder<DestEntry<D>, VehicleData.Entry> vehicleFinder,
+            int numberOfThreads)
+    {
+        this.optimContext = optimContext;
+        this.destinationFinder = destinationFinder;
+        this.vehicleFinder = vehicleFinder;
+        this.numberOfThreads = numberOfThreads;
+
+        routers = new FastMultiNodeDijkstra[numberOfThreads];
+        backwardRouters = new BackwardFastMultiNodeDijkstra[numberOfThreads];
+        for (int i = 0; i < numberOfThreads; i++) {
+            routers[i] = AssignmentTaxiOptimizer.createRouter(optimContext);
+            backwardRouters[i] = AssignmentTaxiOptimizer.createBackwardRouter(optimContext);
+        }
+    }
+
+
+    public List<Dispatch<D>> findAssignments(VehicleData vData, AssignmentDestinationData<D> dData,
+            AssignmentCost<D> assignmentCost)
+    {
+        List<VehicleData.Entry> vehs = new ArrayList<>(vData.getEntries());
+        List<DestEntry<D>> dests = new ArrayList<>(dData.getEntries());
+        List<Dispatch<D>> dispatches = new ArrayList<>(Math.min(vehs.size(), dests.size()));
+
+        Round round = new Round(vData, dData, assignmentCost);
+        ExecutorService executor = numberOfThreads > 1 ? getExecutor() : null;
+        while (!vehs.isEmpty() && !dests.isEmpty()) {
+            int assignedCount = round.run(vehs, dests, dispatches, executor);
+            timings.rounds++;
+            if (assignedCount == 0) {
+                break;
+            }
+        }
+
+        vehiclePrices = round.newVehiclePrices;
+        destinationPrices = round.newDestinationPrices;
+
+        timings.optimizations++;
+        if (log.isDebugEnabled()) {
+            log.debug(timings);
+        }
+        return dispatches;
+    }
+
+
+    private ExecutorService getExecutor()
+    {
+        if (executor == null) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(numberOfThreads, numberOfThreads, 60,
+                    TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        private int count = 0;
+
+
+                        @Override
+                        public Thread newThread(Runnable runnable)
+                        {
+                            Thread thread = new Thread(runnable,
+                                    SparseVehicleAssignmentProblem.class.getSimpleName() + "."
+                                            + count++);
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+        return executor;
+    }
+
+
+    public Timings getTimings()
+    {
+        return timings;
+    }
+
+
+    private class Round
+    {
+        private final AssignmentCost<D> assignmentCost;
+        private final int[] vehCols;//by VehicleData.Entry.idx
+        private final int[] destCols;//by DestEntry.idx
+
+        private final Map<Vehicle, Double> newVehiclePrices = new HashMap<>();
+        private final Map<D, Double> newDestinationPrices = new HashMap<>();
+
+        private int[][] rowCols;
+        private double[][] rowCosts;
+        private PathData[][] rowPaths;
+
+
+        private Round(VehicleData vData, AssignmentDestinationData<D> dData,
+                AssignmentCost<D> assignmentCost)
+        {
+            this.assignmentCost = assignmentCost;
+            vehCols = new int[vData.getSize()];
+            destCols = new int[dData.getSize()];
+        }
+
+
+        //returns the number of assignments
+        private int run(final List<VehicleData.Entry> vehs, final List<DestEntry<D>> dests,
+                List<Dispatch<D>> dispatches, ExecutorService executor)
+        {
+            //trees are computed for the smaller set (as in VehicleAssignmentProblem);
+            //the smaller set are the rows of the assignment problem
+            final boolean vehRows = dests.size() > vehs.size();
+            int rowCount = vehRows ? vehs.size() : dests.size();
+            int colCount = vehRows ? dests.size() : vehs.size();
+
+            for (int i = 0; i < vehs.size(); i++) {
+                vehCols[vehs.get(i).idx] = i;
+            }
+            for (int i = 0; i < dests.size(); i++) {
+                destCols[dests.get(i).idx] = i;
+            }
+
+            //(1) candidates, paths and costs
+            long t0 = System.nanoTime();
+            rowCols = new int[rowCount][];
+            rowCosts = new double[rowCount][];
+            rowPaths = new PathData[rowCount][];
+            runParallel(rowCount, executor, new RowTask() {
+                public void run(int row, int thread)
+                {
+                    if (vehRows) {
+                        calcCandidatesForVehicle(row, vehs.get(row), dests, routers[thread]);
+                    }
+                    else {
+                        calcCandidatesForDestination(row, dests.get(row), vehs,
+                                backwardRouters[thread]);
+                    }
+                }
+            });
+
+            //(2) assignment
+            long t1 = System.nanoTime();
+            double[] prices = new double[colCount];
+            for (int c = 0; c < colCount; c++) {
+                Double price = vehRows ? destinationPrices.get(dests.get(c).destination)
+                        : vehiclePrices.get(vehs.get(c).vehicle);
+                prices[c] = price == null ? 0 : price;
+            }
+
+            int[] assignments = new SparseAssignmentSolver(colCount, rowCols, rowCosts)
+                    .solve(prices);
+
+            for (int c = 0; c < colCount; c++) {
+                if (vehRows) {
+                    newDestinationPrices.put(dests.get(c).destination, prices[c]);
+                }
+                else {
+                    newVehiclePrices.put(vehs.get(c).vehicle, prices[c]);
+                }
+            }
+
+            //(3) dispatches
+            long t2 = System.nanoTime();
+            boolean[] assignedRows = new boolean[rowCount];
+            boolean[] assignedCols = new boolean[colCount];
+            int assignedCount = 0;
+            for (int r = 0; r < rowCount; r++) {
+                int c = assignments[r];
+                if (c == -1) {
+                    continue;
+                }
+
+                VehicleData.Entry departure = vehs.get(vehRows ? r : c);
+                DestEntry<D> dest = dests.get(vehRows ? c : r);
+                PathData pathData = getPathData(r, c);
+                VrpPathWithTravelData vrpPath = VrpPaths.createPath(departure.link, dest.link,
+                        departure.time, pathData.getPath(), optimContext.travelTime);
+                dispatches.add(new Dispatch<>(departure.vehicle, dest.destination, vrpPath));
+
+                assignedRows[r] = true;
+                assignedCols[c] = true;
+                assignedCount++;
+            }
+
+            removeAssigned(vehs, vehRows ? assignedRows : assignedCols);
+            removeAssigned(dests, vehRows ? assignedCols : assignedRows);
+            long t3 = System.nanoTime();
+
+            timings.candidatesNanos += t1 - t0;
+            timings.solverNanos += t2 - t1;
+            timings.dispatchesNanos += t3 - t2;
+            return assignedCount;
+        }
+
+
+        private void calcCandidatesForVehicle(int row, VehicleData.Entry departure,
+                List<DestEntry<D>> dests, FastMultiNodeDijkstra router)
+        {
+            List<DestEntry<D>> filteredDests = destinationFinder == null ? dests
+                    : destinationFinder.findNearest(departure, dests);
+            PathData[] paths = VehicleAssignmentProblem.calcPathsForVehicle(departure,
+                    filteredDests, router);
+
+            int[] cols = new int[paths.length];
+            double[] costs = new double[paths.length];
+            for (int i = 0; i < paths.length; i++) {
+                DestEntry<D> dest = filteredDests.get(i);
+                cols[i] = destCols[dest.idx];
+                costs[i] = assignmentCost.calc(departure, dest, paths[i]);
+            }
+
+            rowCols[row] = cols;
+            rowCosts[row] = costs;
+            rowPaths[row] = paths;
+        }
+
+
+        private void calcCandidatesForDestination(int row, DestEntry<D> dest,
+                List<VehicleData.Entry> vehs, BackwardFastMultiNodeDijkstra backwardRouter)
+        {
+            List<VehicleData.Entry> filteredVehs = vehicleFinder == null ? vehs
+                    : vehicleFinder.findNearest(dest, vehs);
+            PathData[] paths = VehicleAssignmentProblem.calcPathsForDestination(dest,
+                    filteredVehs, backwardRouter);
+
+            int[] cols = new int[paths.length];
+            double[] costs = new double[paths.length];
+            for (int i = 0; i < paths.length; i++) {
+                VehicleData.Entry departure = filteredVehs.get(i);
+                cols[i] = vehCols[departure.idx];
+                costs[i] = assignmentCost.calc(departure, dest, paths[i]);
+            }
+
+            rowCols[row] = cols;
+            rowCosts[row] = costs;
+            rowPaths[row] = paths;
+        }
+
+
+        private PathData getPathData(int row, int col)
+        {
+            int[] cols = rowCols[row];
+            for (int i = 0; i < cols.length; i++) {
+                if (cols[i] == col) {
+                    return rowPaths[row][i];
+                }
+            }
+            throw new IllegalStateException();
+        }
+    }
+
+
+    private static <T> void removeAssigned(List<T> entries, boolean[] assigned)
+    {
+        int j = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            if (!assigned[i]) {
+                entries.set(j++, entries.get(i));
+            }
+        }
+        entries.subList(j, entries.size()).clear();
+    }
+
+
+    private interface RowTask
+    {
+        void run(int row, int thread);
+    }
+
+
+    private void runParallel(final int rowCount, ExecutorService executor, final RowTask task)
+    {
+        if (executor == null) {
+            for (int row = 0; row < rowCount; row++) {
+                task.run(row, 0);
+            }
+            return;
+        }
+
+        List<Future<?>> futures = new ArrayList<>(numberOfThreads);
+        for (int t = 0; t < numberOfThreads; t++) {
+            final int thread = t;
+            final int fromRow = (int)((long)rowCount * t / numberOfThreads);
+            final int toRow = (int)((long)rowCount * (t + 1) / numberOfThreads);
+            futures.add(executor.submit(new Runnable() {
+                public void run()
+                {
+                    for (int row = fromRow; row < toRow; row++) {
+                        task.run(row, thread);
+                    }
+                }
+            }));
+        }
+
+        for (Future<?> f : futures) {
+            try {
+                f.get();
+            }
+            catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+
+    /**
+     * Cumulative wall-clock times of the optimization steps.
+     */
+    public static class Timings
+    {
+        private long optimizations = 0;
+        private long rounds = 0;
+        private long candidatesNanos = 0;//kNN search, paths and costs
+        private long solverNanos = 0;
+        private long dispatchesNanos = 0;
+
+
+        public long getOptimizations()
+        {
+            return optimizations;
+        }
+
+
+        public long getRounds()
+        {
+            return rounds;
+        }
+
+
+        public long getCandidatesNanos()
+        {
+            return candidatesNanos;
+        }
+
+
+        public long getSolverNanos()
+        {
+            return solverNanos;
+        }
+
+
+        public long getDispatchesNanos()
+        {
+            return dispatchesNanos;
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return String.format(
+                    "optimizations: %d, rounds: %d, candidates: %d ms, solver: %d ms, dispatches: %d ms",
+                    optimizations, rounds, candidatesNanos / 1_000_000, solverNanos / 1_000_000,
+                    dispatchesNanos / 1_000_000);
+        }
+    }
+}
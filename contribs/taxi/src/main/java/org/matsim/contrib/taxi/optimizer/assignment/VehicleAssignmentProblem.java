@@ -149,57 +149,14 @@ public class VehicleAssignmentProblem<D>
     {
         for (int v = 0; v < vData.getSize(); v++) {
             VehicleData.Entry departure = vData.getEntry(v);
-            Node fromNode = departure.link.getToNode();
 
             //TODO this kNN is slow
             List<DestEntry<D>> filteredDests = destinationFinder == null ? dData.getEntries()
                     : destinationFinder.findNearest(departure, dData.getEntries());
 
-            Map<Id<Node>, InitialNode> destInitialNodes = Maps
-                    .newHashMapWithExpectedSize(filteredDests.size());
-            Map<Id<Node>, Path> pathsToDestNodes = Maps
-                    .newHashMapWithExpectedSize(filteredDests.size());
-
-            for (DestEntry<D> dest : filteredDests) {
-                int d = dest.idx;
-                PathData pathData = pathDataMatrix[v][d] = new PathData();
-
-                if (departure.link == dest.link) {
-                    //hack: we are basically there (on the same link), so let's use dest.link.toNode (== fromNode)
-                    pathData.node = fromNode;
-                    pathData.delay = 0;
-                }
-                else {
-                    pathData.node = dest.link.getFromNode();
-                    //simplified, but works for taxis, since pickup trips are short (about 5 mins)
-                    //TODO delay can be computed after path search...
-                    pathData.delay = 1 + dest.link.getFreespeed(departure.time);
-                }
-
-                if (!destInitialNodes.containsKey(pathData.node.getId())) {
-                    InitialNode newInitialNode = new InitialNode(pathData.node, 0, 0);
-                    destInitialNodes.put(pathData.node.getId(), newInitialNode);
-                }
-            }
-
-            ImaginaryNode toNodes = router.createImaginaryNode(destInitialNodes.values());
-            Path path = router.calcLeastCostPath(fromNode, toNodes, departure.time, null, null);
-            Node bestDestNode = path.nodes.get(path.nodes.size() - 1);
-            pathsToDestNodes.put(bestDestNode.getId(), path);
-
-            //get paths for all remaining destNodes 
-            for (InitialNode i : destInitialNodes.values()) {
-                Node destNode = i.node;
-                if (destNode.getId() != bestDestNode.getId()) {
-                    path = router.constructPath(fromNode, destNode, departure.time);
-                    pathsToDestNodes.put(destNode.getId(), path);
-                }
-            }
-
-            for (DestEntry<D> dest : filteredDests) {
-                int d = dest.idx;
-                PathData pathData = pathDataMatrix[v][d];
-                pathData.path = pathsToDestNodes.get(pathData.node.getId());
+            PathData[] paths = calcPathsForVehicle(departure, filteredDests, router);
+            for (int i = 0; i < paths.length; i++) {
+                pathDataMatrix[v][filteredDests.get(i).idx] = paths[i];
             }
         }
     }
@@ -210,59 +167,134 @@ public class VehicleAssignmentProblem<D>
     {
         for (int d = 0; d < dData.getSize(); d++) {
             DestEntry<D> dest = dData.getEntry(d);
-            Node toNode = dest.link.getFromNode();
 
             //TODO this kNN is slow
             List<VehicleData.Entry> filteredVehs = vehicleFinder == null ? vData.getEntries()
                     : vehicleFinder.findNearest(dest, vData.getEntries());
 
-            Map<Id<Node>, InitialNode> vehInitialNodes = Maps
-                    .newHashMapWithExpectedSize(filteredVehs.size());
-            Map<Id<Node>, Path> pathsFromVehNodes = Maps
-                    .newHashMapWithExpectedSize(filteredVehs.size());
-
-            for (VehicleData.Entry departure : filteredVehs) {
-                int v = departure.idx;
-                PathData pathData = pathDataMatrix[v][d] = new PathData();
-
-                if (departure.link == dest.link) {
-                    //hack: we are basically there (on the same link), so let's use dset.link.fromNode (== toNode)
-                    pathData.node = toNode;
-                    pathData.delay = 0;
-                }
-                else {
-                    pathData.node = departure.link.getToNode();
-                    //simplified, but works for taxis, since pickup trips are short (about 5 mins)
-                    //TODO delay can be computed after path search...
-                    pathData.delay = 1 + dest.link.getFreespeed(departure.time);
-                }
-
-                if (!vehInitialNodes.containsKey(pathData.node.getId())) {
-                    InitialNode newInitialNode = new InitialNode(pathData.node, 0, 0);
-                    vehInitialNodes.put(pathData.node.getId(), newInitialNode);
-                }
+            PathData[] paths = calcPathsForDestination(dest, filteredVehs, backwardRouter);
+            for (int i = 0; i < paths.length; i++) {
+                pathDataMatrix[filteredVehs.get(i).idx][d] = paths[i];
+            }
+        }
+    }
+
+
+    /**
+     * Computes the paths from the vehicle to the destinations (one search tree); the i-th path data
+     * corresponds to the i-th destination.
+     */
+    static <D> PathData[] calcPathsForVehicle(VehicleData.Entry departure,
+            List<DestEntry<D>> filteredDests, FastMultiNodeDijkstra router)
+    {
+        Node fromNode = departure.link.getToNode();
+        PathData[] paths = new PathData[filteredDests.size()];
+
+        Map<Id<Node>, InitialNode> destInitialNodes = Maps
+                .newHashMapWithExpectedSize(filteredDests.size());
+        Map<Id<Node>, Path> pathsToDestNodes = Maps
+                .newHashMapWithExpectedSize(filteredDests.size());
+
+        for (int d = 0; d < paths.length; d++) {
+            DestEntry<D> dest = filteredDests.get(d);
+            PathData pathData = paths[d] = new PathData();
+
+            if (departure.link == dest.link) {
+                //hack: we are basically there (on the same link), so let's use dest.link.toNode (== fromNode)
+                pathData.node = fromNode;
+                pathData.delay = 0;
+            }
+            else {
+                pathData.node = dest.link.getFromNode();
+                //simplified, but works for taxis, since pickup trips are short (about 5 mins)
+                //TODO delay can be computed after path search...
+                pathData.delay = 1 + dest.link.getFreespeed(departure.time);
+            }
+
+            if (!destInitialNodes.containsKey(pathData.node.getId())) {
+                InitialNode newInitialNode = new InitialNode(pathData.node, 0, 0);
+                destInitialNodes.put(pathData.node.getId(), newInitialNode);
+            }
+        }
+
+        ImaginaryNode toNodes = router.createImaginaryNode(destInitialNodes.values());
+        Path path = router.calcLeastCostPath(fromNode, toNodes, departure.time, null, null);
+        Node bestDestNode = path.nodes.get(path.nodes.size() - 1);
+        pathsToDestNodes.put(bestDestNode.getId(), path);
+
+        //get paths for all remaining destNodes 
+        for (InitialNode i : destInitialNodes.values()) {
+            Node destNode = i.node;
+            if (destNode.getId() != bestDestNode.getId()) {
+                path = router.constructPath(fromNode, destNode, departure.time);
+                pathsToDestNodes.put(destNode.getId(), path);
             }
+        }
+
+        for (PathData pathData : paths) {
+            pathData.path = pathsToDestNodes.get(pathData.node.getId());
+        }
 
-            ImaginaryNode fromNodes = backwardRouter.createImaginaryNode(vehInitialNodes.values());
-            Path path = backwardRouter.calcLeastCostPath(toNode, fromNodes, dest.time, null, null);
-            Node bestVehNode = path.nodes.get(path.nodes.size() - 1);
-            pathsFromVehNodes.put(bestVehNode.getId(), path);
-
-            //get paths for all remaining endNodes 
-            for (InitialNode i : vehInitialNodes.values()) {
-                Node vehNode = i.node;
-                if (vehNode.getId() != bestVehNode.getId()) {
-                    path = backwardRouter.constructPath(toNode, vehNode, dest.time);
-                    pathsFromVehNodes.put(vehNode.getId(), path);
-                }
+        return paths;
+    }
+
+
+    /**
+     * Computes the paths from the vehicles to the destination (one backward search tree); the i-th
+     * path data corresponds to the i-th vehicle.
+     */
+    static <D> PathData[] calcPathsForDestination(DestEntry<D> dest,
+            List<VehicleData.Entry> filteredVehs, BackwardFastMultiNodeDijkstra backwardRouter)
+    {
+        Node toNode = dest.link.getFromNode();
+        PathData[] paths = new PathData[filteredVehs.size()];
+
+        Map<Id<Node>, InitialNode> vehInitialNodes = Maps
+                .newHashMapWithExpectedSize(filteredVehs.size());
+        Map<Id<Node>, Path> pathsFromVehNodes = Maps
+                .newHashMapWithExpectedSize(filteredVehs.size());
+
+        for (int v = 0; v < paths.length; v++) {
+            VehicleData.Entry departure = filteredVehs.get(v);
+            PathData pathData = paths[v] = new PathData();
+
+            if (departure.link == dest.link) {
+                //hack: we are basically there (on the same link), so let's use dset.link.fromNode (== toNode)
+                pathData.node = toNode;
+                pathData.delay = 0;
             }
+            else {
+                pathData.node = departure.link.getToNode();
+                //simplified, but works for taxis, since pickup trips are short (about 5 mins)
+                //TODO delay can be computed after path search...
+                pathData.delay = 1 + dest.link.getFreespeed(departure.time);
+            }
+
+            if (!vehInitialNodes.containsKey(pathData.node.getId())) {
+                InitialNode newInitialNode = new InitialNode(pathData.node, 0, 0);
+                vehInitialNodes.put(pathData.node.getId(), newInitialNode);
+            }
+        }
 
-            for (VehicleData.Entry departure : filteredVehs) {
-                int v = departure.idx;
-                PathData pathData = pathDataMatrix[v][d];
-                pathData.path = pathsFromVehNodes.get(pathData.node.getId());
+        ImaginaryNode fromNodes = backwardRouter.createImaginaryNode(vehInitialNodes.values());
+        Path path = backwardRouter.calcLeastCostPath(toNode, fromNodes, dest.time, null, null);
+        Node bestVehNode = path.nodes.get(path.nodes.size() - 1);
+        pathsFromVehNodes.put(bestVehNode.getId(), path);
+
+        //get paths for all remaining endNodes 
+        for (InitialNode i : vehInitialNodes.values()) {
+            Node vehNode = i.node;
+            if (vehNode.getId() != bestVehNode.getId()) {
+                path = backwardRouter.constructPath(toNode, vehNode, dest.time);
+                pathsFromVehNodes.put(vehNode.getId(), path);
             }
         }
+
+        for (PathData pathData : paths) {
+            pathData.path = pathsFromVehNodes.get(pathData.node.getId());
+        }
+
+        return paths;
     }
 
 
@@ -54,5 +54,9 @@ public class AssignmentTaxiOptimizerIT
         params.put(AssignmentTaxiOptimizerParams.NEAREST_VEHICLES_LIMIT, 10 + "");
         params.put(AbstractTaxiOptimizerParams.REOPTIMIZATION_TIME_STEP, 10 + "");
         runBenchmark(variants, params, benchmark);
+
+        params.put(AssignmentTaxiOptimizerParams.SPARSE, true + "");
+        params.put(AssignmentTaxiOptimizerParams.NUMBER_OF_THREADS, 2 + "");
+        runBenchmark(variants, params, benchmark);
     }
 }
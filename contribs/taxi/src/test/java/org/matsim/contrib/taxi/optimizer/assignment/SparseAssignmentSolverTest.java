@@ -0,0 +1,136 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.taxi.optimizer.assignment;
+
+import java.util.*;
+
+import org.junit.*;
+
+
+public class SparseAssignmentSolverTest
+{
+    private static final double DELTA = 1e-6;
+
+
+    @Test
+    public void testDenseProblemsAgainstHungarianAlgorithm()
+    {
+        Random random = new Random(4711);
+        int[][] sizes = { { 1, 1 }, { 5, 5 }, { 7, 12 }, { 12, 7 }, { 40, 40 } };
+        for (int[] size : sizes) {
+            for (int run = 0; run < 10; run++) {
+                double[][] costMatrix = new double[size[0]][size[1]];
+                for (double[] row : costMatrix) {
+                    for (int c = 0; c < row.length; c++) {
+                        row[c] = random.nextInt(1000);
+                    }
+                }
+
+                int[] expected = new HungarianAlgorithm(costMatrix).execute();
+                int[] actual = createSolver(costMatrix).solve(null);
+
+                Assert.assertEquals(calcTotalCost(costMatrix, expected),
+                        calcTotalCost(costMatrix, actual), DELTA);
+                Assert.assertEquals(Math.min(size[0], size[1]), countAssigned(actual));
+            }
+        }
+    }
+
+
+    @Test
+    public void testSparseProblem()
+    {
+        //row 0 prefers col 0, but only row 0 can serve col 1, so row 1 has to take col 0
+        int[][] rowCols = { { 0, 1 }, { 0, 2 }, { 2 } };
+        double[][] rowCosts = { { 1, 10 }, { 2, 100 }, { 1 } };
+        int[] assignments = new SparseAssignmentSolver(3, rowCols, rowCosts).solve(null);
+        Assert.assertArrayEquals(new int[] { 1, 0, 2 }, assignments);
+
+        //a row without feasible columns remains unassigned
+        rowCols = new int[][] { { 0 }, {}, { 0 } };
+        rowCosts = new double[][] { { 5 }, {}, { 3 } };
+        assignments = new SparseAssignmentSolver(1, rowCols, rowCosts).solve(null);
+        Assert.assertArrayEquals(new int[] { -1, -1, 0 }, assignments);
+    }
+
+
+    @Test
+    public void testWarmStart()
+    {
+        Random random = new Random(42);
+        double[][] costMatrix = new double[30][20];
+        for (double[] row : costMatrix) {
+            for (int c = 0; c < row.length; c++) {
+                row[c] = random.nextInt(1000);
+            }
+        }
+
+        double[] prices = new double[20];
+        double cost = calcTotalCost(costMatrix, createSolver(costMatrix).solve(prices));
+
+        //re-solving with the prices of the previous solution gives an optimal solution as well
+        Assert.assertEquals(cost, calcTotalCost(costMatrix, createSolver(costMatrix).solve(prices)),
+                DELTA);
+
+        //also after the problem has changed
+        costMatrix[3][4] = 0;
+        double[][] changedMatrix = Arrays.copyOf(costMatrix, 25);
+        int[] expected = new HungarianAlgorithm(changedMatrix).execute();
+        Assert.assertEquals(calcTotalCost(changedMatrix, expected),
+                calcTotalCost(changedMatrix, createSolver(changedMatrix).solve(prices)), DELTA);
+    }
+
+
+    private static SparseAssignmentSolver createSolver(double[][] costMatrix)
+    {
+        int colCount = costMatrix[0].length;
+        int[][] rowCols = new int[costMatrix.length][colCount];
+        for (int[] cols : rowCols) {
+            for (int c = 0; c < colCount; c++) {
+                cols[c] = c;
+            }
+        }
+        return new SparseAssignmentSolver(colCount, rowCols, costMatrix);
+    }
+
+
+    private static double calcTotalCost(double[][] costMatrix, int[] assignments)
+    {
+        double cost = 0;
+        for (int r = 0; r < assignments.length; r++) {
+            if (assignments[r] != -1) {
+                cost += costMatrix[r][assignments[r]];
+            }
+        }
+        return cost;
+    }
+
+
+    private static int countAssigned(int[] assignments)
+    {
+        int count = 0;
+        for (int a : assignments) {
+            if (a != -1) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
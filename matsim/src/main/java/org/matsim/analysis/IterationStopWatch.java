@@ -60,6 +60,9 @@ public class IterationStopWatch {
 	/** A list of identifiers used to enumerate operations. */
 	private final List<String> operations;
 
+	/** A list of identifiers of operations for which the number of handled items is known. */
+	private final List<String> countedOperations;
+
 	/** A cache for easy access to the current object in <code>iterations</code>. */
 	private Map<String, Long> currentIterationValues;
 
@@ -82,6 +85,7 @@ public class IterationStopWatch {
 		this.iterations = new LinkedHashMap<Integer, Map<String, Long>>();
 		this.identifiers = new LinkedList<String>();
 		this.operations = new LinkedList<String>();
+		this.countedOperations = new LinkedList<String>();
 		this.currentIterationValues = null;
 		this.children = new LinkedHashMap<Integer, Map<String, List<String>>>();
 	}
@@ -97,6 +101,7 @@ public class IterationStopWatch {
 		this.iterations.clear();
 		this.identifiers.clear();
 		this.operations.clear();
+		this.countedOperations.clear();
 		this.currentMeasuredOperations.clear();
 		this.currentIterationChildren.clear();
 		this.children.clear();
@@ -166,6 +171,23 @@ public class IterationStopWatch {
 		this.currentMeasuredOperations.pop();
 	}
 
+	/**
+	 * Tells the stop watch how many items (e.g. plans) an operation of the current iteration handled, so that
+	 * the throughput of the operation in items per second can be written out. The operation must have been
+	 * ended before with {@link #endOperation(String)}.
+	 *
+	 * @param identifier The name of the operation.
+	 * @param count The number of handled items.
+	 */
+	public void addOperationCount(final String identifier, final long count) {
+		if (!this.countedOperations.contains(identifier)) {
+			this.countedOperations.add(identifier);
+		}
+		String ident = "COUNT " + identifier;
+		Long oldCount = this.currentIterationValues.get(ident);
+		this.currentIterationValues.put(ident, Long.valueOf(oldCount == null ? count : oldCount.longValue() + count));
+	}
+
     public void endIteration() {
         this.endOperation(AbstractController.OPERATION_ITERATION);
     }
@@ -201,6 +223,14 @@ public class IterationStopWatch {
 				writer.write('\t');
 				writer.write(identifier);
 			}
+			if (!this.countedOperations.isEmpty()) {
+				writer.write('\t');
+				for (String identifier : this.countedOperations) {
+					writer.write('\t');
+					writer.write(identifier);
+					writer.write(" [1/s]");
+				}
+			}
 			writer.newLine();
 
 			// print data
@@ -227,6 +257,20 @@ public class IterationStopWatch {
 						writer.write(Time.writeTime(diff));
 					}
 				}
+				// throughput of operations
+				if (!this.countedOperations.isEmpty()) {
+					writer.write('\t');
+					for (String identifier : this.countedOperations) {
+						Long startTime = data.get("BEGIN " + identifier);
+						Long endTime = data.get("END " + identifier);
+						Long count = data.get("COUNT " + identifier);
+						writer.write('\t');
+						if (startTime != null && endTime != null && count != null) {
+							double diff = Math.max(1, endTime.longValue() - startTime.longValue()) / 1000.0;
+							writer.write(String.format(Locale.US, "%.1f", count.longValue() / diff));
+						}
+					}
+				}
 
 				// finish
 				writer.newLine();
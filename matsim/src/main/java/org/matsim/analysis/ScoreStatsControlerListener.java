@@ -25,6 +25,7 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.controler.Checkpointable;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.controler.events.IterationEndsEvent;
 import org.matsim.core.controler.events.ShutdownEvent;
@@ -39,6 +40,8 @@ import org.matsim.core.utils.io.UncheckedIOException;
 
 import javax.inject.Inject;
 import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.Locale;
 
@@ -56,7 +59,7 @@ import java.util.Locale;
  *
  * @author mrieser
  */
-public class ScoreStatsControlerListener implements StartupListener, IterationEndsListener, ShutdownListener, ScoreStats {
+public class ScoreStatsControlerListener implements StartupListener, IterationEndsListener, ShutdownListener, ScoreStats, Checkpointable {
 
     public static final String FILENAME_SCORESTATS = "scorestats";
     final public static int INDEX_WORST = 0;
@@ -73,6 +76,8 @@ public class ScoreStatsControlerListener implements StartupListener, IterationEn
     private double[][] history = null;
     private boolean overflown = false;
     private int minIteration = 0;
+    /** the number of iterations stored in the history */
+    private int historySize = 0;
 
     private final static Logger log = Logger.getLogger(ScoreStatsControlerListener.class);
 
@@ -201,6 +206,7 @@ public class ScoreStatsControlerListener implements StartupListener, IterationEn
             this.history[INDEX_BEST][index] = (sumScoreBest / nofScoreBest);
             this.history[INDEX_AVERAGE][index] = (sumAvgScores / nofAvgScores);
             this.history[INDEX_EXECUTED][index] = (sumExecutedScores / nofExecutedScores);
+            this.historySize = index + 1;
 
             if (this.createPNG && event.getIteration() != this.minIteration) {
                 // create chart when data of more than one iteration is available.
@@ -236,6 +242,45 @@ public class ScoreStatsControlerListener implements StartupListener, IterationEn
 
     }
 
+    @Override
+    public String getCheckpointName() {
+        return FILENAME_SCORESTATS;
+    }
+
+    @Override
+    public void writeCheckpoint(final DataOutputStream out) throws IOException {
+        out.writeInt(this.minIteration);
+        out.writeInt(this.historySize);
+        for (int i = 0; i < this.historySize; i++) {
+            for (double[] values : this.history) {
+                out.writeDouble(values[i]);
+            }
+        }
+    }
+
+    /**
+     * Restores the statistics of the iterations before the checkpoint and writes them to the file again.
+     */
+    @Override
+    public void readCheckpoint(final DataInputStream in) throws IOException {
+        int checkpointMinIteration = in.readInt();
+        int size = in.readInt();
+        if (checkpointMinIteration != this.minIteration || size > this.history[0].length) {
+            throw new RuntimeException("The score statistics in the checkpoint for the iterations " + checkpointMinIteration + " to "
+                    + (checkpointMinIteration + size - 1) + " do not fit to the iterations " + this.minIteration + " to "
+                    + (this.minIteration + this.history[0].length - 1) + ".");
+        }
+        for (int i = 0; i < size; i++) {
+            for (double[] values : this.history) {
+                values[i] = in.readDouble();
+            }
+            this.out.write((i + this.minIteration) + "\t" + this.history[INDEX_EXECUTED][i] + "\t" + this.history[INDEX_WORST][i] + "\t"
+                    + this.history[INDEX_AVERAGE][i] + "\t" + this.history[INDEX_BEST][i] + "\n");
+        }
+        this.out.flush();
+        this.historySize = size;
+    }
+
     @Override
     public double[][] getHistory() {
         if (overflown) {
@@ -20,6 +20,7 @@
 
 package org.matsim.api.core.v01;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -39,7 +40,7 @@ import org.matsim.vehicles.Vehicle;
  */
 public abstract class Id<T> implements Comparable<Id<T>> {
 
-	private final static Map<Class<?>, Map<String, Id<?>>> cache = new ConcurrentHashMap<Class<?>, Map<String, Id<?>>>();
+	private final static Map<Class<?>, IdCache<?>> cache = new ConcurrentHashMap<Class<?>, IdCache<?>>();
 	
 	
 	public static <T> Id<T> create(final long key, final Class<T> type) {
@@ -54,23 +55,58 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	}
 	
 	/**
-	 * This method supports a cache where ids are stored and re-used per type.   
+	 * This method supports a cache where ids are stored and re-used per type.
+	 * Every newly created id gets the next free index of its type, see {@link #index()}.
 	 */
 	public static <T> Id<T> create(final String key, final Class<T> type) {
-		Map<String, Id<?>> map = cache.get(type);
-		if (map == null) {
-			map = new ConcurrentHashMap<String, Id<?>>();
-			cache.put(type, map);
-		}
-		Id<?> id = map.get(key);
+		IdCache<T> idCache = getCache(type);
+		Id<T> id = idCache.byKey.get(key);
 		if (id == null) {
-			id = new IdImpl<T>(key);
-			map.put(key, id);
+			id = idCache.create(key);
 		}
-		
-		return (Id<T>) id;
+		return id;
 	}
 	
+	/**
+	 * @return the id of the given type that was assigned the given index, or <code>null</code> if no such id exists (yet).
+	 */
+	public static <T> Id<T> get(final int index, final Class<T> type) {
+		IdCache<T> idCache = getCache(type);
+		return idCache.get(index);
+	}
+	
+	/**
+	 * @return the number of ids created so far for the given type. All indices of this type are
+	 * smaller than this number.
+	 */
+	public static <T> int getNumberOfIds(final Class<T> type) {
+		return getCache(type).size();
+	}
+	
+	@SuppressWarnings("unchecked")
+	/*package*/ static <T> IdCache<T> getCache(final Class<T> type) {
+		IdCache<T> idCache = (IdCache<T>) cache.get(type);
+		if (idCache == null) {
+			synchronized (cache) {
+				idCache = (IdCache<T>) cache.get(type);
+				if (idCache == null) {
+					idCache = new IdCache<T>();
+					cache.put(type, idCache);
+				}
+			}
+		}
+		return idCache;
+	}
+	
+	/**
+	 * The index of an id is a dense number, unique per type, assigned when the id is created.
+	 * The first id of each type gets index 0, the next one 1, and so on. This allows to store
+	 * data per id in plain arrays instead of hash maps, see {@link IdMap} and {@link IdSet}.
+	 * 
+	 * @return the index of this id within its type
+	 */
+	public abstract int index();
+	
 	/**
 	 * @return <code>0</code> when the two objects being compared are the same objects, other values according to their ids being compared to each other.
 	 * 
@@ -111,9 +147,16 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	private static class IdImpl<T> extends Id<T> {
 
 		private final String id; 
+		private final int index;
 		
-		/*package*/ IdImpl(final String id) {
+		/*package*/ IdImpl(final String id, final int index) {
 			this.id = id;
+			this.index = index;
+		}
+
+		@Override
+		public int index() {
+			return this.index;
 		}
 
 		@Override
@@ -127,6 +170,49 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 		}
 	}
 
+	/**
+	 * Stores all ids of one type, both by their key and by their index. Lookups are lock-free,
+	 * only the creation of new ids is synchronized so that the indices stay dense.
+	 * 
+	 * @param <T>
+	 */
+	/*package*/ static final class IdCache<T> {
+
+		/*package*/ final Map<String, Id<T>> byKey = new ConcurrentHashMap<String, Id<T>>();
+		@SuppressWarnings("unchecked")
+		private volatile Id<T>[] byIndex = new Id[16];
+		private volatile int size = 0;
+
+		/*package*/ synchronized Id<T> create(final String key) {
+			Id<T> id = this.byKey.get(key);
+			if (id == null) {
+				int index = this.size;
+				id = new IdImpl<T>(key, index);
+				Id<T>[] ids = this.byIndex;
+				if (index == ids.length) {
+					ids = Arrays.copyOf(ids, ids.length * 2);
+				}
+				ids[index] = id;
+				this.byIndex = ids;
+				this.size = index + 1;
+				this.byKey.put(key, id);
+			}
+			return id;
+		}
+
+		/*package*/ Id<T> get(final int index) {
+			Id<T>[] ids = this.byIndex;
+			if (index < 0 || index >= ids.length) {
+				return null;
+			}
+			return ids[index];
+		}
+
+		/*package*/ int size() {
+			return this.size;
+		}
+	}
+
 	// helper classes for some common cases:
 	public static Id<Person> createPersonId( final long key ) {
 		return create( key, Person.class ) ;
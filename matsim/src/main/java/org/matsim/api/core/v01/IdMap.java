@@ -0,0 +1,284 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdMap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Map with {@link Id}s as keys, backed by a plain array indexed by {@link Id#index()}.
+ * Lookups, insertions and removals are done without hashing and without creating
+ * any entry objects, so this map uses considerably less memory than a {@link java.util.HashMap}
+ * when a large share of all ids of a type is stored in it.
+ * <p/>
+ * The array starts small and grows with the largest index put into the map, so the memory used is
+ * proportional to that index, not to the number of all ids of the type.
+ * <p/>
+ * The map iterates in the order of the ids' indices, i.e. in the order the ids were created.
+ * Like {@link java.util.HashMap}, this map is not thread-safe.
+ *
+ * @param <T> the type of the ids used as keys
+ * @param <V> the type of the values
+ */
+public class IdMap<T, V> extends AbstractMap<Id<T>, V> {
+
+	private static final Object NULL_VALUE = new Object();
+
+	private final Id.IdCache<T> ids;
+	private Object[] data;
+	private int size = 0;
+	private int modCount = 0;
+
+	public IdMap(final Class<T> idClass) {
+		this(idClass, 16);
+	}
+
+	public IdMap(final Class<T> idClass, final int initialCapacity) {
+		this.ids = Id.getCache(idClass);
+		this.data = new Object[Math.max(initialCapacity, 1)];
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean containsKey(final Object key) {
+		int index = indexOf(key);
+		return index >= 0 && index < this.data.length && this.data[index] != null;
+	}
+
+	@Override
+	public boolean containsValue(final Object value) {
+		Object v = value == null ? NULL_VALUE : value;
+		for (Object o : this.data) {
+			if (o != null && o.equals(v)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public V get(final Object key) {
+		int index = indexOf(key);
+		if (index < 0 || index >= this.data.length) {
+			return null;
+		}
+		return unmask(this.data[index]);
+	}
+
+	@Override
+	public V put(final Id<T> key, final V value) {
+		int index = indexOf(key);
+		if (index < 0) {
+			throw new IllegalArgumentException("The id " + key + " is not known for the type of this map.");
+		}
+		if (index >= this.data.length) {
+			this.data = Arrays.copyOf(this.data, Math.max(index + 1, this.data.length * 2));
+		}
+		Object old = this.data[index];
+		this.data[index] = value == null ? NULL_VALUE : value;
+		if (old == null) {
+			this.size++;
+			this.modCount++;
+		}
+		return unmask(old);
+	}
+
+	@Override
+	public V remove(final Object key) {
+		int index = indexOf(key);
+		if (index < 0 || index >= this.data.length) {
+			return null;
+		}
+		Object old = this.data[index];
+		if (old != null) {
+			this.data[index] = null;
+			this.size--;
+			this.modCount++;
+		}
+		return unmask(old);
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(this.data, null);
+		this.size = 0;
+		this.modCount++;
+	}
+
+	@Override
+	public Set<Map.Entry<Id<T>, V>> entrySet() {
+		return new AbstractSet<Map.Entry<Id<T>, V>>() {
+			@Override
+			public Iterator<Map.Entry<Id<T>, V>> iterator() {
+				return new EntryIterator();
+			}
+
+			@Override
+			public int size() {
+				return IdMap.this.size;
+			}
+
+			@Override
+			public void clear() {
+				IdMap.this.clear();
+			}
+		};
+	}
+
+	/**
+	 * Returns the index in the data array for the given key. Usually, this is just the id's index. But as
+	 * {@link Id#equals(Object)} currently also treats ids of different types with the same key as equal,
+	 * we have to make sure that we look up the right index if an id of another type is passed.
+	 *
+	 * @return the index, or <code>-1</code> if the key is not an id of this map's type.
+	 */
+	private int indexOf(final Object key) {
+		if (!(key instanceof Id)) {
+			return -1;
+		}
+		Id<?> id = (Id<?>) key;
+		int index = id.index();
+		if (this.ids.get(index) == id) {
+			return index;
+		}
+		Id<T> ownId = this.ids.byKey.get(id.toString());
+		return ownId == null ? -1 : ownId.index();
+	}
+
+	@SuppressWarnings("unchecked")
+	private V unmask(final Object value) {
+		return value == NULL_VALUE ? null : (V) value;
+	}
+
+	private class EntryIterator implements Iterator<Map.Entry<Id<T>, V>> {
+
+		private int nextIndex = -1;
+		private int lastIndex = -1;
+		private int expectedModCount = IdMap.this.modCount;
+
+		EntryIterator() {
+			advance();
+		}
+
+		private void advance() {
+			Object[] d = IdMap.this.data;
+			do {
+				this.nextIndex++;
+			} while (this.nextIndex < d.length && d[this.nextIndex] == null);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.nextIndex < IdMap.this.data.length;
+		}
+
+		@Override
+		public Map.Entry<Id<T>, V> next() {
+			if (this.expectedModCount != IdMap.this.modCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			this.lastIndex = this.nextIndex;
+			advance();
+			return new Entry(this.lastIndex);
+		}
+
+		@Override
+		public void remove() {
+			if (this.lastIndex < 0) {
+				throw new IllegalStateException();
+			}
+			if (this.expectedModCount != IdMap.this.modCount) {
+				throw new ConcurrentModificationException();
+			}
+			IdMap.this.data[this.lastIndex] = null;
+			IdMap.this.size--;
+			IdMap.this.modCount++;
+			this.expectedModCount = IdMap.this.modCount;
+			this.lastIndex = -1;
+		}
+	}
+
+	private class Entry implements Map.Entry<Id<T>, V> {
+
+		private final int index;
+
+		Entry(final int index) {
+			this.index = index;
+		}
+
+		@Override
+		public Id<T> getKey() {
+			return IdMap.this.ids.get(this.index);
+		}
+
+		@Override
+		public V getValue() {
+			return unmask(IdMap.this.data[this.index]);
+		}
+
+		@Override
+		public V setValue(final V value) {
+			Object old = IdMap.this.data[this.index];
+			IdMap.this.data[this.index] = value == null ? NULL_VALUE : value;
+			return unmask(old);
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) obj;
+			V value = getValue();
+			return getKey().equals(e.getKey()) && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+		}
+
+		@Override
+		public int hashCode() {
+			V value = getValue();
+			return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+
+}
@@ -0,0 +1,160 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdSet.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Set of {@link Id}s, backed by a bit set indexed by {@link Id#index()}. Each id of the type
+ * up to the largest index added uses just one bit, no matter if it is contained in the set or not.
+ * The bit set starts small and grows as ids with larger indices are added.
+ * <p/>
+ * The set iterates in the order of the ids' indices, i.e. in the order the ids were created.
+ * Like {@link java.util.HashSet}, this set is not thread-safe.
+ *
+ * @param <T> the type of the ids stored in the set
+ */
+public class IdSet<T> extends AbstractSet<Id<T>> {
+
+	private final Id.IdCache<T> ids;
+	private final BitSet data;
+	private int size = 0;
+	private int modCount = 0;
+
+	public IdSet(final Class<T> idClass) {
+		this.ids = Id.getCache(idClass);
+		this.data = new BitSet();
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean contains(final Object o) {
+		int index = indexOf(o);
+		return index >= 0 && this.data.get(index);
+	}
+
+	@Override
+	public boolean add(final Id<T> id) {
+		int index = indexOf(id);
+		if (index < 0) {
+			throw new IllegalArgumentException("The id " + id + " is not known for the type of this set.");
+		}
+		if (this.data.get(index)) {
+			return false;
+		}
+		this.data.set(index);
+		this.size++;
+		this.modCount++;
+		return true;
+	}
+
+	@Override
+	public boolean remove(final Object o) {
+		int index = indexOf(o);
+		if (index < 0 || !this.data.get(index)) {
+			return false;
+		}
+		this.data.clear(index);
+		this.size--;
+		this.modCount++;
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		this.data.clear();
+		this.size = 0;
+		this.modCount++;
+	}
+
+	@Override
+	public Iterator<Id<T>> iterator() {
+		return new Iterator<Id<T>>() {
+
+			private int nextIndex = IdSet.this.data.nextSetBit(0);
+			private int lastIndex = -1;
+			private int expectedModCount = IdSet.this.modCount;
+
+			@Override
+			public boolean hasNext() {
+				return this.nextIndex >= 0;
+			}
+
+			@Override
+			public Id<T> next() {
+				if (this.expectedModCount != IdSet.this.modCount) {
+					throw new ConcurrentModificationException();
+				}
+				if (this.nextIndex < 0) {
+					throw new NoSuchElementException();
+				}
+				this.lastIndex = this.nextIndex;
+				this.nextIndex = IdSet.this.data.nextSetBit(this.nextIndex + 1);
+				return IdSet.this.ids.get(this.lastIndex);
+			}
+
+			@Override
+			public void remove() {
+				if (this.lastIndex < 0) {
+					throw new IllegalStateException();
+				}
+				if (this.expectedModCount != IdSet.this.modCount) {
+					throw new ConcurrentModificationException();
+				}
+				IdSet.this.data.clear(this.lastIndex);
+				IdSet.this.size--;
+				IdSet.this.modCount++;
+				this.expectedModCount = IdSet.this.modCount;
+				this.lastIndex = -1;
+			}
+		};
+	}
+
+	/**
+	 * @see IdMap
+	 */
+	private int indexOf(final Object o) {
+		if (!(o instanceof Id)) {
+			return -1;
+		}
+		Id<?> id = (Id<?>) o;
+		int index = id.index();
+		if (this.ids.get(index) == id) {
+			return index;
+		}
+		Id<T> ownId = this.ids.byKey.get(id.toString());
+		return ownId == null ? -1 : ownId.index();
+	}
+
+}
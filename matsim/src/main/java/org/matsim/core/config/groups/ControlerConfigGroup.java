@@ -38,9 +38,9 @@ import org.matsim.core.utils.misc.StringUtils;
 public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final Logger log = Logger.getLogger( ControlerConfigGroup.class );
 
-	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks}
+	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks, BidirectionalAStarLandmarks, ContractionHierarchies, CompactDijkstra}
 
-	public enum EventsFileFormat {xml}
+	public enum EventsFileFormat {xml, binary}
 
 	public static final String GROUP_NAME = "controler";
 
@@ -57,6 +57,9 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final String OVERWRITE_FILE = "overwriteFiles";
 	private static final String CREATE_GRAPHS = "createGraphs";
 	private static final String DUMP_DATA_AT_END = "dumpDataAtEnd";
+	private static final String WRITE_CHECKPOINTS_INTERVAL = "writeCheckpointsInterval";
+	private static final String RESTORE_CHECKPOINT = "restoreCheckpoint";
+	private static final String PROFILE_LISTENERS = "profileListeners";
 
 	/*package*/ static final String MOBSIM = "mobsim";
 	public enum MobsimType {qsim, JDEQSim}
@@ -82,6 +85,9 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private int writeSnapshotsInterval = 1;
 	private boolean createGraphs = true;
 	private boolean dumpDataAtEnd = true;
+	private int writeCheckpointsInterval = 0;
+	private String restoreCheckpoint = null;
+	private boolean profileListeners = false;
 	private OverwriteFileSetting overwriteFileSetting = OverwriteFileSetting.failIfDirectoryExists;
 
 	public ControlerConfigGroup() {
@@ -92,9 +98,11 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public final Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(ROUTINGALGORITHM_TYPE, "The type of routing (least cost path) algorithm used, may have the values: " + RoutingAlgorithmType.Dijkstra + ", " + 
-				RoutingAlgorithmType.FastDijkstra + ", " + RoutingAlgorithmType.AStarLandmarks + " or "  + RoutingAlgorithmType.FastAStarLandmarks);
+				RoutingAlgorithmType.FastDijkstra + ", " + RoutingAlgorithmType.AStarLandmarks + ", "  + RoutingAlgorithmType.FastAStarLandmarks +
+				", " + RoutingAlgorithmType.BidirectionalAStarLandmarks + ", " + RoutingAlgorithmType.ContractionHierarchies + " or " +
+				RoutingAlgorithmType.CompactDijkstra);
 		map.put(RUNID, "An identifier for the current run which is used as prefix for output files and mentioned in output xml files etc.");
-		map.put(EVENTS_FILE_FORMAT, "Default="+EventsFileFormat.xml+"; Specifies the file format for writing events. Currently supported: txt, xml."+IOUtils.NATIVE_NEWLINE+ "\t\t" +
+		map.put(EVENTS_FILE_FORMAT, "Default="+EventsFileFormat.xml+"; Specifies the file format for writing events. Currently supported: xml, binary."+IOUtils.NATIVE_NEWLINE+ "\t\t" +
 				"Multiple values can be specified separated by commas (',').");
 		map.put(WRITE_EVENTS_INTERVAL, "iterationNumber % writeEventsInterval == 0 defines in which iterations events are written " +
 				"to a file. `0' disables events writing completely.");
@@ -120,6 +128,12 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		map.put(WRITE_SNAPSHOTS_INTERVAL, "iterationNumber % " + WRITE_SNAPSHOTS_INTERVAL + " == 0 defines in which iterations snapshots are written " +
 				"to a file. `0' disables snapshots writing completely");
 		map.put(DUMP_DATA_AT_END, "true if at the end of a run, plans, network, config etc should be dumped to a file");
+		map.put(WRITE_CHECKPOINTS_INTERVAL, "iterationNumber % writeCheckpointsInterval == 0 defines after which iterations a checkpoint " +
+				"of the population, the travel times and the statistics is written, from which the run can be restarted. `0' disables checkpoints.");
+		map.put(RESTORE_CHECKPOINT, "Default=null; A checkpoint file written by an earlier run. If set, the state of that run is restored " +
+				"after startup and the iterations continue with the iteration after the one the checkpoint was written in.");
+		map.put(PROFILE_LISTENERS, "true if the time spent in each controler and mobsim listener should be measured. The times are written to the " +
+				"log file after every mobsim run and at the end of the run.");
 		return map;
 	}
 
@@ -338,6 +352,36 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public void setDumpDataAtEnd(boolean dumpDataAtEnd) {
 		this.dumpDataAtEnd = dumpDataAtEnd;
 	}
+
+	@StringGetter(WRITE_CHECKPOINTS_INTERVAL)
+	public int getWriteCheckpointsInterval() {
+		return this.writeCheckpointsInterval;
+	}
+
+	@StringSetter(WRITE_CHECKPOINTS_INTERVAL)
+	public void setWriteCheckpointsInterval(final int writeCheckpointsInterval) {
+		this.writeCheckpointsInterval = writeCheckpointsInterval;
+	}
+
+	@StringGetter(RESTORE_CHECKPOINT)
+	public String getRestoreCheckpoint() {
+		return this.restoreCheckpoint;
+	}
+
+	@StringSetter(RESTORE_CHECKPOINT)
+	public void setRestoreCheckpoint(final String restoreCheckpoint) {
+		this.restoreCheckpoint = restoreCheckpoint;
+	}
+
+	@StringGetter(PROFILE_LISTENERS)
+	public boolean isProfileListeners() {
+		return this.profileListeners;
+	}
+
+	@StringSetter(PROFILE_LISTENERS)
+	public void setProfileListeners(final boolean profileListeners) {
+		this.profileListeners = profileListeners;
+	}
 	// ---
 	int writePlansUntilIteration = 1 ;
 	public int getWritePlansUntilIteration() {
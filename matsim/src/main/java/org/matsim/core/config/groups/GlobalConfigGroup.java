@@ -37,10 +37,12 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	private static final String RANDOM_SEED = "randomSeed";
 	private static final String NUMBER_OF_THREADS = "numberOfThreads";
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
+	private static final String USING_WORK_STEALING_IN_REPLANNING = "usingWorkStealingInReplanning";
 
 	private long randomSeed = 4711L;
 	private int numberOfThreads = 2;
 	private String coordinateSystem = "Atlantis";
+	private boolean usingWorkStealingInReplanning = false;
 	
 	@Override
 	public Map<String, String> getComments() {
@@ -48,6 +50,9 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		map.put(NUMBER_OF_THREADS, "\"global\" number of threads.  "
 				+ "This number is used, e.g., for replanning, but NOT in the mobsim.  "
 				+ "This can typically be set to as many cores as you have available, or possibly even slightly more.") ;
+		map.put(USING_WORK_STEALING_IN_REPLANNING, "If true, the replanning threads take the plans in small chunks as they get idle, "
+				+ "which balances the load better.  As which thread handles which plan then depends on the scheduling, "
+				+ "runs are no longer reproducible with more than one thread.  Default is false.") ;
 		return map ;
 	}
 
@@ -81,4 +86,13 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.coordinateSystem = coordinateSystem;
 	}
 
+	@StringGetter( USING_WORK_STEALING_IN_REPLANNING )
+	public boolean isUsingWorkStealingInReplanning() {
+		return this.usingWorkStealingInReplanning;
+	}
+	@StringSetter( USING_WORK_STEALING_IN_REPLANNING )
+	public void setUsingWorkStealingInReplanning(final boolean usingWorkStealingInReplanning) {
+		this.usingWorkStealingInReplanning = usingWorkStealingInReplanning;
+	}
+
 }
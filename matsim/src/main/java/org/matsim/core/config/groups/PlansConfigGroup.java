@@ -88,6 +88,12 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		comments.put(REMOVING_UNNECESSARY_PLAN_ATTRIBUTES, "(not tested) will remove plan attributes that are presumably not used, such as " +
 		"activityStartTime. default=false") ;
 
+		comments.put(PACKING_UNSELECTED_PLANS, "If true, the plans that are not selected are stored in a compact binary form during the mobsim " +
+		"and only converted back into plan elements when they are accessed. Saves memory with many plans per agent. default=false") ;
+
+		comments.put(USING_PARALLEL_POPULATION_READER, "If true, population_v5 input files are parsed by global.numberOfThreads threads. " +
+		"The files are then NOT validated against their DTD. default=false") ;
+
 		comments.put( INPUT_CRS , "The Coordinates Reference System in which the coordinates are expressed in the input file." +
 				" At import, the coordinates will be converted to the coordinate system defined in \"global\", and will" +
 				"be converted back at export. If not specified, no conversion happens." );
@@ -182,6 +188,32 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		this.removingUnneccessaryPlanAttributes = removingUnneccessaryPlanAttributes;
 	}
 
+	// ---
+
+	private static final String PACKING_UNSELECTED_PLANS = "packingUnselectedPlans";
+	private boolean packingUnselectedPlans = false;
+	@StringGetter(PACKING_UNSELECTED_PLANS)
+	public boolean isPackingUnselectedPlans() {
+		return this.packingUnselectedPlans;
+	}
+	@StringSetter(PACKING_UNSELECTED_PLANS)
+	public void setPackingUnselectedPlans(final boolean packingUnselectedPlans) {
+		this.packingUnselectedPlans = packingUnselectedPlans;
+	}
+
+	// ---
+
+	private static final String USING_PARALLEL_POPULATION_READER = "usingParallelPopulationReader";
+	private boolean usingParallelPopulationReader = false;
+	@StringGetter(USING_PARALLEL_POPULATION_READER)
+	public boolean isUsingParallelPopulationReader() {
+		return this.usingParallelPopulationReader;
+	}
+	@StringSetter(USING_PARALLEL_POPULATION_READER)
+	public void setUsingParallelPopulationReader(final boolean usingParallelPopulationReader) {
+		this.usingParallelPopulationReader = usingParallelPopulationReader;
+	}
+
 
 	@StringGetter( INPUT_CRS )
 	public String getInputCRS() {
@@ -237,6 +237,11 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		map.put(USE_PERSON_ID_FOR_MISSING_VEHICLE_ID, "If a route does not reference a vehicle, agents will use the vehicle with the same id as their own.");
 		map.put(USING_THREADPOOL, "if the qsim should use as many runners as there are threads (Christoph's dissertation version)"
 				+ " or more of them, together with a thread pool (seems to be faster in some situations, but is not tested).") ;
+		map.put(SKIPPING_IDLE_TIME_STEPS, "if the qsim should advance the time directly to the next time step in which one of its engines"
+				+ " has something to do, e.g. the next activity end, instead of simulating every time step.  Only has an effect if all"
+				+ " engines support this; listeners are only called in the simulated time steps.") ;
+		map.put(USING_WORK_STEALING, "if runners that are done with their own active nodes and links should take over some of the"
+				+ " not yet processed ones of other runners within the same time step.  Only has an effect with more than one thread.") ;
 		map.put(FAST_CAPACITY_UPDATE, "normally, the qsim accumulates fractional flows up to one flow unit in every time step.  If this switch is set to true, "
 				+ "flows are updated only if an agent wants to enter the link or an agent is added to buffer."
 				+ "Will probably become the default eventually.") ;
@@ -486,6 +491,28 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.usingThreadpool = val ;
 	}
 
+	private static final String USING_WORK_STEALING = "usingWorkStealing" ;
+	private boolean usingWorkStealing = false ;
+	@StringGetter(USING_WORK_STEALING)
+	public boolean isUsingWorkStealing() {
+		return this.usingWorkStealing ;
+	}
+	@StringSetter(USING_WORK_STEALING)
+	public void setUsingWorkStealing( boolean val ) {
+		this.usingWorkStealing = val ;
+	}
+
+	private static final String SKIPPING_IDLE_TIME_STEPS = "skippingIdleTimeSteps" ;
+	private boolean skippingIdleTimeSteps = false ;
+	@StringGetter(SKIPPING_IDLE_TIME_STEPS)
+	public boolean isSkippingIdleTimeSteps() {
+		return this.skippingIdleTimeSteps ;
+	}
+	@StringSetter(SKIPPING_IDLE_TIME_STEPS)
+	public void setSkippingIdleTimeSteps( boolean val ) {
+		this.skippingIdleTimeSteps = val ;
+	}
+
 	private static final String USE_LANES="useLanes" ;
 	private boolean useLanes = false ;
 
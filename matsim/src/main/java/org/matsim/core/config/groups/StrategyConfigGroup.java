@@ -265,6 +265,9 @@ public final class StrategyConfigGroup extends ConfigGroup {
 				"choice from a discrete choice theoretical perspective. Alternatives, however, have not been systematically " +
 				"tested. kai, feb'12") ;
 		
+		map.put(ReflectiveDelegate.BATCH_PLAN_SELECTION, "if true, the removal of excess plans, the choice of the strategies and the plan selection "
+				+ "are done for all persons in parallel on global.numberOfThreads threads, for the plan selectors that support it. "
+				+ "Each person then uses its own random numbers, so the results are reproducible, but differ from the ones without batch selection.");
 		map.put(ReflectiveDelegate.EXTERNAL_EXE_CONFIG_TEMPLATE,"the external executable will be called with a config file as argument.  This is the pathname to a possible "
 				+ "skeleton config, to which additional information will be added.  Can be null.");
 		map.put(ReflectiveDelegate.EXTERNAL_EXE_TMP_FILE_ROOT_DIR, "root directory for temporary files generated by the external executable. Provided as a service; "
@@ -378,6 +381,14 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		return delegate.getFractionOfIterationsToDisableInnovation();
 	}
 
+	public boolean isBatchPlanSelection() {
+		return delegate.isBatchPlanSelection();
+	}
+
+	public void setBatchPlanSelection(boolean batchPlanSelection) {
+		delegate.setBatchPlanSelection(batchPlanSelection);
+	}
+
 	public void setFractionOfIterationsToDisableInnovation(double fraction) {
 		delegate.setFractionOfIterationsToDisableInnovation(fraction);
 	}
@@ -394,6 +405,7 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		 static final String EXTERNAL_EXE_TIME_OUT = "ExternalExeTimeOut";
 		 static final String ITERATION_FRACTION_TO_DISABLE_INNOVATION = "fractionOfIterationsToDisableInnovation" ;
 		 static final String PLAN_SELECTOR_FOR_REMOVAL = "planSelectorForRemoval" ;
+		 static final String BATCH_PLAN_SELECTION = "batchPlanSelection" ;
 
 		private int maxAgentPlanMemorySize = 5;
 		private String externalExeConfigTemplate = null;
@@ -401,6 +413,8 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		private long externalExeTimeOut = 3600;
 
 		private String planSelectorForRemoval = "WorstPlanSelector";
+
+		private boolean batchPlanSelection = false;
 		
 		//---
 		private double fraction = Double.POSITIVE_INFINITY ;
@@ -461,6 +475,16 @@ public final class StrategyConfigGroup extends ConfigGroup {
 			this.planSelectorForRemoval = planSelectorForRemoval;
 		}
 
+		@StringGetter( BATCH_PLAN_SELECTION )
+		public boolean isBatchPlanSelection() {
+			return batchPlanSelection;
+		}
+
+		@StringSetter( BATCH_PLAN_SELECTION )
+		public void setBatchPlanSelection(boolean batchPlanSelection) {
+			this.batchPlanSelection = batchPlanSelection;
+		}
+
 		@StringGetter( ITERATION_FRACTION_TO_DISABLE_INNOVATION )
 		public double getFractionOfIterationsToDisableInnovation() {
 			return fraction;
@@ -116,8 +116,18 @@ public abstract class AbstractController {
      */
     protected abstract boolean continueIterations(int iteration);
 
+    /**
+     * Called after {@link #prepareForSim()}, before the first iteration.
+     *
+     * @return the iteration to start with. By default, this is the first iteration of the config; controlers
+     * that restore the state of an earlier run continue with the iteration after the restored one.
+     */
+    protected int getStartIteration(Config config) {
+        return config.controler().getFirstIteration();
+    }
+
     private void doIterations(Config config) throws MatsimRuntimeModifications.UnexpectedShutdownException {
-        for (int iteration = config.controler().getFirstIteration(); continueIterations(iteration); iteration++) {
+        for (int iteration = getStartIteration(config); continueIterations(iteration); iteration++) {
             iteration(config, iteration);
         }
     }
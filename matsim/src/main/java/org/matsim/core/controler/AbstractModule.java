@@ -79,6 +79,7 @@ public abstract class AbstractModule implements Module {
 	private Multibinder<ControlerListener> controlerListenerMultibinder;
 	private Multibinder<MobsimListener> mobsimListenerMultibinder;
 	private Multibinder<SnapshotWriter> snapshotWriterMultibinder;
+	private Multibinder<Checkpointable> checkpointableMultibinder;
 	private MapBinder<Class<?>, AttributeConverter<?>> attributeConverterMapBinder;
 
 	@Inject
@@ -105,6 +106,7 @@ public abstract class AbstractModule implements Module {
 		this.snapshotWriterMultibinder = Multibinder.newSetBinder(this.binder, SnapshotWriter.class);
 		this.eventHandlerMultibinder = Multibinder.newSetBinder(this.binder, EventHandler.class);
 		this.controlerListenerMultibinder = Multibinder.newSetBinder(this.binder, ControlerListener.class);
+		this.checkpointableMultibinder = Multibinder.newSetBinder(this.binder, Checkpointable.class);
 		this.attributeConverterMapBinder =
 				MapBinder.newMapBinder(
 						this.binder,
@@ -166,6 +168,13 @@ public abstract class AbstractModule implements Module {
 		return snapshotWriterMultibinder.addBinding();
 	}
 
+	/**
+	 * @see {@link Checkpointable}
+	 */
+	protected final LinkedBindingBuilder<Checkpointable> addCheckpointableBinding() {
+		return checkpointableMultibinder.addBinding();
+	}
+
 	protected final LinkedBindingBuilder<AttributeConverter<?>> addAttributeConverterBinding(final Class<?> clazz ) {
 		return attributeConverterMapBinder.addBinding( clazz );
 	}
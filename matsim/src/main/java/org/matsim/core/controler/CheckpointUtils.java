@@ -0,0 +1,86 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CheckpointUtils.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Helpers to read and write the data of {@link Checkpointable}s, so that all parts of a checkpoint
+ * use the same encodings.
+ */
+public final class CheckpointUtils {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private CheckpointUtils() {
+		// static helpers only
+	}
+
+	/**
+	 * Writes the string as UTF-8 bytes prefixed with their number. In contrast to
+	 * {@link DataOutput#writeUTF(String)}, the length is not limited to 64k bytes, which e.g. long
+	 * route descriptions may exceed.
+	 */
+	public static void writeString(final DataOutput out, final String s) throws IOException {
+		byte[] bytes = s.getBytes(UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Like {@link #writeString(DataOutput, String)}, but also accepts <code>null</code>.
+	 */
+	public static void writeNullableString(final DataOutput out, final String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+		} else {
+			writeString(out, s);
+		}
+	}
+
+	/**
+	 * Reads a string written by {@link #writeString(DataOutput, String)}.
+	 */
+	public static String readString(final DataInput in) throws IOException {
+		String s = readNullableString(in);
+		if (s == null) {
+			throw new RuntimeException("Unexpected null string in checkpoint.");
+		}
+		return s;
+	}
+
+	/**
+	 * Reads a string written by {@link #writeNullableString(DataOutput, String)}.
+	 */
+	public static String readNullableString(final DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, UTF8);
+	}
+
+}
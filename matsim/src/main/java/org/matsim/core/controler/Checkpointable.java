@@ -0,0 +1,49 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * Checkpointable.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * State that is stored in the checkpoints of a run, so the run can be restarted from a checkpoint
+ * (see {@link org.matsim.core.config.groups.ControlerConfigGroup#getWriteCheckpointsInterval()}).
+ * A checkpoint is written between two iterations, after all listeners have processed the end of
+ * the iteration. It is restored after the startup listeners have been called.
+ * <p/>
+ * Bind implementations with {@link AbstractModule#addCheckpointableBinding()}.
+ */
+public interface Checkpointable {
+
+	/**
+	 * @return a name identifying the state in the checkpoint, unique among all bound checkpointables
+	 */
+	String getCheckpointName();
+
+	void writeCheckpoint(DataOutputStream out) throws IOException;
+
+	/**
+	 * Restores the state from data written by {@link #writeCheckpoint(DataOutputStream)}.
+	 */
+	void readCheckpoint(DataInputStream in) throws IOException;
+
+}
@@ -24,9 +24,13 @@ import org.apache.log4j.Logger;
 import org.matsim.core.controler.events.*;
 import org.matsim.core.controler.listener.*;
 import org.matsim.core.utils.misc.ClassUtils;
+import org.matsim.core.utils.misc.ListenerProfiler;
 
 import javax.swing.event.EventListenerList;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Class encapsulating all behavior concerning the ControlerEvents/Listeners
  *
@@ -51,6 +55,49 @@ public final class ControlerListenerManagerImpl implements ControlerListenerMana
 	private final EventListenerList coreListenerList = new EventListenerList();
 	private final EventListenerList listenerList = new EventListenerList();
 
+	/** The listeners of each type, as returned by the listener lists; cleared when listeners are added or removed. */
+	private final Map<Class<?>, ControlerListener[]> coreListenerCache = new HashMap<>();
+	private final Map<Class<?>, ControlerListener[]> listenerCache = new HashMap<>();
+
+	private ListenerProfiler profiler = null;
+
+	/**
+	 * Measures the time spent in each listener and logs it after the shutdown listeners were notified.
+	 */
+	void setProfiling(final boolean profiling) {
+		this.profiler = profiling ? new ListenerProfiler("controler listeners") : null;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T extends ControlerListener> T[] getCoreListeners(final Class<T> type) {
+		T[] listeners = (T[]) this.coreListenerCache.get(type);
+		if (listeners == null) {
+			listeners = this.coreListenerList.getListeners(type);
+			this.coreListenerCache.put(type, listeners);
+		}
+		return listeners;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T extends ControlerListener> T[] getListeners(final Class<T> type) {
+		T[] listeners = (T[]) this.listenerCache.get(type);
+		if (listeners == null) {
+			listeners = this.listenerList.getListeners(type);
+			this.listenerCache.put(type, listeners);
+		}
+		return listeners;
+	}
+
+	private long startProfiling() {
+		return this.profiler == null ? 0 : this.profiler.start();
+	}
+
+	private void stopProfiling(final ControlerListener listener, final long start) {
+		if (this.profiler != null) {
+			this.profiler.stop(listener, start);
+		}
+	}
+
 	
 	/**
 	 * Add a core ControlerListener to the Controler instance
@@ -63,6 +110,7 @@ public final class ControlerListenerManagerImpl implements ControlerListenerMana
 				this.coreListenerList.add(type, l);
 			}
 		}
+		this.coreListenerCache.clear();
 	}
 
 	/**
@@ -76,6 +124,7 @@ public final class ControlerListenerManagerImpl implements ControlerListenerMana
 				this.listenerList.add(type, l);
 			}
 		}
+		this.listenerCache.clear();
 	}
 
 	/**
@@ -90,6 +139,7 @@ public final class ControlerListenerManagerImpl implements ControlerListenerMana
                 this.listenerList.remove(anInterface, l);
             }
         }
+		this.listenerCache.clear();
 	}
 
 	/**
@@ -97,15 +147,19 @@ public final class ControlerListenerManagerImpl implements ControlerListenerMana
 	 */
 	public void fireControlerStartupEvent() {
 		StartupEvent event = new StartupEvent(this.controler);
-		StartupListener[] listener = this.coreListenerList.getListeners(StartupListener.class);
+		StartupListener[] listener = getCoreListeners(StartupListener.class);
         for (StartupListener aListener : listener) {
             log.info("calling notifyStartup on " + aListener.getClass().getCanonicalName());
+            long start = startProfiling();
             aListener.notifyStartup(event);
+            stopProfiling(aListener, start);
         }
-		listener = this.listenerList.getListeners(StartupListener.class);
+		listener = getListeners(StartupListener.class);
         for (StartupListener aListener : listener) {
             log.info("calling notifyStartup on " + aListener.getClass().getCanonicalName());
+            long start = startProfiling();
             aListener.notifyStartup(event);
+            stopProfiling(aListener, start);
         }
 		log.info("all ControlerStartupListeners called." );
 	}
@@ -116,17 +170,24 @@ public final class ControlerListenerManagerImpl implements ControlerListenerMana
 	 */
 	public void fireControlerShutdownEvent(final boolean unexpected) {
 		ShutdownEvent event = new ShutdownEvent(this.controler, unexpected);
-        ShutdownListener[] listener = this.coreListenerList.getListeners(ShutdownListener.class);
+        ShutdownListener[] listener = getCoreListeners(ShutdownListener.class);
         for (ShutdownListener aListener : listener) {
             log.info("calling notifyShutdown on " + aListener.getClass().getCanonicalName());
+            long start = startProfiling();
             aListener.notifyShutdown(event);
+            stopProfiling(aListener, start);
         }
-        listener = this.listenerList.getListeners(ShutdownListener.class);
+        listener = getListeners(ShutdownListener.class);
         for (ShutdownListener aListener : listener) {
             log.info("calling notifyShutdown on " + aListener.getClass().getCanonicalName());
+            long start = startProfiling();
             aListener.notifyShutdown(event);
+            stopProfiling(aListener, start);
         }
         log.info("all ControlerShutdownListeners called.");
+        if (this.profiler != null) {
+            this.profiler.log(log);
+        }
 	}
 
 	/**
@@ -135,15 +196,19 @@ public final class ControlerListenerManagerImpl implements ControlerListenerMana
 	 */
 	public void fireControlerIterationStartsEvent(final int iteration) {
 		IterationStartsEvent event = new IterationStartsEvent(this.controler, iteration);
-		IterationStartsListener[] listener = this.coreListenerList.getListeners(IterationStartsListener.class);
+		IterationStartsListener[] listener = getCoreListeners(IterationStartsListener.class);
         for (IterationStartsListener aListener : listener) {
             log.info("calling notifyIterationStarts on " + aListener.getClass().getCanonicalName());
+            long start = startProfiling();
             aListener.notifyIterationStarts(event);
+            stopProfiling(aListener, start);
         }
-		listener = this.listenerList.getListeners(IterationStartsListener.class);
+		listener = getListeners(IterationStartsListener.class);
         for (IterationStartsListener aListener : listener) {
             log.info("calling notifyIterationStarts on " + aListener.getClass().getCanonicalName());
+            long start = startProfiling();
             aListener.notifyIterationStarts(event);
+            stopProfiling(aListener, start);
         }
 		log.info("[it." + iteration + "] all ControlerIterationStartsListeners called.");
 	}
@@ -155,17 +220,21 @@ public final class ControlerListenerManagerImpl implements ControlerListenerMana
 	public void fireControlerIterationEndsEvent(final int iteration) {
 		IterationEndsEvent event = new IterationEndsEvent(this.controler, iteration);
 		{
-			IterationEndsListener[] listener = this.coreListenerList.getListeners(IterationEndsListener.class);
+			IterationEndsListener[] listener = getCoreListeners(IterationEndsListener.class);
             for (IterationEndsListener aListener : listener) {
                 log.info("calling notifyIterationEnds on " + aListener.getClass().getCanonicalName());
+                long start = startProfiling();
                 aListener.notifyIterationEnds(event);
+                stopProfiling(aListener, start);
             }
 		}
 		{
-			IterationEndsListener[] listener = this.listenerList.getListeners(IterationEndsListener.class);
+			IterationEndsListener[] listener = getListeners(IterationEndsListener.class);
             for (IterationEndsListener aListener : listener) {
                 log.info("calling notifyIterationEnds on " + aListener.getClass().getCanonicalName());
+                long start = startProfiling();
                 aListener.notifyIterationEnds(event);
+                stopProfiling(aListener, start);
             }
 		}
 		log.info("[it." + iteration + "] all ControlerIterationEndsListeners called.");
@@ -178,17 +247,21 @@ public final class ControlerListenerManagerImpl implements ControlerListenerMana
 	public void fireControlerScoringEvent(final int iteration) {
 		ScoringEvent event = new ScoringEvent(this.controler, iteration);
 		{
-			ScoringListener[] listener = this.coreListenerList.getListeners(ScoringListener.class);
+			ScoringListener[] listener = getCoreListeners(ScoringListener.class);
             for (ScoringListener aListener : listener) {
                 log.info("calling notifyScoring on " + aListener.getClass().getCanonicalName());
+                long start = startProfiling();
                 aListener.notifyScoring(event);
+                stopProfiling(aListener, start);
             }
 		}
 		{
-			ScoringListener[] listener = this.listenerList.getListeners(ScoringListener.class);
+			ScoringListener[] listener = getListeners(ScoringListener.class);
             for (ScoringListener aListener : listener) {
                 log.info("calling notifyScoring on " + aListener.getClass().getCanonicalName());
+                long start = startProfiling();
                 aListener.notifyScoring(event);
+                stopProfiling(aListener, start);
             }
 		}
 		log.info("[it." + iteration + "] all ControlerScoringListeners called.");
@@ -200,15 +273,19 @@ public final class ControlerListenerManagerImpl implements ControlerListenerMana
 	 */
 	public void fireControlerReplanningEvent(final int iteration) {
 		ReplanningEvent event = new ReplanningEvent(this.controler, iteration);
-		ReplanningListener[] listener = this.coreListenerList.getListeners(ReplanningListener.class);
+		ReplanningListener[] listener = getCoreListeners(ReplanningListener.class);
         for (ReplanningListener aListener : listener) {
             log.info("calling notifyReplanning on " + aListener.getClass().getCanonicalName());
+            long start = startProfiling();
             aListener.notifyReplanning(event);
+            stopProfiling(aListener, start);
         }
-		listener = this.listenerList.getListeners(ReplanningListener.class);
+		listener = getListeners(ReplanningListener.class);
         for (ReplanningListener aListener : listener) {
             log.info("calling notifyReplanning on " + aListener.getClass().getCanonicalName());
+            long start = startProfiling();
             aListener.notifyReplanning(event);
+            stopProfiling(aListener, start);
         }
 		log.info("[it." + iteration + "] all ControlerReplanningListeners called.");
 	}
@@ -219,15 +296,19 @@ public final class ControlerListenerManagerImpl implements ControlerListenerMana
 	 */
 	public void fireControlerBeforeMobsimEvent(final int iteration) {
 		BeforeMobsimEvent event = new BeforeMobsimEvent(this.controler, iteration);
-		BeforeMobsimListener[] listener = this.coreListenerList.getListeners(BeforeMobsimListener.class);
+		BeforeMobsimListener[] listener = getCoreListeners(BeforeMobsimListener.class);
         for (BeforeMobsimListener aListener : listener) {
             log.info("calling notifyBeforeMobsim on " + aListener.getClass().getCanonicalName());
+            long start = startProfiling();
             aListener.notifyBeforeMobsim(event);
+            stopProfiling(aListener, start);
         }
-		listener = this.listenerList.getListeners(BeforeMobsimListener.class);
+		listener = getListeners(BeforeMobsimListener.class);
         for (BeforeMobsimListener aListener : listener) {
             log.info("calling notifyBeforeMobsim on " + aListener.getClass().getCanonicalName());
+            long start = startProfiling();
             aListener.notifyBeforeMobsim(event);
+            stopProfiling(aListener, start);
         }
 		log.info("[it." + iteration + "] all ControlerBeforeMobsimListeners called.");
 	}
@@ -238,15 +319,19 @@ public final class ControlerListenerManagerImpl implements ControlerListenerMana
 	 */
 	public void fireControlerAfterMobsimEvent(final int iteration) {
 		AfterMobsimEvent event = new AfterMobsimEvent(this.controler, iteration);
-		AfterMobsimListener[] listener = this.coreListenerList.getListeners(AfterMobsimListener.class);
+		AfterMobsimListener[] listener = getCoreListeners(AfterMobsimListener.class);
         for (AfterMobsimListener aListener : listener) {
             log.info("calling notifyAfterMobsim on " + aListener.getClass().getCanonicalName());
+            long start = startProfiling();
             aListener.notifyAfterMobsim(event);
+            stopProfiling(aListener, start);
         }
-		listener = this.listenerList.getListeners(AfterMobsimListener.class);
+		listener = getListeners(AfterMobsimListener.class);
         for (AfterMobsimListener aListener : listener) {
             log.info("calling notifyAfterMobsim on " + aListener.getClass().getCanonicalName());
+            long start = startProfiling();
             aListener.notifyAfterMobsim(event);
+            stopProfiling(aListener, start);
         }
 		log.info("[it." + iteration + "] all ControlerAfterMobsimListeners called.");
 	}
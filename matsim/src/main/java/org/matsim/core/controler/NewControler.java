@@ -49,14 +49,16 @@ class NewControler extends AbstractController implements ControlerI {
 	private final PlansScoring plansScoring;
 	private final TerminationCriterion terminationCriterion;
 	private final DumpDataAtEnd dumpDataAtEnd;
+	private final Checkpointing checkpointing;
 	private final Set<ControlerListener> controlerListenersDeclaredByModules;
 	private final Collection<Provider<MobsimListener>> mobsimListeners;
 	private final ControlerConfigGroup controlerConfigGroup;
 	private final OutputDirectoryHierarchy outputDirectoryHierarchy;
 
 	@Inject
-	NewControler(Config config, ControlerListenerManagerImpl controlerListenerManager, MatsimServices matsimServices, IterationStopWatch stopWatch, PrepareForSim prepareForSim, EventsHandling eventsHandling, PlansDumping plansDumping, PlansReplanning plansReplanning, Provider<Mobsim> mobsimProvider, PlansScoring plansScoring, TerminationCriterion terminationCriterion, DumpDataAtEnd dumpDataAtEnd, Set<ControlerListener> controlerListenersDeclaredByModules, Collection<Provider<MobsimListener>> mobsimListeners, ControlerConfigGroup controlerConfigGroup, OutputDirectoryHierarchy outputDirectoryHierarchy) {
+	NewControler(Config config, ControlerListenerManagerImpl controlerListenerManager, MatsimServices matsimServices, IterationStopWatch stopWatch, PrepareForSim prepareForSim, EventsHandling eventsHandling, PlansDumping plansDumping, PlansReplanning plansReplanning, Provider<Mobsim> mobsimProvider, PlansScoring plansScoring, TerminationCriterion terminationCriterion, DumpDataAtEnd dumpDataAtEnd, Checkpointing checkpointing, Set<ControlerListener> controlerListenersDeclaredByModules, Collection<Provider<MobsimListener>> mobsimListeners, ControlerConfigGroup controlerConfigGroup, OutputDirectoryHierarchy outputDirectoryHierarchy) {
 		super(controlerListenerManager, stopWatch, matsimServices);
+		controlerListenerManager.setProfiling(controlerConfigGroup.isProfileListeners());
 		this.config = config;
 		this.config.addConfigConsistencyChecker(new ConfigConsistencyCheckerImpl());
 		this.prepareForSim = prepareForSim;
@@ -67,6 +69,7 @@ class NewControler extends AbstractController implements ControlerI {
 		this.plansScoring = plansScoring;
 		this.terminationCriterion = terminationCriterion;
 		this.dumpDataAtEnd = dumpDataAtEnd;
+		this.checkpointing = checkpointing;
 		this.controlerListenersDeclaredByModules = controlerListenersDeclaredByModules;
 		this.mobsimListeners = mobsimListeners;
 		this.controlerConfigGroup = controlerConfigGroup;
@@ -96,6 +99,7 @@ class NewControler extends AbstractController implements ControlerI {
 		this.addCoreControlerListener(this.plansScoring);
 		this.addCoreControlerListener(this.plansReplanning);
 		this.addCoreControlerListener(this.plansDumping);
+		this.addCoreControlerListener(this.checkpointing);
 		this.addCoreControlerListener(this.eventsHandling);
 		// must be last being added (=first being executed)
 
@@ -109,6 +113,11 @@ class NewControler extends AbstractController implements ControlerI {
 		this.prepareForSim.run();
 	}
 
+	@Override
+	protected final int getStartIteration(Config config) {
+		return this.checkpointing.restoreCheckpoint();
+	}
+
 	@Override
 	protected final void runMobSim() {
 		Mobsim simulation = this.mobsimProvider.get();
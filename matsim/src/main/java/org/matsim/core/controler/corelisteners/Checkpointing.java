@@ -0,0 +1,41 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * Checkpointing.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler.corelisteners;
+
+import org.matsim.core.controler.listener.ControlerListener;
+
+/**
+ * Writes checkpoints of the state of a run in regular intervals and restores them when a run is restarted.
+ * This interface allows to replace the element providing this functionality in the Controler by Injection.
+ *
+ * @see org.matsim.core.controler.Checkpointable
+ */
+public interface Checkpointing extends ControlerListener {
+
+	/**
+	 * Restores the checkpoint set in {@link org.matsim.core.config.groups.ControlerConfigGroup#getRestoreCheckpoint()}, if any.
+	 *
+	 * @return the iteration after the one the restored checkpoint was written in, or the first iteration
+	 * of the config if no checkpoint is restored.
+	 */
+	int restoreCheckpoint();
+
+}
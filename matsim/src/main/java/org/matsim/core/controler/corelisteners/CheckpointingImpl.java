@@ -0,0 +1,317 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CheckpointingImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler.corelisteners;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationStopWatch;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.controler.CheckpointUtils;
+import org.matsim.core.controler.Checkpointable;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Writes the state of all bound {@link Checkpointable}s to a checkpoint file in the iteration directory
+ * every {@link ControlerConfigGroup#getWriteCheckpointsInterval()} iterations, and restores it at the start
+ * of a run from the file set in {@link ControlerConfigGroup#getRestoreCheckpoint()}.
+ * <p/>
+ * As core listeners are notified before all other listeners, the checkpoint of an iteration is not
+ * written when that iteration ends, but at the start of the next iteration or at shutdown, after all
+ * other listeners have processed the end of the iteration.
+ * <p/>
+ * Each part is written as a sequence of length-prefixed chunks, ended by an empty chunk. Parts are thus
+ * streamed to the file without being buffered as a whole, and parts nobody can restore can still be skipped.
+ * <p/>
+ * The random numbers need not be stored, as the random number generator is reset at the start
+ * of each iteration, based on the random seed and the iteration number.
+ */
+@Singleton
+final class CheckpointingImpl implements Checkpointing, IterationEndsListener, IterationStartsListener, ShutdownListener {
+
+	private static final Logger log = Logger.getLogger(CheckpointingImpl.class);
+
+	public static final String FILENAME_CHECKPOINT = "checkpoint.bin.gz";
+
+	private static final int MAGIC = 0x4d435054; // "MCPT"
+	private static final int VERSION = 1;
+
+	private static final int CHUNK_SIZE = 1 << 16;
+
+	private final ControlerConfigGroup controlerConfigGroup;
+	private final GlobalConfigGroup globalConfigGroup;
+	private final Set<Checkpointable> checkpointables;
+	private final OutputDirectoryHierarchy controlerIO;
+	private final IterationStopWatch stopwatch;
+
+	/** the iteration that ended last and still needs to be checkpointed, if any */
+	private Integer pendingIteration = null;
+
+	@Inject
+	CheckpointingImpl(ControlerConfigGroup controlerConfigGroup, GlobalConfigGroup globalConfigGroup, Set<Checkpointable> checkpointables,
+			OutputDirectoryHierarchy controlerIO, IterationStopWatch stopwatch) {
+		this.controlerConfigGroup = controlerConfigGroup;
+		this.globalConfigGroup = globalConfigGroup;
+		this.checkpointables = checkpointables;
+		this.controlerIO = controlerIO;
+		this.stopwatch = stopwatch;
+	}
+
+	@Override
+	public void notifyIterationEnds(final IterationEndsEvent event) {
+		int interval = this.controlerConfigGroup.getWriteCheckpointsInterval();
+		if (interval > 0 && event.getIteration() % interval == 0) {
+			this.pendingIteration = event.getIteration();
+		}
+	}
+
+	@Override
+	public void notifyIterationStarts(final IterationStartsEvent event) {
+		writePendingCheckpoint();
+	}
+
+	@Override
+	public void notifyShutdown(final ShutdownEvent event) {
+		if (!event.isUnexpected()) {
+			writePendingCheckpoint();
+		}
+	}
+
+	private void writePendingCheckpoint() {
+		if (this.pendingIteration == null) {
+			return;
+		}
+		int iteration = this.pendingIteration;
+		this.pendingIteration = null;
+		this.stopwatch.beginOperation("write checkpoint");
+		String filename = this.controlerIO.getIterationFilename(iteration, FILENAME_CHECKPOINT);
+		log.info("writing checkpoint of iteration " + iteration + " to " + filename);
+		try (DataOutputStream out = new DataOutputStream(IOUtils.getOutputStream(filename))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(iteration);
+			out.writeLong(this.globalConfigGroup.getRandomSeed());
+			out.writeInt(this.checkpointables.size());
+			for (Checkpointable checkpointable : this.checkpointables) {
+				CheckpointUtils.writeString(out, checkpointable.getCheckpointName());
+				try (DataOutputStream part = new DataOutputStream(new ChunkedOutputStream(out))) {
+					checkpointable.writeCheckpoint(part);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.stopwatch.endOperation("write checkpoint");
+	}
+
+	@Override
+	public int restoreCheckpoint() {
+		String filename = this.controlerConfigGroup.getRestoreCheckpoint();
+		if (filename == null) {
+			return this.controlerConfigGroup.getFirstIteration();
+		}
+		log.info("restoring checkpoint " + filename);
+		Map<String, Checkpointable> byName = new HashMap<>();
+		for (Checkpointable checkpointable : this.checkpointables) {
+			if (byName.put(checkpointable.getCheckpointName(), checkpointable) != null) {
+				throw new RuntimeException("There is more than one checkpointable with the name " + checkpointable.getCheckpointName());
+			}
+		}
+		try (DataInputStream in = new DataInputStream(IOUtils.getInputStream(filename))) {
+			if (in.readInt() != MAGIC) {
+				throw new RuntimeException(filename + " is not a checkpoint file.");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new RuntimeException("Unsupported checkpoint version " + version + " in " + filename);
+			}
+			int iteration = in.readInt();
+			long randomSeed = in.readLong();
+			if (randomSeed != this.globalConfigGroup.getRandomSeed()) {
+				log.warn("The checkpoint was written with the random seed " + randomSeed + ", but the random seed is "
+						+ this.globalConfigGroup.getRandomSeed() + " now. The restarted run will not produce the same results as the original one.");
+			}
+			int partCount = in.readInt();
+			for (int i = 0; i < partCount; i++) {
+				String name = CheckpointUtils.readString(in);
+				try (ChunkedInputStream part = new ChunkedInputStream(in)) {
+					Checkpointable checkpointable = byName.remove(name);
+					if (checkpointable == null) {
+						log.warn("Nothing is bound to restore the part " + name + " of the checkpoint, it is ignored.");
+						continue;
+					}
+					checkpointable.readCheckpoint(new DataInputStream(part));
+				}
+			}
+			for (String name : byName.keySet()) {
+				log.warn("The checkpoint contains no data for " + name + ", it is not restored.");
+			}
+			log.info("restored the state after iteration " + iteration + ".");
+			return iteration + 1;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes the data in chunks, each prefixed with its length. Closing the stream writes the final empty
+	 * chunk, but does not close the underlying stream.
+	 */
+	private static final class ChunkedOutputStream extends OutputStream {
+
+		private final DataOutputStream out;
+		private final byte[] buffer = new byte[CHUNK_SIZE];
+		private int count = 0;
+		private boolean closed = false;
+
+		/*package*/ ChunkedOutputStream(final DataOutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			if (this.count == this.buffer.length) {
+				writeChunk();
+			}
+			this.buffer[this.count++] = (byte) b;
+		}
+
+		@Override
+		public void write(final byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (this.count == this.buffer.length) {
+					writeChunk();
+				}
+				int n = Math.min(len, this.buffer.length - this.count);
+				System.arraycopy(b, off, this.buffer, this.count, n);
+				this.count += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		private void writeChunk() throws IOException {
+			if (this.count > 0) {
+				this.out.writeInt(this.count);
+				this.out.write(this.buffer, 0, this.count);
+				this.count = 0;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!this.closed) {
+				this.closed = true;
+				writeChunk();
+				this.out.writeInt(0);
+			}
+		}
+	}
+
+	/**
+	 * Reads the data written by a {@link ChunkedOutputStream}. Closing the stream skips the remaining
+	 * chunks, but does not close the underlying stream.
+	 */
+	private static final class ChunkedInputStream extends InputStream {
+
+		private final DataInputStream in;
+		private final byte[] buffer = new byte[CHUNK_SIZE];
+		private int count = 0;
+		private int pos = 0;
+		private boolean atEnd = false;
+
+		/*package*/ ChunkedInputStream(final DataInputStream in) {
+			this.in = in;
+		}
+
+		/**
+		 * @return <code>false</code> if there is no more data
+		 */
+		private boolean ensureData() throws IOException {
+			while (this.pos == this.count) {
+				if (this.atEnd) {
+					return false;
+				}
+				int length = this.in.readInt();
+				if (length < 0 || length > this.buffer.length) {
+					throw new IOException("Corrupt checkpoint: invalid chunk length " + length);
+				}
+				if (length == 0) {
+					this.atEnd = true;
+					return false;
+				}
+				this.in.readFully(this.buffer, 0, length);
+				this.count = length;
+				this.pos = 0;
+			}
+			return true;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!ensureData()) {
+				return -1;
+			}
+			return this.buffer[this.pos++] & 0xff;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (!ensureData()) {
+				return -1;
+			}
+			int n = Math.min(len, this.count - this.pos);
+			System.arraycopy(this.buffer, this.pos, b, off, n);
+			this.pos += n;
+			return n;
+		}
+
+		@Override
+		public void close() throws IOException {
+			while (ensureData()) {
+				this.pos = this.count;
+			}
+		}
+	}
+
+}
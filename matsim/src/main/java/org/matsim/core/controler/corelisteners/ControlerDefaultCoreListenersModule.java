@@ -39,6 +39,8 @@ public class ControlerDefaultCoreListenersModule extends AbstractModule {
 		bind( PlansDumping.class ).to( PlansDumpingImpl.class );
 		bind( EventsHandling.class ).to( EventsHandlingImpl.class );
 		bind( DumpDataAtEnd.class ).to( DumpDataAtEndImpl.class );
+		bind( Checkpointing.class ).to( CheckpointingImpl.class );
+		addCheckpointableBinding().to( PopulationCheckpoint.class );
 	}
 }
 
@@ -59,8 +59,14 @@ import org.matsim.vehicles.VehicleWriterV1;
 import org.matsim.vehicles.Vehicles;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Singleton
 final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
@@ -114,21 +120,63 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 		if ( event.isUnexpected() ) {
 			return ;
 		}
-		dumpPlans();
-		dumpNetwork();
-		dumpConfig();
-		dumpFacilities();
-		dumpNetworkChangeEvents();
-
-		dumpTransitSchedule();
-		dumpTransitVehicles();
-		dumpVehicles();
-		dumpHouseholds();
-		dumpLanes();
-		dumpCounts();
-
+		// the files are independent from each other, so write them in parallel
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, config.global().getNumberOfThreads()));
+		List<Future<?>> futures = new ArrayList<>();
+		futures.add(executor.submit(new Runnable() {
+			@Override
+			public void run() {
+				dumpPlans();
+			}
+		}));
+		futures.add(executor.submit(new Runnable() {
+			@Override
+			public void run() {
+				dumpNetwork();
+				dumpNetworkChangeEvents();
+			}
+		}));
+		futures.add(executor.submit(new Runnable() {
+			@Override
+			public void run() {
+				dumpConfig();
+				dumpFacilities();
+			}
+		}));
+		futures.add(executor.submit(new Runnable() {
+			@Override
+			public void run() {
+				dumpTransitSchedule();
+				dumpTransitVehicles();
+				dumpVehicles();
+			}
+		}));
+		futures.add(executor.submit(new Runnable() {
+			@Override
+			public void run() {
+				dumpHouseholds();
+				dumpLanes();
+				dumpCounts();
+			}
+		}));
 		if (!event.isUnexpected() && vspConfig.isWritingOutputEvents()) {
-			dumpOutputEvents();
+			futures.add(executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					dumpOutputEvents();
+				}
+			}));
+		}
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdown();
 		}
 	}
 
@@ -28,25 +28,36 @@ import org.matsim.api.core.v01.population.PopulationWriter;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.AfterMobsimEvent;
 import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
 import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.controler.listener.ShutdownListener;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
 /**
  * {@link org.matsim.core.controler.listener.ControlerListener} that dumps the
  * complete plans regularly at the start of an iteration
  * ({@link ControlerConfigGroup#getWritePlansInterval()} as well as in the first
  * iteration, just in case someone might check that the replanning worked
  * correctly in the first iteration.
+ * <p/>
+ * The plans are written by a background thread while the mobsim runs, as the mobsim does not change
+ * the plans. The controler only waits for the dump to be finished after the mobsim, before the plans are
+ * scored and replanned again.
  *
  * @author mrieser
  */
 @Singleton
-final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
+final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener, AfterMobsimListener, ShutdownListener {
 
 	static final private Logger log = Logger.getLogger(PlansDumpingImpl.class);
 
@@ -59,6 +70,8 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 
 	private int writeMoreUntilIteration;
 
+	private FutureTask<Void> pendingDump = null;
+
 	@Inject
 	PlansDumpingImpl(ControlerConfigGroup config) {
 		this.writePlansInterval = config.getWritePlansInterval();
@@ -71,27 +84,70 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 		final boolean regularWritePlans = writingPlansAtAll && (event.getIteration()>0 && event.getIteration() % writePlansInterval== 0);
 		final boolean earlyIteration = event.getIteration() <= writeMoreUntilIteration ;
 		if ( writingPlansAtAll && (regularWritePlans || earlyIteration) ) {
-			stopwatch.beginOperation("dump all plans");
-			log.info("dumping plans...");
-			final String inputCRS = config.plans().getInputCRS();
-			final String internalCRS = config.global().getCoordinateSystem();
-
-			if ( inputCRS == null ) {
-				new PopulationWriter(population, network).write(controlerIO.getIterationFilename(event.getIteration(), "plans.xml.gz"));
-			}
-			else {
-				log.info( "re-projecting population from "+internalCRS+" back to "+inputCRS+" for export" );
-
-				final CoordinateTransformation transformation =
-						TransformationFactory.getCoordinateTransformation(
-								internalCRS,
-								inputCRS );
-
-				new PopulationWriter(transformation, population, network).write(controlerIO.getIterationFilename(event.getIteration(), "plans.xml.gz"));
-			}
-			log.info("finished plans dump.");
+			final String filename = controlerIO.getIterationFilename(event.getIteration(), "plans.xml.gz");
+			this.pendingDump = new FutureTask<>(new Runnable() {
+				@Override
+				public void run() {
+					dumpPlans(filename);
+				}
+			}, null);
+			Thread thread = new Thread(this.pendingDump, "PlansDumping");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	@Override
+	public void notifyAfterMobsim(final AfterMobsimEvent event) {
+		waitForPendingDump();
+	}
+
+	@Override
+	public void notifyShutdown(final ShutdownEvent event) {
+		// in case the mobsim did not finish; do not hide the original problem
+		try {
+			waitForPendingDump();
+		} catch (RuntimeException e) {
+			log.error("dumping plans failed.", e);
+		}
+	}
+
+	private void waitForPendingDump() {
+		if (this.pendingDump == null) {
+			return;
+		}
+		stopwatch.beginOperation("dump all plans");
+		try {
+			this.pendingDump.get();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("dumping plans failed.", e.getCause());
+		} finally {
+			this.pendingDump = null;
 			stopwatch.endOperation("dump all plans");
 		}
 	}
 
+	private void dumpPlans(final String filename) {
+		log.info("dumping plans...");
+		final String inputCRS = config.plans().getInputCRS();
+		final String internalCRS = config.global().getCoordinateSystem();
+
+		if ( inputCRS == null ) {
+			new PopulationWriter(population, network).write(filename);
+		}
+		else {
+			log.info( "re-projecting population from "+internalCRS+" back to "+inputCRS+" for export" );
+
+			final CoordinateTransformation transformation =
+					TransformationFactory.getCoordinateTransformation(
+							internalCRS,
+							inputCRS );
+
+			new PopulationWriter(transformation, population, network).write(filename);
+		}
+		log.info("finished plans dump.");
+	}
+
 }
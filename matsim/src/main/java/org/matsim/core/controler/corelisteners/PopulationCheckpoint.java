@@ -0,0 +1,272 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationCheckpoint.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler.corelisteners;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.controler.CheckpointUtils;
+import org.matsim.core.controler.Checkpointable;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Stores the plans of all persons of the population in checkpoints, including their scores and which
+ * plan is selected. Routes are stored by their type and description, like in the plans files.
+ * <p/>
+ * When a checkpoint is restored, the persons are matched by their id: the plans of the persons in the
+ * population are replaced by the plans in the checkpoint, persons not in the checkpoint are removed and
+ * persons only in the checkpoint are added. Other data of the persons, e.g. their attributes, is
+ * not stored and stays as it was read at startup.
+ */
+/*package*/ final class PopulationCheckpoint implements Checkpointable {
+
+	private static final Logger log = Logger.getLogger(PopulationCheckpoint.class);
+
+	private static final byte ACTIVITY = 0;
+	private static final byte LEG = 1;
+
+	private static final int HAS_COORD = 1;
+	private static final int HAS_LINK = 2;
+	private static final int HAS_FACILITY = 4;
+
+	private final Population population;
+
+	@Inject
+	PopulationCheckpoint(final Population population) {
+		this.population = population;
+	}
+
+	@Override
+	public String getCheckpointName() {
+		return "population";
+	}
+
+	@Override
+	public void writeCheckpoint(final DataOutputStream out) throws IOException {
+		out.writeInt(this.population.getPersons().size());
+		for (Person person : this.population.getPersons().values()) {
+			CheckpointUtils.writeString(out, person.getId().toString());
+			List<? extends Plan> plans = person.getPlans();
+			out.writeInt(plans.size());
+			out.writeInt(plans.indexOf(person.getSelectedPlan()));
+			for (Plan plan : plans) {
+				writePlan(out, plan);
+			}
+		}
+	}
+
+	@Override
+	public void readCheckpoint(final DataInputStream in) throws IOException {
+		PopulationFactory factory = this.population.getFactory();
+		int personCount = in.readInt();
+		Set<Id<Person>> restoredPersons = new HashSet<>(personCount * 2);
+		for (int p = 0; p < personCount; p++) {
+			Id<Person> personId = Id.create(CheckpointUtils.readString(in), Person.class);
+			restoredPersons.add(personId);
+			Person person = this.population.getPersons().get(personId);
+			if (person == null) {
+				person = factory.createPerson(personId);
+				this.population.addPerson(person);
+			}
+			List<? extends Plan> oldPlans = new ArrayList<>(person.getPlans());
+			for (Plan plan : oldPlans) {
+				person.removePlan(plan);
+			}
+			int planCount = in.readInt();
+			int selectedIndex = in.readInt();
+			for (int i = 0; i < planCount; i++) {
+				Plan plan = readPlan(in, factory);
+				person.addPlan(plan);
+				if (i == selectedIndex) {
+					person.setSelectedPlan(plan);
+				}
+			}
+		}
+		if (restoredPersons.size() < this.population.getPersons().size()) {
+			List<Id<Person>> removedPersons = new ArrayList<>();
+			for (Id<Person> personId : this.population.getPersons().keySet()) {
+				if (!restoredPersons.contains(personId)) {
+					removedPersons.add(personId);
+				}
+			}
+			log.warn("removing " + removedPersons.size() + " persons which are not part of the checkpoint.");
+			for (Id<Person> personId : removedPersons) {
+				this.population.removePerson(personId);
+			}
+		}
+	}
+
+	private static void writePlan(final DataOutputStream out, final Plan plan) throws IOException {
+		CheckpointUtils.writeNullableString(out, plan.getType());
+		Double score = plan.getScore();
+		out.writeBoolean(score != null);
+		if (score != null) {
+			out.writeDouble(score);
+		}
+		List<PlanElement> planElements = plan.getPlanElements();
+		out.writeInt(planElements.size());
+		for (PlanElement pe : planElements) {
+			if (pe instanceof Activity) {
+				out.writeByte(ACTIVITY);
+				writeActivity(out, (Activity) pe);
+			} else if (pe instanceof Leg) {
+				out.writeByte(LEG);
+				writeLeg(out, (Leg) pe);
+			} else {
+				throw new RuntimeException("Cannot write plan element of type " + pe.getClass().getName() + " to a checkpoint.");
+			}
+		}
+	}
+
+	private static Plan readPlan(final DataInputStream in, final PopulationFactory factory) throws IOException {
+		Plan plan = factory.createPlan();
+		plan.setType(CheckpointUtils.readNullableString(in));
+		if (in.readBoolean()) {
+			plan.setScore(in.readDouble());
+		}
+		int elementCount = in.readInt();
+		for (int i = 0; i < elementCount; i++) {
+			byte elementType = in.readByte();
+			if (elementType == ACTIVITY) {
+				plan.addActivity(readActivity(in, factory));
+			} else if (elementType == LEG) {
+				plan.addLeg(readLeg(in, factory));
+			} else {
+				throw new RuntimeException("Unknown plan element type " + elementType + " in checkpoint.");
+			}
+		}
+		return plan;
+	}
+
+	private static void writeActivity(final DataOutputStream out, final Activity act) throws IOException {
+		CheckpointUtils.writeString(out, act.getType());
+		Coord coord = act.getCoord();
+		int flags = (coord != null ? HAS_COORD : 0) | (act.getLinkId() != null ? HAS_LINK : 0) | (act.getFacilityId() != null ? HAS_FACILITY : 0);
+		out.writeByte(flags);
+		if (coord != null) {
+			out.writeDouble(coord.getX());
+			out.writeDouble(coord.getY());
+		}
+		if (act.getLinkId() != null) {
+			CheckpointUtils.writeString(out, act.getLinkId().toString());
+		}
+		if (act.getFacilityId() != null) {
+			CheckpointUtils.writeString(out, act.getFacilityId().toString());
+		}
+		out.writeDouble(act.getStartTime());
+		out.writeDouble(act.getEndTime());
+		out.writeDouble(act.getMaximumDuration());
+	}
+
+	private static Activity readActivity(final DataInputStream in, final PopulationFactory factory) throws IOException {
+		String type = CheckpointUtils.readString(in);
+		int flags = in.readByte();
+		Coord coord = (flags & HAS_COORD) != 0 ? new Coord(in.readDouble(), in.readDouble()) : null;
+		Id<Link> linkId = (flags & HAS_LINK) != 0 ? Id.create(CheckpointUtils.readString(in), Link.class) : null;
+		Activity act = linkId != null ? factory.createActivityFromLinkId(type, linkId) : factory.createActivityFromCoord(type, coord);
+		if (linkId != null && coord != null) {
+			act.setCoord(coord);
+		}
+		if ((flags & HAS_FACILITY) != 0) {
+			act.setFacilityId(Id.create(CheckpointUtils.readString(in), ActivityFacility.class));
+		}
+		act.setStartTime(in.readDouble());
+		act.setEndTime(in.readDouble());
+		act.setMaximumDuration(in.readDouble());
+		return act;
+	}
+
+	private static void writeLeg(final DataOutputStream out, final Leg leg) throws IOException {
+		CheckpointUtils.writeString(out, leg.getMode());
+		out.writeDouble(leg.getDepartureTime());
+		out.writeDouble(leg.getTravelTime());
+		Route route = leg.getRoute();
+		out.writeBoolean(route != null);
+		if (route != null) {
+			CheckpointUtils.writeString(out, route.getRouteType());
+			CheckpointUtils.writeNullableString(out, route.getStartLinkId() == null ? null : route.getStartLinkId().toString());
+			CheckpointUtils.writeNullableString(out, route.getEndLinkId() == null ? null : route.getEndLinkId().toString());
+			out.writeDouble(route.getTravelTime());
+			out.writeDouble(route.getDistance());
+			CheckpointUtils.writeNullableString(out, route.getRouteDescription());
+			out.writeBoolean(route instanceof NetworkRoute);
+			if (route instanceof NetworkRoute) {
+				Id<Vehicle> vehicleId = ((NetworkRoute) route).getVehicleId();
+				CheckpointUtils.writeNullableString(out, vehicleId == null ? null : vehicleId.toString());
+				out.writeDouble(((NetworkRoute) route).getTravelCost());
+			}
+		}
+	}
+
+	private static Leg readLeg(final DataInputStream in, final PopulationFactory factory) throws IOException {
+		Leg leg = factory.createLeg(CheckpointUtils.readString(in));
+		leg.setDepartureTime(in.readDouble());
+		leg.setTravelTime(in.readDouble());
+		if (in.readBoolean()) {
+			Class<? extends Route> routeClass = factory.getRouteFactories().getRouteClassForType(CheckpointUtils.readString(in));
+			String startLinkId = CheckpointUtils.readNullableString(in);
+			String endLinkId = CheckpointUtils.readNullableString(in);
+			Route route = factory.getRouteFactories().createRoute(routeClass,
+					startLinkId == null ? null : Id.create(startLinkId, Link.class),
+					endLinkId == null ? null : Id.create(endLinkId, Link.class));
+			route.setTravelTime(in.readDouble());
+			route.setDistance(in.readDouble());
+			String description = CheckpointUtils.readNullableString(in);
+			if (description != null) {
+				route.setRouteDescription(description);
+			}
+			if (in.readBoolean()) {
+				String vehicleId = CheckpointUtils.readNullableString(in);
+				double travelCost = in.readDouble();
+				if (route instanceof NetworkRoute) {
+					if (vehicleId != null) {
+						((NetworkRoute) route).setVehicleId(Id.create(vehicleId, Vehicle.class));
+					}
+					((NetworkRoute) route).setTravelCost(travelCost);
+				}
+			}
+			leg.setRoute(route);
+		}
+		return leg;
+	}
+
+}
@@ -0,0 +1,126 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinaryEventsFormat.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.nio.charset.Charset;
+
+/**
+ * Constants describing MATSim's binary events file format, as written by
+ * {@link org.matsim.core.events.algorithms.EventWriterBinary} and read by {@link EventsReaderBinary}.
+ * <p/>
+ * A file starts with {@link #MAGIC} and {@link #VERSION}, followed by blocks of events. Each block starts
+ * with its length in bytes as 4-byte int, a length of 0 marks the end of the file. Inside a block:
+ * <ol>
+ * <li>the number of events in the block,</li>
+ * <li>for each dictionary (see the <code>DICT_</code> constants): the number of entries first used in this
+ *     block, followed by the entries as strings. Ids and frequent strings are only referenced by their
+ *     position in the dictionary afterwards,</li>
+ * <li>the event type of every event, in the order of the events,</li>
+ * <li>the time of every event, delta-encoded against the previous event,</li>
+ * <li>the number of event types in this block, and for every event type its code and
+ *     its columns, i.e. each attribute of all events of that type stored consecutively.</li>
+ * </ol>
+ * All integer numbers except the block length are stored as variable-length integers (7 bits per byte), strings
+ * as their length followed by their UTF-8 bytes. References to dictionary entries are stored with an offset of 1,
+ * 0 represents <code>null</code>. Attribute values of generic events are stored with their length + 1, where
+ * 0 again represents <code>null</code>. Doubles are stored with their 8 raw bytes.
+ * <p/>
+ * Event types known to the core have fixed codes below {@link #TYPE_FIRST_GENERIC}, all other
+ * event types are stored as generic events with their attributes, with type code
+ * <code>TYPE_FIRST_GENERIC + index in {@link #DICT_GENERIC_TYPE}</code>.
+ */
+public final class BinaryEventsFormat {
+
+	public static final byte[] MAGIC = { 'M', 'A', 'T', 'S', 'I', 'M', 'E', 'V' };
+	public static final int VERSION = 1;
+
+	public static final Charset UTF8 = Charset.forName("UTF-8");
+
+	public static final int DICT_PERSON = 0;
+	public static final int DICT_LINK = 1;
+	public static final int DICT_VEHICLE = 2;
+	public static final int DICT_FACILITY = 3;
+	public static final int DICT_STOP_FACILITY = 4;
+	public static final int DICT_TRANSIT_LINE = 5;
+	public static final int DICT_TRANSIT_ROUTE = 6;
+	public static final int DICT_DEPARTURE = 7;
+	/** modes, activity types and attribute names */
+	public static final int DICT_STRING = 8;
+	public static final int DICT_GENERIC_TYPE = 9;
+	public static final int NUMBER_OF_DICTS = 10;
+
+	public static final int TYPE_LINK_ENTER = 0;
+	public static final int TYPE_LINK_LEAVE = 1;
+	public static final int TYPE_VEHICLE_ENTERS_TRAFFIC = 2;
+	public static final int TYPE_VEHICLE_LEAVES_TRAFFIC = 3;
+	public static final int TYPE_ACTIVITY_START = 4;
+	public static final int TYPE_ACTIVITY_END = 5;
+	public static final int TYPE_PERSON_DEPARTURE = 6;
+	public static final int TYPE_PERSON_ARRIVAL = 7;
+	public static final int TYPE_PERSON_STUCK = 8;
+	public static final int TYPE_VEHICLE_ABORTS = 9;
+	public static final int TYPE_PERSON_MONEY = 10;
+	public static final int TYPE_PERSON_ENTERS_VEHICLE = 11;
+	public static final int TYPE_PERSON_LEAVES_VEHICLE = 12;
+	public static final int TYPE_TELEPORTATION_ARRIVAL = 13;
+	public static final int TYPE_VEHICLE_ARRIVES_AT_FACILITY = 14;
+	public static final int TYPE_VEHICLE_DEPARTS_AT_FACILITY = 15;
+	public static final int TYPE_TRANSIT_DRIVER_STARTS = 16;
+	public static final int TYPE_BOARDING_DENIED = 17;
+	public static final int TYPE_AGENT_WAITING_FOR_PT = 18;
+	public static final int TYPE_FIRST_GENERIC = 64;
+
+	/** The number of columns used by each core event type, indexed by type code. */
+	public static final int[] NUMBER_OF_COLUMNS = {
+		2, // link enter: vehicle, link
+		2, // link leave: vehicle, link
+		5, // vehicle enters traffic: driver, link, vehicle, mode, position
+		5, // vehicle leaves traffic: driver, link, vehicle, mode, position
+		4, // activity start: person, link, facility, activity type
+		4, // activity end: person, link, facility, activity type
+		3, // departure: person, link, mode
+		3, // arrival: person, link, mode
+		3, // stuck: person, link, mode
+		2, // vehicle aborts: vehicle, link
+		2, // money: person, amount
+		2, // person enters vehicle: person, vehicle
+		2, // person leaves vehicle: person, vehicle
+		2, // teleportation arrival: person, distance
+		3, // vehicle arrives at facility: vehicle, facility, delay
+		3, // vehicle departs at facility: vehicle, facility, delay
+		5, // transit driver starts: driver, vehicle, line, route, departure
+		2, // boarding denied: person, vehicle
+		3  // agent waiting for pt: person, waiting stop, destination stop
+	};
+	/** generic events have one column with the number of attributes, one with the attribute names and one with their values. */
+	public static final int NUMBER_OF_GENERIC_COLUMNS = 3;
+
+	public static final int DEFAULT_EVENTS_PER_BLOCK = 1 << 16;
+
+	private BinaryEventsFormat() {
+		// static constants only
+	}
+
+	public static boolean isBinaryEventsFile(final String filename) {
+		return filename.toLowerCase(java.util.Locale.ROOT).endsWith(".bin");
+	}
+
+}
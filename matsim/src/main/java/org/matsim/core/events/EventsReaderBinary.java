@@ -0,0 +1,300 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import static org.matsim.core.events.BinaryEventsFormat.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.events.VehicleAbortsEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
+import org.matsim.core.api.experimental.events.BoardingDeniedEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.events.EventsReaderXMLv1.CustomEventMapper;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Reads events files written by {@link org.matsim.core.events.algorithms.EventWriterBinary}, see
+ * {@link BinaryEventsFormat} for a description of the format.
+ * <p/>
+ * The file is memory-mapped block by block. Every id is created only once when it is read from the
+ * dictionary, and events of the core event types are created directly from the columns, without
+ * going through their attributes. Events of other types are passed on as {@link GenericEvent}s,
+ * or converted by a {@link CustomEventMapper} like in {@link EventsReaderXMLv1}.
+ */
+public class EventsReaderBinary implements MatsimReader {
+
+	private static final Class<?>[] DICTIONARY_ID_CLASSES = new Class<?>[NUMBER_OF_DICTS];
+	static {
+		DICTIONARY_ID_CLASSES[DICT_PERSON] = Person.class;
+		DICTIONARY_ID_CLASSES[DICT_LINK] = Link.class;
+		DICTIONARY_ID_CLASSES[DICT_VEHICLE] = Vehicle.class;
+		DICTIONARY_ID_CLASSES[DICT_FACILITY] = ActivityFacility.class;
+		DICTIONARY_ID_CLASSES[DICT_STOP_FACILITY] = TransitStopFacility.class;
+		DICTIONARY_ID_CLASSES[DICT_TRANSIT_LINE] = TransitLine.class;
+		DICTIONARY_ID_CLASSES[DICT_TRANSIT_ROUTE] = TransitRoute.class;
+		DICTIONARY_ID_CLASSES[DICT_DEPARTURE] = Departure.class;
+	}
+
+	private final EventsManager events;
+	private final Map<String, CustomEventMapper> customEventMappers = new HashMap<>();
+
+	/** per dictionary, either the ids or the strings */
+	private final List<List<Object>> dictionaries = new ArrayList<>();
+	private long lastTime = 0;
+
+	public EventsReaderBinary(final EventsManager events) {
+		this.events = events;
+	}
+
+	public void addCustomEventMapper(final String eventType, final CustomEventMapper cem) {
+		this.customEventMappers.put(eventType, cem);
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		this.dictionaries.clear();
+		for (int i = 0; i < NUMBER_OF_DICTS; i++) {
+			this.dictionaries.add(new ArrayList<Object>());
+		}
+		this.lastTime = 0;
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+			FileChannel channel = file.getChannel();
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, MAGIC.length + 4);
+			byte[] magic = new byte[MAGIC.length];
+			header.get(magic);
+			if (!Arrays.equals(magic, MAGIC)) {
+				throw new IllegalArgumentException(filename + " is not a binary MATSim events file.");
+			}
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new IllegalArgumentException("unsupported version " + version + " of binary events file " + filename);
+			}
+			long position = MAGIC.length + 4;
+			while (true) {
+				int blockLength = channel.map(FileChannel.MapMode.READ_ONLY, position, 4).getInt();
+				position += 4;
+				if (blockLength == 0) {
+					break;
+				}
+				readBlock(channel.map(FileChannel.MapMode.READ_ONLY, position, blockLength));
+				position += blockLength;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("could not read binary events file " + filename, e);
+		}
+	}
+
+	private void readBlock(final ByteBuffer block) {
+		int eventCount = (int) readVarLong(block);
+		for (int d = 0; d < NUMBER_OF_DICTS; d++) {
+			List<Object> dictionary = this.dictionaries.get(d);
+			Class<?> idClass = DICTIONARY_ID_CLASSES[d];
+			int newEntries = (int) readVarLong(block);
+			for (int i = 0; i < newEntries; i++) {
+				String entry = readString(block);
+				dictionary.add(idClass == null ? entry : Id.create(entry, idClass));
+			}
+		}
+		ByteBuffer eventTypes = readColumn(block);
+		ByteBuffer times = readColumn(block);
+		ByteBuffer[][] columnsByType = new ByteBuffer[TYPE_FIRST_GENERIC + this.dictionaries.get(DICT_GENERIC_TYPE).size()][];
+		int numberOfTypes = (int) readVarLong(block);
+		for (int t = 0; t < numberOfTypes; t++) {
+			int type = (int) readVarLong(block);
+			int numberOfColumns = type < TYPE_FIRST_GENERIC ? NUMBER_OF_COLUMNS[type] : NUMBER_OF_GENERIC_COLUMNS;
+			ByteBuffer[] columns = new ByteBuffer[numberOfColumns];
+			for (int c = 0; c < numberOfColumns; c++) {
+				columns[c] = readColumn(block);
+			}
+			columnsByType[type] = columns;
+		}
+
+		for (int i = 0; i < eventCount; i++) {
+			int type = (int) readVarLong(eventTypes);
+			double time = readTime(times);
+			this.events.processEvent(createEvent(type, time, columnsByType[type]));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private Event createEvent(final int type, final double time, final ByteBuffer[] c) {
+		switch (type) {
+		case TYPE_LINK_ENTER:
+			return new LinkEnterEvent(time, (Id<Vehicle>) ref(c[0], DICT_VEHICLE), (Id<Link>) ref(c[1], DICT_LINK));
+		case TYPE_LINK_LEAVE:
+			return new LinkLeaveEvent(time, (Id<Vehicle>) ref(c[0], DICT_VEHICLE), (Id<Link>) ref(c[1], DICT_LINK));
+		case TYPE_VEHICLE_ENTERS_TRAFFIC:
+			return new VehicleEntersTrafficEvent(time, (Id<Person>) ref(c[0], DICT_PERSON), (Id<Link>) ref(c[1], DICT_LINK),
+					(Id<Vehicle>) ref(c[2], DICT_VEHICLE), (String) ref(c[3], DICT_STRING), c[4].getDouble());
+		case TYPE_VEHICLE_LEAVES_TRAFFIC:
+			return new VehicleLeavesTrafficEvent(time, (Id<Person>) ref(c[0], DICT_PERSON), (Id<Link>) ref(c[1], DICT_LINK),
+					(Id<Vehicle>) ref(c[2], DICT_VEHICLE), (String) ref(c[3], DICT_STRING), c[4].getDouble());
+		case TYPE_ACTIVITY_START:
+			return new ActivityStartEvent(time, (Id<Person>) ref(c[0], DICT_PERSON), (Id<Link>) ref(c[1], DICT_LINK),
+					(Id<ActivityFacility>) ref(c[2], DICT_FACILITY), (String) ref(c[3], DICT_STRING));
+		case TYPE_ACTIVITY_END:
+			return new ActivityEndEvent(time, (Id<Person>) ref(c[0], DICT_PERSON), (Id<Link>) ref(c[1], DICT_LINK),
+					(Id<ActivityFacility>) ref(c[2], DICT_FACILITY), (String) ref(c[3], DICT_STRING));
+		case TYPE_PERSON_DEPARTURE:
+			return new PersonDepartureEvent(time, (Id<Person>) ref(c[0], DICT_PERSON), (Id<Link>) ref(c[1], DICT_LINK), (String) ref(c[2], DICT_STRING));
+		case TYPE_PERSON_ARRIVAL:
+			return new PersonArrivalEvent(time, (Id<Person>) ref(c[0], DICT_PERSON), (Id<Link>) ref(c[1], DICT_LINK), (String) ref(c[2], DICT_STRING));
+		case TYPE_PERSON_STUCK:
+			return new PersonStuckEvent(time, (Id<Person>) ref(c[0], DICT_PERSON), (Id<Link>) ref(c[1], DICT_LINK), (String) ref(c[2], DICT_STRING));
+		case TYPE_VEHICLE_ABORTS:
+			return new VehicleAbortsEvent(time, (Id<Vehicle>) ref(c[0], DICT_VEHICLE), (Id<Link>) ref(c[1], DICT_LINK));
+		case TYPE_PERSON_MONEY:
+			return new PersonMoneyEvent(time, (Id<Person>) ref(c[0], DICT_PERSON), c[1].getDouble());
+		case TYPE_PERSON_ENTERS_VEHICLE:
+			return new PersonEntersVehicleEvent(time, (Id<Person>) ref(c[0], DICT_PERSON), (Id<Vehicle>) ref(c[1], DICT_VEHICLE));
+		case TYPE_PERSON_LEAVES_VEHICLE:
+			return new PersonLeavesVehicleEvent(time, (Id<Person>) ref(c[0], DICT_PERSON), (Id<Vehicle>) ref(c[1], DICT_VEHICLE));
+		case TYPE_TELEPORTATION_ARRIVAL:
+			return new TeleportationArrivalEvent(time, (Id<Person>) ref(c[0], DICT_PERSON), c[1].getDouble());
+		case TYPE_VEHICLE_ARRIVES_AT_FACILITY:
+			return new VehicleArrivesAtFacilityEvent(time, (Id<Vehicle>) ref(c[0], DICT_VEHICLE),
+					(Id<TransitStopFacility>) ref(c[1], DICT_STOP_FACILITY), c[2].getDouble());
+		case TYPE_VEHICLE_DEPARTS_AT_FACILITY:
+			return new VehicleDepartsAtFacilityEvent(time, (Id<Vehicle>) ref(c[0], DICT_VEHICLE),
+					(Id<TransitStopFacility>) ref(c[1], DICT_STOP_FACILITY), c[2].getDouble());
+		case TYPE_TRANSIT_DRIVER_STARTS:
+			return new TransitDriverStartsEvent(time, (Id<Person>) ref(c[0], DICT_PERSON), (Id<Vehicle>) ref(c[1], DICT_VEHICLE),
+					(Id<TransitLine>) ref(c[2], DICT_TRANSIT_LINE), (Id<TransitRoute>) ref(c[3], DICT_TRANSIT_ROUTE),
+					(Id<Departure>) ref(c[4], DICT_DEPARTURE));
+		case TYPE_BOARDING_DENIED:
+			return new BoardingDeniedEvent(time, (Id<Person>) ref(c[0], DICT_PERSON), (Id<Vehicle>) ref(c[1], DICT_VEHICLE));
+		case TYPE_AGENT_WAITING_FOR_PT:
+			return new AgentWaitingForPtEvent(time, (Id<Person>) ref(c[0], DICT_PERSON),
+					(Id<TransitStopFacility>) ref(c[1], DICT_STOP_FACILITY), (Id<TransitStopFacility>) ref(c[2], DICT_STOP_FACILITY));
+		default:
+			if (type < TYPE_FIRST_GENERIC) {
+				throw new IllegalArgumentException("unknown event type code " + type);
+			}
+			return createGenericEvent(type, time, c);
+		}
+	}
+
+	private Event createGenericEvent(final int type, final double time, final ByteBuffer[] c) {
+		String eventType = (String) this.dictionaries.get(DICT_GENERIC_TYPE).get(type - TYPE_FIRST_GENERIC);
+		GenericEvent event = new GenericEvent(eventType, time);
+		int count = (int) readVarLong(c[0]);
+		for (int i = 0; i < count; i++) {
+			String key = (String) ref(c[1], DICT_STRING);
+			event.getAttributes().put(key, readNullableString(c[2]));
+		}
+		CustomEventMapper cem = this.customEventMappers.get(eventType);
+		if (cem != null) {
+			return cem.apply(event);
+		}
+		return event;
+	}
+
+	private Object ref(final ByteBuffer column, final int dictionary) {
+		int index = (int) readVarLong(column);
+		return index == 0 ? null : this.dictionaries.get(dictionary).get(index - 1);
+	}
+
+	private double readTime(final ByteBuffer times) {
+		long value = readVarLong(times);
+		if ((value & 1) == 1) {
+			return times.getDouble();
+		}
+		long zigzag = value >>> 1;
+		this.lastTime += (zigzag >>> 1) ^ -(zigzag & 1);
+		return this.lastTime;
+	}
+
+	/**
+	 * @return a view on the next column in the buffer, and moves the buffer's position behind the column.
+	 */
+	private static ByteBuffer readColumn(final ByteBuffer block) {
+		int length = (int) readVarLong(block);
+		ByteBuffer column = block.slice();
+		column.limit(length);
+		block.position(block.position() + length);
+		return column;
+	}
+
+	private static long readVarLong(final ByteBuffer buffer) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+	private static String readString(final ByteBuffer buffer) {
+		return readString(buffer, (int) readVarLong(buffer));
+	}
+
+	private static String readNullableString(final ByteBuffer buffer) {
+		int length = (int) readVarLong(buffer);
+		return length == 0 ? null : readString(buffer, length - 1);
+	}
+
+	private static String readString(final ByteBuffer buffer, final int length) {
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, UTF8);
+	}
+
+}
@@ -0,0 +1,194 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HandlerDispatcher.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.events.handler.ActivityEndEventHandler;
+import org.matsim.api.core.v01.events.handler.ActivityStartEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonArrivalEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonDepartureEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonEntersVehicleEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonLeavesVehicleEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonMoneyEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonStuckEventHandler;
+import org.matsim.api.core.v01.events.handler.TransitDriverStartsEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleEntersTrafficEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleLeavesTrafficEventHandler;
+import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.core.api.experimental.events.handler.AgentWaitingForPtEventHandler;
+import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
+import org.matsim.core.api.experimental.events.handler.VehicleDepartsAtFacilityEventHandler;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * Calls one event handler for one kind of events. The dispatchers are created once when a handler
+ * is registered for an event class, so no reflection is needed while events are processed. For
+ * MATSim's core event types, the dispatcher just casts and calls the handler if it implements the
+ * core handler interface of that event type; in all other cases, e.g. if the <code>handleEvent</code>
+ * method is declared by a custom interface, a {@link MethodHandle} bound to the handler is used.
+ */
+abstract class HandlerDispatcher {
+
+	/*package*/ final EventHandler handler;
+	/*package*/ final Class<?> eventClass;
+
+	HandlerDispatcher(final EventHandler handler, final Class<?> eventClass) {
+		this.handler = handler;
+		this.eventClass = eventClass;
+	}
+
+	abstract void dispatch(final Event event);
+
+	/**
+	 * @param eventClass the event class as declared as parameter of the handler's <code>handleEvent</code> method
+	 * @param handler the handler to be called
+	 * @param method the <code>handleEvent</code> method to be used if no cast to a core handler interface is possible
+	 */
+	static HandlerDispatcher create(final Class<?> eventClass, final EventHandler handler, final Method method) {
+		if (eventClass == LinkLeaveEvent.class && handler instanceof LinkLeaveEventHandler) {
+			return new HandlerDispatcher(handler, eventClass) {
+				@Override void dispatch(Event event) { ((LinkLeaveEventHandler) this.handler).handleEvent((LinkLeaveEvent) event); }
+			};
+		} else if (eventClass == LinkEnterEvent.class && handler instanceof LinkEnterEventHandler) {
+			return new HandlerDispatcher(handler, eventClass) {
+				@Override void dispatch(Event event) { ((LinkEnterEventHandler) this.handler).handleEvent((LinkEnterEvent) event); }
+			};
+		} else if (eventClass == VehicleEntersTrafficEvent.class && handler instanceof VehicleEntersTrafficEventHandler) {
+			return new HandlerDispatcher(handler, eventClass) {
+				@Override void dispatch(Event event) { ((VehicleEntersTrafficEventHandler) this.handler).handleEvent((VehicleEntersTrafficEvent) event); }
+			};
+		} else if (eventClass == VehicleLeavesTrafficEvent.class && handler instanceof VehicleLeavesTrafficEventHandler) {
+			return new HandlerDispatcher(handler, eventClass) {
+				@Override void dispatch(Event event) { ((VehicleLeavesTrafficEventHandler) this.handler).handleEvent((VehicleLeavesTrafficEvent) event); }
+			};
+		} else if (eventClass == PersonArrivalEvent.class && handler instanceof PersonArrivalEventHandler) {
+			return new HandlerDispatcher(handler, eventClass) {
+				@Override void dispatch(Event event) { ((PersonArrivalEventHandler) this.handler).handleEvent((PersonArrivalEvent) event); }
+			};
+		} else if (eventClass == PersonDepartureEvent.class && handler instanceof PersonDepartureEventHandler) {
+			return new HandlerDispatcher(handler, eventClass) {
+				@Override void dispatch(Event event) { ((PersonDepartureEventHandler) this.handler).handleEvent((PersonDepartureEvent) event); }
+			};
+		} else if (eventClass == ActivityEndEvent.class && handler instanceof ActivityEndEventHandler) {
+			return new HandlerDispatcher(handler, eventClass) {
+				@Override void dispatch(Event event) { ((ActivityEndEventHandler) this.handler).handleEvent((ActivityEndEvent) event); }
+			};
+		} else if (eventClass == ActivityStartEvent.class && handler instanceof ActivityStartEventHandler) {
+			return new HandlerDispatcher(handler, eventClass) {
+				@Override void dispatch(Event event) { ((ActivityStartEventHandler) this.handler).handleEvent((ActivityStartEvent) event); }
+			};
+		} else if (eventClass == TransitDriverStartsEvent.class && handler instanceof TransitDriverStartsEventHandler) {
+			return new HandlerDispatcher(handler, eventClass) {
+				@Override void dispatch(Event event) { ((TransitDriverStartsEventHandler) this.handler).handleEvent((TransitDriverStartsEvent) event); }
+			};
+		} else if (eventClass == PersonStuckEvent.class && handler instanceof PersonStuckEventHandler) {
+			return new HandlerDispatcher(handler, eventClass) {
+				@Override void dispatch(Event event) { ((PersonStuckEventHandler) this.handler).handleEvent((PersonStuckEvent) event); }
+			};
+		} else if (eventClass == PersonMoneyEvent.class && handler instanceof PersonMoneyEventHandler) {
+			return new HandlerDispatcher(handler, eventClass) {
+				@Override void dispatch(Event event) { ((PersonMoneyEventHandler) this.handler).handleEvent((PersonMoneyEvent) event); }
+			};
+		} else if (eventClass == AgentWaitingForPtEvent.class && handler instanceof AgentWaitingForPtEventHandler) {
+			return new HandlerDispatcher(handler, eventClass) {
+				@Override void dispatch(Event event) { ((AgentWaitingForPtEventHandler) this.handler).handleEvent((AgentWaitingForPtEvent) event); }
+			};
+		} else if (eventClass == PersonEntersVehicleEvent.class && handler instanceof PersonEntersVehicleEventHandler) {
+			return new HandlerDispatcher(handler, eventClass) {
+				@Override void dispatch(Event event) { ((PersonEntersVehicleEventHandler) this.handler).handleEvent((PersonEntersVehicleEvent) event); }
+			};
+		} else if (eventClass == PersonLeavesVehicleEvent.class && handler instanceof PersonLeavesVehicleEventHandler) {
+			return new HandlerDispatcher(handler, eventClass) {
+				@Override void dispatch(Event event) { ((PersonLeavesVehicleEventHandler) this.handler).handleEvent((PersonLeavesVehicleEvent) event); }
+			};
+		} else if (eventClass == VehicleDepartsAtFacilityEvent.class && handler instanceof VehicleDepartsAtFacilityEventHandler) {
+			return new HandlerDispatcher(handler, eventClass) {
+				@Override void dispatch(Event event) { ((VehicleDepartsAtFacilityEventHandler) this.handler).handleEvent((VehicleDepartsAtFacilityEvent) event); }
+			};
+		} else if (eventClass == VehicleArrivesAtFacilityEvent.class && handler instanceof VehicleArrivesAtFacilityEventHandler) {
+			return new HandlerDispatcher(handler, eventClass) {
+				@Override void dispatch(Event event) { ((VehicleArrivesAtFacilityEventHandler) this.handler).handleEvent((VehicleArrivesAtFacilityEvent) event); }
+			};
+		} else if (eventClass == Event.class && handler instanceof BasicEventHandler) {
+			return new HandlerDispatcher(handler, eventClass) {
+				@Override void dispatch(Event event) { ((BasicEventHandler) this.handler).handleEvent(event); }
+			};
+		}
+		return new MethodHandleDispatcher(handler, eventClass, method);
+	}
+
+	/**
+	 * Dispatcher for event types not known to the core. The method handle is bound to the
+	 * handler once and adapted to a common signature, so calling it involves neither
+	 * reflective access checks nor boxing of arguments into arrays.
+	 */
+	private static final class MethodHandleDispatcher extends HandlerDispatcher {
+
+		private static final MethodType DISPATCH_TYPE = MethodType.methodType(void.class, Event.class);
+
+		private final MethodHandle methodHandle;
+
+		MethodHandleDispatcher(final EventHandler handler, final Class<?> eventClass, final Method method) {
+			super(handler, eventClass);
+			try {
+				method.setAccessible(true);
+				this.methodHandle = MethodHandles.lookup().unreflect(method).bindTo(handler).asType(DISPATCH_TYPE);
+			} catch (IllegalAccessException e) {
+				throw new RuntimeException("problem accessing EventHandler " + handler.getClass().getCanonicalName() + " for event-class " + eventClass.getCanonicalName(), e);
+			}
+		}
+
+		@Override
+		void dispatch(final Event event) {
+			try {
+				this.methodHandle.invokeExact(event);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new RuntimeException("problem invoking EventHandler " + this.handler.getClass().getCanonicalName() + " for event-class " + this.eventClass.getCanonicalName(), e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,475 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferEventsManagerImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.gbl.Gbl;
+
+/**
+ * An EventsManager that distributes the registered event handlers over a number of threads and
+ * passes all events to these threads through one shared ring buffer.
+ * <p/>
+ * Every thread reads all events from the ring buffer, but calls only the handlers assigned to it.
+ * Each thread keeps track of the last event it has processed, the producers only have to wait if
+ * the slowest thread is a full ring behind. When a time step of the mobsim ends, {@link #afterSimStep(double)}
+ * waits until all threads have processed all events created so far. Neither putting an event into
+ * the ring buffer nor the synchronization at the end of a time step allocates any objects or uses any locks.
+ * <p/>
+ * Handlers are called through pre-built {@link HandlerDispatcher}s instead of reflection.
+ * <p/>
+ * The ring buffer accepts events from multiple threads (e.g. from a multi-threaded QNetsimEngine). Events
+ * created by event handlers themselves are queued separately and added to the ring buffer by the next
+ * event from outside, or at the latest at the end of the time step, to avoid that a handler waits for itself.
+ *
+ * @see SimStepParallelEventsManagerImpl
+ */
+class RingBufferEventsManagerImpl implements EventsManager {
+
+	private final static Logger log = Logger.getLogger(RingBufferEventsManagerImpl.class);
+
+	/*package*/ static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+	private final int numOfThreads;
+	private final int bufferSize;
+	private final int mask;
+
+	private final Event[] ringBuffer;
+	private final AtomicLongArray published;
+	/** the next sequence number to be claimed by a producer */
+	private final AtomicLong claimSequence = new AtomicLong(0);
+	/** cached minimum of all consumer sequences, may be stale but never too large */
+	private volatile long cachedGatingSequence = -1;
+
+	private final Shard[] shards;
+	private int handlerCount = 0;
+
+	private final Queue<Event> eventsFromHandlers = new ConcurrentLinkedQueue<>();
+	private final AtomicReference<Throwable> hadException = new AtomicReference<>();
+
+	private Thread[] threads = null;
+	private volatile boolean parallelMode = false;
+
+	@Inject
+	RingBufferEventsManagerImpl(ParallelEventHandlingConfigGroup config) {
+		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1, DEFAULT_BUFFER_SIZE);
+	}
+
+	public RingBufferEventsManagerImpl(int numOfThreads) {
+		this(numOfThreads, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param numOfThreads the number of threads processing events
+	 * @param bufferSize the number of events the ring buffer can hold, must be a power of 2
+	 */
+	public RingBufferEventsManagerImpl(int numOfThreads, int bufferSize) {
+		if (numOfThreads < 1) {
+			throw new IllegalArgumentException("At least one thread is required to process events, but " + numOfThreads + " was given.");
+		}
+		if (Integer.bitCount(bufferSize) != 1) {
+			throw new IllegalArgumentException("The size of the ring buffer must be a power of 2, but " + bufferSize + " was given.");
+		}
+		this.numOfThreads = numOfThreads;
+		this.bufferSize = bufferSize;
+		this.mask = bufferSize - 1;
+		this.ringBuffer = new Event[bufferSize];
+		this.published = new AtomicLongArray(bufferSize);
+		for (int i = 0; i < bufferSize; i++) {
+			this.published.set(i, -1);
+		}
+		this.shards = new Shard[numOfThreads];
+		for (int i = 0; i < numOfThreads; i++) {
+			this.shards[i] = new Shard();
+		}
+	}
+
+	@Override
+	public void processEvent(final Event event) {
+		if (!this.parallelMode) {
+			for (Shard shard : this.shards) {
+				shard.dispatch(event);
+			}
+			return;
+		}
+		if (isEventsThread()) {
+			// an event handler creates an event. It must not wait for the ring buffer, as it could wait for itself.
+			this.eventsFromHandlers.add(event);
+			return;
+		}
+		if (!this.eventsFromHandlers.isEmpty()) {
+			publishEventsFromHandlers();
+		}
+		publish(event);
+	}
+
+	private void publishEventsFromHandlers() {
+		Event e;
+		while ((e = this.eventsFromHandlers.poll()) != null) {
+			publish(e);
+		}
+	}
+
+	private void publish(final Event event) {
+		long sequence = this.claimSequence.getAndIncrement();
+		long wrapPoint = sequence - this.bufferSize;
+		if (wrapPoint >= this.cachedGatingSequence) {
+			int idleCount = 0;
+			long gating;
+			while (wrapPoint >= (gating = getMinimumSequence())) {
+				if (this.hadException.get() != null) {
+					// the events threads are gone, nobody will ever free up the slot
+					return;
+				}
+				idleCount = idle(idleCount);
+			}
+			this.cachedGatingSequence = gating;
+		}
+		int slot = (int) (sequence & this.mask);
+		this.ringBuffer[slot] = event;
+		this.published.lazySet(slot, sequence);
+	}
+
+	private long getMinimumSequence() {
+		long min = Long.MAX_VALUE;
+		for (Shard shard : this.shards) {
+			long s = shard.sequence.get();
+			if (s < min) {
+				min = s;
+			}
+		}
+		return min;
+	}
+
+	private boolean isEventsThread() {
+		Thread current = Thread.currentThread();
+		Thread[] threads = this.threads;
+		if (threads == null) {
+			return false;
+		}
+		for (Thread t : threads) {
+			if (t == current) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public synchronized void addHandler(final EventHandler handler) {
+		this.shards[this.handlerCount % this.numOfThreads].addHandler(handler);
+		this.handlerCount++;
+	}
+
+	@Override
+	public synchronized void removeHandler(final EventHandler handler) {
+		for (Shard shard : this.shards) {
+			shard.removeHandler(handler);
+		}
+	}
+
+	@Override
+	public void resetHandlers(int iteration) {
+		log.info("resetting Event-Handlers");
+		Set<EventHandler> resetHandlers = new HashSet<>();
+		for (Shard shard : this.shards) {
+			for (EventHandler handler : shard.handlers) {
+				if (resetHandlers.add(handler)) {
+					log.info("  " + handler.getClass().getName());
+					handler.reset(iteration);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void initProcessing() {
+		this.hadException.set(null);
+		this.eventsFromHandlers.clear();
+		long start = this.claimSequence.get();
+		this.cachedGatingSequence = start - 1;
+		this.threads = new Thread[this.numOfThreads];
+		for (int i = 0; i < this.numOfThreads; i++) {
+			Shard shard = this.shards[i];
+			shard.sequence.set(start - 1);
+			shard.running = true;
+			Thread thread = new Thread(new ProcessEventsRunnable(shard));
+			thread.setDaemon(true);
+			thread.setName(RingBufferEventsManagerImpl.class.getSimpleName() + i);
+			this.threads[i] = thread;
+		}
+		this.parallelMode = true;
+		for (Thread thread : this.threads) {
+			thread.start();
+		}
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		if (!this.parallelMode) {
+			return;
+		}
+		/* Handlers might create new events while processing the events of this time step. Those
+		 * have to be processed before the time step ends, so repeat until no new events show up. */
+		do {
+			publishEventsFromHandlers();
+			waitUntilAllEventsProcessed();
+		} while (!this.eventsFromHandlers.isEmpty() && this.hadException.get() == null);
+	}
+
+	private void waitUntilAllEventsProcessed() {
+		long last = this.claimSequence.get() - 1;
+		int idleCount = 0;
+		while (getMinimumSequence() < last) {
+			if (this.hadException.get() != null) {
+				return;
+			}
+			idleCount = idle(idleCount);
+		}
+	}
+
+	@Override
+	public synchronized void finishProcessing() {
+		if (this.parallelMode) {
+			afterSimStep(Double.POSITIVE_INFINITY);
+			for (Shard shard : this.shards) {
+				shard.running = false;
+			}
+			for (Thread thread : this.threads) {
+				try {
+					thread.join();
+				} catch (InterruptedException e) {
+					this.hadException.compareAndSet(null, e);
+				}
+			}
+			/* After the simulation, events are processed in the calling thread. */
+			this.parallelMode = false;
+			this.threads = null;
+		}
+
+		Throwable throwable = this.hadException.get();
+		if (throwable != null) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", throwable);
+		}
+	}
+
+	private static int idle(int idleCount) {
+		if (idleCount < 100) {
+			// busy spin, the next event is usually only a few nanoseconds away
+		} else if (idleCount < 200) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(10000);
+		}
+		return idleCount + 1;
+	}
+
+	/**
+	 * The handlers processed by one thread, and that thread's position in the ring buffer.
+	 */
+	private static final class Shard {
+
+		private final PaddedSequence sequence = new PaddedSequence();
+		private final List<EventHandler> handlers = new ArrayList<>();
+		/** all handled event types per handler, in the order they were added */
+		private final Map<Class<?>, List<HandlerDispatcher>> dispatchersByHandledClass = new HashMap<>();
+		/** the dispatchers to call per concrete event class, built lazily in the thread processing this shard */
+		private Map<Class<?>, HandlerDispatcher[]> dispatcherCache = new HashMap<>();
+		private volatile Map<Class<?>, HandlerDispatcher[]> emptyCacheOnChange = null;
+		private volatile boolean running = false;
+
+		synchronized void addHandler(final EventHandler handler) {
+			log.info("adding Event-Handler: " + handler.getClass().getName());
+			this.handlers.add(handler);
+			Set<Class<?>> interfaces = new LinkedHashSet<>();
+			Class<?> test = handler.getClass();
+			while (test != Object.class) {
+				for (Class<?> theInterface : test.getInterfaces()) {
+					interfaces.add(theInterface);
+				}
+				test = test.getSuperclass();
+			}
+			for (Class<?> theInterface : interfaces) {
+				for (Method method : theInterface.getMethods()) {
+					if (method.getName().equals("handleEvent") && method.getParameterTypes().length == 1) {
+						Class<?> eventClass = method.getParameterTypes()[0];
+						List<HandlerDispatcher> list = this.dispatchersByHandledClass.get(eventClass);
+						if (list == null) {
+							list = new ArrayList<>();
+							this.dispatchersByHandledClass.put(eventClass, list);
+						}
+						if (!containsHandler(list, handler)) {
+							list.add(HandlerDispatcher.create(eventClass, handler, method));
+						}
+					}
+				}
+			}
+			this.emptyCacheOnChange = new HashMap<>();
+		}
+
+		synchronized void removeHandler(final EventHandler handler) {
+			if (this.handlers.remove(handler)) {
+				log.info("removing Event-Handler: " + handler.getClass().getName());
+				for (List<HandlerDispatcher> list : this.dispatchersByHandledClass.values()) {
+					for (int i = list.size() - 1; i >= 0; i--) {
+						if (list.get(i).handler == handler) {
+							list.remove(i);
+						}
+					}
+				}
+				this.emptyCacheOnChange = new HashMap<>();
+			}
+		}
+
+		private static boolean containsHandler(final List<HandlerDispatcher> list, final EventHandler handler) {
+			for (HandlerDispatcher d : list) {
+				if (d.handler == handler) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		void dispatch(final Event event) {
+			for (HandlerDispatcher dispatcher : getDispatchers(event.getClass())) {
+				dispatcher.dispatch(event);
+			}
+		}
+
+		private HandlerDispatcher[] getDispatchers(final Class<?> eventClass) {
+			Map<Class<?>, HandlerDispatcher[]> newCache = this.emptyCacheOnChange;
+			if (newCache != null) {
+				this.dispatcherCache = newCache;
+				this.emptyCacheOnChange = null;
+			}
+			HandlerDispatcher[] dispatchers = this.dispatcherCache.get(eventClass);
+			if (dispatchers == null) {
+				dispatchers = buildDispatchers(eventClass);
+				this.dispatcherCache.put(eventClass, dispatchers);
+			}
+			return dispatchers;
+		}
+
+		/* Same order as in EventsManagerImpl: first the class hierarchy, then all implemented interfaces. */
+		private synchronized HandlerDispatcher[] buildDispatchers(final Class<?> eventClass) {
+			List<HandlerDispatcher> result = new ArrayList<>();
+			Class<?> klass = eventClass;
+			while (klass != Object.class) {
+				List<HandlerDispatcher> list = this.dispatchersByHandledClass.get(klass);
+				if (list != null) {
+					result.addAll(list);
+				}
+				klass = klass.getSuperclass();
+			}
+			for (Class<?> intfc : getAllInterfaces(eventClass)) {
+				List<HandlerDispatcher> list = this.dispatchersByHandledClass.get(intfc);
+				if (list != null) {
+					result.addAll(list);
+				}
+			}
+			return result.toArray(new HandlerDispatcher[result.size()]);
+		}
+
+		private static Set<Class<?>> getAllInterfaces(final Class<?> klass) {
+			Set<Class<?>> intfs = new LinkedHashSet<>();
+			for (Class<?> intf : klass.getInterfaces()) {
+				intfs.add(intf);
+				intfs.addAll(getAllInterfaces(intf));
+			}
+			if (!klass.isInterface()) {
+				Class<?> superclass = klass.getSuperclass();
+				while (superclass != null && superclass != Object.class) {
+					intfs.addAll(getAllInterfaces(superclass));
+					superclass = superclass.getSuperclass();
+				}
+			}
+			return intfs;
+		}
+	}
+
+	/**
+	 * An AtomicLong padded to its own cache line, so the threads updating their sequences
+	 * do not invalidate each other's caches.
+	 */
+	@SuppressWarnings("unused")
+	private static final class PaddedSequence extends AtomicLong {
+		private static final long serialVersionUID = 1L;
+		private long p1, p2, p3, p4, p5, p6, p7 = 7L;
+	}
+
+	private class ProcessEventsRunnable implements Runnable {
+
+		private final Shard shard;
+
+		ProcessEventsRunnable(final Shard shard) {
+			this.shard = shard;
+		}
+
+		@Override
+		public void run() {
+			Shard shard = this.shard;
+			long next = shard.sequence.get() + 1;
+			int idleCount = 0;
+			try {
+				while (true) {
+					int slot = (int) (next & RingBufferEventsManagerImpl.this.mask);
+					if (RingBufferEventsManagerImpl.this.published.get(slot) == next) {
+						shard.dispatch(RingBufferEventsManagerImpl.this.ringBuffer[slot]);
+						shard.sequence.lazySet(next);
+						next++;
+						idleCount = 0;
+					} else if (!shard.running) {
+						break;
+					} else {
+						idleCount = idle(idleCount);
+					}
+				}
+			} catch (Throwable e) {
+				RingBufferEventsManagerImpl.this.hadException.compareAndSet(null, e);
+				log.error("Thread " + Thread.currentThread().getName() + " died with exception while handling events.", e);
+				// do not block the producers and the other threads any longer
+				shard.sequence.set(Long.MAX_VALUE);
+			}
+			Gbl.printCurrentThreadCpuTime();
+		}
+	}
+
+}
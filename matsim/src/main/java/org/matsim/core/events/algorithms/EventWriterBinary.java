@@ -0,0 +1,459 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import static org.matsim.core.events.BinaryEventsFormat.*;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.events.VehicleAbortsEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
+import org.matsim.core.api.experimental.events.BoardingDeniedEvent;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.core.events.BinaryEventsFormat;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Writes events to a file in MATSim's binary events format, see {@link BinaryEventsFormat} for a
+ * description of the format. Events are collected in memory and written block by block, ids and
+ * frequently used strings are written only once per file.
+ * <p/>
+ * The file is not compressed, so it can be memory-mapped by {@link org.matsim.core.events.EventsReaderBinary}.
+ */
+public class EventWriterBinary implements EventWriter, BasicEventHandler {
+
+	private final int eventsPerBlock;
+	private DataOutputStream out = null;
+
+	private final Dictionary[] dictionaries = new Dictionary[NUMBER_OF_DICTS];
+	private final Column eventTypes = new Column();
+	private final Column times = new Column();
+	private Column[][] columnsByType = new Column[TYPE_FIRST_GENERIC][];
+	private int eventCount = 0;
+	private long lastTime = 0;
+
+	public EventWriterBinary(final String filename) {
+		this(filename, DEFAULT_EVENTS_PER_BLOCK);
+	}
+
+	public EventWriterBinary(final String filename, final int eventsPerBlock) {
+		this.eventsPerBlock = eventsPerBlock;
+		for (int i = 0; i < NUMBER_OF_DICTS; i++) {
+			this.dictionaries[i] = new Dictionary();
+		}
+		try {
+			this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16));
+			this.out.write(MAGIC);
+			this.out.writeInt(VERSION);
+		} catch (IOException e) {
+			throw new UncheckedIOException("could not open binary events file " + filename, e);
+		}
+	}
+
+	@Override
+	public void closeFile() {
+		if (this.out != null) {
+			try {
+				writeBlock();
+				this.out.writeInt(0);
+				this.out.close();
+				this.out = null;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	@Override
+	public void reset(final int iteration) {
+		closeFile();
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		Class<?> klass = event.getClass();
+		if (klass == LinkEnterEvent.class) {
+			LinkEnterEvent e = (LinkEnterEvent) event;
+			Column[] c = start(TYPE_LINK_ENTER, e);
+			ref(c[0], DICT_VEHICLE, e.getVehicleId());
+			ref(c[1], DICT_LINK, e.getLinkId());
+		} else if (klass == LinkLeaveEvent.class) {
+			LinkLeaveEvent e = (LinkLeaveEvent) event;
+			Column[] c = start(TYPE_LINK_LEAVE, e);
+			ref(c[0], DICT_VEHICLE, e.getVehicleId());
+			ref(c[1], DICT_LINK, e.getLinkId());
+		} else if (klass == VehicleEntersTrafficEvent.class) {
+			VehicleEntersTrafficEvent e = (VehicleEntersTrafficEvent) event;
+			Column[] c = start(TYPE_VEHICLE_ENTERS_TRAFFIC, e);
+			ref(c[0], DICT_PERSON, e.getPersonId());
+			ref(c[1], DICT_LINK, e.getLinkId());
+			ref(c[2], DICT_VEHICLE, e.getVehicleId());
+			ref(c[3], DICT_STRING, e.getNetworkMode());
+			c[4].writeDouble(e.getRelativePositionOnLink());
+		} else if (klass == VehicleLeavesTrafficEvent.class) {
+			VehicleLeavesTrafficEvent e = (VehicleLeavesTrafficEvent) event;
+			Column[] c = start(TYPE_VEHICLE_LEAVES_TRAFFIC, e);
+			ref(c[0], DICT_PERSON, e.getPersonId());
+			ref(c[1], DICT_LINK, e.getLinkId());
+			ref(c[2], DICT_VEHICLE, e.getVehicleId());
+			ref(c[3], DICT_STRING, e.getNetworkMode());
+			c[4].writeDouble(e.getRelativePositionOnLink());
+		} else if (klass == ActivityStartEvent.class) {
+			ActivityStartEvent e = (ActivityStartEvent) event;
+			Column[] c = start(TYPE_ACTIVITY_START, e);
+			ref(c[0], DICT_PERSON, e.getPersonId());
+			ref(c[1], DICT_LINK, e.getLinkId());
+			ref(c[2], DICT_FACILITY, e.getFacilityId());
+			ref(c[3], DICT_STRING, e.getActType());
+		} else if (klass == ActivityEndEvent.class) {
+			ActivityEndEvent e = (ActivityEndEvent) event;
+			Column[] c = start(TYPE_ACTIVITY_END, e);
+			ref(c[0], DICT_PERSON, e.getPersonId());
+			ref(c[1], DICT_LINK, e.getLinkId());
+			ref(c[2], DICT_FACILITY, e.getFacilityId());
+			ref(c[3], DICT_STRING, e.getActType());
+		} else if (klass == PersonDepartureEvent.class) {
+			PersonDepartureEvent e = (PersonDepartureEvent) event;
+			Column[] c = start(TYPE_PERSON_DEPARTURE, e);
+			ref(c[0], DICT_PERSON, e.getPersonId());
+			ref(c[1], DICT_LINK, e.getLinkId());
+			ref(c[2], DICT_STRING, e.getLegMode());
+		} else if (klass == PersonArrivalEvent.class) {
+			PersonArrivalEvent e = (PersonArrivalEvent) event;
+			Column[] c = start(TYPE_PERSON_ARRIVAL, e);
+			ref(c[0], DICT_PERSON, e.getPersonId());
+			ref(c[1], DICT_LINK, e.getLinkId());
+			ref(c[2], DICT_STRING, e.getLegMode());
+		} else if (klass == PersonStuckEvent.class) {
+			PersonStuckEvent e = (PersonStuckEvent) event;
+			Column[] c = start(TYPE_PERSON_STUCK, e);
+			ref(c[0], DICT_PERSON, e.getPersonId());
+			ref(c[1], DICT_LINK, e.getLinkId());
+			ref(c[2], DICT_STRING, e.getLegMode());
+		} else if (klass == VehicleAbortsEvent.class) {
+			VehicleAbortsEvent e = (VehicleAbortsEvent) event;
+			Column[] c = start(TYPE_VEHICLE_ABORTS, e);
+			ref(c[0], DICT_VEHICLE, e.getVehicleId());
+			ref(c[1], DICT_LINK, e.getLinkId());
+		} else if (klass == PersonMoneyEvent.class) {
+			PersonMoneyEvent e = (PersonMoneyEvent) event;
+			Column[] c = start(TYPE_PERSON_MONEY, e);
+			ref(c[0], DICT_PERSON, e.getPersonId());
+			c[1].writeDouble(e.getAmount());
+		} else if (klass == PersonEntersVehicleEvent.class) {
+			PersonEntersVehicleEvent e = (PersonEntersVehicleEvent) event;
+			Column[] c = start(TYPE_PERSON_ENTERS_VEHICLE, e);
+			ref(c[0], DICT_PERSON, e.getPersonId());
+			ref(c[1], DICT_VEHICLE, e.getVehicleId());
+		} else if (klass == PersonLeavesVehicleEvent.class) {
+			PersonLeavesVehicleEvent e = (PersonLeavesVehicleEvent) event;
+			Column[] c = start(TYPE_PERSON_LEAVES_VEHICLE, e);
+			ref(c[0], DICT_PERSON, e.getPersonId());
+			ref(c[1], DICT_VEHICLE, e.getVehicleId());
+		} else if (klass == TeleportationArrivalEvent.class) {
+			TeleportationArrivalEvent e = (TeleportationArrivalEvent) event;
+			Column[] c = start(TYPE_TELEPORTATION_ARRIVAL, e);
+			ref(c[0], DICT_PERSON, e.getPersonId());
+			c[1].writeDouble(e.getDistance());
+		} else if (klass == VehicleArrivesAtFacilityEvent.class) {
+			VehicleArrivesAtFacilityEvent e = (VehicleArrivesAtFacilityEvent) event;
+			Column[] c = start(TYPE_VEHICLE_ARRIVES_AT_FACILITY, e);
+			ref(c[0], DICT_VEHICLE, e.getVehicleId());
+			ref(c[1], DICT_STOP_FACILITY, e.getFacilityId());
+			c[2].writeDouble(e.getDelay());
+		} else if (klass == VehicleDepartsAtFacilityEvent.class) {
+			VehicleDepartsAtFacilityEvent e = (VehicleDepartsAtFacilityEvent) event;
+			Column[] c = start(TYPE_VEHICLE_DEPARTS_AT_FACILITY, e);
+			ref(c[0], DICT_VEHICLE, e.getVehicleId());
+			ref(c[1], DICT_STOP_FACILITY, e.getFacilityId());
+			c[2].writeDouble(e.getDelay());
+		} else if (klass == TransitDriverStartsEvent.class) {
+			TransitDriverStartsEvent e = (TransitDriverStartsEvent) event;
+			Column[] c = start(TYPE_TRANSIT_DRIVER_STARTS, e);
+			ref(c[0], DICT_PERSON, e.getDriverId());
+			ref(c[1], DICT_VEHICLE, e.getVehicleId());
+			ref(c[2], DICT_TRANSIT_LINE, e.getTransitLineId());
+			ref(c[3], DICT_TRANSIT_ROUTE, e.getTransitRouteId());
+			ref(c[4], DICT_DEPARTURE, e.getDepartureId());
+		} else if (klass == BoardingDeniedEvent.class) {
+			BoardingDeniedEvent e = (BoardingDeniedEvent) event;
+			Column[] c = start(TYPE_BOARDING_DENIED, e);
+			ref(c[0], DICT_PERSON, e.getPersonId());
+			ref(c[1], DICT_VEHICLE, e.getVehicleId());
+		} else if (klass == AgentWaitingForPtEvent.class) {
+			AgentWaitingForPtEvent e = (AgentWaitingForPtEvent) event;
+			Column[] c = start(TYPE_AGENT_WAITING_FOR_PT, e);
+			ref(c[0], DICT_PERSON, e.getPersonId());
+			ref(c[1], DICT_STOP_FACILITY, e.getWaitingAtStopId());
+			ref(c[2], DICT_STOP_FACILITY, e.getDestinationStopId());
+		} else {
+			handleGenericEvent(event);
+		}
+		if (this.eventCount >= this.eventsPerBlock) {
+			try {
+				writeBlock();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	private void handleGenericEvent(final Event event) {
+		int type = TYPE_FIRST_GENERIC + this.dictionaries[DICT_GENERIC_TYPE].indexOf(event.getEventType());
+		Column[] c = start(type, event);
+		Map<String, String> attributes = event.getAttributes();
+		int count = attributes.size();
+		if (attributes.containsKey(Event.ATTRIBUTE_TIME)) {
+			count--;
+		}
+		if (attributes.containsKey(Event.ATTRIBUTE_TYPE)) {
+			count--;
+		}
+		c[0].writeVarLong(count);
+		for (Map.Entry<String, String> e : attributes.entrySet()) {
+			String key = e.getKey();
+			if (key.equals(Event.ATTRIBUTE_TIME) || key.equals(Event.ATTRIBUTE_TYPE)) {
+				continue;
+			}
+			ref(c[1], DICT_STRING, key);
+			c[2].writeNullableString(e.getValue());
+		}
+	}
+
+	private Column[] start(final int type, final Event event) {
+		this.eventCount++;
+		this.eventTypes.writeVarLong(type);
+		writeTime(event.getTime());
+		if (type >= this.columnsByType.length) {
+			this.columnsByType = Arrays.copyOf(this.columnsByType, Math.max(type + 1, this.columnsByType.length * 2));
+		}
+		Column[] columns = this.columnsByType[type];
+		if (columns == null) {
+			int numberOfColumns = type < TYPE_FIRST_GENERIC ? NUMBER_OF_COLUMNS[type] : NUMBER_OF_GENERIC_COLUMNS;
+			columns = new Column[numberOfColumns];
+			for (int i = 0; i < numberOfColumns; i++) {
+				columns[i] = new Column();
+			}
+			this.columnsByType[type] = columns;
+		}
+		return columns;
+	}
+
+	/**
+	 * Integral times (the usual case with the QSim) are stored as difference to the previous integral time,
+	 * which mostly fits into one byte. All other times are stored with their full precision.
+	 */
+	private void writeTime(final double time) {
+		long intTime = (long) time;
+		if (intTime == time && Math.abs(intTime) < (1L << 52)) {
+			long delta = intTime - this.lastTime;
+			this.times.writeVarLong(((delta << 1) ^ (delta >> 63)) << 1);
+			this.lastTime = intTime;
+		} else {
+			this.times.writeVarLong(1);
+			this.times.writeDouble(time);
+		}
+	}
+
+	private void ref(final Column column, final int dictionary, final Id<?> id) {
+		column.writeVarLong(id == null ? 0 : this.dictionaries[dictionary].indexOf(id) + 1);
+	}
+
+	private void ref(final Column column, final int dictionary, final String string) {
+		column.writeVarLong(string == null ? 0 : this.dictionaries[dictionary].indexOf(string) + 1);
+	}
+
+	private void writeBlock() throws IOException {
+		if (this.eventCount == 0) {
+			return;
+		}
+		Column block = new Column();
+		block.writeVarLong(this.eventCount);
+		for (Dictionary dictionary : this.dictionaries) {
+			block.writeVarLong(dictionary.newEntries.size());
+			for (String entry : dictionary.newEntries) {
+				block.writeString(entry);
+			}
+			dictionary.newEntries.clear();
+		}
+		block.writeColumn(this.eventTypes);
+		block.writeColumn(this.times);
+		int numberOfTypes = 0;
+		for (Column[] columns : this.columnsByType) {
+			if (columns != null) {
+				numberOfTypes++;
+			}
+		}
+		block.writeVarLong(numberOfTypes);
+		for (int type = 0; type < this.columnsByType.length; type++) {
+			Column[] columns = this.columnsByType[type];
+			if (columns != null) {
+				block.writeVarLong(type);
+				for (Column column : columns) {
+					block.writeColumn(column);
+				}
+			}
+		}
+		this.out.writeInt(block.size);
+		this.out.write(block.data, 0, block.size);
+
+		this.eventCount = 0;
+		this.eventTypes.size = 0;
+		this.times.size = 0;
+		Arrays.fill(this.columnsByType, null);
+	}
+
+	/**
+	 * Assigns consecutive numbers to ids and strings. For ids, the number is looked up by the id's index to
+	 * avoid hashing; ids of different types (which share indices) fall back to the lookup by string.
+	 */
+	private static final class Dictionary {
+		private final Map<String, Integer> byString = new HashMap<>();
+		private final List<Id<?>> ids = new ArrayList<>();
+		private int[] byIdIndex = new int[0];
+		/*package*/ final List<String> newEntries = new ArrayList<>();
+
+		/*package*/ int indexOf(final Id<?> id) {
+			int idIndex = id.index();
+			if (idIndex < this.byIdIndex.length) {
+				int candidate = this.byIdIndex[idIndex] - 1;
+				if (candidate >= 0 && this.ids.get(candidate) == id) {
+					return candidate;
+				}
+			}
+			String key = id.toString();
+			Integer index = this.byString.get(key);
+			if (index == null) {
+				index = add(key);
+			}
+			if (idIndex >= this.byIdIndex.length) {
+				this.byIdIndex = Arrays.copyOf(this.byIdIndex, Math.max(idIndex + 1, this.byIdIndex.length * 2));
+			}
+			if (this.byIdIndex[idIndex] == 0) {
+				this.byIdIndex[idIndex] = index + 1;
+				this.ids.set(index, id);
+			}
+			return index;
+		}
+
+		/*package*/ int indexOf(final String string) {
+			Integer index = this.byString.get(string);
+			if (index == null) {
+				index = add(string);
+			}
+			return index;
+		}
+
+		private int add(final String string) {
+			int index = this.byString.size();
+			this.byString.put(string, index);
+			this.ids.add(null);
+			this.newEntries.add(string);
+			return index;
+		}
+	}
+
+	/**
+	 * A growable byte array with the encodings used in the binary events format.
+	 */
+	private static final class Column {
+		/*package*/ byte[] data = new byte[256];
+		/*package*/ int size = 0;
+
+		private void ensureCapacity(final int additional) {
+			if (this.size + additional > this.data.length) {
+				this.data = Arrays.copyOf(this.data, Math.max(this.size + additional, this.data.length * 2));
+			}
+		}
+
+		/*package*/ void writeVarLong(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7FL) != 0) {
+				this.data[this.size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.data[this.size++] = (byte) value;
+		}
+
+		/*package*/ void writeDouble(final double value) {
+			ensureCapacity(8);
+			long bits = Double.doubleToRawLongBits(value);
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				this.data[this.size++] = (byte) (bits >>> shift);
+			}
+		}
+
+		/*package*/ void writeString(final String value) {
+			byte[] bytes = value.getBytes(BinaryEventsFormat.UTF8);
+			writeVarLong(bytes.length);
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, this.data, this.size, bytes.length);
+			this.size += bytes.length;
+		}
+
+		/*package*/ void writeNullableString(final String value) {
+			if (value == null) {
+				writeVarLong(0);
+			} else {
+				byte[] bytes = value.getBytes(BinaryEventsFormat.UTF8);
+				writeVarLong(bytes.length + 1);
+				ensureCapacity(bytes.length);
+				System.arraycopy(bytes, 0, this.data, this.size, bytes.length);
+				this.size += bytes.length;
+			}
+		}
+
+		/*package*/ void writeColumn(final Column column) {
+			writeVarLong(column.size);
+			ensureCapacity(column.size);
+			System.arraycopy(column.data, 0, this.data, this.size, column.size);
+			this.size += column.size;
+			column.size = 0;
+		}
+	}
+
+}
@@ -29,9 +29,14 @@ import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
 import org.matsim.core.mobsim.framework.events.MobsimInitializedEvent;
 import org.matsim.core.mobsim.framework.listeners.*;
 import org.matsim.core.utils.misc.ClassUtils;
+import org.matsim.core.utils.misc.ListenerProfiler;
 
 import javax.swing.event.EventListenerList;
 
+/**
+ * Notifies the mobsim listeners. The listeners of each type are cached in arrays, so notifying them,
+ * which for the sim step listeners happens every simulated second, does not look them up again.
+ */
 class MobsimListenerManager implements MatsimManager {
 
 	private final static Logger log = Logger.getLogger(MobsimListenerManager.class);
@@ -40,10 +45,43 @@ class MobsimListenerManager implements MatsimManager {
 
 	private final EventListenerList listenerList = new EventListenerList();
 
+	private MobsimInitializedListener[] initializedListeners = null;
+	private MobsimBeforeSimStepListener[] beforeSimStepListeners = null;
+	private MobsimAfterSimStepListener[] afterSimStepListeners = null;
+	private MobsimBeforeCleanupListener[] beforeCleanupListeners = null;
+
+	private ListenerProfiler profiler = null;
+
 	public MobsimListenerManager(Mobsim sim){
 		this.sim = sim;
 	}
 
+	/**
+	 * Measures the time spent in each listener, see {@link #logProfile()}.
+	 */
+	void enableProfiling() {
+		this.profiler = new ListenerProfiler("mobsim listeners");
+	}
+
+	/**
+	 * Logs the time spent in each listener, if profiling is enabled.
+	 */
+	void logProfile() {
+		if (this.profiler != null) {
+			this.profiler.log(log);
+		}
+	}
+
+	private long startProfiling() {
+		return this.profiler == null ? 0 : this.profiler.start();
+	}
+
+	private void stopProfiling(final MobsimListener listener, final long start) {
+		if (this.profiler != null) {
+			this.profiler.stop(listener, start);
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	public void addQueueSimulationListener(final MobsimListener l) {
 		log.info("calling addQueueSimulationListener");
@@ -53,6 +91,7 @@ class MobsimListenerManager implements MatsimManager {
 				log.info("  assigned class " + MobsimListener.class.getName() + " to interface " + interfaceClass.getName());
 			}
 		}
+		clearCache();
 	}
 
 	@SuppressWarnings("unchecked")
@@ -62,17 +101,33 @@ class MobsimListenerManager implements MatsimManager {
 				this.listenerList.remove(interfaceClass, l);
 			}
 		}
+		clearCache();
+	}
+
+	private void clearCache() {
+		this.initializedListeners = null;
+		this.beforeSimStepListeners = null;
+		this.afterSimStepListeners = null;
+		this.beforeCleanupListeners = null;
 	}
 
 	/**
 	 * Creates the event and notifies all listeners
 	 */
 	public void fireQueueSimulationInitializedEvent() {
+		if (this.initializedListeners == null) {
+			this.initializedListeners = this.listenerList.getListeners(MobsimInitializedListener.class);
+		}
+		MobsimInitializedListener[] listeners = this.initializedListeners;
+		if (listeners.length == 0) {
+			return;
+		}
 		MobsimInitializedEvent<Mobsim> event = new MobsimInitializedEvent<>(sim);
-		MobsimInitializedListener[] listener = this.listenerList.getListeners(MobsimInitializedListener.class);
-        for (MobsimInitializedListener aListener : listener) {
-            aListener.notifyMobsimInitialized(event);
-        }
+		for (MobsimInitializedListener aListener : listeners) {
+			long start = startProfiling();
+			aListener.notifyMobsimInitialized(event);
+			stopProfiling(aListener, start);
+		}
 	}
 
 	/**
@@ -81,30 +136,54 @@ class MobsimListenerManager implements MatsimManager {
 	 * @param simTime the current time in the simulation
 	 */
 	public void fireQueueSimulationAfterSimStepEvent(final double simTime) {
+		if (this.afterSimStepListeners == null) {
+			this.afterSimStepListeners = this.listenerList.getListeners(MobsimAfterSimStepListener.class);
+		}
+		MobsimAfterSimStepListener[] listeners = this.afterSimStepListeners;
+		if (listeners.length == 0) {
+			return;
+		}
 		MobsimAfterSimStepEvent<Mobsim> event = new MobsimAfterSimStepEvent<>(sim, simTime);
-		MobsimAfterSimStepListener[] listener = this.listenerList.getListeners(MobsimAfterSimStepListener.class);
-        for (MobsimAfterSimStepListener aListener : listener) {
-            aListener.notifyMobsimAfterSimStep(event);
-        }
+		for (MobsimAfterSimStepListener aListener : listeners) {
+			long start = startProfiling();
+			aListener.notifyMobsimAfterSimStep(event);
+			stopProfiling(aListener, start);
+		}
 	}
 
 	/**
 	 * Creates the event and notifies all listeners
 	 */
 	public void fireQueueSimulationBeforeCleanupEvent(){
+		if (this.beforeCleanupListeners == null) {
+			this.beforeCleanupListeners = this.listenerList.getListeners(MobsimBeforeCleanupListener.class);
+		}
+		MobsimBeforeCleanupListener[] listeners = this.beforeCleanupListeners;
+		if (listeners.length == 0) {
+			return;
+		}
 		MobsimBeforeCleanupEvent<Mobsim> event = new MobsimBeforeCleanupEvent<>(this.sim);
-		MobsimBeforeCleanupListener[] listener = this.listenerList.getListeners(MobsimBeforeCleanupListener.class);
-        for (MobsimBeforeCleanupListener aListener : listener) {
-            aListener.notifyMobsimBeforeCleanup(event);
-        }
+		for (MobsimBeforeCleanupListener aListener : listeners) {
+			long start = startProfiling();
+			aListener.notifyMobsimBeforeCleanup(event);
+			stopProfiling(aListener, start);
+		}
 	}
 
 	public void fireQueueSimulationBeforeSimStepEvent(double time) {
+		if (this.beforeSimStepListeners == null) {
+			this.beforeSimStepListeners = this.listenerList.getListeners(MobsimBeforeSimStepListener.class);
+		}
+		MobsimBeforeSimStepListener[] listeners = this.beforeSimStepListeners;
+		if (listeners.length == 0) {
+			return;
+		}
 		MobsimBeforeSimStepEvent<Mobsim> event = new MobsimBeforeSimStepEvent<>(sim, time);
-		MobsimBeforeSimStepListener[] listener = this.listenerList.getListeners(MobsimBeforeSimStepListener.class);
-        for (MobsimBeforeSimStepListener aListener : listener) {
-            aListener.notifyMobsimBeforeSimStep(event);
-        }
+		for (MobsimBeforeSimStepListener aListener : listeners) {
+			long start = startProfiling();
+			aListener.notifyMobsimBeforeSimStep(event);
+			stopProfiling(aListener, start);
+		}
 	}
 
 }
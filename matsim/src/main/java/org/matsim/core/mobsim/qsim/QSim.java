@@ -56,6 +56,7 @@ import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.Netsim;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimNetwork;
+import org.matsim.core.mobsim.qsim.interfaces.SkippableMobsimEngine;
 import org.matsim.core.mobsim.qsim.pt.TransitQSimEngine;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngine;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
@@ -122,6 +123,7 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 	private final Date realWorldStarttime = new Date();
 	private double stopTime = 100 * 3600;
 	private final MobsimListenerManager listenerManager;
+	private final boolean skippingIdleTimeSteps;
 	private final Scenario scenario;
 	private final List<ActivityHandler> activityHandlers = new ArrayList<>();
 	private final List<DepartureHandler> departureHandlers = new ArrayList<>();
@@ -204,8 +206,12 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 			this.events = events;
 		}
 		this.listenerManager = new MobsimListenerManager(this);
+		if (sc.getConfig().controler().isProfileListeners()) {
+			this.listenerManager.enableProfiling();
+		}
 		this.agentCounter = new org.matsim.core.mobsim.qsim.AgentCounter();
 		this.simTimer = new MobsimTimer(sc.getConfig().qsim().getTimeStepSize());
+		this.skippingIdleTimeSteps = sc.getConfig().qsim().isSkippingIdleTimeSteps();
 	}
 
 	// ============================================================================================================================
@@ -306,6 +312,7 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 
 	void cleanupSim() {
 		this.listenerManager.fireQueueSimulationBeforeCleanupEvent();
+		this.listenerManager.logProfile();
 
 		boolean gotException = false;
 		for (MobsimEngine mobsimEngine : mobsimEngines) {
@@ -384,7 +391,11 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		}
 
 		if (doContinue) {
-			this.simTimer.incrementTime();
+			if (this.skippingIdleTimeSteps) {
+				this.simTimer.setTime(getNextSimulatedTime(now));
+			} else {
+				this.simTimer.incrementTime();
+			}
 		}
 		
 		if (analyzeRunTimes) this.qSimInternalTime += System.nanoTime() - this.startTime;
@@ -392,6 +403,31 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		return doContinue;
 	}
 
+	/**
+	 * @return the next time step in which at least one engine has something to do, but not later than the
+	 * time step in which the simulation would end anyway.
+	 */
+	private double getNextSimulatedTime(final double now) {
+		final double stepSize = this.simTimer.getSimTimestepSize();
+		double nextTime = this.stopTime;
+		for (MobsimEngine mobsimEngine : this.mobsimEngines) {
+			if (!(mobsimEngine instanceof SkippableMobsimEngine)) {
+				return now + stepSize;
+			}
+			nextTime = Math.min(nextTime, ((SkippableMobsimEngine) mobsimEngine).getNextRelevantTime(now));
+			if (nextTime <= now + stepSize) {
+				return now + stepSize;
+			}
+		}
+		if (nextTime == Double.MAX_VALUE) {
+			// nothing to do anymore and no end time, so continue as without skipping
+			return now + stepSize;
+		}
+		// round up to the next time step, as the engines would otherwise only be called then.  The tolerance makes sure
+		// that rounding errors never let us jump past the time step in which something happens.
+		return now + Math.ceil((nextTime - now) / stepSize - 1e-9) * stepSize;
+	}
+
 	public void insertAgentIntoMobsim(final MobsimAgent agent) {
 		if (this.agents.containsKey(agent.getId())) {
 			throw new RuntimeException("Agent with same Id (" + agent.getId().toString() + ") already in mobsim; aborting ... ") ;
@@ -495,7 +531,8 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 	private void printSimLog(final double time) {
 		if (time >= this.infoTime) {
 			//		if(true){
-			this.infoTime += INFO_PERIOD;
+			// (same as adding INFO_PERIOD once if every time step is simulated)
+			this.infoTime = (Math.floor(time / INFO_PERIOD) + 1) * INFO_PERIOD;
 			Date endtime = new Date();
 			long diffreal = (endtime.getTime() - this.realWorldStarttime
 					.getTime()) / 1000;
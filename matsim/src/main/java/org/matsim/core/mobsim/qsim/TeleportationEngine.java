@@ -11,7 +11,7 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.qsim.interfaces.DepartureHandler;
-import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
+import org.matsim.core.mobsim.qsim.interfaces.SkippableMobsimEngine;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.utils.collections.Tuple;
 import org.matsim.core.utils.misc.Time;
@@ -27,7 +27,7 @@ import java.util.*;
  * Includes all agents that have transportation modes unknown to the
  * NetsimEngine (often all != "car") or have two activities on the same link
  */
-public final class TeleportationEngine implements DepartureHandler, MobsimEngine,
+public final class TeleportationEngine implements DepartureHandler, SkippableMobsimEngine,
 VisData {
 	private static final Logger log = Logger.getLogger( TeleportationEngine.class ) ;
 	
@@ -124,6 +124,12 @@ VisData {
 		}
 	}
 
+	@Override
+	public double getNextRelevantTime(double now) {
+		Tuple<Double, MobsimAgent> entry = teleportationList.peek();
+		return entry == null ? Double.POSITIVE_INFINITY : entry.getFirst();
+	}
+
 	@Override
 	public void onPrepareSim() {
 
@@ -0,0 +1,48 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SkippableMobsimEngine.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.interfaces;
+
+import org.matsim.core.config.groups.QSimConfigGroup;
+
+/**
+ * A {@link MobsimEngine} that knows when it has something to do next. If all engines of the QSim implement this
+ * interface and {@link QSimConfigGroup#isSkippingIdleTimeSteps()} is set, the QSim does not call the engines in
+ * every time step, but advances the time directly to the earliest time any of the engines asks for.
+ * <p/>
+ * Design thoughts:<ul>
+ * <li> Listeners such as {@link org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener}s are only
+ * notified in the time steps that are actually simulated. So this should not be used together with listeners that
+ * expect to be called in every time step, e.g. for within-day replanning or snapshots.
+ * </ul>
+ */
+public interface SkippableMobsimEngine extends MobsimEngine {
+
+	/**
+	 * Called after all engines have done their sim step at time <code>now</code>.
+	 *
+	 * @return the earliest time after <code>now</code> at which {@link #doSimStep(double)} must be called again,
+	 * {@link Double#POSITIVE_INFINITY} if there is nothing to do anymore. A time not after <code>now</code> means the
+	 * next time step. Times that do not fall on a time step are handled in the first time step after them, as without
+	 * skipping.
+	 */
+	double getNextRelevantTime(double now);
+
+}
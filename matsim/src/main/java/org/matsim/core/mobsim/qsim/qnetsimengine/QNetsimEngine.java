@@ -22,7 +22,6 @@ package org.matsim.core.mobsim.qsim.qnetsimengine;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -38,6 +37,7 @@ import javax.inject.Inject;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.network.Link;
@@ -57,7 +57,7 @@ import org.matsim.core.mobsim.framework.MobsimTimer;
 import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
-import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
+import org.matsim.core.mobsim.qsim.interfaces.SkippableMobsimEngine;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimNetwork;
 import org.matsim.core.utils.misc.Time;
@@ -71,7 +71,7 @@ import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
  * @author dgrether
  * @author dstrippgen
  */
-public class QNetsimEngine implements MobsimEngine {
+public class QNetsimEngine implements SkippableMobsimEngine {
 	public interface NetsimInternalInterface {
 
 		QNetwork getNetsimNetwork();
@@ -105,7 +105,7 @@ public class QNetsimEngine implements MobsimEngine {
 
 	private QNetwork network;
 
-	private final Map<Id<Vehicle>, QVehicle> vehicles = new HashMap<>();
+	private final Map<Id<Vehicle>, QVehicle> vehicles = new IdMap<>(Vehicle.class);
 
 	private final QSim qsim;
 
@@ -129,6 +129,8 @@ public class QNetsimEngine implements MobsimEngine {
 	private ExecutorService pool;
 
 	private final boolean usingThreadpool;
+
+	private final boolean usingWorkStealing;
 	
 	// for detailed run time analysis - used in combination with QSim.analyzeRunTimes
 	public static int numObservedTimeSteps = 24*3600;
@@ -150,6 +152,7 @@ public class QNetsimEngine implements MobsimEngine {
 		final Config config = sim.getScenario().getConfig();
 		final QSimConfigGroup qsimConfigGroup = config.qsim();
 		this.usingThreadpool = qsimConfigGroup.isUsingThreadpool();
+		this.usingWorkStealing = qsimConfigGroup.isUsingWorkStealing();
 
 
 		// configuring the car departure hander (including the vehicle behavior)
@@ -347,9 +350,24 @@ public class QNetsimEngine implements MobsimEngine {
 	}
 
 
+	/**
+	 * The network needs to be simulated in the next time step as long as there are active nodes or links.
+	 * Vehicles that depart later activate their link through the departure handler.
+	 */
+	@Override
+	public double getNextRelevantTime(double now) {
+		for (QNetsimEngineRunner engine : this.engines) {
+			if (engine.hasActiveNodesOrLinks()) {
+				return now;
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
 	/*package*/ void printSimLog(double time) {
 		if (time >= this.infoTime) {
-			this.infoTime += INFO_PERIOD;
+			// (same as adding INFO_PERIOD once if every time step is simulated)
+			this.infoTime = (Math.floor(time / INFO_PERIOD) + 1) * INFO_PERIOD;
 			int nofActiveLinks = this.getNumberOfSimulatedLinks();
 			int nofActiveNodes = this.getNumberOfSimulatedNodes();
 			log.info("SIMULATION (QNetsimEngine) AT " + Time.writeTime(time)
@@ -456,6 +474,13 @@ public class QNetsimEngine implements MobsimEngine {
 			this.engines.add(engine);
 		}
 
+		if (this.usingWorkStealing && numOfRunners > 1) {
+			log.info("QSimEngineRunners steal active nodes and links from each other.");
+			for (int i = 0; i < numOfRunners; i++) {
+				this.engines.get(i).setWorkStealingRunners(this.engines, i);
+			}
+		}
+
 		/*
 		 *  Assign every Link and Node to an Activator. By doing so, the
 		 *  activateNode(...) and activateLink(...) methods in this class
@@ -525,11 +550,19 @@ public class QNetsimEngine implements MobsimEngine {
 			}
 			sb.append("\t" + "min");
 			sb.append("\t" + "max");
+			for (int i = 0; i < this.engines.size(); i++) {
+				sb.append("\t" + "wait_" + i);
+			}
+			for (int i = 0; i < this.engines.size(); i++) {
+				sb.append("\t" + "stolen_" + i);
+			}
 			if (printRunTimesPerTimeStep) log.info(sb.toString());
 		}
 		long sum = 0;
 		long sumMin = 0;
 		long sumMax = 0;
+		long[] sumWait = new long[this.engines.size()];
+		long[] sumStolen = new long[this.engines.size()];
 		for (int i = 0; i < numObservedTimeSteps; i++) {
 			StringBuffer sb = new StringBuffer();
 			sb.append("\t" + i);
@@ -544,6 +577,16 @@ public class QNetsimEngine implements MobsimEngine {
 			}
 			sb.append("\t" + min);
 			sb.append("\t" + max);
+			for (int j = 0; j < this.engines.size(); j++) {
+				long waitTime = this.engines.get(j).waitTimes[i];
+				sumWait[j] += waitTime;
+				sb.append("\t" + waitTime);
+			}
+			for (int j = 0; j < this.engines.size(); j++) {
+				int stolen = this.engines.get(j).stolenElements[i];
+				sumStolen[j] += stolen;
+				sb.append("\t" + stolen);
+			}
 			if (printRunTimesPerTimeStep) log.info(sb.toString());
 			sumMin += min;
 			sumMax += max;
@@ -551,6 +594,14 @@ public class QNetsimEngine implements MobsimEngine {
 		log.info("sum min run times: " + sumMin);
 		log.info("sum max run times: " + sumMax);
 		log.info("sum all run times / num threads: " + sum / this.numOfThreads);
+		for (int j = 0; j < this.engines.size(); j++) {
+			long busy = 0;
+			for (int i = 0; i < numObservedTimeSteps; i++) {
+				busy += this.engines.get(j).runTimes[i] - this.engines.get(j).waitTimes[i];
+			}
+			log.info("thread_" + j + ": busy " + busy + ", waiting at separation barrier " + sumWait[j]
+					+ ", stolen nodes and links " + sumStolen[j]);
+		}
 	}
 	
 	private static class NamedThreadFactory implements ThreadFactory {
@@ -27,6 +27,7 @@ import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * These are the "threads" of the {@link QNetsimEngine}. The "run()" method is implicitly called by starting the thread.
@@ -76,11 +77,36 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 
 	private boolean movingNodes;
 
+	/*
+	 * With work stealing, the active nodes and links are kept in WorkQueues instead of
+	 * the nodesQueue and the linksList. At the beginning of each phase, every runner takes
+	 * a snapshot of its active elements. The elements of the snapshot are then claimed in
+	 * chunks, first by the runner itself and, once it has nothing left to do, by the other
+	 * runners. An element is thus moved by exactly one runner per time step, but it stays
+	 * registered at its runner, so the activation logic does not change.
+	 * The phases are counted by every runner; a runner only steals from runners that have
+	 * already prepared the same phase.
+	 */
+	private List<QNetsimEngineRunner> runners = null;
+	private int runnerIndex;
+	private int phase = 0;
+	private final WorkQueue<QNode> nodeWork = new WorkQueue<>();
+	private final WorkQueue<QLinkI> linkWork = new WorkQueue<>();
+
 	/*package*/ long[] runTimes;
+	/*package*/ long[] waitTimes;
+	/*package*/ int[] stolenElements;
 	private long startTime = 0;
 	{	
-		if (QSim.analyzeRunTimes) runTimes = new long[QNetsimEngine.numObservedTimeSteps];
-		else runTimes = null;
+		if (QSim.analyzeRunTimes) {
+			runTimes = new long[QNetsimEngine.numObservedTimeSteps];
+			waitTimes = new long[QNetsimEngine.numObservedTimeSteps];
+			stolenElements = new int[QNetsimEngine.numObservedTimeSteps];
+		} else {
+			runTimes = null;
+			waitTimes = null;
+			stolenElements = null;
+		}
 	}
 	
 	/*package*/ QNetsimEngineRunner(Phaser startBarrier, Phaser separationBarrier, Phaser endBarrier) {
@@ -100,6 +126,15 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		time = t;
 	}
 
+	/**
+	 * Enables work stealing between the given runners. Must be called for all runners
+	 * before any node or link is activated.
+	 */
+	/*package*/ void setWorkStealingRunners(final List<QNetsimEngineRunner> runners, final int runnerIndex) {
+		this.runners = runners;
+		this.runnerIndex = runnerIndex;
+	}
+
 	public void afterSim() {
 		this.simulationRunning = false;
 	}
@@ -147,14 +182,19 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 			moveNodes();
 
 			// After moving the QNodes all we use a Phaser to synchronize the threads.
+			long waitStart = QSim.analyzeRunTimes ? System.nanoTime() : 0;
 			this.separationBarrier.arriveAndAwaitAdvance();
+			long waitTime = QSim.analyzeRunTimes ? System.nanoTime() - waitStart : 0;
 
 			moveLinks();
 
 			if (QSim.analyzeRunTimes) {
 				long end = System.nanoTime();
 				int bin = (int) this.time;
-				if (bin < this.runTimes.length) this.runTimes[bin] = end - this.startTime;
+				if (bin < this.runTimes.length) {
+					this.runTimes[bin] = end - this.startTime;
+					this.waitTimes[bin] = waitTime;
+				}
 			}
 			
 			/*
@@ -165,6 +205,10 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		}
 	}
 	private void moveNodes() {
+		if (this.runners != null) {
+			moveNodesWithWorkStealing();
+			return;
+		}
 		boolean remainsActive;
 		this.lockNodes = true;
 		QNode node;
@@ -177,6 +221,10 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		this.lockNodes = false;
 	}
 	private void moveLinks() {
+		if (this.runners != null) {
+			moveLinksWithWorkStealing();
+			return;
+		}
 		boolean remainsActive;
 		lockLinks = true;
 		QLinkI link;
@@ -191,6 +239,65 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		lockLinks = false;
 	}
 
+	private void moveNodesWithWorkStealing() {
+		this.lockNodes = true;
+		this.phase++;
+		this.nodeWork.prepare(this.phase);
+		moveNodes(this.nodeWork);
+		int stolen = 0;
+		for (int i = 1; i < this.runners.size(); i++) {
+			stolen += moveNodes(this.runners.get((this.runnerIndex + i) % this.runners.size()).nodeWork);
+		}
+		countStolenElements(stolen);
+		this.lockNodes = false;
+	}
+
+	private int moveNodes(final WorkQueue<QNode> work) {
+		int moved = 0;
+		int start;
+		while ((start = work.claim(this.phase)) >= 0) {
+			int end = Math.min(start + WorkQueue.CHUNK_SIZE, work.size);
+			for (int i = start; i < end; i++) {
+				work.remainsActive[i] = work.get(i).doSimStep(this.time);
+			}
+			moved += end - start;
+		}
+		return moved;
+	}
+
+	private void moveLinksWithWorkStealing() {
+		this.lockLinks = true;
+		this.phase++;
+		this.linkWork.prepare(this.phase);
+		moveLinks(this.linkWork);
+		int stolen = 0;
+		for (int i = 1; i < this.runners.size(); i++) {
+			stolen += moveLinks(this.runners.get((this.runnerIndex + i) % this.runners.size()).linkWork);
+		}
+		countStolenElements(stolen);
+		this.lockLinks = false;
+	}
+
+	private int moveLinks(final WorkQueue<QLinkI> work) {
+		int moved = 0;
+		int start;
+		while ((start = work.claim(this.phase)) >= 0) {
+			int end = Math.min(start + WorkQueue.CHUNK_SIZE, work.size);
+			for (int i = start; i < end; i++) {
+				work.remainsActive[i] = work.get(i).doSimStep();
+			}
+			moved += end - start;
+		}
+		return moved;
+	}
+
+	private void countStolenElements(final int stolen) {
+		if (QSim.analyzeRunTimes) {
+			int bin = (int) this.time;
+			if (bin < this.stolenElements.length) this.stolenElements[bin] += stolen;
+		}
+	}
+
 	/*
 	 * This method is only called while links are NOT "moved", i.e. their
 	 * doStimStep(...) methods are called. To ensure that, we  use a boolean lock.
@@ -198,12 +305,16 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 	 */
 	@Override
 	protected void registerLinkAsActive(QLinkI link) {
-		if (!lockLinks) linksList.add(link);
+		if (!lockLinks) {
+			if (this.runners != null) this.linkWork.add(link);
+			else linksList.add(link);
+		}
 		else throw new RuntimeException("Tried to activate a QLink at a time where this was not allowed. Aborting!");
 	}
 
 	@Override
 	public int getNumberOfSimulatedLinks() {
+		if (this.runners != null) return this.linkWork.getNumberOfActiveElements();
 		return this.linksList.size();
 	}
 
@@ -214,7 +325,10 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 	 */
 	@Override
 	protected void registerNodeAsActive(QNode node) {
-		if (!this.lockNodes) this.nodesQueue.add(node);
+		if (!this.lockNodes) {
+			if (this.runners != null) this.nodeWork.add(node);
+			else this.nodesQueue.add(node);
+		}
 		else throw new RuntimeException("Tried to activate a QNode at a time where this was not allowed. Aborting!");
 	}
 
@@ -226,10 +340,90 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 	 */
 	@Override
 	public int getNumberOfSimulatedNodes() {
+		if (this.runners != null) return this.nodeWork.getNumberOfActiveElements();
 		return this.nodesQueue.size();
 	}
 
+	/*package*/ boolean hasActiveNodesOrLinks() {
+		if (this.runners != null) return this.nodeWork.hasActiveElements() || this.linkWork.hasActiveElements();
+		return !this.nodesQueue.isEmpty() || !this.linksList.isEmpty();
+	}
+
 	public void setMovingNodes(boolean movingNodes) {
 		this.movingNodes = movingNodes;
 	}
+
+	/**
+	 * The active elements of one runner, used with work stealing. Elements can be added concurrently
+	 * from several threads. The elements that became inactive in the last phase are only removed when
+	 * the next snapshot is taken, since other runners might still be moving them until then.
+	 */
+	private static final class WorkQueue<T> {
+
+		/*package*/ static final int CHUNK_SIZE = 32;
+
+		private final List<T> active = new ArrayList<>();
+		private Object[] elements = new Object[0];
+		/*package*/ boolean[] remainsActive = new boolean[0];
+		/*package*/ int size = 0;
+		private final AtomicInteger next = new AtomicInteger();
+		private volatile int preparedPhase = -1;
+
+		/*package*/ synchronized void add(final T element) {
+			this.active.add(element);
+		}
+
+		/**
+		 * Removes the elements that did not remain active in the last phase and takes a snapshot of the
+		 * remaining and newly added ones, which can then be claimed for the given phase.
+		 */
+		/*package*/ synchronized void prepare(final int phase) {
+			int kept = 0;
+			for (int i = 0; i < this.active.size(); i++) {
+				if (i >= this.size || this.remainsActive[i]) {
+					this.active.set(kept++, this.active.get(i));
+				}
+			}
+			this.active.subList(kept, this.active.size()).clear();
+			this.size = kept;
+			if (this.elements.length < kept) {
+				this.elements = new Object[Math.max(kept, this.elements.length * 2)];
+				this.remainsActive = new boolean[this.elements.length];
+			}
+			this.elements = this.active.toArray(this.elements);
+			this.next.set(0);
+			this.preparedPhase = phase;
+		}
+
+		/**
+		 * @return the first index of the claimed chunk, or <code>-1</code> if there is nothing left to
+		 * claim or the snapshot for the given phase has not been taken yet.
+		 */
+		/*package*/ int claim(final int phase) {
+			if (this.preparedPhase != phase) return -1;
+			int start = this.next.getAndAdd(CHUNK_SIZE);
+			return start < this.size ? start : -1;
+		}
+
+		@SuppressWarnings("unchecked")
+		/*package*/ T get(final int index) {
+			return (T) this.elements[index];
+		}
+
+		/*package*/ synchronized boolean hasActiveElements() {
+			if (this.active.size() > this.size) return true;
+			for (int i = 0; i < this.size; i++) {
+				if (this.remainsActive[i]) return true;
+			}
+			return false;
+		}
+
+		/*package*/ synchronized int getNumberOfActiveElements() {
+			int count = this.active.size();
+			for (int i = 0; i < this.size; i++) {
+				if (!this.remainsActive[i]) count--;
+			}
+			return count;
+		}
+	}
 }
\ No newline at end of file
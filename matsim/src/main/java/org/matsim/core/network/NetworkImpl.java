@@ -27,6 +27,7 @@ import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Coord;
@@ -36,7 +37,7 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.NetworkFactory;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.scenario.Lockable;
-import org.matsim.core.utils.collections.QuadTree;
+import org.matsim.core.utils.collections.KDTree;
 
 /**
  * Design thoughts:<ul>
@@ -59,7 +60,13 @@ import org.matsim.core.utils.collections.QuadTree;
 
 	private final Map<Id<Link>, Link> links = new LinkedHashMap<>();
 
-	private QuadTree<Node> nodeQuadTree = null;
+	/* The node index is built lazily and not rebuilt for every change of the network. Nodes added since it
+	 * was built are searched linearly, removed ones are filtered out, until there are too many of them. */
+	private volatile KDTree<Node> nodeIndex = null;
+
+	private final List<Node> nodesNotInIndex = new ArrayList<>();
+
+	private final Set<Node> nodesRemovedFromIndex = new HashSet<>();
 
 	private LinkQuadTree linkQuadTree = null;
 
@@ -150,19 +157,9 @@ import org.matsim.core.utils.collections.QuadTree;
 					".\nNode is not added to the network.");
 		}
 		this.nodes.put(id, nn);
-		if (this.nodeQuadTree != null) {
-			if (Double.isInfinite(this.nodeQuadTree.getMinEasting())) {
-				// looks like the quad tree was initialized with infinite bounds, see MATSIM-278.
-				this.nodeQuadTree.clear();
-				this.nodeQuadTree = null;
-			} else if (this.nodeQuadTree.getMinEasting() <= nn.getCoord().getX() && this.nodeQuadTree.getMaxEasting() > nn.getCoord().getX()
-					&& this.nodeQuadTree.getMinNorthing() <= nn.getCoord().getY() && this.nodeQuadTree.getMaxNorthing() > nn.getCoord().getY()) {
-				this.nodeQuadTree.put(nn.getCoord().getX(), nn.getCoord().getY(), nn);
-			} else {
-				// we add a node outside the current bounds, invalidate it
-				this.nodeQuadTree.clear();
-				this.nodeQuadTree = null;
-			}
+		if (this.nodeIndex != null) {
+			this.nodesNotInIndex.add(nn);
+			invalidateNodeIndexIfOutdated();
 		}
 
 		// show counter
@@ -192,8 +189,11 @@ import org.matsim.core.utils.collections.QuadTree;
 		for (Link l : links1) {
 			removeLink(l.getId());
 		}
-		if (this.nodeQuadTree != null) {
-			this.nodeQuadTree.remove(n.getCoord().getX(),n.getCoord().getY(),n);
+		if (this.nodeIndex != null) {
+			if (!this.nodesNotInIndex.remove(n)) {
+				this.nodesRemovedFromIndex.add(n);
+			}
+			invalidateNodeIndexIfOutdated();
 		}
 		return n;
 	}
@@ -318,8 +318,27 @@ import org.matsim.core.utils.collections.QuadTree;
 	 * @return the closest node found, null if none
 	 */
 	@Override public Node getNearestNode(final Coord coord) {
-		if (this.nodeQuadTree == null) { buildQuadTree(); }
-		return this.nodeQuadTree.getClosest(coord.getX(), coord.getY());
+		KDTree<Node> index = getNodeIndex();
+		Node nearest = null;
+		if (this.nodesRemovedFromIndex.isEmpty()) {
+			nearest = index.getClosest(coord.getX(), coord.getY());
+		} else {
+			for (Node node : index.getKNearest(coord.getX(), coord.getY(), this.nodesRemovedFromIndex.size() + 1)) {
+				if (!this.nodesRemovedFromIndex.contains(node)) {
+					nearest = node;
+					break;
+				}
+			}
+		}
+		double nearestDistance2 = nearest == null ? Double.POSITIVE_INFINITY : distance2(nearest.getCoord(), coord);
+		for (Node node : this.nodesNotInIndex) {
+			double distance2 = distance2(node.getCoord(), coord);
+			if (distance2 < nearestDistance2) {
+				nearestDistance2 = distance2;
+				nearest = node;
+			}
+		}
+		return nearest;
 	}
 
 	/**
@@ -330,8 +349,23 @@ import org.matsim.core.utils.collections.QuadTree;
 	 * @return all nodes within distance to <code>coord</code>
 	 */
 	@Override public Collection<Node> getNearestNodes(final Coord coord, final double distance) {
-		if (this.nodeQuadTree == null) { buildQuadTree(); }
-		return this.nodeQuadTree.getDisk(coord.getX(), coord.getY(), distance);
+		KDTree<Node> index = getNodeIndex();
+		Collection<Node> nodes = index.getDisk(coord.getX(), coord.getY(), distance);
+		if (!this.nodesRemovedFromIndex.isEmpty()) {
+			nodes.removeAll(this.nodesRemovedFromIndex);
+		}
+		for (Node node : this.nodesNotInIndex) {
+			if (distance2(node.getCoord(), coord) <= distance * distance) {
+				nodes.add(node);
+			}
+		}
+		return nodes;
+	}
+
+	private static double distance2(final Coord a, final Coord b) {
+		double dx = a.getX() - b.getX();
+		double dy = a.getY() - b.getY();
+		return dx * dx + dy * dy;
 	}
 
 	@Override
@@ -359,40 +393,49 @@ import org.matsim.core.utils.collections.QuadTree;
 	//	}
 	// it is safer if all functionality that could be done here is either done lazily or directly when nodes/links are added.  kai, jul'16
 
-	synchronized private void buildQuadTree() {
-		/* the method must be synchronized to ensure we only build one quadTree
-		 * in case that multiple threads call a method that requires the quadTree.
+	private KDTree<Node> getNodeIndex() {
+		KDTree<Node> index = this.nodeIndex;
+		if (index == null) {
+			index = buildNodeIndex();
+		}
+		return index;
+	}
+
+	synchronized private KDTree<Node> buildNodeIndex() {
+		/* the method must be synchronized to ensure we only build one index
+		 * in case that multiple threads call a method that requires the index.
 		 */
-		if (this.nodeQuadTree != null) {
-			return;
+		if (this.nodeIndex != null) {
+			return this.nodeIndex;
 		}
 		double startTime = System.currentTimeMillis();
-		double minx = Double.POSITIVE_INFINITY;
-		double miny = Double.POSITIVE_INFINITY;
-		double maxx = Double.NEGATIVE_INFINITY;
-		double maxy = Double.NEGATIVE_INFINITY;
+		log.info("building KDTree for " + this.nodes.size() + " nodes");
+		KDTree.Builder<Node> builder = new KDTree.Builder<>();
 		for (Node n : this.nodes.values()) {
-			if (n.getCoord().getX() < minx) { minx = n.getCoord().getX(); }
-			if (n.getCoord().getY() < miny) { miny = n.getCoord().getY(); }
-			if (n.getCoord().getX() > maxx) { maxx = n.getCoord().getX(); }
-			if (n.getCoord().getY() > maxy) { maxy = n.getCoord().getY(); }
+			builder.add(n.getCoord().getX(), n.getCoord().getY(), n);
 		}
-		minx -= 1.0;
-		miny -= 1.0;
-		maxx += 1.0;
-		maxy += 1.0;
-		// yy the above four lines are problematic if the coordinate values are much smaller than one. kai, oct'15
+		KDTree<Node> index = builder.build();
+		this.nodesNotInIndex.clear();
+		this.nodesRemovedFromIndex.clear();
+		/* assign the index at the very end, when it is complete.
+		 * otherwise, other threads may already start working on an incomplete index
+		 */
+		this.nodeIndex = index;
+		log.info("Building KDTree took " + ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds.");
+		return index;
+	}
 
-		log.info("building QuadTree for nodes: xrange(" + minx + "," + maxx + "); yrange(" + miny + "," + maxy + ")");
-		QuadTree<Node> quadTree = new QuadTree<>(minx, miny, maxx, maxy);
-		for (Node n : this.nodes.values()) {
-			quadTree.put(n.getCoord().getX(), n.getCoord().getY(), n);
+	/**
+	 * Drops the node index when so many nodes were added or removed since it was built that searching
+	 * them separately costs more than building it again at the next query.
+	 */
+	private void invalidateNodeIndexIfOutdated() {
+		int changes = this.nodesNotInIndex.size() + this.nodesRemovedFromIndex.size();
+		if (changes > 64 + this.nodeIndex.size() / 16) {
+			this.nodeIndex = null;
+			this.nodesNotInIndex.clear();
+			this.nodesRemovedFromIndex.clear();
 		}
-		/* assign the quadTree at the very end, when it is complete.
-		 * otherwise, other threads may already start working on an incomplete quadtree
-		 */
-		this.nodeQuadTree = quadTree;
-		log.info("Building QuadTree took " + ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds.");
 	}
 
 	synchronized private void buildLinkQuadTree() {
@@ -0,0 +1,477 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PackedPlan.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Customizable;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.LinkNetworkRouteImpl;
+import org.matsim.core.scenario.CustomizableUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * A plan that can store its plan elements in a compact binary form. While packed, a plan needs a
+ * few bytes per activity or leg and a few bytes per link of a network route, instead of several
+ * objects per plan element. Ids are stored by their {@link Id#index()} within the type they are read back as.
+ * <p/>
+ * The plan elements are unpacked as soon as they are accessed, so the plan behaves like any other plan.
+ * Score, type and person can be accessed without unpacking the plan, so plan selection does not need
+ * to unpack the plans. Only plans consisting of {@link ActivityImpl}s and {@link LegImpl}s with either
+ * no route, a {@link LinkNetworkRouteImpl} or a {@link GenericRouteImpl} can be packed.
+ *
+ * @see PlansPacker
+ */
+/* deliberately package */ final class PackedPlan implements Plan {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final byte ACTIVITY = 0;
+	private static final byte LEG = 1;
+
+	private static final byte NO_ROUTE = 0;
+	private static final byte GENERIC_ROUTE = 1;
+	private static final byte NETWORK_ROUTE = 2;
+
+	private static final int HAS_COORD = 1;
+	private static final int HAS_LINK = 2;
+	private static final int HAS_FACILITY = 4;
+
+	private Double score = null;
+	private Person person = null;
+	private String type = null;
+	private Customizable customizableDelegate;
+
+	/** the unpacked plan elements, <code>null</code> while the plan is packed */
+	private ArrayList<PlanElement> planElements = null;
+	/** the packed plan elements, <code>null</code> while the plan is unpacked */
+	private byte[] data = null;
+
+	/**
+	 * Creates a packed copy of the given plan. The plan elements are not copied, but packed and unpacked again
+	 * if needed, so the given plan must not be used anymore afterwards.
+	 */
+	/*package*/ PackedPlan(final Plan plan) {
+		this.score = plan.getScore();
+		this.person = plan.getPerson();
+		this.type = plan.getType();
+		Map<String, Object> attributes = plan.getCustomAttributes();
+		if (!attributes.isEmpty()) {
+			getCustomAttributes().putAll(attributes);
+		}
+		this.planElements = new ArrayList<>(plan.getPlanElements());
+		pack();
+	}
+
+	/**
+	 * @return <code>true</code> if all plan elements of the given plan can be packed
+	 */
+	/*package*/ static boolean isPackable(final Plan plan) {
+		for (PlanElement pe : plan.getPlanElements()) {
+			if (pe.getClass() == LegImpl.class) {
+				Route route = ((Leg) pe).getRoute();
+				if (route != null && route.getClass() != GenericRouteImpl.class && route.getClass() != LinkNetworkRouteImpl.class) {
+					return false;
+				}
+			} else if (pe.getClass() != ActivityImpl.class) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*package*/ boolean isPacked() {
+		return this.data != null;
+	}
+
+	/**
+	 * Packs the plan elements if they were unpacked and can be packed, otherwise does nothing.
+	 */
+	/*package*/ void pack() {
+		if (this.planElements == null || !isPackable(this)) {
+			return;
+		}
+		Encoder encoder = new Encoder();
+		encoder.writeInt(this.planElements.size());
+		for (PlanElement pe : this.planElements) {
+			if (pe instanceof Activity) {
+				encoder.writeByte(ACTIVITY);
+				writeActivity(encoder, (Activity) pe);
+			} else {
+				encoder.writeByte(LEG);
+				writeLeg(encoder, (Leg) pe);
+			}
+		}
+		this.data = Arrays.copyOf(encoder.data, encoder.size);
+		this.planElements = null;
+	}
+
+	private void unpack() {
+		Decoder decoder = new Decoder(this.data);
+		int size = decoder.readInt();
+		ArrayList<PlanElement> elements = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			if (decoder.readByte() == ACTIVITY) {
+				elements.add(readActivity(decoder));
+			} else {
+				elements.add(readLeg(decoder));
+			}
+		}
+		this.planElements = elements;
+		this.data = null;
+	}
+
+	/**
+	 * @return the index of the id among the ids of the given type. An id created with another type, e.g. a link id
+	 * held as Id&lt;Node&gt;, has another index, so the index of the id of the given type with the same key is used.
+	 */
+	private static int getIndex(final Id<?> id, final Class<?> idClass) {
+		int index = id.index();
+		if (Id.get(index, idClass) != id) {
+			// the id was created with another type, use the id of the given type with the same key
+			index = Id.create(id.toString(), idClass).index();
+		}
+		return index;
+	}
+
+	private static void writeActivity(final Encoder encoder, final Activity act) {
+		encoder.writeString(act.getType());
+		int flags = (act.getCoord() == null ? 0 : HAS_COORD) | (act.getLinkId() == null ? 0 : HAS_LINK)
+				| (act.getFacilityId() == null ? 0 : HAS_FACILITY);
+		encoder.writeByte((byte) flags);
+		if (act.getCoord() != null) {
+			encoder.writeDouble(act.getCoord().getX());
+			encoder.writeDouble(act.getCoord().getY());
+		}
+		if (act.getLinkId() != null) {
+			encoder.writeInt(getIndex(act.getLinkId(), Link.class));
+		}
+		if (act.getFacilityId() != null) {
+			encoder.writeInt(getIndex(act.getFacilityId(), ActivityFacility.class));
+		}
+		encoder.writeTime(act.getStartTime());
+		encoder.writeTime(act.getEndTime());
+		encoder.writeTime(act.getMaximumDuration());
+	}
+
+	private static Activity readActivity(final Decoder decoder) {
+		ActivityImpl act = new ActivityImpl(decoder.readString());
+		int flags = decoder.readByte();
+		if ((flags & HAS_COORD) != 0) {
+			act.setCoord(new Coord(decoder.readDouble(), decoder.readDouble()));
+		}
+		if ((flags & HAS_LINK) != 0) {
+			act.setLinkId(Id.get(decoder.readInt(), Link.class));
+		}
+		if ((flags & HAS_FACILITY) != 0) {
+			act.setFacilityId(Id.get(decoder.readInt(), ActivityFacility.class));
+		}
+		act.setStartTime(decoder.readTime());
+		act.setEndTime(decoder.readTime());
+		act.setMaximumDuration(decoder.readTime());
+		return act;
+	}
+
+	private static void writeLeg(final Encoder encoder, final Leg leg) {
+		encoder.writeString(leg.getMode());
+		encoder.writeTime(leg.getDepartureTime());
+		encoder.writeTime(leg.getTravelTime());
+		Route route = leg.getRoute();
+		if (route == null) {
+			encoder.writeByte(NO_ROUTE);
+			return;
+		}
+		encoder.writeByte(route instanceof LinkNetworkRouteImpl ? NETWORK_ROUTE : GENERIC_ROUTE);
+		encoder.writeId(route.getStartLinkId(), Link.class);
+		encoder.writeId(route.getEndLinkId(), Link.class);
+		encoder.writeDouble(route.getDistance());
+		encoder.writeTime(route.getTravelTime());
+		if (route instanceof LinkNetworkRouteImpl) {
+			LinkNetworkRouteImpl networkRoute = (LinkNetworkRouteImpl) route;
+			encoder.writeDouble(networkRoute.getTravelCost());
+			encoder.writeId(networkRoute.getVehicleId(), Vehicle.class);
+			List<Id<Link>> linkIds = networkRoute.getLinkIds();
+			encoder.writeInt(linkIds.size());
+			for (Id<Link> linkId : linkIds) {
+				encoder.writeInt(getIndex(linkId, Link.class));
+			}
+		} else {
+			encoder.writeNullableString(((GenericRouteImpl) route).getRouteDescription());
+		}
+	}
+
+	private static Leg readLeg(final Decoder decoder) {
+		LegImpl leg = new LegImpl(decoder.readString());
+		leg.setDepartureTime(decoder.readTime());
+		leg.setTravelTime(decoder.readTime());
+		byte routeType = decoder.readByte();
+		if (routeType == NO_ROUTE) {
+			return leg;
+		}
+		Id<Link> startLinkId = decoder.readId(Link.class);
+		Id<Link> endLinkId = decoder.readId(Link.class);
+		double distance = decoder.readDouble();
+		double travelTime = decoder.readTime();
+		if (routeType == NETWORK_ROUTE) {
+			double travelCost = decoder.readDouble();
+			Id<Vehicle> vehicleId = decoder.readId(Vehicle.class);
+			@SuppressWarnings("unchecked")
+			Id<Link>[] linkIds = new Id[decoder.readInt()];
+			for (int i = 0; i < linkIds.length; i++) {
+				linkIds[i] = Id.get(decoder.readInt(), Link.class);
+			}
+			LinkNetworkRouteImpl route = new LinkNetworkRouteImpl(startLinkId, linkIds, endLinkId);
+			route.setDistance(distance);
+			route.setTravelTime(travelTime);
+			route.setTravelCost(travelCost);
+			route.setVehicleId(vehicleId);
+			leg.setRoute(route);
+		} else {
+			GenericRouteImpl route = new GenericRouteImpl(startLinkId, endLinkId);
+			route.setDistance(distance);
+			route.setTravelTime(travelTime);
+			route.setRouteDescription(decoder.readNullableString());
+			leg.setRoute(route);
+		}
+		return leg;
+	}
+
+	@Override
+	public Person getPerson() {
+		return this.person;
+	}
+
+	@Override
+	public void setPerson(final Person person) {
+		this.person = person;
+	}
+
+	@Override
+	public Double getScore() {
+		return this.score;
+	}
+
+	@Override
+	public void setScore(final Double score) {
+		this.score = score;
+	}
+
+	@Override
+	public String getType() {
+		return this.type;
+	}
+
+	@Override
+	public void setType(final String type) {
+		this.type = type;
+	}
+
+	@Override
+	public List<PlanElement> getPlanElements() {
+		if (this.planElements == null) {
+			unpack();
+		}
+		return this.planElements;
+	}
+
+	@Override
+	public void addLeg(final Leg leg) {
+		getPlanElements().add(leg);
+	}
+
+	@Override
+	public void addActivity(final Activity act) {
+		getPlanElements().add(act);
+	}
+
+	@Override
+	public Map<String, Object> getCustomAttributes() {
+		if (this.customizableDelegate == null) {
+			this.customizableDelegate = CustomizableUtils.createCustomizable();
+		}
+		return this.customizableDelegate.getCustomAttributes();
+	}
+
+	@Override
+	public String toString() {
+		String scoreString = "undefined";
+		if (this.getScore() != null) {
+			scoreString = this.getScore().toString();
+		}
+		String personIdString = "undefined" ;
+		if ( this.getPerson() != null ) {
+			personIdString = this.getPerson().getId().toString() ;
+		}
+		int size = this.planElements != null ? this.planElements.size() : new Decoder(this.data).readInt();
+
+		return "[score=" + scoreString + "]" +
+				"[nof_acts_legs=" + size + "]" +
+				"[type=" + this.type + "]" +
+				"[personId=" + personIdString + "]" +
+				"[packed=" + isPacked() + "]";
+	}
+
+	private static final class Encoder {
+		/*package*/ byte[] data = new byte[128];
+		/*package*/ int size = 0;
+
+		private void ensureCapacity(final int additional) {
+			if (this.size + additional > this.data.length) {
+				this.data = Arrays.copyOf(this.data, Math.max(this.size + additional, 2 * this.data.length));
+			}
+		}
+
+		/*package*/ void writeByte(final byte value) {
+			ensureCapacity(1);
+			this.data[this.size++] = value;
+		}
+
+		/** writes a non-negative int with 7 bits per byte */
+		/*package*/ void writeInt(int value) {
+			ensureCapacity(5);
+			while ((value & ~0x7F) != 0) {
+				this.data[this.size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.data[this.size++] = (byte) value;
+		}
+
+		/*package*/ void writeId(final Id<?> id, final Class<?> idClass) {
+			writeInt(id == null ? 0 : getIndex(id, idClass) + 1);
+		}
+
+		/*package*/ void writeDouble(final double value) {
+			ensureCapacity(8);
+			long bits = Double.doubleToRawLongBits(value);
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				this.data[this.size++] = (byte) (bits >>> shift);
+			}
+		}
+
+		/**
+		 * Times are mostly undefined or full seconds. Those are stored in a few bytes, all other values
+		 * are stored as double.
+		 */
+		/*package*/ void writeTime(final double time) {
+			if (time == Time.UNDEFINED_TIME) {
+				writeInt(0);
+			} else if (time >= 0 && time < (1 << 29) && time == (int) time) {
+				writeInt(((int) time + 1) << 1);
+			} else {
+				writeInt(1);
+				writeDouble(time);
+			}
+		}
+
+		/*package*/ void writeString(final String value) {
+			byte[] bytes = value.getBytes(UTF8);
+			writeInt(bytes.length);
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, this.data, this.size, bytes.length);
+			this.size += bytes.length;
+		}
+
+		/*package*/ void writeNullableString(final String value) {
+			if (value == null) {
+				writeByte((byte) 0);
+			} else {
+				writeByte((byte) 1);
+				writeString(value);
+			}
+		}
+	}
+
+	private static final class Decoder {
+		private final byte[] data;
+		private int pos = 0;
+
+		/*package*/ Decoder(final byte[] data) {
+			this.data = data;
+		}
+
+		/*package*/ byte readByte() {
+			return this.data[this.pos++];
+		}
+
+		/*package*/ int readInt() {
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = this.data[this.pos++];
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			return value;
+		}
+
+		/*package*/ <T> Id<T> readId(final Class<T> idClass) {
+			int index = readInt();
+			return index == 0 ? null : Id.get(index - 1, idClass);
+		}
+
+		/*package*/ double readDouble() {
+			long bits = 0;
+			for (int i = 0; i < 8; i++) {
+				bits = (bits << 8) | (this.data[this.pos++] & 0xFF);
+			}
+			return Double.longBitsToDouble(bits);
+		}
+
+		/*package*/ double readTime() {
+			int value = readInt();
+			if (value == 0) {
+				return Time.UNDEFINED_TIME;
+			}
+			if (value == 1) {
+				return readDouble();
+			}
+			return (value >>> 1) - 1;
+		}
+
+		/*package*/ String readString() {
+			int length = readInt();
+			String value = new String(this.data, this.pos, length, UTF8).intern();
+			this.pos += length;
+			return value;
+		}
+
+		/*package*/ String readNullableString() {
+			return readByte() == 0 ? null : readString();
+		}
+	}
+
+}
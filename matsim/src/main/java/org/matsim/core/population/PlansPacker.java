@@ -0,0 +1,65 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PlansPacker.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.population;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.listener.BeforeMobsimListener;
+
+import com.google.inject.Inject;
+
+/**
+ * Replaces all plans that are not selected by {@link PackedPlan}s, and packs packed plans again
+ * that were unpacked during the last iteration. Plans that are not selected are normally only
+ * looked at by the plan selectors, which only need the score, so they can be kept packed.
+ */
+/* deliberately package */ class PlansPacker implements BeforeMobsimListener {
+
+	@Inject private Population population;
+
+	@Override
+	public void notifyBeforeMobsim(BeforeMobsimEvent event) {
+		for (Person person : this.population.getPersons().values()) {
+			Plan selectedPlan = person.getSelectedPlan();
+			List<? extends Plan> plans = person.getPlans();
+			for (int i = 0; i < plans.size(); i++) {
+				Plan plan = plans.get(i);
+				if (plan == selectedPlan) {
+					continue;
+				}
+				if (plan instanceof PackedPlan) {
+					((PackedPlan) plan).pack();
+				} else if (plan.getClass() == PlanImpl.class && PackedPlan.isPackable(plan)) {
+					replace(plans, i, new PackedPlan(plan));
+				}
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Plan> void replace(final List<T> plans, final int index, final Plan plan) {
+		plans.set(index, (T) plan);
+	}
+
+}
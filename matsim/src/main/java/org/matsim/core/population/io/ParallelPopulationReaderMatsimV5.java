@@ -0,0 +1,403 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV5.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.xml.sax.Attributes;
+
+/**
+ * Parallel implementation of the {@link PopulationReaderMatsimV5}. The reading thread does not parse
+ * the xml, it only searches the raw bytes for the boundaries of the <code>person</code> elements and
+ * cuts the file into chunks of several persons each. The chunks are parsed by worker threads, each
+ * using its own {@link PopulationReaderMatsimV5}. The reading thread collects the parsed persons and adds
+ * them to the population in the order of the file, so this reader also works with population
+ * streaming, the {@link org.matsim.core.population.algorithms.PersonAlgorithm}s of a
+ * {@link StreamingPopulationReader} are run on the reading thread.
+ * <p/>
+ * The chunks are parsed without validation against the DTD.
+ */
+/* deliberately package */ class ParallelPopulationReaderMatsimV5 implements MatsimReader {
+
+	private static final Logger log = Logger.getLogger(ParallelPopulationReaderMatsimV5.class);
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final byte[] PERSON_START = "<person".getBytes(UTF8);
+	private static final byte[] PERSON_END = "</person".getBytes(UTF8);
+	private static final byte[] COMMENT_START = "<!--".getBytes(UTF8);
+	private static final byte[] COMMENT_END = "-->".getBytes(UTF8);
+	private static final byte[] CDATA_START = "<![CDATA[".getBytes(UTF8);
+	private static final byte[] CDATA_END = "]]>".getBytes(UTF8);
+	private static final byte[] XML_DECLARATION_START = "<?xml".getBytes(UTF8);
+	private static final byte[] XML_DECLARATION_END = "?>".getBytes(UTF8);
+	private static final byte[] POPULATION_END = "</population>".getBytes(UTF8);
+	private static final byte[] CHUNK_START = "<population>".getBytes(UTF8);
+
+	private static final int CHUNK_SIZE = 1 << 18;
+	private static final int READ_SIZE = 1 << 16;
+
+	private final CoordinateTransformation coordinateTransformation;
+	private final Scenario scenario;
+	private final Population population;
+	private final int numThreads;
+
+	private InputStream in;
+	private byte[] data = new byte[2 * CHUNK_SIZE];
+	private int length = 0;
+	private boolean eof = false;
+	private byte[] chunkPrefix = CHUNK_START;
+
+	public ParallelPopulationReaderMatsimV5(
+			final CoordinateTransformation coordinateTransformation,
+			final Scenario scenario) {
+		this.coordinateTransformation = coordinateTransformation;
+		this.scenario = scenario;
+		this.population = scenario.getPopulation();
+		this.numThreads = Math.max(1, scenario.getConfig().global().getNumberOfThreads());
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		log.info("starting to parse population from file " + filename + " using " + this.numThreads + " threads...");
+		try (InputStream stream = IOUtils.getInputStream(filename)) {
+			parse(stream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void parse(final InputStream stream) {
+		this.in = stream;
+		this.length = 0;
+		this.eof = false;
+		ExecutorService executor = Executors.newFixedThreadPool(this.numThreads, new ThreadFactory() {
+			private int count = 0;
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, ParallelPopulationReaderMatsimV5.class.getSimpleName() + "." + this.count++);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		Deque<Future<List<Person>>> pending = new ArrayDeque<>();
+		try {
+			int chunkStart = readHeader();
+			if (chunkStart < 0) {
+				return;
+			}
+			int pos = chunkStart;
+			while (true) {
+				int tagStart = findTagStart(pos);
+				if (tagStart < 0) {
+					break;
+				}
+				pos = skipSpecialSection(tagStart);
+				if (pos > tagStart) {
+					continue;
+				}
+				if (matches(tagStart, PERSON_END)) {
+					pos = findTagEnd(tagStart);
+					if (pos - chunkStart >= CHUNK_SIZE) {
+						pending.add(executor.submit(new ChunkParser(Arrays.copyOfRange(this.data, chunkStart, pos))));
+						compact(pos);
+						pos = 0;
+						chunkStart = 0;
+						while (pending.size() > 2 * this.numThreads) {
+							addPersons(pending.poll());
+						}
+					}
+				} else {
+					pos = tagStart + 1;
+				}
+			}
+			int chunkEnd = lastIndexOf(POPULATION_END, chunkStart, this.length);
+			if (chunkEnd < 0) {
+				throw new IllegalArgumentException("The population is not terminated with " + new String(POPULATION_END, UTF8));
+			}
+			if (chunkEnd > chunkStart) {
+				pending.add(executor.submit(new ChunkParser(Arrays.copyOfRange(this.data, chunkStart, chunkEnd))));
+			}
+			while (!pending.isEmpty()) {
+				addPersons(pending.poll());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			executor.shutdownNow();
+			this.in = null;
+		}
+	}
+
+	private void addPersons(final Future<List<Person>> future) {
+		try {
+			for (Person person : future.get()) {
+				this.population.addPerson(person);
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+	}
+
+	/**
+	 * Parses everything up to the first person (i.e. the start of the population element) on the
+	 * reading thread, and remembers the xml declaration so the chunks are parsed with the same encoding.
+	 *
+	 * @return the position of the first person, or of the end of the population if there are no persons,
+	 * or -1 if the file is already completely read (i.e. the population element is empty)
+	 */
+	private int readHeader() throws IOException {
+		int pos = 0;
+		int headerEnd;
+		while (true) {
+			int tagStart = findTagStart(pos);
+			if (tagStart < 0) {
+				PopulationReaderMatsimV5 reader = new PopulationReaderMatsimV5(this.coordinateTransformation, this.scenario);
+				reader.setValidating(false);
+				reader.parse(new ByteArrayInputStream(this.data, 0, this.length));
+				return -1;
+			}
+			pos = skipSpecialSection(tagStart);
+			if (pos > tagStart) {
+				continue;
+			}
+			if (matches(tagStart, PERSON_START) || matches(tagStart, POPULATION_END)) {
+				headerEnd = tagStart;
+				break;
+			}
+			pos = tagStart + 1;
+		}
+		int declarationStart = indexOf(XML_DECLARATION_START, 0, headerEnd);
+		if (declarationStart >= 0) {
+			int declarationEnd = indexOf(XML_DECLARATION_END, declarationStart, headerEnd) + XML_DECLARATION_END.length;
+			byte[] declaration = Arrays.copyOfRange(this.data, declarationStart, declarationEnd);
+			this.chunkPrefix = new byte[declaration.length + CHUNK_START.length];
+			System.arraycopy(declaration, 0, this.chunkPrefix, 0, declaration.length);
+			System.arraycopy(CHUNK_START, 0, this.chunkPrefix, declaration.length, CHUNK_START.length);
+		}
+
+		PopulationReaderMatsimV5 headerReader = new PopulationReaderMatsimV5(this.coordinateTransformation, this.scenario);
+		headerReader.setValidating(false);
+		headerReader.parse(new SequenceInputStream(
+				new ByteArrayInputStream(this.data, 0, headerEnd),
+				new ByteArrayInputStream(POPULATION_END)));
+		return headerEnd;
+	}
+
+	/**
+	 * @return the position of the next '&lt;' at or after <code>pos</code>, with at least
+	 * enough bytes following it to recognize the tag, or -1 if there is none.
+	 */
+	private int findTagStart(int pos) throws IOException {
+		while (true) {
+			while (pos < this.length && this.data[pos] != '<') {
+				pos++;
+			}
+			if (pos < this.length) {
+				while (pos + CDATA_START.length > this.length && fill()) {
+					// make sure the complete tag name is available
+				}
+				return pos;
+			}
+			if (!fill()) {
+				return -1;
+			}
+		}
+	}
+
+	private int findTagEnd(int pos) throws IOException {
+		while (true) {
+			while (pos < this.length) {
+				if (this.data[pos++] == '>') {
+					return pos;
+				}
+			}
+			if (!fill()) {
+				throw new IllegalArgumentException("Unexpected end of population file.");
+			}
+		}
+	}
+
+	/**
+	 * Comments and CDATA sections may contain anything, so they must not be searched for tags.
+	 *
+	 * @return the position after the comment or CDATA section starting at <code>tagStart</code>,
+	 * or <code>tagStart</code> if there is none.
+	 */
+	private int skipSpecialSection(final int tagStart) throws IOException {
+		byte[] end;
+		if (matches(tagStart, COMMENT_START)) {
+			end = COMMENT_END;
+		} else if (matches(tagStart, CDATA_START)) {
+			end = CDATA_END;
+		} else {
+			return tagStart;
+		}
+		int from = tagStart + 2;
+		while (true) {
+			int index = indexOf(end, from, this.length);
+			if (index >= 0) {
+				return index + end.length;
+			}
+			from = Math.max(from, this.length - end.length);
+			if (!fill()) {
+				throw new IllegalArgumentException("Unexpected end of population file.");
+			}
+		}
+	}
+
+	/**
+	 * @return true if the bytes at <code>pos</code> start with <code>pattern</code>. For tag names, the name must
+	 * be followed by a character that cannot be part of the name.
+	 */
+	private boolean matches(final int pos, final byte[] pattern) {
+		if (pos + pattern.length > this.length) {
+			return false;
+		}
+		for (int i = 0; i < pattern.length; i++) {
+			if (this.data[pos + i] != pattern[i]) {
+				return false;
+			}
+		}
+		if (pattern == PERSON_START || pattern == PERSON_END) {
+			if (pos + pattern.length == this.length) {
+				return true;
+			}
+			byte next = this.data[pos + pattern.length];
+			return next == '>' || next == '/' || next == ' ' || next == '\t' || next == '\n' || next == '\r';
+		}
+		return true;
+	}
+
+	private int indexOf(final byte[] pattern, final int from, final int to) {
+		for (int pos = from; pos + pattern.length <= to; pos++) {
+			if (matches(pos, pattern)) {
+				return pos;
+			}
+		}
+		return -1;
+	}
+
+	private int lastIndexOf(final byte[] pattern, final int from, final int to) {
+		for (int pos = to - pattern.length; pos >= from; pos--) {
+			if (matches(pos, pattern)) {
+				return pos;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Reads more data into the buffer.
+	 *
+	 * @return <code>false</code> if the end of the stream is reached.
+	 */
+	private boolean fill() throws IOException {
+		if (this.eof) {
+			return false;
+		}
+		if (this.length + READ_SIZE > this.data.length) {
+			this.data = Arrays.copyOf(this.data, Math.max(2 * this.data.length, this.length + READ_SIZE));
+		}
+		int read = this.in.read(this.data, this.length, READ_SIZE);
+		if (read < 0) {
+			this.eof = true;
+			return false;
+		}
+		this.length += read;
+		return true;
+	}
+
+	/** Moves the data starting at <code>pos</code> to the beginning of the buffer. */
+	private void compact(final int pos) {
+		System.arraycopy(this.data, pos, this.data, 0, this.length - pos);
+		this.length -= pos;
+	}
+
+	/**
+	 * Parses the xml of some persons. The persons are returned instead of being added to the population,
+	 * so they can be added in the order of the file.
+	 */
+	private class ChunkParser implements Callable<List<Person>> {
+		private final byte[] chunk;
+
+		ChunkParser(final byte[] chunk) {
+			this.chunk = chunk;
+		}
+
+		@Override
+		public List<Person> call() {
+			final List<Person> persons = new ArrayList<>();
+			PopulationReaderMatsimV5 reader = new PopulationReaderMatsimV5(
+					ParallelPopulationReaderMatsimV5.this.coordinateTransformation,
+					ParallelPopulationReaderMatsimV5.this.scenario) {
+				@Override
+				public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+					if (!context.isEmpty()) {
+						// the chunk's population element is only needed to make the chunk a valid xml document
+						super.startTag(name, atts, context);
+					}
+				}
+
+				@Override
+				void addPerson(final Person person) {
+					persons.add(person);
+				}
+			};
+			reader.setValidating(false);
+			reader.parse(new SequenceInputStream(new SequenceInputStream(
+					new ByteArrayInputStream(ParallelPopulationReaderMatsimV5.this.chunkPrefix),
+					new ByteArrayInputStream(this.chunk)),
+					new ByteArrayInputStream(POPULATION_END)));
+			return persons;
+		}
+	}
+
+}
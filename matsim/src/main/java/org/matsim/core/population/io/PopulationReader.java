@@ -20,6 +20,9 @@
 
 package org.matsim.core.population.io;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
 import java.util.Stack;
 
 import org.apache.log4j.Logger;
@@ -28,6 +31,7 @@ import org.matsim.core.api.internal.MatsimReader;
 import org.matsim.core.population.io.StreamingPopulationReader.StreamingPopulation;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.io.MatsimXmlParser;
 import org.matsim.core.utils.io.UncheckedIOException;
 import org.xml.sax.Attributes;
@@ -74,6 +78,54 @@ public class PopulationReader extends MatsimXmlParser implements MatsimReader {
 		this.scenario = scenario;
 	}
 
+	/**
+	 * Like {@link #readFile(String)}, but population_v5 files are parsed by several threads (see global.numberOfThreads)
+	 * with the {@link ParallelPopulationReaderMatsimV5}. Unlike {@link #readFile(String)}, this does <i>not</i> validate
+	 * population_v5 files against their DTD.
+	 */
+	public void readFileInParallel(final String filename) throws UncheckedIOException {
+		if (isPopulationV5(IOUtils.getInputStream(filename))) {
+			new ParallelPopulationReaderMatsimV5(this.coordinateTransformation, this.scenario).readFile(filename);
+		} else {
+			readFile(filename);
+		}
+	}
+
+	/**
+	 * Like {@link #parse(URL)}, but population_v5 files are parsed in parallel and not validated, see
+	 * {@link #readFileInParallel(String)}.
+	 */
+	public void parseInParallel(final URL url) throws UncheckedIOException {
+		if (isPopulationV5(IOUtils.getInputStream(url))) {
+			log.info("starting to parse population from url " + url + " ...");
+			try (InputStream stream = IOUtils.getInputStream(url)) {
+				new ParallelPopulationReaderMatsimV5(this.coordinateTransformation, this.scenario).parse(stream);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		} else {
+			parse(url);
+		}
+	}
+
+	/**
+	 * Looks for the doctype in the beginning of the stream, without parsing it. population_v5 files are read with
+	 * the {@link ParallelPopulationReaderMatsimV5}, which needs the raw stream instead of a sax parser.
+	 */
+	private static boolean isPopulationV5(final InputStream stream) {
+		try (InputStream in = stream) {
+			byte[] header = new byte[4096];
+			int length = 0;
+			int read;
+			while (length < header.length && (read = in.read(header, length, header.length - length)) >= 0) {
+				length += read;
+			}
+			return new String(header, 0, length, "UTF-8").contains(POPULATION_V5);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
 	@Override
 	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
 		this.delegate.startTag(name, atts, context);
@@ -140,7 +140,7 @@ import org.xml.sax.Attributes;
 	@Override
 	public void endTag(final String name, final String content, final Stack<String> context) {
 		if (PERSON.equals(name)) {
-			this.plans.addPerson(this.currperson);
+			addPerson(this.currperson);
 			this.currperson = null;
 		} else if (PLAN.equals(name)) {
 			if (this.currplan.getPlanElements() instanceof ArrayList<?>) {
@@ -155,6 +155,14 @@ import org.xml.sax.Attributes;
 		}
 	}
 
+	/**
+	 * Called for each person once it is completely read. Overwritten by {@link ParallelPopulationReaderMatsimV5}
+	 * to collect the persons read by its worker threads.
+	 */
+	/*package*/ void addPerson(final Person person) {
+		this.plans.addPerson(person);
+	}
+
 	private void startPopulation(final Attributes atts) {
 		this.plans.setName(atts.getValue(ATTR_POPULATION_DESC));
 	}
@@ -44,6 +44,7 @@ public final class StreamingPopulationReader implements MatsimReader {
 	
 	private PopulationReader reader ;
 	private final StreamingPopulation pop ;
+	private final boolean usingParallelReader ;
 	private int cnt;
 
 	// algorithms over plans
@@ -57,6 +58,7 @@ public final class StreamingPopulationReader implements MatsimReader {
 			pop = new StreamingPopulation( scenario.getConfig() ) ;
 			((MutableScenario) scenario).setPopulation(pop);
 			reader = new PopulationReader( coordinateTransformation, scenario, true) ;
+			usingParallelReader = scenario.getConfig().plans().isUsingParallelPopulationReader() ;
 		} else {
 			throw new RuntimeException("scenario given into this class needs to be an instance of MutableScenario.") ;
 		}
@@ -65,7 +67,11 @@ public final class StreamingPopulationReader implements MatsimReader {
 		return pop ;
 	}
 	@Override public void readFile(String filename) {
-		reader.readFile(filename);
+		if ( usingParallelReader ) {
+			reader.readFileInParallel(filename);
+		} else {
+			reader.readFile(filename);
+		}
 	}
 	public void parse(InputStream is) {
 		reader.parse(is);
@@ -84,11 +84,23 @@ public class GenericPlanStrategyImpl<T extends BasicPlan, I> implements GenericP
 			log.error( planSelector+" returned no plan: not changing selected plan for person "+person );
 		}
 
+		runModules(person);
+	}
+
+	/**
+	 * Runs this strategy on a person whose plan was already selected as {@link #run(HasPlansAndId)} would do it,
+	 * i.e. only runs the modules on a copy of the selected plan.
+	 */
+	/*package*/ void runOnSelectedPlan(final HasPlansAndId<T, I> person) {
+		this.counter++;
+		runModules(person);
+	}
+
+	private void runModules(final HasPlansAndId<T, I> person) {
 		// if there is a "module" (i.e. "innovation"):
 		if (this.firstModule != null) {
-			
 			// set the working plan to a copy of the selected plan:
-			plan = person.createCopyOfSelectedPlanAndMakeSelected();
+			T plan = person.createCopyOfSelectedPlanAndMakeSelected();
 			
 			// add new plan to container that contains the plans that are handled by this PlanStrategy:
 			this.plans.add(plan);
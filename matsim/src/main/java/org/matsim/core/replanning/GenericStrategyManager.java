@@ -25,16 +25,26 @@ import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationStopWatch;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.population.BasicPlan;
 import org.matsim.api.core.v01.population.HasPlansAndId;
 import org.matsim.core.api.internal.MatsimManager;
 import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.replanning.selectors.BatchPlanSelection;
+import org.matsim.core.replanning.selectors.BatchPlanSelection.PlanScores;
 import org.matsim.core.replanning.selectors.PlanSelector;
 import org.matsim.core.replanning.selectors.GenericWorstPlanForRemovalSelector;
 import org.matsim.core.replanning.selectors.RandomPlanSelector;
+import org.matsim.core.replanning.selectors.RandomUnscoredPlanSelector;
 import org.matsim.core.replanning.selectors.WorstPlanForRemovalSelector;
 import org.matsim.utils.objectattributes.ObjectAttributes;
 
@@ -65,6 +75,9 @@ public class GenericStrategyManager<T extends BasicPlan, I extends HasPlansAndId
 		final Map<Integer, Map<GenericPlanStrategy<T, I>, Double>> changeRequests = new TreeMap<>();
 	}
 
+	private static final PlanSelector<BasicPlan, Object> RANDOM_SELECTOR = new RandomPlanSelector<>();
+	private static final PlanSelector<BasicPlan, Object> RANDOM_UNSCORED_SELECTOR = new RandomUnscoredPlanSelector<>();
+
 	private final Map<String, StrategyWeights<T, I>> weightsPerSubpopulation = new HashMap<>();
 
 	private int maxPlansPerAgent = 0;
@@ -73,6 +86,10 @@ public class GenericStrategyManager<T extends BasicPlan, I extends HasPlansAndId
 
 	private String subpopulationAttributeName = null;
 
+	private IterationStopWatch stopwatch = null;
+
+	private int batchSelectionThreads = 0;
+
 	/**
 	 * @param name the name of the subpopulation attribute
 	 * in the person's object attributes.
@@ -81,6 +98,30 @@ public class GenericStrategyManager<T extends BasicPlan, I extends HasPlansAndId
 		this.subpopulationAttributeName = name;
 	}
 
+	/**
+	 * @param stopwatch if not <code>null</code>, the time needed to finish each strategy with modules and the
+	 * number of plans it handled are recorded in this stop watch, so the throughput of the modules can be analyzed.
+	 */
+	public final void setIterationStopWatch(final IterationStopWatch stopwatch) {
+		this.stopwatch = stopwatch;
+	}
+
+	/**
+	 * Enables or disables the batch plan selection. With batch plan selection, the excess plans are removed,
+	 * the strategies are chosen and the plans are selected for all persons in parallel before any strategy
+	 * module runs, as long as the plan selectors are supported by {@link BatchPlanSelection}. Persons
+	 * with other strategies are handled as without batch selection, after the others have been prepared.
+	 * <p/>
+	 * Every person draws its random numbers from its own generator, seeded from one random number per
+	 * iteration and the person's id. So the results do not depend on the number of threads and are
+	 * reproducible, but they are not the same as without batch plan selection.
+	 *
+	 * @param numberOfThreads the number of threads to use, <code>0</code> to disable batch plan selection
+	 */
+	public final void setBatchPlanSelection(final int numberOfThreads) {
+		this.batchSelectionThreads = numberOfThreads;
+	}
+
 	/**
 	 * Adds a strategy to this manager with the specified weight. This weight
 	 * compared to the sum of weights of all strategies in this manager defines
@@ -190,7 +231,23 @@ public class GenericStrategyManager<T extends BasicPlan, I extends HasPlansAndId
 			strategy.init(replanningContext);
 		}
 
-		// then go through the population and ...
+		Map<GenericPlanStrategy<T, I>, long[]> planCounts = new HashMap<>();
+
+		if (this.batchSelectionThreads > 0 && isBatchSupported()) {
+			runBatched(persons, subPopLookup, planCounts);
+		} else {
+			runSequential(persons, subPopLookup, planCounts);
+		}
+
+		// finally make sure all strategies have finished there work
+		finishStrategies(planCounts);
+	}
+
+	private void runSequential(
+			final Iterable<? extends HasPlansAndId<T, I>> persons,
+			final ObjectAttributes subPopLookup,
+			final Map<GenericPlanStrategy<T, I>, long[]> planCounts) {
+		// go through the population and ...
 		for (HasPlansAndId<T, I> person : persons ) {
 
 			// ... reduce the number of plans to the allowed maximum (in evol comp lang this is "selection")
@@ -211,15 +268,206 @@ public class GenericStrategyManager<T extends BasicPlan, I extends HasPlansAndId
 			
 			// ... and run the strategy:
 			strategy.run(person);
+
+			countPlan(planCounts, strategy);
+		}
+	}
+
+	private void countPlan(final Map<GenericPlanStrategy<T, I>, long[]> planCounts, final GenericPlanStrategy<T, I> strategy) {
+		if (this.stopwatch != null) {
+			long[] count = planCounts.get(strategy);
+			if (count == null) {
+				count = new long[1];
+				planCounts.put(strategy, count);
+			}
+			count[0]++;
 		}
+	}
 
-		// finally make sure all strategies have finished there work
+	/**
+	 * @return <code>true</code> if the plans to remove can be selected by {@link BatchPlanSelection}, so the batch
+	 * selection is worth it.
+	 */
+	private boolean isBatchSupported() {
+		return this.maxPlansPerAgent <= 0 || BatchPlanSelection.isSupported(this.removalPlanSelector);
+	}
+
+	/**
+	 * @return the strategy as {@link GenericPlanStrategyImpl} if its plan can be selected by {@link BatchPlanSelection},
+	 * <code>null</code> otherwise
+	 */
+	private static <T extends BasicPlan, I> GenericPlanStrategyImpl<T, I> getBatchSelectable(final GenericPlanStrategy<T, I> strategy) {
+		if (strategy.getClass() != GenericPlanStrategyImpl.class && strategy.getClass() != PlanStrategyImpl.class) {
+			// subclasses might run the strategy differently
+			return null;
+		}
+		GenericPlanStrategyImpl<T, I> impl = (GenericPlanStrategyImpl<T, I>) strategy;
+		return BatchPlanSelection.isSupported(impl.getPlanSelector()) ? impl : null;
+	}
+
+	private void runBatched(
+			final Iterable<? extends HasPlansAndId<T, I>> persons,
+			final ObjectAttributes subPopLookup,
+			final Map<GenericPlanStrategy<T, I>, long[]> planCounts) {
+		final List<HasPlansAndId<T, I>> personList = new ArrayList<>();
+		for (HasPlansAndId<T, I> person : persons) {
+			personList.add(person);
+		}
+		final long iterationSeed = MatsimRandom.getRandom().nextLong();
+		final List<GenericPlanStrategy<T, I>> chosenStrategies = new ArrayList<>(Collections.<GenericPlanStrategy<T, I>>nCopies(personList.size(), null));
+		final boolean[] selected = new boolean[personList.size()];
+
+		int nOfThreads = Math.max(1, Math.min(this.batchSelectionThreads, personList.size()));
+		ExecutorService executor = Executors.newFixedThreadPool(nOfThreads);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < nOfThreads; i++) {
+			final int from = (int) ((long) i * personList.size() / nOfThreads);
+			final int to = (int) ((long) (i + 1) * personList.size() / nOfThreads);
+			futures.add(executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					selectBatch(personList, from, to, subPopLookup, iterationSeed, chosenStrategies, selected);
+				}
+			}));
+		}
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+
+		// the strategy modules are run in the order of the persons, as without batch selection
+		for (int i = 0; i < personList.size(); i++) {
+			HasPlansAndId<T, I> person = personList.get(i);
+			GenericPlanStrategy<T, I> strategy = chosenStrategies.get(i);
+			if (selected[i]) {
+				((GenericPlanStrategyImpl<T, I>) strategy).runOnSelectedPlan(person);
+			} else {
+				strategy.run(person);
+			}
+			countPlan(planCounts, strategy);
+		}
+	}
+
+	/**
+	 * Derives the seed of one person from the seed of the iteration and a hash of the person's id, with one step
+	 * of the SplitMix64 generator. Seeds of different persons thus differ in all bits, while adding a hash code of
+	 * the person to the iteration seed gives similar seeds for similar hash codes, whose first random numbers are
+	 * correlated in {@link Random}.
+	 */
+	/*package*/ static long mixSeed(final long iterationSeed, final long personHash) {
+		long z = iterationSeed + (personHash + 1L) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * A 64-bit FNV-1a hash of the id's string. Unlike {@link Id#index()}, which depends on the order in which the
+	 * ids were created in this JVM, this is the same in every run.
+	 */
+	/*package*/ static long hashId(final Id<?> id) {
+		String key = id.toString();
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			hash ^= key.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	private void selectBatch(
+			final List<HasPlansAndId<T, I>> persons, final int from, final int to,
+			final ObjectAttributes subPopLookup,
+			final long iterationSeed,
+			final List<GenericPlanStrategy<T, I>> chosenStrategies,
+			final boolean[] selected) {
+		Random random = new Random();
+		PlanScores scores = new PlanScores();
+		for (int i = from; i < to; i++) {
+			HasPlansAndId<T, I> person = persons.get(i);
+			random.setSeed(mixSeed(iterationSeed, hashId(person.getId())));
+
+			if ((this.maxPlansPerAgent > 0) && (person.getPlans().size() > this.maxPlansPerAgent)) {
+				removePlans(person, this.maxPlansPerAgent, scores, random);
+			}
+
+			String subpopName = null;
+			if (this.subpopulationAttributeName != null) {
+				subpopName = (String) subPopLookup.getAttribute(person.getId().toString(), this.subpopulationAttributeName);
+			}
+			// no getStrategyWeights(...) here, it is not thread-safe
+			GenericPlanStrategy<T, I> strategy = chooseStrategy(this.weightsPerSubpopulation.get(subpopName), random);
+			if (strategy == null) {
+				throw new RuntimeException("No strategy found! Have you defined at least one replanning strategy per subpopulation?");
+			}
+			chosenStrategies.set(i, strategy);
+
+			GenericPlanStrategyImpl<T, I> impl = getBatchSelectable(strategy);
+			if (impl != null) {
+				scores.set(person.getPlans(), person.getSelectedPlan());
+				// as in GenericPlanStrategyImpl: unscored plans are selected first
+				int index = BatchPlanSelection.selectPlan(RANDOM_UNSCORED_SELECTOR, scores, random);
+				if (index < 0) {
+					index = BatchPlanSelection.selectPlan(impl.getPlanSelector(), scores, random);
+				}
+				if (index >= 0) {
+					person.setSelectedPlan(person.getPlans().get(index));
+				} else {
+					log.error( impl.getPlanSelector()+" returned no plan: not changing selected plan for person "+person );
+				}
+				selected[i] = true;
+			}
+		}
+	}
+
+	private void removePlans(final HasPlansAndId<T, I> person, final int maxNumberOfPlans, final PlanScores scores, final Random random) {
+		while (person.getPlans().size() > maxNumberOfPlans) {
+			scores.set(person.getPlans(), person.getSelectedPlan());
+			T plan = person.getPlans().get(BatchPlanSelection.selectPlan(this.removalPlanSelector, scores, random));
+			boolean selected = plan == person.getSelectedPlan();
+			if (selected) {
+				// otherwise, some persons select a new plan with MatsimRandom, which is not thread-safe
+				person.setSelectedPlan(null);
+			}
+			person.removePlan(plan);
+			if (selected) {
+				scores.set(person.getPlans(), null);
+				int index = BatchPlanSelection.selectPlan(RANDOM_SELECTOR, scores, random);
+				if ( index < 0 ) {
+					throw new IllegalStateException( "could not find a plan to select for person "+person );
+				}
+				person.setSelectedPlan( person.getPlans().get(index) );
+			}
+		}
+	}
+
+	private void finishStrategies(final Map<GenericPlanStrategy<T, I>, long[]> planCounts) {
 		for (GenericPlanStrategy<T, I> strategy : distinctStrategies()) {
-			strategy.finish();
+			long[] count = planCounts.get(strategy);
+			if (count == null || isOnlySelector(strategy)) {
+				strategy.finish();
+			} else {
+				String operation = "replanning: " + strategy.toString();
+				this.stopwatch.beginOperation(operation);
+				strategy.finish();
+				this.stopwatch.endOperation(operation);
+				this.stopwatch.addOperationCount(operation, count[0]);
+			}
 		}
 
 	}
 
+	private static boolean isOnlySelector(final GenericPlanStrategy<?, ?> strategy) {
+		return strategy instanceof GenericPlanStrategyImpl && ((GenericPlanStrategyImpl<?, ?>) strategy).getNumberOfStrategyModules() == 0;
+	}
+
 	private Collection<GenericPlanStrategy<T, I>> distinctStrategies() {
 		// Leaving out duplicate strategies in different subpopulations
 		Collection<GenericPlanStrategy<T, I>> strategies = new LinkedHashSet<>();
@@ -271,7 +519,14 @@ public class GenericStrategyManager<T extends BasicPlan, I extends HasPlansAndId
 	protected GenericPlanStrategy<T, I> chooseStrategy(final String subpopulation) {
 		final StrategyWeights<T, I> weights = getStrategyWeights(subpopulation);
 
-		double rnd = MatsimRandom.getRandom().nextDouble() * weights.totalWeights;
+		return chooseStrategy(weights, MatsimRandom.getRandom());
+	}
+
+	private static <T extends BasicPlan, I> GenericPlanStrategy<T, I> chooseStrategy(final StrategyWeights<T, I> weights, final Random random) {
+		if (weights == null) {
+			return null;
+		}
+		double rnd = random.nextDouble() * weights.totalWeights;
 
 		double sum = 0.0;
 		for (int i = 0, max = weights.weights.size(); i < max; i++) {
@@ -21,11 +21,13 @@
 package org.matsim.core.replanning;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationStopWatch;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.internal.MatsimManager;
 import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.config.groups.PlansConfigGroup;
 import org.matsim.core.config.groups.StrategyConfigGroup;
 import org.matsim.core.replanning.selectors.PlanSelector;
@@ -50,9 +52,13 @@ public class StrategyManager implements MatsimManager {
 	private final GenericStrategyManager<Plan, Person> delegate;
 
 	@Inject
-	StrategyManager(StrategyConfigGroup strategyConfigGroup, PlansConfigGroup plansConfigGroup, ControlerConfigGroup controlerConfigGroup, Map<StrategyConfigGroup.StrategySettings, PlanStrategy> planStrategies) {
+	StrategyManager(StrategyConfigGroup strategyConfigGroup, PlansConfigGroup plansConfigGroup, ControlerConfigGroup controlerConfigGroup,
+			GlobalConfigGroup globalConfigGroup, Map<StrategyConfigGroup.StrategySettings, PlanStrategy> planStrategies) {
 		this();
 		setMaxPlansPerAgent(strategyConfigGroup.getMaxAgentPlanMemorySize());
+		if (strategyConfigGroup.isBatchPlanSelection()) {
+			setBatchPlanSelection(Math.max(1, globalConfigGroup.getNumberOfThreads()));
+		}
 
 		int globalInnovationDisableAfter = (int) ((controlerConfigGroup.getLastIteration() - controlerConfigGroup.getFirstIteration())
 				* strategyConfigGroup.getFractionOfIterationsToDisableInnovation() + controlerConfigGroup.getFirstIteration());
@@ -208,6 +214,13 @@ public class StrategyManager implements MatsimManager {
 		return strategy;
 	}
 
+	/**
+	 * @see GenericStrategyManager#setBatchPlanSelection(int)
+	 */
+	public final void setBatchPlanSelection(final int numberOfThreads) {
+		delegate.setBatchPlanSelection(numberOfThreads);
+	}
+
 	/**
 	 * Sets the maximal number of plans an agent can memorize. Setting
 	 * maxPlansPerAgent to zero means unlimited memory (only limited by RAM).
@@ -275,6 +288,15 @@ public class StrategyManager implements MatsimManager {
 		delegate.setPlanSelectorForRemoval(planSelector);
 	}
 
+	/**
+	 * Sets a stop watch in which the time needed by each strategy with modules and its throughput
+	 * in plans per second are recorded. Set by the controler, if available.
+	 */
+	@com.google.inject.Inject(optional = true)
+	public final void setIterationStopWatch(final IterationStopWatch stopwatch) {
+		delegate.setIterationStopWatch(stopwatch);
+	}
+
 	@Deprecated
 	public final List<GenericPlanStrategy<Plan, Person>> getStrategiesOfDefaultSubpopulation() {
 		return getStrategies(null);
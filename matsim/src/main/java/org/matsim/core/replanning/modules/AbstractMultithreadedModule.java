@@ -28,10 +28,14 @@ import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.utils.misc.Counter;
 
-import java.lang.Thread.UncaughtExceptionHandler;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An abstract strategy module for running multiple plan algorithms in parallel.
@@ -40,15 +44,24 @@ import java.util.concurrent.atomic.AtomicReference;
  * Just overwrite getPlanAlgoInstance() to return an instance of your plan
  * algorithm.
  * <p/>
- * <code>initThreads()</code> creates the threads, but does not yet start them.
+ * <code>prepareReplanning()</code> creates one plan algorithm instance per thread.
  * <p/>
- * <code>handlePlan(Plan)</code> distributes the plans equally to all threads.
+ * <code>handlePlan(Plan)</code> collects the plans.
  * <p/>
- * <code>finishReplanning()</code> finally starts the threads and waits for all threads to be finished.
+ * <code>finishReplanning()</code> runs one worker per plan algorithm instance on a thread pool
+ * that is shared by all modules and kept alive between iterations, and waits for all workers to be
+ * finished. Each plan algorithm instance is only ever used by one worker at a time.
  * <p/>
+ * By default, the plans are distributed equally to the workers in the order they were added.
  * While this approach does not lead to optimal performance gains ("slow threads" vs.
- * "fast threads"), it helps building reproducible runs.  Additionally, as the threads are only
- * started after all to-be-handled plans are added, we can use unsynchronized data structures.
+ * "fast threads"), it helps building reproducible runs, as each plan is always handled by the same
+ * plan algorithm instance (and thus, e.g., by the same random number generator).
+ * <p/>
+ * If work stealing is enabled ({@link GlobalConfigGroup#isUsingWorkStealingInReplanning()}), the workers
+ * instead take the plans in small chunks from the collected list, so that a worker that got plans which are
+ * fast to handle simply takes more chunks. Which instance handles which plan is then no longer fixed, so plan
+ * algorithms that draw random numbers from an instance-specific random number generator will not produce
+ * reproducible results with more than one thread.
  * <p/>
  * Design comments/questions:<ul>
  * <li> As a consequence of the design, the instances that getPlanAlgoInstance() returns, need to be thread-safe.  kai, dec'12
@@ -58,17 +71,20 @@ import java.util.concurrent.atomic.AtomicReference;
  * @author mrieser
  */
 abstract public class AbstractMultithreadedModule implements PlanStrategyModule {
+
+	/** The maximum number of plans a worker takes at once. */
+	private static final int MAX_CHUNK_SIZE = 64;
+
+	private static final ExecutorService executor = Executors.newCachedThreadPool(new WorkerThreadFactory());
+
 	private final int numOfThreads;
+	private final boolean usingWorkStealing;
 
-	private PlanAlgoThread[] algothreads = null;
-	private Thread[] threads = null;
+	private PlanAlgorithm[] algos = null;
 	private PlanAlgorithm directAlgo = null;
 	private String name = null;
 
-	private int count = 0;
-
-	private final AtomicReference<Throwable> hadException = new AtomicReference<>(null);
-	private final ExceptionHandler exceptionHandler = new ExceptionHandler(this.hadException);
+	private final List<Plan> plans = new ArrayList<>();
 
 	private ReplanningContext replanningContext;
 
@@ -84,10 +100,12 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	public AbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 		this.numOfThreads = globalConfigGroup.getNumberOfThreads();
+		this.usingWorkStealing = globalConfigGroup.isUsingWorkStealingInReplanning();
 	}
 
 	public AbstractMultithreadedModule(final int numOfThreads) {
 		this.numOfThreads = numOfThreads;
+		this.usingWorkStealing = false;
 	}
 	
 	protected void beforePrepareReplanningHook(@SuppressWarnings("unused") ReplanningContext replanningContextTmp) {
@@ -106,7 +124,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 			// it seems, no threads are desired :(
 			this.directAlgo = getPlanAlgoInstance();
 		} else {
-			initThreads();
+			initAlgos();
 		}
 		this.afterPrepareReplanningHook(replanningContextTmp);
 	}
@@ -118,8 +136,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	@Override
 	public final void handlePlan(final Plan plan) {
 		if (this.directAlgo == null) {
-			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
-			this.count++;
+			this.plans.add(plan);
 		} else {
 			this.directAlgo.run(plan);
 		}
@@ -137,59 +154,73 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		this.beforeFinishReplanningHook();
 		
 		if (this.directAlgo == null) {
-			// only try to start threads if we did not directly work on all the plans
-			log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.count + " plans");
+			// only try to start workers if we did not directly work on all the plans
+			try {
+				runWorkers();
+			} finally {
+				this.plans.clear();
+			}
+		}
+		// reset
+		this.algos = null;
+		this.directAlgo = null;
+		this.replanningContext = null;
+		
+		this.afterFinishReplanningHook();
+	}
 
-			// start threads
-			for (Thread thread : this.threads) {
-				thread.start();
+	private void runWorkers() {
+		int nOfPlans = this.plans.size();
+		log.info("[" + this.name + "] starting " + this.algos.length + " workers, handling " + nOfPlans + " plans");
+		long start = System.nanoTime();
+
+		Counter counter = new Counter("[" + this.name + "] handled plan # ");
+		List<Future<?>> futures = new ArrayList<>(this.algos.length);
+		if (this.usingWorkStealing) {
+			AtomicInteger nextPlan = new AtomicInteger(0);
+			int chunkSize = Math.max(1, Math.min(MAX_CHUNK_SIZE, nOfPlans / (this.algos.length * 16)));
+			for (int i = 0; i < this.algos.length; i++) {
+				futures.add(executor.submit(new PlanAlgoWorker(this.name + "." + i, this.algos[i], this.plans, nextPlan, chunkSize, counter)));
+			}
+		} else {
+			// plan i is handled by instance i % numOfThreads, independent of the scheduling of the workers
+			for (int i = 0; i < this.algos.length; i++) {
+				futures.add(executor.submit(new PlanAlgoWorker(this.name + "." + i, this.algos[i], this.plans, i, this.algos.length, counter)));
 			}
+		}
 
-			// wait until each thread is finished
+		// wait until each worker is finished
+		Throwable throwable = null;
+		for (Future<?> future : futures) {
 			try {
-				for (Thread thread : this.threads) {
-					thread.join();
-				}
+				future.get();
 			} catch (InterruptedException e) {
 				throw new RuntimeException(e);
-			}
-			log.info("[" + this.name + "] all " + this.threads.length + " threads finished.");
-			Throwable throwable = this.hadException.get();
-			if (throwable != null) {
-				throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", throwable);
+			} catch (ExecutionException e) {
+				log.error("[" + this.name + "] worker died with exception. Will stop after all workers finished.", e.getCause());
+				throwable = e.getCause();
 			}
 		}
-		// reset
-		this.algothreads = null;
-		this.threads = null;
-		this.replanningContext = null;
-		this.count = 0;
-		
-		this.afterFinishReplanningHook();
+		if (throwable != null) {
+			throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", throwable);
+		}
+
+		double seconds = (System.nanoTime() - start) / 1e9;
+		log.info("[" + this.name + "] all " + this.algos.length + " workers finished, handled " + nOfPlans + " plans in "
+				+ String.format("%.2f", seconds) + " s (" + String.format("%.1f", seconds > 0 ? nOfPlans / seconds : 0.0) + " plans/s).");
 	}
 
-	private void initThreads() {
-		if (this.threads != null) {
+	private void initAlgos() {
+		if (this.algos != null) {
 			throw new RuntimeException("threads are already initialized");
 		}
 
-		this.hadException.set(null);
-		this.threads = new Thread[this.numOfThreads];
-		this.algothreads = new PlanAlgoThread[this.numOfThreads];
-
-		Counter counter = null;
-		// setup threads
+		this.algos = new PlanAlgorithm[this.numOfThreads];
 		for (int i = 0; i < this.numOfThreads; i++) {
-			PlanAlgorithm algo = getPlanAlgoInstance();
+			this.algos[i] = getPlanAlgoInstance();
 			if (i == 0) {
-				this.name = algo.getClass().getSimpleName();
-				counter = new Counter("[" + this.name + "] handled plan # ");
+				this.name = this.algos[i].getClass().getSimpleName();
 			}
-			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter);
-			Thread thread = new Thread(algothread, this.name + "." + i);
-			thread.setUncaughtExceptionHandler(this.exceptionHandler);
-			this.threads[i] = thread;
-			this.algothreads[i] = algothread;
 		}
 	}
 
@@ -197,42 +228,81 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		return numOfThreads;
 	}
 
-	private final static class ExceptionHandler implements UncaughtExceptionHandler {
+	private final static class WorkerThreadFactory implements ThreadFactory {
 
-		private final AtomicReference<Throwable> hadException;
-
-		public ExceptionHandler(final AtomicReference<Throwable> hadException) {
-			this.hadException = hadException;
-		}
+		private final AtomicInteger count = new AtomicInteger(0);
 
 		@Override
-		public void uncaughtException(Thread t, Throwable e) {
-			log.error("Thread " + t.getName() + " died with exception. Will stop after all threads finished.", e);
-			this.hadException.set(e);
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "PlanAlgoWorker-" + this.count.getAndIncrement());
+			// do not keep the jvm alive only because of idle workers
+			thread.setDaemon(true);
+			return thread;
 		}
 
 	}
 
-	private final static class PlanAlgoThread implements Runnable {
+	private final static class PlanAlgoWorker implements Runnable {
 
+		private final String name;
 		private final PlanAlgorithm planAlgo;
-		private final List<Plan> plans = new LinkedList<>();
+		private final List<Plan> plans;
+		private final AtomicInteger nextPlan;
+		private final int chunkSize;
+		private final int first;
+		private final int step;
 		private final Counter counter;
 
-		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter) {
+		/** Creates a worker that handles the plans <code>first</code>, <code>first + step</code>, ... */
+		public PlanAlgoWorker(final String name, final PlanAlgorithm algo, final List<Plan> plans, final int first, final int step,
+				final Counter counter) {
+			this.name = name;
 			this.planAlgo = algo;
+			this.plans = plans;
+			this.nextPlan = null;
+			this.chunkSize = 0;
+			this.first = first;
+			this.step = step;
 			this.counter = counter;
 		}
 
-		public void addPlanToThread(final Plan plan) {
-			this.plans.add(plan);
+		/** Creates a worker that claims chunks of plans from <code>nextPlan</code> until all plans are handled. */
+		public PlanAlgoWorker(final String name, final PlanAlgorithm algo, final List<Plan> plans, final AtomicInteger nextPlan,
+				final int chunkSize, final Counter counter) {
+			this.name = name;
+			this.planAlgo = algo;
+			this.plans = plans;
+			this.nextPlan = nextPlan;
+			this.chunkSize = chunkSize;
+			this.first = 0;
+			this.step = 0;
+			this.counter = counter;
 		}
 
 		@Override
 		public void run() {
-			for (Plan plan : this.plans) {
-				this.planAlgo.run(plan);
-				this.counter.incCounter();
+			Thread thread = Thread.currentThread();
+			String threadName = thread.getName();
+			thread.setName(this.name);
+			try {
+				int size = this.plans.size();
+				if (this.nextPlan == null) {
+					for (int i = this.first; i < size; i += this.step) {
+						this.planAlgo.run(this.plans.get(i));
+						this.counter.incCounter();
+					}
+					return;
+				}
+				int from;
+				while ((from = this.nextPlan.getAndAdd(this.chunkSize)) < size) {
+					int to = Math.min(size, from + this.chunkSize);
+					for (int i = from; i < to; i++) {
+						this.planAlgo.run(this.plans.get(i));
+						this.counter.incCounter();
+					}
+				}
+			} finally {
+				thread.setName(threadName);
 			}
 		}
 	}
@@ -0,0 +1,289 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BatchPlanSelection.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.replanning.selectors;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.matsim.api.core.v01.population.BasicPlan;
+import org.matsim.api.core.v01.population.Plan;
+
+/**
+ * Selects plans like the most common {@link PlanSelector}s, but only based on the scores (and, for
+ * {@link WorstPlanForRemovalSelector}, the types) of the plans, copied to primitive arrays, and with
+ * a given random number generator instead of {@link org.matsim.core.gbl.MatsimRandom}. The random
+ * numbers are drawn exactly as the selectors draw them, so with the same random numbers, the same
+ * plans are selected. This allows to select plans for many persons in parallel, each with its own
+ * random numbers.
+ * <p/>
+ * Only the selector classes themselves are supported, not their subclasses, as these may select plans
+ * differently.
+ */
+public final class BatchPlanSelection {
+
+	private BatchPlanSelection() {
+		// static methods only
+	}
+
+	/**
+	 * The scores of the plans of one person. Instances can be reused for several persons, but not by
+	 * several threads at once.
+	 */
+	public static final class PlanScores {
+
+		private int count = 0;
+		private int selected = -1;
+		private double[] scores = new double[8];
+		private boolean[] scored = new boolean[8];
+		private String[] types = new String[8];
+		private double[] weights = new double[8];
+
+		/**
+		 * Copies the scores and types of the given plans.
+		 *
+		 * @param selectedPlan the selected plan, or <code>null</code>
+		 */
+		public void set(final List<? extends BasicPlan> plans, final BasicPlan selectedPlan) {
+			this.count = plans.size();
+			if (this.scores.length < this.count) {
+				int length = Math.max(this.count, 2 * this.scores.length);
+				this.scores = new double[length];
+				this.scored = new boolean[length];
+				this.types = new String[length];
+				this.weights = new double[length];
+			}
+			this.selected = -1;
+			for (int i = 0; i < this.count; i++) {
+				BasicPlan plan = plans.get(i);
+				Double score = plan.getScore();
+				this.scored[i] = score != null;
+				this.scores[i] = score == null ? Double.NaN : score.doubleValue();
+				this.types[i] = plan instanceof Plan ? ((Plan) plan).getType() : null;
+				if (plan == selectedPlan) {
+					this.selected = i;
+				}
+			}
+			Arrays.fill(this.types, this.count, this.types.length, null);
+		}
+
+		public int getCount() {
+			return this.count;
+		}
+
+	}
+
+	/**
+	 * @return <code>true</code> if {@link #selectPlan(PlanSelector, PlanScores, Random)} supports the given selector
+	 */
+	public static boolean isSupported(final PlanSelector<?, ?> selector) {
+		Class<?> c = selector.getClass();
+		return c == ExpBetaPlanSelector.class || c == ExpBetaPlanChanger.class || c == BestPlanSelector.class
+				|| c == RandomPlanSelector.class || c == RandomUnscoredPlanSelector.class || c == KeepSelected.class
+				|| c == GenericWorstPlanForRemovalSelector.class || c == WorstPlanForRemovalSelector.class;
+	}
+
+	/**
+	 * Selects a plan like <code>selector.selectPlan(person)</code> would.
+	 *
+	 * @return the index of the selected plan, or <code>-1</code> where the selector returns <code>null</code>
+	 * @throws IllegalArgumentException if the selector is not supported
+	 */
+	public static int selectPlan(final PlanSelector<?, ?> selector, final PlanScores plans, final Random random) {
+		Class<?> c = selector.getClass();
+		if (c == ExpBetaPlanSelector.class) {
+			return selectExpBeta(((ExpBetaPlanSelector<?, ?>) selector).beta, plans, random);
+		} else if (c == ExpBetaPlanChanger.class) {
+			return changeExpBeta(((ExpBetaPlanChanger<?, ?>) selector).getBeta(), plans, random);
+		} else if (c == BestPlanSelector.class) {
+			return selectBest(plans);
+		} else if (c == RandomPlanSelector.class) {
+			return selectRandom(plans, random);
+		} else if (c == RandomUnscoredPlanSelector.class) {
+			return selectRandomUnscored(plans, random);
+		} else if (c == KeepSelected.class) {
+			return plans.selected;
+		} else if (c == GenericWorstPlanForRemovalSelector.class) {
+			return selectWorst(plans, false);
+		} else if (c == WorstPlanForRemovalSelector.class) {
+			return selectWorst(plans, true);
+		}
+		throw new IllegalArgumentException("Plan selector " + c.getName() + " is not supported.");
+	}
+
+	/**
+	 * @see ExpBetaPlanSelector
+	 */
+	private static int selectExpBeta(final double beta, final PlanScores plans, final Random random) {
+		double maxScore = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < plans.count; i++) {
+			if (plans.scored[i] && plans.scores[i] > maxScore) {
+				maxScore = plans.scores[i];
+			}
+		}
+		double sumWeights = 0.0;
+		for (int i = 0; i < plans.count; i++) {
+			double weight = Double.NaN;
+			if (plans.scored[i]) {
+				weight = Math.exp(beta * (plans.scores[i] - maxScore));
+				if (weight < ExpBetaPlanSelector.MIN_WEIGHT) {
+					weight = ExpBetaPlanSelector.MIN_WEIGHT;
+				}
+			}
+			plans.weights[i] = weight;
+			sumWeights += weight;
+		}
+		double selnum = sumWeights * random.nextDouble();
+		for (int i = 0; i < plans.count; i++) {
+			selnum -= plans.weights[i];
+			if (selnum <= 0.0) {
+				return i;
+			}
+		}
+		return plans.count > 0 ? 0 : -1;
+	}
+
+	/**
+	 * @see ExpBetaPlanChanger
+	 */
+	private static int changeExpBeta(final double beta, final PlanScores plans, final Random random) {
+		int current = plans.selected;
+		int other = selectRandom(plans, random);
+		if (current < 0) {
+			return -1;
+		}
+		if (!plans.scored[current] || !plans.scored[other]) {
+			return current;
+		}
+		double currentScore = plans.scores[current];
+		double otherScore = plans.scores[other];
+		if (Double.isNaN(currentScore)) {
+			return other;
+		}
+		if (Double.isNaN(otherScore)) {
+			return current;
+		}
+		double weight = Math.exp(0.5 * beta * (otherScore - currentScore));
+		if (random.nextDouble() < 0.01 * weight) {
+			return other;
+		}
+		return current;
+	}
+
+	/**
+	 * @see BestPlanSelector
+	 */
+	private static int selectBest(final PlanScores plans) {
+		double maxScore = Double.NEGATIVE_INFINITY;
+		int best = -1;
+		for (int i = 0; i < plans.count; i++) {
+			if (plans.scored[i] && plans.scores[i] > maxScore) {
+				maxScore = plans.scores[i];
+				best = i;
+			}
+		}
+		if (best < 0 && plans.count > 0) {
+			return 0;
+		}
+		return best;
+	}
+
+	/**
+	 * @see RandomPlanSelector
+	 */
+	private static int selectRandom(final PlanScores plans, final Random random) {
+		if (plans.count == 0) {
+			return -1;
+		}
+		return (int) (random.nextDouble() * plans.count);
+	}
+
+	/**
+	 * @see RandomUnscoredPlanSelector
+	 */
+	private static int selectRandomUnscored(final PlanScores plans, final Random random) {
+		int cntUnscored = 0;
+		for (int i = 0; i < plans.count; i++) {
+			if (!plans.scored[i]) {
+				cntUnscored++;
+			}
+		}
+		if (cntUnscored > 0) {
+			int idxUnscored = random.nextInt(cntUnscored);
+			cntUnscored = 0;
+			for (int i = 0; i < plans.count; i++) {
+				if (!plans.scored[i]) {
+					if (cntUnscored == idxUnscored) {
+						return i;
+					}
+					cntUnscored++;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param respectTypes if <code>true</code>, a plan that is the only one of its type is only selected if
+	 * each plan is the only one of its type, as in {@link WorstPlanForRemovalSelector}; otherwise, as in
+	 * {@link GenericWorstPlanForRemovalSelector}, the types are ignored.
+	 */
+	private static int selectWorst(final PlanScores plans, final boolean respectTypes) {
+		Map<String, Integer> typeCounts = null;
+		if (respectTypes) {
+			typeCounts = new HashMap<>();
+			for (int i = 0; i < plans.count; i++) {
+				String type = plans.types[i] == null ? "undefined" : plans.types[i];
+				Integer cnt = typeCounts.get(type);
+				typeCounts.put(type, cnt == null ? 1 : cnt + 1);
+			}
+		}
+		int worst = -1;
+		double worstScore = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < plans.count; i++) {
+			if (respectTypes && typeCounts.get(plans.types[i] == null ? "undefined" : plans.types[i]) <= 1) {
+				continue;
+			}
+			if (!plans.scored[i] || Double.isNaN(plans.scores[i])) {
+				worst = i;
+				worstScore = Double.NEGATIVE_INFINITY;
+			} else if (plans.scores[i] < worstScore) {
+				worst = i;
+				worstScore = plans.scores[i];
+			}
+		}
+		if (worst < 0) {
+			for (int i = 0; i < plans.count; i++) {
+				if (!plans.scored[i] || Double.isNaN(plans.scores[i])) {
+					return i;
+				}
+				if (plans.scores[i] < worstScore) {
+					worst = i;
+					worstScore = plans.scores[i];
+				}
+			}
+		}
+		return worst;
+	}
+
+}
@@ -41,6 +41,10 @@ public final class ExpBetaPlanChanger<T extends BasicPlan, I> implements PlanSel
 		this.beta = beta;
 	}
 
+	/*package*/ double getBeta() {
+		return this.beta;
+	}
+
 	/**
 	 * Changes to another plan with a probability proportional to exp( Delta scores ).
 	 * Need to think through if this goes to Nash Equilibrium or to SUE !!!
@@ -0,0 +1,317 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BidirectionalAStarLandmarks.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.priorityqueue.IntMinHeap;
+import org.matsim.core.router.util.LandmarkDistances;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.RoutingGraph;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Time-dependent bidirectional A* search with landmarks (TD-ALT).
+ * <p/>
+ * The forward search starts at the departure time and uses the time-dependent travel disutilities.
+ * As the arrival time is not known, the backward search runs on the minimum link disutilities.
+ * The search has three phases:
+ * <ol>
+ * <li>Both searches alternate until they meet. Every node reached by both searches yields a path,
+ * whose time-dependent cost is an upper bound for the least cost.</li>
+ * <li>Both searches continue until the backward search cannot find any node anymore whose
+ * lower bound is below the best upper bound found so far.</li>
+ * <li>The forward search continues, but only on nodes settled by the backward search,
+ * until it reaches the destination.</li>
+ * </ol>
+ * All nodes of the least-cost path are settled by the backward search, so the result is the same
+ * as with a forward-only search, but far fewer nodes are visited.
+ * <p/>
+ * All per-query data is kept in arrays indexed by the node index of the {@link RoutingGraph}. The entries
+ * are stamped with the id of the query that wrote them, so nothing has to be reset between queries.
+ * Instances are not thread-safe; the graph and the landmark distances can be shared by all threads.
+ */
+public class BidirectionalAStarLandmarks implements LeastCostPathCalculator {
+
+	private static final Logger log = Logger.getLogger(BidirectionalAStarLandmarks.class);
+
+	private static final int ACTIVE_LANDMARKS = 4;
+
+	private final RoutingGraph graph;
+	private final LandmarkDistances landmarks;
+	private final TravelDisutility costFunction;
+	private final TravelTime timeFunction;
+
+	private int iterationID = Integer.MIN_VALUE + 1;
+
+	private final int[] forwardVisited;
+	private final double[] forwardCost;
+	private final double[] forwardTime;
+	private final int[] forwardLink;
+	private final IntMinHeap forwardHeap;
+
+	private final int[] backwardVisited;
+	private final int[] backwardSettled;
+	private final double[] backwardCost;
+	private final int[] backwardLink;
+	private final IntMinHeap backwardHeap;
+
+	private final int[] activeLandmarks = new int[ACTIVE_LANDMARKS];
+	private int activeLandmarkCount;
+
+	private int fromNode;
+	private int toNode;
+	private Person person;
+	private Vehicle vehicle;
+
+	private double bestCost;
+	private double bestArrivalTime;
+	private int[] bestPath = new int[64];
+	private int bestPathLength;
+
+	public BidirectionalAStarLandmarks(final LandmarkDistances landmarks, final TravelDisutility costFunction, final TravelTime timeFunction) {
+		this.graph = landmarks.getGraph();
+		this.landmarks = landmarks;
+		this.costFunction = costFunction;
+		this.timeFunction = timeFunction;
+
+		int nodeCount = this.graph.getNodeCount();
+		this.forwardVisited = new int[nodeCount];
+		this.forwardCost = new double[nodeCount];
+		this.forwardTime = new double[nodeCount];
+		this.forwardLink = new int[nodeCount];
+		this.forwardHeap = new IntMinHeap(nodeCount);
+		this.backwardVisited = new int[nodeCount];
+		this.backwardSettled = new int[nodeCount];
+		this.backwardCost = new double[nodeCount];
+		this.backwardLink = new int[nodeCount];
+		this.backwardHeap = new IntMinHeap(nodeCount);
+		resetVisited();
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double startTime, final Person person, final Vehicle vehicle) {
+		this.fromNode = this.graph.getNodeIndex(fromNode);
+		this.toNode = this.graph.getNodeIndex(toNode);
+		if (this.fromNode < 0 || this.toNode < 0 || this.graph.getNode(this.fromNode) != fromNode || this.graph.getNode(this.toNode) != toNode) {
+			throw new IllegalArgumentException("The nodes passed as parameters are not part of the network stored by "+
+					getClass().getSimpleName() + ": the validity of the results cannot be guaranteed. Aborting!");
+		}
+		this.person = person;
+		this.vehicle = vehicle;
+		augmentIterationId();
+		this.forwardHeap.clear();
+		this.backwardHeap.clear();
+		this.bestCost = Double.POSITIVE_INFINITY;
+		this.bestPathLength = -1;
+		this.activeLandmarkCount = this.landmarks.selectLandmarks(this.fromNode, this.toNode, this.activeLandmarks);
+
+		visitForward(this.fromNode, -1, 0.0, startTime);
+		visitBackward(this.toNode, -1, 0.0);
+
+		boolean backwardActive = true;
+		boolean backwardTurn = false;
+		boolean found = false;
+		while (!this.forwardHeap.isEmpty()) {
+			if (backwardActive && (this.backwardHeap.isEmpty() || this.backwardHeap.peekKey() > this.bestCost)) {
+				backwardActive = false;
+			}
+			if (backwardActive && backwardTurn) {
+				expandBackward();
+			} else {
+				if (this.forwardHeap.peekKey() >= this.bestCost) {
+					break;
+				}
+				int node = this.forwardHeap.poll();
+				if (node == this.toNode) {
+					found = true;
+					break;
+				}
+				expandForward(node, !backwardActive);
+			}
+			backwardTurn = !backwardTurn;
+		}
+
+		if (found) {
+			return constructForwardPath(startTime);
+		}
+		if (this.bestPathLength < 0) {
+			log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId());
+			return null;
+		}
+		return constructPath(this.bestPath, this.bestPathLength, this.bestArrivalTime - startTime, this.bestCost);
+	}
+
+	private void expandForward(final int node, final boolean restricted) {
+		if (restricted && this.backwardSettled[node] != this.iterationID) {
+			// not part of the backward search space, cannot be part of the least-cost path
+			return;
+		}
+		double cost = this.forwardCost[node];
+		double time = this.forwardTime[node];
+		int end = this.graph.getOutLinkStart(node + 1);
+		for (int link = this.graph.getOutLinkStart(node); link < end; link++) {
+			int next = this.graph.getToNode(link);
+			if (restricted && this.backwardSettled[next] != this.iterationID) {
+				continue;
+			}
+			Link l = this.graph.getLink(link);
+			double nextCost = cost + this.costFunction.getLinkTravelDisutility(l, time, this.person, this.vehicle);
+			if (this.forwardVisited[next] != this.iterationID || nextCost < this.forwardCost[next]) {
+				double nextTime = time + this.timeFunction.getLinkTravelTime(l, time, this.person, this.vehicle);
+				visitForward(next, link, nextCost, nextTime);
+				if (this.backwardSettled[next] == this.iterationID) {
+					meet(next);
+				}
+			}
+		}
+	}
+
+	private void expandBackward() {
+		int node = this.backwardHeap.poll();
+		this.backwardSettled[node] = this.iterationID;
+		if (this.forwardVisited[node] == this.iterationID) {
+			meet(node);
+		}
+		double cost = this.backwardCost[node];
+		int end = this.graph.getInLinkStart(node + 1);
+		for (int i = this.graph.getInLinkStart(node); i < end; i++) {
+			int link = this.graph.getInLink(i);
+			int previous = this.graph.getFromNode(link);
+			double previousCost = cost + this.landmarks.getLinkMinimumCost(link);
+			if (this.backwardVisited[previous] != this.iterationID || previousCost < this.backwardCost[previous]) {
+				visitBackward(previous, link, previousCost);
+			}
+		}
+	}
+
+	private void visitForward(final int node, final int link, final double cost, final double time) {
+		this.forwardVisited[node] = this.iterationID;
+		this.forwardLink[node] = link;
+		this.forwardCost[node] = cost;
+		this.forwardTime[node] = time;
+		this.forwardHeap.insertOrDecreaseKey(node, cost + this.landmarks.getLowerBound(node, this.toNode, this.activeLandmarks, this.activeLandmarkCount));
+	}
+
+	private void visitBackward(final int node, final int link, final double cost) {
+		this.backwardVisited[node] = this.iterationID;
+		this.backwardLink[node] = link;
+		this.backwardCost[node] = cost;
+		this.backwardHeap.insertOrDecreaseKey(node, cost + this.landmarks.getLowerBound(this.fromNode, node, this.activeLandmarks, this.activeLandmarkCount));
+	}
+
+	/**
+	 * Evaluates the path consisting of the forward path to the given node and the backward path from it
+	 * with the time-dependent disutilities, and keeps it if it is better than the best path so far.
+	 */
+	private void meet(final int node) {
+		double cost = this.forwardCost[node];
+		if (cost + this.backwardCost[node] >= this.bestCost) {
+			return;
+		}
+		double time = this.forwardTime[node];
+		for (int n = node; n != this.toNode; ) {
+			int link = this.backwardLink[n];
+			Link l = this.graph.getLink(link);
+			cost += this.costFunction.getLinkTravelDisutility(l, time, this.person, this.vehicle);
+			if (cost >= this.bestCost) {
+				return;
+			}
+			time += this.timeFunction.getLinkTravelTime(l, time, this.person, this.vehicle);
+			n = this.graph.getToNode(link);
+		}
+		this.bestCost = cost;
+		this.bestArrivalTime = time;
+
+		int length = 0;
+		for (int n = node; n != this.fromNode; n = this.graph.getFromNode(this.forwardLink[n])) {
+			length++;
+		}
+		int forwardLength = length;
+		for (int n = node; n != this.toNode; n = this.graph.getToNode(this.backwardLink[n])) {
+			length++;
+		}
+		if (this.bestPath.length < length) {
+			this.bestPath = new int[Math.max(length, 2 * this.bestPath.length)];
+		}
+		int pos = forwardLength;
+		for (int n = node; n != this.fromNode; n = this.graph.getFromNode(this.forwardLink[n])) {
+			this.bestPath[--pos] = this.forwardLink[n];
+		}
+		pos = forwardLength;
+		for (int n = node; n != this.toNode; n = this.graph.getToNode(this.backwardLink[n])) {
+			this.bestPath[pos++] = this.backwardLink[n];
+		}
+		this.bestPathLength = length;
+	}
+
+	private Path constructForwardPath(final double startTime) {
+		int length = 0;
+		for (int n = this.toNode; n != this.fromNode; n = this.graph.getFromNode(this.forwardLink[n])) {
+			length++;
+		}
+		int[] links = new int[length];
+		for (int n = this.toNode; n != this.fromNode; n = this.graph.getFromNode(this.forwardLink[n])) {
+			links[--length] = this.forwardLink[n];
+		}
+		return constructPath(links, links.length, this.forwardTime[this.toNode] - startTime, this.forwardCost[this.toNode]);
+	}
+
+	private Path constructPath(final int[] linkIndices, final int length, final double travelTime, final double travelCost) {
+		List<Node> nodes = new ArrayList<>(length + 1);
+		List<Link> links = new ArrayList<>(length);
+		nodes.add(this.graph.getNode(this.fromNode));
+		for (int i = 0; i < length; i++) {
+			Link link = this.graph.getLink(linkIndices[i]);
+			links.add(link);
+			nodes.add(link.getToNode());
+		}
+		return new Path(nodes, links, travelTime, travelCost);
+	}
+
+	/**
+	 * Augments the iterationID and checks whether the visited information in
+	 * the nodes have to be reset.
+	 */
+	private void augmentIterationId() {
+		if (this.iterationID == Integer.MAX_VALUE) {
+			resetVisited();
+		} else {
+			this.iterationID++;
+		}
+	}
+
+	private void resetVisited() {
+		this.iterationID = Integer.MIN_VALUE + 1;
+		Arrays.fill(this.forwardVisited, Integer.MIN_VALUE);
+		Arrays.fill(this.backwardVisited, Integer.MIN_VALUE);
+		Arrays.fill(this.backwardSettled, Integer.MIN_VALUE);
+	}
+
+}
@@ -0,0 +1,158 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactDijkstra.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.priorityqueue.IntMinHeap;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.RoutingGraph;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Time-dependent Dijkstra on a {@link RoutingGraph}, finding the same least-cost paths as {@link Dijkstra}.
+ * <p/>
+ * The graph is immutable and meant to be shared by all routers of the same network, e.g. by all
+ * replanning threads. The per-query data of a router is kept in a few primitive arrays indexed by the
+ * node index of the graph, about 30 bytes per node, and is stamped with an iteration id, so nothing is
+ * reset between queries. Instances are not thread-safe.
+ */
+public class CompactDijkstra implements LeastCostPathCalculator {
+
+	private static final Logger log = Logger.getLogger(CompactDijkstra.class);
+
+	private final RoutingGraph graph;
+	private final TravelDisutility costFunction;
+	private final TravelTime timeFunction;
+
+	private int iterationID = Integer.MIN_VALUE + 1;
+	private final int[] visited;
+	private final double[] cost;
+	private final double[] time;
+	private final int[] inLink;
+	private final IntMinHeap heap;
+
+	public CompactDijkstra(final RoutingGraph graph, final TravelDisutility costFunction, final TravelTime timeFunction) {
+		this.graph = graph;
+		this.costFunction = costFunction;
+		this.timeFunction = timeFunction;
+		int nodeCount = graph.getNodeCount();
+		this.visited = new int[nodeCount];
+		this.cost = new double[nodeCount];
+		this.time = new double[nodeCount];
+		this.inLink = new int[nodeCount];
+		this.heap = new IntMinHeap(nodeCount);
+		resetVisited();
+	}
+
+	/*package*/ RoutingGraph getRoutingGraph() {
+		return this.graph;
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double startTime, final Person person, final Vehicle vehicle) {
+		int from = this.graph.getNodeIndex(fromNode);
+		int to = this.graph.getNodeIndex(toNode);
+		if (from < 0 || to < 0 || this.graph.getNode(from) != fromNode || this.graph.getNode(to) != toNode) {
+			throw new IllegalArgumentException("The nodes passed as parameters are not part of the network stored by "+
+					getClass().getSimpleName() + ": the validity of the results cannot be guaranteed. Aborting!");
+		}
+		augmentIterationId();
+		this.heap.clear();
+		visit(from, -1, 0.0, startTime);
+
+		boolean found = false;
+		while (!this.heap.isEmpty()) {
+			int node = this.heap.poll();
+			if (node == to) {
+				found = true;
+				break;
+			}
+			double nodeCost = this.cost[node];
+			double nodeTime = this.time[node];
+			int end = this.graph.getOutLinkStart(node + 1);
+			for (int l = this.graph.getOutLinkStart(node); l < end; l++) {
+				Link link = this.graph.getLink(l);
+				int next = this.graph.getToNode(l);
+				double nextCost = nodeCost + this.costFunction.getLinkTravelDisutility(link, nodeTime, person, vehicle);
+				if (this.visited[next] != this.iterationID || nextCost < this.cost[next]) {
+					visit(next, l, nextCost, nodeTime + this.timeFunction.getLinkTravelTime(link, nodeTime, person, vehicle));
+				}
+			}
+		}
+
+		if (!found) {
+			log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId());
+			return null;
+		}
+		return constructPath(from, to, startTime);
+	}
+
+	private void visit(final int node, final int link, final double nodeCost, final double nodeTime) {
+		this.visited[node] = this.iterationID;
+		this.cost[node] = nodeCost;
+		this.time[node] = nodeTime;
+		this.inLink[node] = link;
+		this.heap.insertOrDecreaseKey(node, nodeCost);
+	}
+
+	private Path constructPath(final int from, final int to, final double startTime) {
+		List<Node> nodes = new ArrayList<>();
+		List<Link> links = new ArrayList<>();
+		nodes.add(this.graph.getNode(to));
+		for (int node = to; node != from; ) {
+			int link = this.inLink[node];
+			links.add(this.graph.getLink(link));
+			node = this.graph.getFromNode(link);
+			nodes.add(this.graph.getNode(node));
+		}
+		Collections.reverse(nodes);
+		Collections.reverse(links);
+		return new Path(nodes, links, this.time[to] - startTime, this.cost[to]);
+	}
+
+	/**
+	 * Augments the iterationID and checks whether the visited information in
+	 * the nodes have to be reset.
+	 */
+	private void augmentIterationId() {
+		if (this.iterationID == Integer.MAX_VALUE) {
+			resetVisited();
+		} else {
+			this.iterationID++;
+		}
+	}
+
+	private void resetVisited() {
+		this.iterationID = Integer.MIN_VALUE + 1;
+		Arrays.fill(this.visited, Integer.MIN_VALUE);
+	}
+
+}
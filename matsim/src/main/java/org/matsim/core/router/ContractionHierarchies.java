@@ -0,0 +1,251 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchies.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import gnu.trove.list.array.TIntArrayList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.priorityqueue.IntMinHeap;
+import org.matsim.core.router.util.ContractionHierarchy;
+import org.matsim.core.router.util.ContractionHierarchy.Metric;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.RoutingGraph;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Least-cost path calculator based on a customizable {@link ContractionHierarchy}.
+ * <p/>
+ * The day is divided into time bins. For each time bin, a metric for the travel disutilities at the start
+ * of the bin is taken from the hierarchy the first time a route departs in it; the hierarchy customizes it
+ * only if no router has customized it before with the same link disutilities. A query then runs a
+ * bidirectional Dijkstra on the upward edges of the hierarchy, using the metric of the departure
+ * time bin. So the route is the least-cost route for the travel disutilities at departure time;
+ * changes of the travel disutilities during the trip are not taken into account. The travel time
+ * and cost of the returned path are calculated along the path with the time-dependent values.
+ * <p/>
+ * Person- or vehicle-specific travel disutilities are not taken into account when choosing the route,
+ * the disutilities are calculated without person and vehicle.
+ * <p/>
+ * Per-query data is stamped with an iteration id, so nothing is reset between queries. Instances are not
+ * thread-safe; the hierarchy itself can be shared by all threads.
+ */
+public class ContractionHierarchies implements LeastCostPathCalculator {
+
+	private static final Logger log = Logger.getLogger(ContractionHierarchies.class);
+
+	private final ContractionHierarchy hierarchy;
+	private final RoutingGraph graph;
+	private final TravelDisutility costFunction;
+	private final TravelTime timeFunction;
+	private final double timeBinSize;
+	private final Metric[] metrics;
+
+	private int iterationID = Integer.MIN_VALUE + 1;
+
+	private final int[] forwardVisited;
+	private final double[] forwardCost;
+	private final int[] forwardEdge;
+	private final IntMinHeap forwardHeap;
+
+	private final int[] backwardVisited;
+	private final double[] backwardCost;
+	private final int[] backwardEdge;
+	private final IntMinHeap backwardHeap;
+
+	private final TIntArrayList pathLinks = new TIntArrayList();
+
+	/**
+	 * @param timeBinSize the size of the time bins for which separate metrics are used,
+	 * {@link Double#POSITIVE_INFINITY} to use only one metric for the whole day
+	 * @param numberOfTimeBins the number of time bins; later departures use the last time bin
+	 */
+	public ContractionHierarchies(final ContractionHierarchy hierarchy, final TravelDisutility costFunction, final TravelTime timeFunction,
+			final double timeBinSize, final int numberOfTimeBins) {
+		this.hierarchy = hierarchy;
+		this.graph = hierarchy.getGraph();
+		this.costFunction = costFunction;
+		this.timeFunction = timeFunction;
+		this.timeBinSize = timeBinSize;
+		this.metrics = new Metric[Math.max(1, numberOfTimeBins)];
+
+		int nodeCount = this.graph.getNodeCount();
+		this.forwardVisited = new int[nodeCount];
+		this.forwardCost = new double[nodeCount];
+		this.forwardEdge = new int[nodeCount];
+		this.forwardHeap = new IntMinHeap(nodeCount);
+		this.backwardVisited = new int[nodeCount];
+		this.backwardCost = new double[nodeCount];
+		this.backwardEdge = new int[nodeCount];
+		this.backwardHeap = new IntMinHeap(nodeCount);
+		resetVisited();
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double startTime, final Person person, final Vehicle vehicle) {
+		int from = this.graph.getNodeIndex(fromNode);
+		int to = this.graph.getNodeIndex(toNode);
+		if (from < 0 || to < 0 || this.graph.getNode(from) != fromNode || this.graph.getNode(to) != toNode) {
+			throw new IllegalArgumentException("The nodes passed as parameters are not part of the network stored by "+
+					getClass().getSimpleName() + ": the validity of the results cannot be guaranteed. Aborting!");
+		}
+		Metric metric = getMetric(startTime);
+		augmentIterationId();
+		this.forwardHeap.clear();
+		this.backwardHeap.clear();
+
+		visit(this.forwardVisited, this.forwardCost, this.forwardEdge, this.forwardHeap, from, -1, 0.0);
+		visit(this.backwardVisited, this.backwardCost, this.backwardEdge, this.backwardHeap, to, -1, 0.0);
+		double bestCost = Double.POSITIVE_INFINITY;
+		int meetingNode = -1;
+		boolean forwardTurn = true;
+		while (true) {
+			boolean forwardActive = this.forwardHeap.peekKey() < bestCost;
+			boolean backwardActive = this.backwardHeap.peekKey() < bestCost;
+			if (!forwardActive && !backwardActive) {
+				break;
+			}
+			boolean forward = forwardActive && (forwardTurn || !backwardActive);
+			forwardTurn = !forwardTurn;
+			int node;
+			if (forward) {
+				node = this.forwardHeap.poll();
+				if (this.backwardVisited[node] == this.iterationID) {
+					double cost = this.forwardCost[node] + this.backwardCost[node];
+					if (cost < bestCost) {
+						bestCost = cost;
+						meetingNode = node;
+					}
+				}
+			} else {
+				node = this.backwardHeap.poll();
+				if (this.forwardVisited[node] == this.iterationID) {
+					double cost = this.forwardCost[node] + this.backwardCost[node];
+					if (cost < bestCost) {
+						bestCost = cost;
+						meetingNode = node;
+					}
+				}
+			}
+			int[] visited = forward ? this.forwardVisited : this.backwardVisited;
+			double[] costs = forward ? this.forwardCost : this.backwardCost;
+			int[] edges = forward ? this.forwardEdge : this.backwardEdge;
+			IntMinHeap heap = forward ? this.forwardHeap : this.backwardHeap;
+			double cost = costs[node];
+			int end = this.hierarchy.getEdgeStart(node + 1);
+			for (int edge = this.hierarchy.getEdgeStart(node); edge < end; edge++) {
+				double nextCost = cost + (forward ? metric.getUpWeight(edge) : metric.getDownWeight(edge));
+				int next = this.hierarchy.getUpperNode(edge);
+				if (nextCost < Double.POSITIVE_INFINITY && (visited[next] != this.iterationID || nextCost < costs[next])) {
+					visit(visited, costs, edges, heap, next, edge, nextCost);
+				}
+			}
+		}
+
+		if (meetingNode < 0) {
+			log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId());
+			return null;
+		}
+		return constructPath(metric, from, meetingNode, to, startTime, person, vehicle);
+	}
+
+	private Metric getMetric(final double time) {
+		int bin = 0;
+		if (this.timeBinSize < Double.POSITIVE_INFINITY && time > 0) {
+			bin = Math.min((int) (time / this.timeBinSize), this.metrics.length - 1);
+		}
+		Metric metric = this.metrics[bin];
+		if (metric == null) {
+			metric = this.hierarchy.getMetric(this.costFunction, this.timeBinSize < Double.POSITIVE_INFINITY ? bin * this.timeBinSize : 0.0);
+			this.metrics[bin] = metric;
+		}
+		return metric;
+	}
+
+	private void visit(final int[] visited, final double[] costs, final int[] edges, final IntMinHeap heap, final int node, final int edge, final double cost) {
+		visited[node] = this.iterationID;
+		costs[node] = cost;
+		edges[node] = edge;
+		heap.insertOrDecreaseKey(node, cost);
+	}
+
+	private Path constructPath(final Metric metric, final int from, final int meetingNode, final int to, final double startTime,
+			final Person person, final Vehicle vehicle) {
+		TIntArrayList linkIndices = this.pathLinks;
+		linkIndices.resetQuick();
+		// the forward edges from the meeting node back to the start, in reverse order
+		TIntArrayList forwardEdges = new TIntArrayList();
+		for (int node = meetingNode; node != from; ) {
+			int edge = this.forwardEdge[node];
+			forwardEdges.add(edge);
+			node = this.hierarchy.getLowerNode(edge);
+		}
+		for (int i = forwardEdges.size() - 1; i >= 0; i--) {
+			metric.unpack(forwardEdges.get(i), true, linkIndices);
+		}
+		for (int node = meetingNode; node != to; ) {
+			int edge = this.backwardEdge[node];
+			metric.unpack(edge, false, linkIndices);
+			node = this.hierarchy.getLowerNode(edge);
+		}
+
+		List<Node> nodes = new ArrayList<>(linkIndices.size() + 1);
+		List<Link> links = new ArrayList<>(linkIndices.size());
+		nodes.add(this.graph.getNode(from));
+		double time = startTime;
+		double cost = 0.0;
+		for (int i = 0; i < linkIndices.size(); i++) {
+			Link link = this.graph.getLink(linkIndices.get(i));
+			links.add(link);
+			nodes.add(link.getToNode());
+			cost += this.costFunction.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.timeFunction.getLinkTravelTime(link, time, person, vehicle);
+		}
+		return new Path(nodes, links, time - startTime, cost);
+	}
+
+	/**
+	 * Augments the iterationID and checks whether the visited information in
+	 * the nodes have to be reset.
+	 */
+	private void augmentIterationId() {
+		if (this.iterationID == Integer.MAX_VALUE) {
+			resetVisited();
+		} else {
+			this.iterationID++;
+		}
+	}
+
+	private void resetVisited() {
+		this.iterationID = Integer.MIN_VALUE + 1;
+		Arrays.fill(this.forwardVisited, Integer.MIN_VALUE);
+		Arrays.fill(this.backwardVisited, Integer.MIN_VALUE);
+	}
+
+}
@@ -1,15 +1,40 @@
 package org.matsim.core.router;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import javax.inject.Singleton;
+
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.router.util.RoutingGraph;
 
+/**
+ * Caches the single-mode networks filtered by {@link NetworkRouting} and the {@link RoutingGraph}s
+ * built from them, so that all threads routing the same mode share one network and one graph.
+ */
+@Singleton
 public class SingleModeNetworksCache {
 
 	private Map<String, Network> singleModeNetworksCache = new ConcurrentHashMap<>();
+	private final Map<Network, RoutingGraph> routingGraphs = new HashMap<>();
 
 	public Map<String, Network> getSingleModeNetworksCache() {
 		return singleModeNetworksCache;
 	}
+
+	/**
+	 * @return the routing graph of the given network. It is created on the first request and shared by all
+	 * further requests, so the network must not be modified afterwards.
+	 */
+	public RoutingGraph getRoutingGraph(final Network network) {
+		synchronized (this.routingGraphs) {
+			RoutingGraph graph = this.routingGraphs.get(network);
+			if (graph == null) {
+				graph = new RoutingGraph(network);
+				this.routingGraphs.put(network, graph);
+			}
+			return graph;
+		}
+	}
 }
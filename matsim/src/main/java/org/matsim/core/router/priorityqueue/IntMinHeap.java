@@ -0,0 +1,152 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IntMinHeap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.priorityqueue;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A binary min-heap of int values in the range <code>[0, capacity)</code>, e.g. node indices,
+ * with a double key each. In contrast to {@link BinaryMinHeap}, no objects are needed
+ * for the elements, and clearing the heap only costs as much as there are elements in it.
+ */
+public final class IntMinHeap {
+
+	private final int[] heap;
+	private final double[] keys;
+	/** the position of each value in the heap, or -1 if it is not contained */
+	private final int[] positions;
+	private int size = 0;
+
+	public IntMinHeap(final int capacity) {
+		this.heap = new int[capacity];
+		this.keys = new double[capacity];
+		this.positions = new int[capacity];
+		Arrays.fill(this.positions, -1);
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean contains(final int value) {
+		return this.positions[value] >= 0;
+	}
+
+	/**
+	 * Adds the value with the given key, or decreases its key if it is already contained
+	 * and the given key is smaller.
+	 */
+	public void insertOrDecreaseKey(final int value, final double key) {
+		int pos = this.positions[value];
+		if (pos < 0) {
+			pos = this.size++;
+			this.heap[pos] = value;
+		} else if (key >= this.keys[pos]) {
+			return;
+		}
+		this.keys[pos] = key;
+		siftUp(pos);
+	}
+
+	/**
+	 * @return the smallest key, or {@link Double#POSITIVE_INFINITY} if the heap is empty
+	 */
+	public double peekKey() {
+		return this.size == 0 ? Double.POSITIVE_INFINITY : this.keys[0];
+	}
+
+	public int peek() {
+		if (this.size == 0) {
+			throw new NoSuchElementException();
+		}
+		return this.heap[0];
+	}
+
+	public int poll() {
+		if (this.size == 0) {
+			throw new NoSuchElementException();
+		}
+		int value = this.heap[0];
+		this.positions[value] = -1;
+		this.size--;
+		if (this.size > 0) {
+			this.heap[0] = this.heap[this.size];
+			this.keys[0] = this.keys[this.size];
+			this.positions[this.heap[0]] = 0;
+			siftDown(0);
+		}
+		return value;
+	}
+
+	public void clear() {
+		for (int i = 0; i < this.size; i++) {
+			this.positions[this.heap[i]] = -1;
+		}
+		this.size = 0;
+	}
+
+	private void siftUp(int pos) {
+		int value = this.heap[pos];
+		double key = this.keys[pos];
+		while (pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			if (this.keys[parent] <= key) {
+				break;
+			}
+			this.heap[pos] = this.heap[parent];
+			this.keys[pos] = this.keys[parent];
+			this.positions[this.heap[pos]] = pos;
+			pos = parent;
+		}
+		this.heap[pos] = value;
+		this.keys[pos] = key;
+		this.positions[value] = pos;
+	}
+
+	private void siftDown(int pos) {
+		int value = this.heap[pos];
+		double key = this.keys[pos];
+		int half = this.size >>> 1;
+		while (pos < half) {
+			int child = 2 * pos + 1;
+			int right = child + 1;
+			if (right < this.size && this.keys[right] < this.keys[child]) {
+				child = right;
+			}
+			if (key <= this.keys[child]) {
+				break;
+			}
+			this.heap[pos] = this.heap[child];
+			this.keys[pos] = this.keys[child];
+			this.positions[this.heap[pos]] = pos;
+			pos = child;
+		}
+		this.heap[pos] = value;
+		this.keys[pos] = key;
+		this.positions[value] = pos;
+	}
+
+}
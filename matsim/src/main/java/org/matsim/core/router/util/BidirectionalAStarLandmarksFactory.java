@@ -0,0 +1,85 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BidirectionalAStarLandmarksFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.awt.geom.Rectangle2D;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.router.BidirectionalAStarLandmarks;
+import org.matsim.core.router.SingleModeNetworksCache;
+
+/**
+ * Creates {@link BidirectionalAStarLandmarks} routers. The {@link RoutingGraph} is taken from the
+ * {@link SingleModeNetworksCache}, the {@link LandmarkDistances} are created once per network;
+ * both are shared by all routers. The
+ * landmark distances are only re-calculated if the minimum travel disutility of a link
+ * drops below the one they were calculated with.
+ */
+@Singleton
+public class BidirectionalAStarLandmarksFactory implements LeastCostPathCalculatorFactory {
+
+	private static final Logger log = Logger.getLogger(BidirectionalAStarLandmarksFactory.class);
+
+	private final int landmarkCount;
+	private final int numberOfThreads;
+	@com.google.inject.Inject(optional = true)
+	private SingleModeNetworksCache cache = new SingleModeNetworksCache();
+	private final Map<Network, LandmarkDistances> landmarkDistances = new HashMap<>();
+
+	@Inject
+	BidirectionalAStarLandmarksFactory(final GlobalConfigGroup globalConfig) {
+		this(16, globalConfig.getNumberOfThreads());
+	}
+
+	public BidirectionalAStarLandmarksFactory() {
+		this(16, 8);
+	}
+
+	public BidirectionalAStarLandmarksFactory(final int landmarkCount, final int numberOfThreads) {
+		this.landmarkCount = landmarkCount;
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	@Override
+	public synchronized LeastCostPathCalculator createPathCalculator(final Network network,
+			final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		RoutingGraph routingGraph = this.cache.getRoutingGraph(network);
+
+		LandmarkDistances landmarks = this.landmarkDistances.get(network);
+		if (landmarks == null || !landmarks.isLowerBoundFor(travelCosts)) {
+			if (landmarks != null) {
+				log.info("The minimum travel disutility has decreased, re-calculating landmark distances.");
+			}
+			landmarks = new LandmarkDistances(routingGraph, travelCosts,
+					new PieSlicesLandmarker(new Rectangle2D.Double()), this.landmarkCount, this.numberOfThreads);
+			this.landmarkDistances.put(network, landmarks);
+		}
+
+		return new BidirectionalAStarLandmarks(landmarks, travelCosts, travelTimes);
+	}
+}
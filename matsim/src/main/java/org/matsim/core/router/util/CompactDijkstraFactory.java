@@ -0,0 +1,49 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactDijkstraFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.router.CompactDijkstra;
+import org.matsim.core.router.SingleModeNetworksCache;
+
+/**
+ * Creates {@link CompactDijkstra} routers. The {@link RoutingGraph} of each network is taken from the
+ * {@link SingleModeNetworksCache} if one is bound, so all routers of a mode share one graph, independent
+ * of the number of threads. Otherwise, the factory caches the graphs itself.
+ */
+@Singleton
+public class CompactDijkstraFactory implements LeastCostPathCalculatorFactory {
+
+	@com.google.inject.Inject(optional = true)
+	private SingleModeNetworksCache cache = new SingleModeNetworksCache();
+
+	@Inject
+	public CompactDijkstraFactory() {
+	}
+
+	@Override
+	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		return new CompactDijkstra(this.cache.getRoutingGraph(network), travelCosts, travelTimes);
+	}
+}
@@ -0,0 +1,77 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.router.ContractionHierarchies;
+import org.matsim.core.router.SingleModeNetworksCache;
+
+/**
+ * Creates {@link ContractionHierarchies} routers. The metric-independent {@link ContractionHierarchy}
+ * is built once per network, on the {@link RoutingGraph} from the {@link SingleModeNetworksCache}, and
+ * shared by all routers, as are the metrics it is customized with per time bin of the travel time calculator
+ * (see {@link ContractionHierarchy#getMetric(TravelDisutility, double)}).
+ */
+@Singleton
+public class ContractionHierarchiesFactory implements LeastCostPathCalculatorFactory {
+
+	private final double timeBinSize;
+	private final int numberOfTimeBins;
+	private final Map<Network, ContractionHierarchy> hierarchies = new HashMap<>();
+	@com.google.inject.Inject(optional = true)
+	private SingleModeNetworksCache cache = new SingleModeNetworksCache();
+
+	@Inject
+	ContractionHierarchiesFactory(final TravelTimeCalculatorConfigGroup travelTimeCalculatorConfig) {
+		this(travelTimeCalculatorConfig.getTraveltimeBinSize(),
+				travelTimeCalculatorConfig.getMaxTime() / travelTimeCalculatorConfig.getTraveltimeBinSize() + 1);
+	}
+
+	/**
+	 * Creates a factory for routers that use one metric for the whole day, e.g. for free speed routing.
+	 */
+	public ContractionHierarchiesFactory() {
+		this(Double.POSITIVE_INFINITY, 1);
+	}
+
+	public ContractionHierarchiesFactory(final double timeBinSize, final int numberOfTimeBins) {
+		this.timeBinSize = timeBinSize;
+		this.numberOfTimeBins = numberOfTimeBins;
+	}
+
+	@Override
+	public synchronized LeastCostPathCalculator createPathCalculator(final Network network,
+			final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		ContractionHierarchy hierarchy = this.hierarchies.get(network);
+		if (hierarchy == null) {
+			hierarchy = new ContractionHierarchy(this.cache.getRoutingGraph(network));
+			this.hierarchies.put(network, hierarchy);
+		}
+		return new ContractionHierarchies(hierarchy, travelCosts, travelTimes, this.timeBinSize, this.numberOfTimeBins);
+	}
+}
@@ -0,0 +1,557 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchy.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import gnu.trove.list.array.TIntArrayList;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+
+/**
+ * The metric-independent part of a customizable contraction hierarchy for a {@link RoutingGraph}.
+ * <p/>
+ * The nodes are ordered by a geometric nested dissection: the network is recursively split at the
+ * median coordinate, and the nodes separating the two halves get a higher rank than the nodes in
+ * the halves. The nodes are then contracted in this order without witness searches, i.e. all
+ * upward neighbors of a contracted node get connected by a shortcut. The resulting hierarchy is
+ * valid for every metric, so the expensive preprocessing is done only once per network, and
+ * {@link #customize(TravelDisutility, double)} computes the weights of all edges and shortcuts for a
+ * given travel disutility and time within a fraction of that time.
+ * <p/>
+ * The metrics are person-independent, so travel disutilities that need a person, such as randomized ones,
+ * are refused.
+ * <p/>
+ * {@link #getMetric(TravelDisutility, double)} additionally shares the customized metrics between all
+ * users of the hierarchy: a metric is re-used if it was customized for the same time with the same
+ * link disutilities, so routers in several threads and routers created anew for each iteration
+ * customize each time bin only once as long as the travel disutilities do not change.
+ * <p/>
+ * Each edge of the hierarchy connects a node with one of its upward neighbors, and is stored with
+ * its lower node. It has a weight in upward and one in downward direction.
+ */
+public final class ContractionHierarchy {
+
+	private static final Logger log = Logger.getLogger(ContractionHierarchy.class);
+
+	/** marks an edge direction without any connection */
+	private static final int NO_CONNECTION = Integer.MIN_VALUE;
+
+	/** the number of metrics with different link disutilities that are kept per time */
+	private static final int MAX_CACHED_METRICS_PER_TIME = 4;
+
+	private final RoutingGraph graph;
+	private final int[] rank;
+	private final int[] nodesByRank;
+	/** the edges of node n are stored from <code>edgeStart[n]</code> to <code>edgeStart[n + 1]</code>, sorted by the rank of their upper node */
+	private final int[] edgeStart;
+	private final int[] edgeUpperNode;
+	private final int[] edgeLowerNode;
+
+	private final ConcurrentMap<Double, MetricCache> metricCaches = new ConcurrentHashMap<>();
+
+	public ContractionHierarchy(final RoutingGraph graph) {
+		this.graph = graph;
+		int nodeCount = graph.getNodeCount();
+
+		log.info("Ordering " + nodeCount + " nodes for the contraction hierarchy...");
+		long now = System.currentTimeMillis();
+		this.nodesByRank = new NestedDissection(graph).order();
+		this.rank = new int[nodeCount];
+		for (int r = 0; r < nodeCount; r++) {
+			this.rank[this.nodesByRank[r]] = r;
+		}
+		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
+
+		log.info("Contracting nodes...");
+		now = System.currentTimeMillis();
+		int[][] upwardNeighbors = new int[nodeCount][];
+		int[] upwardNeighborCount = new int[nodeCount];
+		for (int link = 0; link < graph.getLinkCount(); link++) {
+			int from = graph.getFromNode(link);
+			int to = graph.getToNode(link);
+			if (from != to) {
+				addUpwardNeighbor(upwardNeighbors, upwardNeighborCount, from, to);
+			}
+		}
+		int edgeCount = 0;
+		for (int r = 0; r < nodeCount; r++) {
+			int node = this.nodesByRank[r];
+			int[] neighbors = upwardNeighbors[node];
+			int count = upwardNeighborCount[node];
+			for (int i = 0; i < count; i++) {
+				for (int j = i + 1; j < count; j++) {
+					addUpwardNeighbor(upwardNeighbors, upwardNeighborCount, neighbors[i], neighbors[j]);
+				}
+			}
+			edgeCount += count;
+		}
+
+		this.edgeStart = new int[nodeCount + 1];
+		this.edgeUpperNode = new int[edgeCount];
+		this.edgeLowerNode = new int[edgeCount];
+		int edge = 0;
+		for (int node = 0; node < nodeCount; node++) {
+			this.edgeStart[node] = edge;
+			int count = upwardNeighborCount[node];
+			if (count == 0) {
+				continue;
+			}
+			int[] neighbors = upwardNeighbors[node];
+			long[] sorted = new long[count];
+			for (int i = 0; i < count; i++) {
+				sorted[i] = ((long) this.rank[neighbors[i]] << 32) | neighbors[i];
+			}
+			Arrays.sort(sorted);
+			for (int i = 0; i < count; i++) {
+				this.edgeUpperNode[edge] = (int) sorted[i];
+				this.edgeLowerNode[edge] = node;
+				edge++;
+			}
+			upwardNeighbors[node] = null;
+		}
+		this.edgeStart[nodeCount] = edge;
+		log.info("done in " + (System.currentTimeMillis() - now) + " ms, " + edgeCount + " edges for "
+				+ graph.getLinkCount() + " links.");
+	}
+
+	/**
+	 * Adds the edge between the two nodes to the upward neighbors of the one with the lower rank.
+	 * The neighbors are kept sorted by node index, so duplicates can be found quickly.
+	 */
+	private void addUpwardNeighbor(final int[][] upwardNeighbors, final int[] upwardNeighborCount, final int node1, final int node2) {
+		int lower = this.rank[node1] < this.rank[node2] ? node1 : node2;
+		int upper = lower == node1 ? node2 : node1;
+		int[] neighbors = upwardNeighbors[lower];
+		int count = upwardNeighborCount[lower];
+		if (neighbors == null) {
+			neighbors = new int[4];
+			upwardNeighbors[lower] = neighbors;
+		}
+		int pos = Arrays.binarySearch(neighbors, 0, count, upper);
+		if (pos >= 0) {
+			return;
+		}
+		pos = -pos - 1;
+		if (count == neighbors.length) {
+			neighbors = Arrays.copyOf(neighbors, 2 * count);
+			upwardNeighbors[lower] = neighbors;
+		}
+		System.arraycopy(neighbors, pos, neighbors, pos + 1, count - pos);
+		neighbors[pos] = upper;
+		upwardNeighborCount[lower] = count + 1;
+	}
+
+	public RoutingGraph getGraph() {
+		return this.graph;
+	}
+
+	public int getRank(final int node) {
+		return this.rank[node];
+	}
+
+	public int getEdgeCount() {
+		return this.edgeUpperNode.length;
+	}
+
+	/**
+	 * @return the first edge of the given node, which is also the end of the edges of the previous node
+	 */
+	public int getEdgeStart(final int node) {
+		return this.edgeStart[node];
+	}
+
+	public int getUpperNode(final int edge) {
+		return this.edgeUpperNode[edge];
+	}
+
+	public int getLowerNode(final int edge) {
+		return this.edgeLowerNode[edge];
+	}
+
+	/**
+	 * @return the edge between the given node and the given node with higher rank, or -1 if there is none
+	 */
+	public int findEdge(final int lowerNode, final int upperNode) {
+		int upperRank = this.rank[upperNode];
+		int low = this.edgeStart[lowerNode];
+		int high = this.edgeStart[lowerNode + 1] - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int midRank = this.rank[this.edgeUpperNode[mid]];
+			if (midRank < upperRank) {
+				low = mid + 1;
+			} else if (midRank > upperRank) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns a metric for the given travel disutility at the given time, re-using a metric that was
+	 * customized before for the same time and the same link disutilities. Only the link disutilities
+	 * are calculated in any case. Person- or vehicle-specific disutilities are not taken into account.
+	 * This method is thread-safe.
+	 */
+	public Metric getMetric(final TravelDisutility costFunction, final double time) {
+		double[] linkCosts = getLinkCosts(costFunction, time);
+		MetricCache cache = this.metricCaches.get(time);
+		if (cache == null) {
+			MetricCache newCache = new MetricCache();
+			cache = this.metricCaches.putIfAbsent(time, newCache);
+			if (cache == null) {
+				cache = newCache;
+			}
+		}
+		return cache.getMetric(linkCosts);
+	}
+
+	/**
+	 * Computes the weights of all edges for the given travel disutility at the given time.
+	 * Person- or vehicle-specific disutilities are not taken into account.
+	 */
+	public Metric customize(final TravelDisutility costFunction, final double time) {
+		return customize(getLinkCosts(costFunction, time));
+	}
+
+	private double[] getLinkCosts(final TravelDisutility costFunction, final double time) {
+		double[] linkCosts = new double[this.graph.getLinkCount()];
+		try {
+			for (int link = 0; link < linkCosts.length; link++) {
+				linkCosts[link] = costFunction.getLinkTravelDisutility(this.graph.getLink(link), time, null, null);
+			}
+		} catch (RuntimeException e) {
+			// e.g. the randomizing travel disutility, which is person-specific; averaging it silently would route everybody alike
+			throw new RuntimeException("Contraction hierarchies need travel disutilities that can be computed without a person, "
+					+ "which is not the case for " + costFunction + ". If it is the randomizing travel disutility, set "
+					+ "routingRandomness in plansCalcRoute to zero, or use another routing algorithm.", e);
+		}
+		return linkCosts;
+	}
+
+	private Metric customize(final double[] linkCosts) {
+		int edgeCount = getEdgeCount();
+		double[] upWeight = new double[edgeCount];
+		double[] downWeight = new double[edgeCount];
+		int[] upVia = new int[edgeCount];
+		int[] downVia = new int[edgeCount];
+		Arrays.fill(upWeight, Double.POSITIVE_INFINITY);
+		Arrays.fill(downWeight, Double.POSITIVE_INFINITY);
+		Arrays.fill(upVia, NO_CONNECTION);
+		Arrays.fill(downVia, NO_CONNECTION);
+
+		for (int link = 0; link < this.graph.getLinkCount(); link++) {
+			int from = this.graph.getFromNode(link);
+			int to = this.graph.getToNode(link);
+			if (from == to) {
+				continue;
+			}
+			double cost = linkCosts[link];
+			if (this.rank[from] < this.rank[to]) {
+				int edge = findEdge(from, to);
+				if (cost < upWeight[edge]) {
+					upWeight[edge] = cost;
+					upVia[edge] = -link - 1;
+				}
+			} else {
+				int edge = findEdge(to, from);
+				if (cost < downWeight[edge]) {
+					downWeight[edge] = cost;
+					downVia[edge] = -link - 1;
+				}
+			}
+		}
+
+		// process the lower triangles of all edges, lowest nodes first
+		int[] edgeTo = new int[this.nodesByRank.length];
+		for (int r = 0; r < this.nodesByRank.length; r++) {
+			int node = this.nodesByRank[r];
+			int end = this.edgeStart[node + 1];
+			for (int edge1 = this.edgeStart[node]; edge1 < end; edge1++) {
+				int node1 = this.edgeUpperNode[edge1];
+				int end1 = this.edgeStart[node1 + 1];
+				for (int edge = this.edgeStart[node1]; edge < end1; edge++) {
+					edgeTo[this.edgeUpperNode[edge]] = edge;
+				}
+				for (int edge2 = edge1 + 1; edge2 < end; edge2++) {
+					int node2 = this.edgeUpperNode[edge2];
+					// rank(node1) < rank(node2), and the edge between them exists as node has been contracted
+					int edge = edgeTo[node2];
+					double cost = downWeight[edge1] + upWeight[edge2];
+					if (cost < upWeight[edge]) {
+						upWeight[edge] = cost;
+						upVia[edge] = node;
+					}
+					cost = downWeight[edge2] + upWeight[edge1];
+					if (cost < downWeight[edge]) {
+						downWeight[edge] = cost;
+						downVia[edge] = node;
+					}
+				}
+			}
+		}
+		return new Metric(linkCosts, upWeight, downWeight, upVia, downVia);
+	}
+
+	/**
+	 * The metrics customized for one time, most recently used first.
+	 */
+	private final class MetricCache {
+
+		private final LinkedList<Metric> metrics = new LinkedList<>();
+
+		/*package*/ synchronized Metric getMetric(final double[] linkCosts) {
+			for (Iterator<Metric> iter = this.metrics.iterator(); iter.hasNext(); ) {
+				Metric metric = iter.next();
+				if (Arrays.equals(metric.linkCosts, linkCosts)) {
+					iter.remove();
+					this.metrics.addFirst(metric);
+					return metric;
+				}
+			}
+			Metric metric = customize(linkCosts);
+			this.metrics.addFirst(metric);
+			if (this.metrics.size() > MAX_CACHED_METRICS_PER_TIME) {
+				this.metrics.removeLast();
+			}
+			return metric;
+		}
+	}
+
+	/**
+	 * The weights of the edges of a contraction hierarchy for one metric.
+	 */
+	public final class Metric {
+		/** the link disutilities the metric was customized with */
+		private final double[] linkCosts;
+		private final double[] upWeight;
+		private final double[] downWeight;
+		/** the middle node of the shortcut, or <code>-link - 1</code> for an original link */
+		private final int[] upVia;
+		private final int[] downVia;
+
+		private Metric(final double[] linkCosts, final double[] upWeight, final double[] downWeight, final int[] upVia, final int[] downVia) {
+			this.linkCosts = linkCosts;
+			this.upWeight = upWeight;
+			this.downWeight = downWeight;
+			this.upVia = upVia;
+			this.downVia = downVia;
+		}
+
+		/**
+		 * @return the cost from the lower to the upper node of the edge
+		 */
+		public double getUpWeight(final int edge) {
+			return this.upWeight[edge];
+		}
+
+		/**
+		 * @return the cost from the upper to the lower node of the edge
+		 */
+		public double getDownWeight(final int edge) {
+			return this.downWeight[edge];
+		}
+
+		/**
+		 * Appends the graph indices of the links represented by the given edge in the given direction to <code>links</code>.
+		 */
+		public void unpack(final int edge, final boolean up, final TIntArrayList links) {
+			int via = up ? this.upVia[edge] : this.downVia[edge];
+			if (via == NO_CONNECTION) {
+				throw new IllegalArgumentException("edge " + edge + " is not connected in this direction.");
+			}
+			if (via < 0) {
+				links.add(-via - 1);
+				return;
+			}
+			int lower = ContractionHierarchy.this.edgeLowerNode[edge];
+			int upper = ContractionHierarchy.this.edgeUpperNode[edge];
+			int from = up ? lower : upper;
+			int to = up ? upper : lower;
+			// from -> via is going down, via -> to is going up
+			unpack(findEdge(via, from), false, links);
+			unpack(findEdge(via, to), true, links);
+		}
+	}
+
+	/**
+	 * Orders the nodes by recursive geometric bisection, the separators getting the highest ranks.
+	 */
+	private static final class NestedDissection {
+
+		private final RoutingGraph graph;
+		private final double[] x;
+		private final double[] y;
+		private final int[] part;
+		private int partCounter = 0;
+		private final int[] order;
+		private int orderSize = 0;
+
+		/*package*/ NestedDissection(final RoutingGraph graph) {
+			this.graph = graph;
+			int nodeCount = graph.getNodeCount();
+			this.x = new double[nodeCount];
+			this.y = new double[nodeCount];
+			for (int n = 0; n < nodeCount; n++) {
+				Coord coord = graph.getNode(n).getCoord();
+				this.x[n] = coord.getX();
+				this.y[n] = coord.getY();
+			}
+			this.part = new int[nodeCount];
+			this.order = new int[nodeCount];
+		}
+
+		/*package*/ int[] order() {
+			int[] nodes = new int[this.graph.getNodeCount()];
+			for (int n = 0; n < nodes.length; n++) {
+				nodes[n] = n;
+			}
+			dissect(nodes, 0, nodes.length);
+			return this.order;
+		}
+
+		private void dissect(final int[] nodes, final int from, final int to) {
+			int size = to - from;
+			if (size <= 2) {
+				for (int i = from; i < to; i++) {
+					this.order[this.orderSize++] = nodes[i];
+				}
+				return;
+			}
+			double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+			for (int i = from; i < to; i++) {
+				int n = nodes[i];
+				minX = Math.min(minX, this.x[n]);
+				maxX = Math.max(maxX, this.x[n]);
+				minY = Math.min(minY, this.y[n]);
+				maxY = Math.max(maxY, this.y[n]);
+			}
+			double[] coords = (maxX - minX >= maxY - minY) ? this.x : this.y;
+			int mid = from + size / 2;
+			select(nodes, from, to - 1, mid, coords);
+
+			int partA = ++this.partCounter;
+			int partB = ++this.partCounter;
+			for (int i = from; i < mid; i++) {
+				this.part[nodes[i]] = partA;
+			}
+			for (int i = mid; i < to; i++) {
+				this.part[nodes[i]] = partB;
+			}
+			int separatorA = 0;
+			for (int i = from; i < mid; i++) {
+				if (isAdjacentTo(nodes[i], partB)) {
+					separatorA++;
+				}
+			}
+			int separatorB = 0;
+			for (int i = mid; i < to; i++) {
+				if (isAdjacentTo(nodes[i], partA)) {
+					separatorB++;
+				}
+			}
+			int separatorPart = separatorA <= separatorB ? partA : partB;
+			int otherPart = separatorPart == partA ? partB : partA;
+
+			// rearrange into [A without separator | B without separator | separator]
+			int[] separator = new int[Math.min(separatorA, separatorB)];
+			int s = 0;
+			int write = from;
+			for (int i = from; i < to; i++) {
+				int n = nodes[i];
+				if (this.part[n] == separatorPart && isAdjacentTo(n, otherPart)) {
+					separator[s++] = n;
+				} else {
+					nodes[write++] = n;
+				}
+			}
+			int newMid = separatorPart == partA ? mid - s : mid;
+			System.arraycopy(separator, 0, nodes, write, s);
+
+			dissect(nodes, from, newMid);
+			dissect(nodes, newMid, write);
+			for (int i = write; i < to; i++) {
+				this.order[this.orderSize++] = nodes[i];
+			}
+		}
+
+		private boolean isAdjacentTo(final int node, final int otherPart) {
+			int end = this.graph.getOutLinkStart(node + 1);
+			for (int link = this.graph.getOutLinkStart(node); link < end; link++) {
+				if (this.part[this.graph.getToNode(link)] == otherPart) {
+					return true;
+				}
+			}
+			end = this.graph.getInLinkStart(node + 1);
+			for (int i = this.graph.getInLinkStart(node); i < end; i++) {
+				if (this.part[this.graph.getFromNode(this.graph.getInLink(i))] == otherPart) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Rearranges <code>nodes[left..right]</code> so that the node at position <code>k</code> is the one
+		 * that would be there if the nodes were sorted by their coordinate, with all smaller ones before it
+		 * and all larger ones after it.
+		 */
+		private static void select(final int[] nodes, int left, int right, final int k, final double[] coords) {
+			while (right > left) {
+				double pivot = coords[nodes[(left + right) >>> 1]];
+				int i = left;
+				int j = right;
+				while (i <= j) {
+					while (coords[nodes[i]] < pivot) {
+						i++;
+					}
+					while (coords[nodes[j]] > pivot) {
+						j--;
+					}
+					if (i <= j) {
+						int tmp = nodes[i];
+						nodes[i] = nodes[j];
+						nodes[j] = tmp;
+						i++;
+						j--;
+					}
+				}
+				if (k <= j) {
+					right = j;
+				} else if (k >= i) {
+					left = i;
+				} else {
+					return;
+				}
+			}
+		}
+	}
+
+}
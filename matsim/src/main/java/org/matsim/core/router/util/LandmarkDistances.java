@@ -0,0 +1,251 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LandmarkDistances.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.priorityqueue.IntMinHeap;
+
+/**
+ * The least-cost distances from and to a number of landmarks for all nodes of a {@link RoutingGraph},
+ * based on the minimum travel disutility of the links. In contrast to {@link PreProcessLandmarks},
+ * the distances are stored in flat float arrays indexed by the node index of the graph, and the
+ * minimum link disutilities they were computed with are kept, so that one can check with
+ * {@link #isLowerBoundFor(TravelDisutility)} whether the distances can be re-used for another
+ * travel disutility, e.g. the one of the next iteration.
+ * <p/>
+ * Instances are immutable and can be shared by all routers using the same graph.
+ */
+public final class LandmarkDistances {
+
+	private static final Logger log = Logger.getLogger(LandmarkDistances.class);
+
+	private final RoutingGraph graph;
+	private final int landmarkCount;
+	private final Node[] landmarks;
+	/** the minimum disutility per link the distances were calculated with */
+	private final double[] linkMinCost;
+	/** distance from landmark <code>l</code> to node <code>n</code> at <code>n * landmarkCount + l</code>, rounded down */
+	private final float[] fromLandmark;
+	/** distance from node <code>n</code> to landmark <code>l</code> at <code>n * landmarkCount + l</code>, rounded down */
+	private final float[] toLandmark;
+
+	public LandmarkDistances(final RoutingGraph graph, final TravelDisutility costFunction, final Landmarker landmarker,
+			final int landmarkCount, final int numberOfThreads) {
+		this.graph = graph;
+
+		log.info("Putting landmarks on network...");
+		long now = System.currentTimeMillis();
+		this.landmarks = landmarker.identifyLandmarks(landmarkCount, graph.getNetwork());
+		this.landmarkCount = this.landmarks.length;
+		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
+
+		this.linkMinCost = new double[graph.getLinkCount()];
+		for (int l = 0; l < this.linkMinCost.length; l++) {
+			this.linkMinCost[l] = costFunction.getLinkMinimumTravelDisutility(graph.getLink(l));
+		}
+		int size = graph.getNodeCount() * this.landmarkCount;
+		this.fromLandmark = new float[size];
+		this.toLandmark = new float[size];
+
+		int nOfThreads = Math.max(1, Math.min(numberOfThreads, this.landmarkCount));
+		log.info("Calculating distance from each node to each of the " + this.landmarkCount + " landmarks using " + nOfThreads + " threads...");
+		now = System.currentTimeMillis();
+		ExecutorService executor = Executors.newFixedThreadPool(nOfThreads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < this.landmarkCount; i++) {
+				futures.add(executor.submit(new Calculator(i, graph.getNodeIndex(this.landmarks[i]))));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		} finally {
+			executor.shutdown();
+		}
+		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
+	}
+
+	public RoutingGraph getGraph() {
+		return this.graph;
+	}
+
+	public int getLandmarkCount() {
+		return this.landmarkCount;
+	}
+
+	public Node[] getLandmarks() {
+		return this.landmarks.clone();
+	}
+
+	/**
+	 * @return the minimum disutility of the link with the given graph index that was used to calculate the distances.
+	 */
+	public double getLinkMinimumCost(final int link) {
+		return this.linkMinCost[link];
+	}
+
+	/**
+	 * @return <code>true</code> if the minimum disutility of the given cost function is nowhere smaller than
+	 * the one the distances were calculated with, i.e. if the distances still give lower bounds for the
+	 * least-cost paths with the given cost function.
+	 */
+	public boolean isLowerBoundFor(final TravelDisutility costFunction) {
+		for (int l = 0; l < this.linkMinCost.length; l++) {
+			if (costFunction.getLinkMinimumTravelDisutility(this.graph.getLink(l)) < this.linkMinCost[l]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return a lower bound for the least cost from node <code>from</code> to node <code>to</code> based on
+	 * the given landmark. May be {@link Double#POSITIVE_INFINITY} if <code>to</code> cannot be reached.
+	 */
+	public double getLowerBound(final int from, final int to, final int landmark) {
+		int fromIdx = from * this.landmarkCount + landmark;
+		int toIdx = to * this.landmarkCount + landmark;
+		double bound = 0.0;
+		// The stored values are rounded down, so the minuend is used as it is and the subtrahend is rounded
+		// up to the next float, which is at least the exact distance. This keeps the difference a lower bound.
+		// d(from, L) <= d(from, to) + d(to, L)
+		double d = (double) this.toLandmark[fromIdx] - Math.nextUp(this.toLandmark[toIdx]);
+		if (d > bound) {
+			bound = d;
+		}
+		// d(L, to) <= d(L, from) + d(from, to)
+		d = (double) this.fromLandmark[toIdx] - Math.nextUp(this.fromLandmark[fromIdx]);
+		if (d > bound) {
+			bound = d;
+		}
+		return bound;
+	}
+
+	/**
+	 * @return the best lower bound for the least cost from node <code>from</code> to node <code>to</code>
+	 * based on the first <code>count</code> landmarks in <code>selection</code>.
+	 */
+	public double getLowerBound(final int from, final int to, final int[] selection, final int count) {
+		double bound = 0.0;
+		for (int i = 0; i < count; i++) {
+			double d = getLowerBound(from, to, selection[i]);
+			if (d > bound) {
+				bound = d;
+			}
+		}
+		return bound;
+	}
+
+	/**
+	 * Fills <code>selection</code> with the landmarks that give the best lower bounds for the least cost
+	 * from node <code>from</code> to node <code>to</code>.
+	 *
+	 * @return the number of selected landmarks, at most <code>selection.length</code>
+	 */
+	public int selectLandmarks(final int from, final int to, final int[] selection) {
+		int count = Math.min(selection.length, this.landmarkCount);
+		double[] bounds = new double[count];
+		Arrays.fill(bounds, -1.0);
+		for (int l = 0; l < this.landmarkCount; l++) {
+			double bound = getLowerBound(from, to, l);
+			int pos = count;
+			while (pos > 0 && bounds[pos - 1] < bound) {
+				pos--;
+			}
+			if (pos < count) {
+				System.arraycopy(bounds, pos, bounds, pos + 1, count - pos - 1);
+				System.arraycopy(selection, pos, selection, pos + 1, count - pos - 1);
+				bounds[pos] = bound;
+				selection[pos] = l;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Converts to float, rounding down. The result is the largest float not greater than <code>value</code>,
+	 * so the next float up is always greater than or equal to <code>value</code>.
+	 */
+	private static float floor(final double value) {
+		float f = (float) value;
+		if (f > value) {
+			f = Math.nextAfter(f, Double.NEGATIVE_INFINITY);
+		}
+		return f;
+	}
+
+	private class Calculator implements Runnable {
+
+		private final int landmarkIdx;
+		private final int landmarkNode;
+
+		/*package*/ Calculator(final int landmarkIdx, final int landmarkNode) {
+			this.landmarkIdx = landmarkIdx;
+			this.landmarkNode = landmarkNode;
+		}
+
+		@Override
+		public void run() {
+			double[] cost = new double[LandmarkDistances.this.graph.getNodeCount()];
+			IntMinHeap pendingNodes = new IntMinHeap(cost.length);
+			expand(cost, pendingNodes, true, LandmarkDistances.this.fromLandmark);
+			expand(cost, pendingNodes, false, LandmarkDistances.this.toLandmark);
+		}
+
+		private void expand(final double[] cost, final IntMinHeap pendingNodes, final boolean forward, final float[] result) {
+			RoutingGraph graph = LandmarkDistances.this.graph;
+			Arrays.fill(cost, Double.POSITIVE_INFINITY);
+			cost[this.landmarkNode] = 0.0;
+			pendingNodes.insertOrDecreaseKey(this.landmarkNode, 0.0);
+			while (!pendingNodes.isEmpty()) {
+				int node = pendingNodes.poll();
+				double nodeCost = cost[node];
+				int end = forward ? graph.getOutLinkStart(node + 1) : graph.getInLinkStart(node + 1);
+				for (int i = forward ? graph.getOutLinkStart(node) : graph.getInLinkStart(node); i < end; i++) {
+					int link = forward ? i : graph.getInLink(i);
+					int next = forward ? graph.getToNode(link) : graph.getFromNode(link);
+					double nextCost = nodeCost + LandmarkDistances.this.linkMinCost[link];
+					if (nextCost < cost[next]) {
+						cost[next] = nextCost;
+						pendingNodes.insertOrDecreaseKey(next, nextCost);
+					}
+				}
+			}
+			int landmarkCount = LandmarkDistances.this.landmarkCount;
+			for (int n = 0; n < cost.length; n++) {
+				result[n * landmarkCount + this.landmarkIdx] = floor(cost[n]);
+			}
+		}
+
+	}
+
+}
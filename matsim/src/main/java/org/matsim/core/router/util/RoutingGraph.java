@@ -0,0 +1,155 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RoutingGraph.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * An immutable, array-based copy of the topology of a network. Nodes and links are numbered
+ * from 0 to <code>getNodeCount() - 1</code> resp. <code>getLinkCount() - 1</code>, and the
+ * out- and in-links of each node are stored in compressed sparse row form: the links are
+ * numbered by their from-node, so the out-links of node <code>n</code> are the links from
+ * <code>getOutLinkStart(n)</code> (inclusive) to <code>getOutLinkStart(n + 1)</code> (exclusive).
+ * The in-links of node <code>n</code> are the links <code>getInLink(i)</code> for <code>i</code>
+ * from <code>getInLinkStart(n)</code> to <code>getInLinkStart(n + 1)</code>.
+ * <p/>
+ * A routing graph contains no per-query state, so it can be shared by all routers working
+ * on the same network.
+ */
+public final class RoutingGraph {
+
+	private final Network network;
+	private final Node[] nodes;
+	private final Link[] links;
+	private final int[] linkFromNode;
+	private final int[] linkToNode;
+	private final int[] outLinkStart;
+	private final int[] inLinkStart;
+	private final int[] inLinks;
+	/** graph index by {@link Id#index()} of the node id, -1 if the node is not part of the graph */
+	private final int[] nodeIndexById;
+	private final int[] linkIndexById;
+
+	public RoutingGraph(final Network network) {
+		this.network = network;
+		this.nodes = network.getNodes().values().toArray(new Node[network.getNodes().size()]);
+		this.nodeIndexById = new int[Id.getNumberOfIds(Node.class)];
+		Arrays.fill(this.nodeIndexById, -1);
+		for (int i = 0; i < this.nodes.length; i++) {
+			this.nodeIndexById[this.nodes[i].getId().index()] = i;
+		}
+
+		int linkCount = network.getLinks().size();
+		this.links = new Link[linkCount];
+		this.linkFromNode = new int[linkCount];
+		this.linkToNode = new int[linkCount];
+		this.linkIndexById = new int[Id.getNumberOfIds(Link.class)];
+		Arrays.fill(this.linkIndexById, -1);
+		this.outLinkStart = new int[this.nodes.length + 1];
+		int l = 0;
+		for (int n = 0; n < this.nodes.length; n++) {
+			this.outLinkStart[n] = l;
+			for (Link link : this.nodes[n].getOutLinks().values()) {
+				this.links[l] = link;
+				this.linkFromNode[l] = n;
+				this.linkToNode[l] = getNodeIndex(link.getToNode());
+				this.linkIndexById[link.getId().index()] = l;
+				l++;
+			}
+		}
+		this.outLinkStart[this.nodes.length] = l;
+
+		this.inLinkStart = new int[this.nodes.length + 1];
+		this.inLinks = new int[linkCount];
+		for (int i = 0; i < linkCount; i++) {
+			this.inLinkStart[this.linkToNode[i] + 1]++;
+		}
+		for (int n = 0; n < this.nodes.length; n++) {
+			this.inLinkStart[n + 1] += this.inLinkStart[n];
+		}
+		int[] fill = Arrays.copyOf(this.inLinkStart, this.nodes.length);
+		for (int i = 0; i < linkCount; i++) {
+			this.inLinks[fill[this.linkToNode[i]]++] = i;
+		}
+	}
+
+	public Network getNetwork() {
+		return this.network;
+	}
+
+	public int getNodeCount() {
+		return this.nodes.length;
+	}
+
+	public int getLinkCount() {
+		return this.links.length;
+	}
+
+	public Node getNode(final int node) {
+		return this.nodes[node];
+	}
+
+	public Link getLink(final int link) {
+		return this.links[link];
+	}
+
+	/**
+	 * @return the index of the node in this graph, or -1 if it is not part of the graph
+	 */
+	public int getNodeIndex(final Node node) {
+		int index = node.getId().index();
+		return index < this.nodeIndexById.length ? this.nodeIndexById[index] : -1;
+	}
+
+	/**
+	 * @return the index of the link in this graph, or -1 if it is not part of the graph
+	 */
+	public int getLinkIndex(final Link link) {
+		int index = link.getId().index();
+		return index < this.linkIndexById.length ? this.linkIndexById[index] : -1;
+	}
+
+	public int getFromNode(final int link) {
+		return this.linkFromNode[link];
+	}
+
+	public int getToNode(final int link) {
+		return this.linkToNode[link];
+	}
+
+	public int getOutLinkStart(final int node) {
+		return this.outLinkStart[node];
+	}
+
+	public int getInLinkStart(final int node) {
+		return this.inLinkStart[node];
+	}
+
+	public int getInLink(final int position) {
+		return this.inLinks[position];
+	}
+
+}
@@ -194,8 +194,9 @@ class ScenarioLoaderImpl {
 			URL populationFileName = this.config.plans().getInputFileURL(this.config.getContext());
 			log.info("loading population from " + populationFileName);
 
+			final PopulationReader reader;
 			if ( config.plans().getInputCRS() == null ) {
-				new PopulationReader(this.scenario).parse(populationFileName);
+				reader = new PopulationReader(this.scenario);
 			}
 			else {
 				final String inputCRS = config.plans().getInputCRS();
@@ -208,7 +209,12 @@ class ScenarioLoaderImpl {
 								inputCRS,
 								internalCRS );
 
-				new PopulationReader(transformation , this.scenario).parse(populationFileName);
+				reader = new PopulationReader(transformation , this.scenario);
+			}
+			if ( config.plans().isUsingParallelPopulationReader() ) {
+				reader.parseInParallel(populationFileName);
+			} else {
+				reader.parse(populationFileName);
 			}
 
 			PopulationUtils.printPlansCount(this.scenario.getPopulation()) ;
@@ -21,11 +21,11 @@
  package org.matsim.core.scoring;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.events.ActivityEndEvent;
 import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.handler.ActivityEndEventHandler;
@@ -59,7 +59,7 @@ public class EventsToActivities implements ActivityStartEventHandler, ActivityEn
 	    void handleActivity(PersonExperiencedActivity activity);
 	}
 
-    private Map<Id<Person>, Activity> activities = new HashMap<>();
+    private Map<Id<Person>, Activity> activities = new IdMap<>(Person.class);
     private List<ActivityHandler> activityHandlers = new ArrayList<>();
 
     public EventsToActivities() {
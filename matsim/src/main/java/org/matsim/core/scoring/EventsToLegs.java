@@ -26,6 +26,7 @@ import java.util.Map;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.LinkEnterEvent;
 import org.matsim.api.core.v01.events.LinkLeaveEvent;
@@ -135,7 +136,7 @@ TeleportationArrivalEventHandler, TransitDriverStartsEventHandler, PersonEntersV
 	public void setTransitSchedule(TransitSchedule transitSchedule) {
 		this.transitSchedule = transitSchedule;
 	}
-	private Map<Id<Person>, Leg> legs = new HashMap<>();
+	private Map<Id<Person>, Leg> legs = new IdMap<>(Person.class);
 	private Map<Id<Person>, List<Id<Link>>> experiencedRoutes = new HashMap<>();
 	private Map<Id<Person>, Double> relPosOnDepartureLinkPerPerson = new HashMap<>();
 	private Map<Id<Person>, Double> relPosOnArrivalLinkPerPerson = new HashMap<>();
@@ -201,6 +202,10 @@ TeleportationArrivalEventHandler, TransitDriverStartsEventHandler, PersonEntersV
 	@Override
 	public void handleEvent(LinkEnterEvent event) {
 		Id<Person> driverOfVehicle = delegate.getDriverOfVehicle(event.getVehicleId());
+		if (driverOfVehicle == null) {
+			// the vehicle did not enter traffic as far as this instance knows, e.g. if it only gets the events of some persons
+			return;
+		}
 		List<Id<Link>> route = experiencedRoutes.get(driverOfVehicle);
 		route.add(event.getLinkId());
 	}
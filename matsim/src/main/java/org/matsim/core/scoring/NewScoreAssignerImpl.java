@@ -6,24 +6,36 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 
 import javax.inject.Inject;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 class NewScoreAssignerImpl implements NewScoreAssigner {
 
 	static private final Logger log = Logger.getLogger(NewScoreAssignerImpl.class);
 
-	private Map<Plan,Integer> msaContributions = new HashMap<>() ;
+	/** below this number of persons per thread, the scores are assigned by the calling thread only */
+	private static final int MIN_PERSONS_PER_THREAD = 10000;
+
+	private Map<Plan,Integer> msaContributions = new ConcurrentHashMap<>() ;
 	private Integer scoreMSAstartsAtIteration;
 	private final double learningRate;
 	private double scoreSum = 0.0;
 	private long scoreCount = 0;
+	private final int numberOfThreads;
 
 	@Inject
-	NewScoreAssignerImpl(PlanCalcScoreConfigGroup planCalcScoreConfigGroup, ControlerConfigGroup controlerConfigGroup) {
+	NewScoreAssignerImpl(PlanCalcScoreConfigGroup planCalcScoreConfigGroup, ControlerConfigGroup controlerConfigGroup, GlobalConfigGroup globalConfigGroup) {
+		this.numberOfThreads = Math.max(1, globalConfigGroup.getNumberOfThreads());
 		if (planCalcScoreConfigGroup.getFractionOfIterationsToStartScoreMSA()!=null ) {
 			final int diff = controlerConfigGroup.getLastIteration() - controlerConfigGroup.getFirstIteration();
 			this.scoreMSAstartsAtIteration = (int) (diff
@@ -35,7 +47,42 @@ class NewScoreAssignerImpl implements NewScoreAssigner {
 	public void assignNewScores(int iteration, ScoringFunctionsForPopulation scoringFunctionsForPopulation, Population population) {
 		log.info("it: " + iteration + " msaStart: " + this.scoreMSAstartsAtIteration );
 
-		for (Person person : population.getPersons().values()) {
+		// the score of every person only depends on its own plan, so the persons can be split into independent chunks
+		final List<Person> persons = new ArrayList<>(population.getPersons().values());
+		int nOfThreads = Math.min(this.numberOfThreads, persons.size() / MIN_PERSONS_PER_THREAD);
+		if (nOfThreads <= 1) {
+			assignNewScores(iteration, scoringFunctionsForPopulation, persons);
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(nOfThreads);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < nOfThreads; i++) {
+			final List<Person> chunk = persons.subList(i * persons.size() / nOfThreads, (i + 1) * persons.size() / nOfThreads);
+			final int iter = iteration;
+			final ScoringFunctionsForPopulation scoringFunctions = scoringFunctionsForPopulation;
+			futures.add(executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					assignNewScores(iter, scoringFunctions, chunk);
+				}
+			}));
+		}
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private void assignNewScores(int iteration, ScoringFunctionsForPopulation scoringFunctionsForPopulation, List<Person> persons) {
+		double sum = 0.0;
+		for (Person person : persons) {
 			ScoringFunction sf = scoringFunctionsForPopulation.getScoringFunctionForAgent(person.getId());
 			double score = sf.getScore();
 			Plan plan = person.getSelectedPlan();
@@ -95,8 +142,11 @@ class NewScoreAssignerImpl implements NewScoreAssigner {
 				}
 			}
 
-			this.scoreSum += score;
-			this.scoreCount++;
+			sum += score;
+		}
+		synchronized (this) {
+			this.scoreSum += sum;
+			this.scoreCount += persons.size();
 		}
 	}
 
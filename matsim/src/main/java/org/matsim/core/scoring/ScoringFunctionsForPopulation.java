@@ -26,23 +26,26 @@ import gnu.trove.iterator.TDoubleIterator;
 import gnu.trove.list.array.TDoubleArrayList;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.api.core.v01.events.PersonMoneyEvent;
 import org.matsim.api.core.v01.events.PersonStuckEvent;
-import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.*;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.HasPersonId;
-import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.config.Config;
 import org.matsim.core.controler.ControlerListenerManager;
+import org.matsim.core.controler.events.AfterMobsimEvent;
 import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
 import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.handler.BasicEventHandler;
 import org.matsim.core.utils.io.IOUtils;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -52,17 +55,20 @@ import java.util.concurrent.atomic.AtomicReference;
  * This class helps EventsToScore by keeping ScoringFunctions for the entire Population - one per Person -, and dispatching Activities
  * and Legs to the ScoringFunctions. It also gives out the ScoringFunctions, so they can be given other events by EventsToScore.
  * It is not independently useful. Please do not make public.
+ * <p/>
+ * The persons are split into shards, one per thread of the parallel event handling. Every shard is a separate event handler with its
+ * own {@link EventsToLegs} and {@link EventsToActivities}, and only gets the events of its own persons plus the ones that do not
+ * belong to a person (e.g. link events). So the shards can be run by different events threads without any synchronization, as
+ * all events of a person are handled by the same shard.
  * 
  * @author michaz
  *
  */
-class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.LegHandler, EventsToActivities.ActivityHandler {
+class ScoringFunctionsForPopulation {
 
 	private final static Logger log = Logger.getLogger(ScoringFunctionsForPopulation.class);
-	private final PlansConfigGroup plansConfigGroup;
 	private final Population population;
 	private final ScoringFunctionFactory scoringFunctionFactory;
-	private Network network;
 
 	/*
 	 * Replaced TreeMaps with (Linked)HashMaps since they should perform much better. For 'partialScores'
@@ -73,27 +79,53 @@ class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.L
 	 * should be faster and reduce the memory overhead.
 	 *
 	 * cdobler, nov'15
+	 *
+	 * agentScorers is looked up for every scored event, it is thus stored in an IdMap which is indexed by the
+	 * persons' id indices instead of hashing them.
+	 *
+	 * Both maps are only filled at the start of an iteration; during the iteration, every entry is only used
+	 * by the shard of its person.
 	 */
-	private final Map<Id<Person>, ScoringFunction> agentScorers = new HashMap<>();
+	private final Map<Id<Person>, ScoringFunction> agentScorers = new IdMap<>(Person.class);
 	private final Map<Id<Person>, TDoubleCollection> partialScores = new LinkedHashMap<>();
 	private final AtomicReference<Throwable> exception = new AtomicReference<>();
+	private final Shard[] shards;
 
 	@Inject
-	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
-								  PlansConfigGroup plansConfigGroup, Network network, Population population, ScoringFunctionFactory scoringFunctionFactory) {
+	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, Scenario scenario,
+								  ScoringFunctionFactory scoringFunctionFactory) {
 		controlerListenerManager.addControlerListener(new IterationStartsListener() {
 			@Override
 			public void notifyIterationStarts(IterationStartsEvent event) {
 				init();
 			}
 		});
-		this.plansConfigGroup = plansConfigGroup;
-		this.network = network;
-		this.population = population;
+		controlerListenerManager.addControlerListener(new AfterMobsimListener() {
+			@Override
+			public void notifyAfterMobsim(AfterMobsimEvent event) {
+				finishActivities();
+			}
+		});
+		this.population = scenario.getPopulation();
 		this.scoringFunctionFactory = scoringFunctionFactory;
-		eventsManager.addHandler(this);
-		eventsToActivities.addActivityHandler(this);
-		eventsToLegs.addLegHandler(this);
+		this.shards = new Shard[getNumberOfShards(scenario.getConfig())];
+		for (int i = 0; i < this.shards.length; i++) {
+			this.shards[i] = new Shard(scenario);
+			eventsManager.addHandler(this.shards[i]);
+		}
+		log.info("scoring the persons in " + this.shards.length + " shard(s).");
+	}
+
+	/**
+	 * One shard per events thread, so that each thread can score its own part of the population.
+	 */
+	private static int getNumberOfShards(Config config) {
+		Boolean oneThreadPerHandler = config.parallelEventHandling().getOneThreadPerHandler();
+		if (oneThreadPerHandler != null && oneThreadPerHandler) {
+			return Math.max(1, config.global().getNumberOfThreads());
+		}
+		Integer numberOfThreads = config.parallelEventHandling().getNumberOfThreads();
+		return numberOfThreads == null ? 1 : Math.max(1, numberOfThreads);
 	}
 
 	private void init() {
@@ -104,48 +136,13 @@ class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.L
 		}
 	}
 
-	@Override
-	synchronized public void handleEvent(Event o) {
-		// this is for the stuff that is directly based on events.
-		// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
-		// for the time being, not all PersonEvents may "implement HasPersonId".
-		// link enter/leave events are NOT passed on, for performance reasons.
-		// kai/dominik, dec'12
-		if (o instanceof HasPersonId) {
-			ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
-			if (scoringFunction != null) {
-				if (o instanceof PersonStuckEvent) {
-					scoringFunction.agentStuck(o.getTime());
-				} else if (o instanceof PersonMoneyEvent) {
-					scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
-				} else {
-					scoringFunction.handleEvent(o);
-				}
-			}
-		}
+	private Shard getShard(Id<Person> personId) {
+		return this.shards[personId.index() % this.shards.length];
 	}
 
-	@Override
-	synchronized public void handleLeg(PersonExperiencedLeg o) {
-		Id<Person> agentId = o.getAgentId();
-		Leg leg = o.getLeg();
-		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
-		if (scoringFunction != null) {
-			scoringFunction.handleLeg(leg);
-			TDoubleCollection partialScoresForAgent = partialScores.get(agentId);
-			partialScoresForAgent.add(scoringFunction.getScore());
-		}
-	}
-
-	@Override
-	synchronized public void handleActivity(PersonExperiencedActivity o) {
-		Id<Person> agentId = o.getAgentId();
-		Activity activity = o.getActivity();
-		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
-		if (scoringFunction != null) {
-			scoringFunction.handleActivity(activity);
-			TDoubleCollection partialScoresForAgent = partialScores.get(agentId);
-			partialScoresForAgent.add(scoringFunction.getScore());
+	private void finishActivities() {
+		for (Shard shard : this.shards) {
+			shard.eventsToActivities.finish();
 		}
 	}
 
@@ -197,8 +194,78 @@ class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.L
 		}
 	}
 
-	@Override
-	public void reset(int iteration) {
+	/**
+	 * Scores the persons with <code>personId.index() % shards.length</code> equal to the index of the shard.
+	 * Events without a person are passed to the {@link EventsToLegs} of every shard, as they may be needed
+	 * to build the legs, e.g. link enter events for the routes.
+	 */
+	private final class Shard implements BasicEventHandler, EventsToLegs.LegHandler, EventsToActivities.ActivityHandler {
+
+		private final EventsManager events = EventsUtils.createEventsManager();
+		private final EventsToActivities eventsToActivities = new EventsToActivities();
+		private final EventsToLegs eventsToLegs;
+
+		Shard(Scenario scenario) {
+			this.eventsToLegs = new EventsToLegs(scenario);
+			this.eventsToActivities.addActivityHandler(this);
+			this.eventsToLegs.addLegHandler(this);
+			this.events.addHandler(this.eventsToActivities);
+			this.events.addHandler(this.eventsToLegs);
+		}
+
+		@Override
+		public void handleEvent(Event o) {
+			// this is for the stuff that is directly based on events.
+			// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
+			// for the time being, not all PersonEvents may "implement HasPersonId".
+			// link enter/leave events are NOT passed on, for performance reasons.
+			// kai/dominik, dec'12
+			if (o instanceof HasPersonId) {
+				Id<Person> personId = ((HasPersonId) o).getPersonId();
+				if (getShard(personId) != this) {
+					return;
+				}
+				ScoringFunction scoringFunction = getScoringFunctionForAgent(personId);
+				if (scoringFunction != null) {
+					if (o instanceof PersonStuckEvent) {
+						scoringFunction.agentStuck(o.getTime());
+					} else if (o instanceof PersonMoneyEvent) {
+						scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
+					} else {
+						scoringFunction.handleEvent(o);
+					}
+				}
+			}
+			this.events.processEvent(o);
+		}
 
+		@Override
+		public void handleLeg(PersonExperiencedLeg o) {
+			Id<Person> agentId = o.getAgentId();
+			Leg leg = o.getLeg();
+			ScoringFunction scoringFunction = getScoringFunctionForAgent(agentId);
+			if (scoringFunction != null) {
+				scoringFunction.handleLeg(leg);
+				TDoubleCollection partialScoresForAgent = partialScores.get(agentId);
+				partialScoresForAgent.add(scoringFunction.getScore());
+			}
+		}
+
+		@Override
+		public void handleActivity(PersonExperiencedActivity o) {
+			Id<Person> agentId = o.getAgentId();
+			Activity activity = o.getActivity();
+			ScoringFunction scoringFunction = getScoringFunctionForAgent(agentId);
+			if (scoringFunction != null) {
+				scoringFunction.handleActivity(activity);
+				TDoubleCollection partialScoresForAgent = partialScores.get(agentId);
+				partialScoresForAgent.add(scoringFunction.getScore());
+			}
+		}
+
+		@Override
+		public void reset(int iteration) {
+			this.events.resetHandlers(iteration);
+		}
 	}
-}
\ No newline at end of file
+}
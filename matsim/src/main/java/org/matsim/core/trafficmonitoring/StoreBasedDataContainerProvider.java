@@ -0,0 +1,78 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * StoreBasedDataContainerProvider.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator.DataContainer;
+
+/**
+ * Provides DataContainers whose travel time data is stored in a {@link TravelTimeDataStore}.
+ * The containers are looked up in an array by the index of the link's id, so neither the
+ * EventHandler part nor the TravelTime part of the TravelTimeCalculator needs any hashing.
+ * Containers are created on first use and also put into the TravelTimeCalculator's link data
+ * map, so that they are reset with all others. Creating them is thread-safe, as is adding
+ * travel times to the store.
+ * <p/>
+ * Links that are not part of the network are forwarded to a MapBasedDataContainerProvider.
+ */
+public class StoreBasedDataContainerProvider implements DataContainerProvider {
+
+	private final TravelTimeDataStore store;
+	private final Map<Id<Link>, DataContainer> linkData;
+	private final AtomicReferenceArray<DataContainer> arrayLinkData;
+	private final DataContainerProvider delegate;
+
+	/*package*/ StoreBasedDataContainerProvider(Map<Id<Link>, DataContainer> linkData, TravelTimeDataStore store,
+			TravelTimeDataFactory ttDataFactory) {
+		this.store = store;
+		this.linkData = linkData;
+		this.arrayLinkData = new AtomicReferenceArray<>(store.getLinkCount());
+		this.delegate = new MapBasedDataContainerProvider(linkData, ttDataFactory);
+	}
+
+	@Override
+	public DataContainer getTravelTimeData(final Id<Link> linkId, final boolean createIfMissing) {
+		int index = this.store.getLinkIndex(linkId);
+		if (index < 0) {
+			return this.delegate.getTravelTimeData(linkId, createIfMissing);
+		}
+		DataContainer data = this.arrayLinkData.get(index);
+		if ((null == data) && createIfMissing) {
+			data = new DataContainer(this.store.getTravelTimeData(index));
+			if (this.arrayLinkData.compareAndSet(index, null, data)) {
+				this.linkData.put(linkId, data);
+			} else {
+				data = this.arrayLinkData.get(index);
+			}
+		}
+		return data;
+	}
+
+	@Override
+	public DataContainer getTravelTimeData(final Link link, final boolean createIfMissing) {
+		return this.getTravelTimeData(link.getId(), createIfMissing);
+	}
+
+}
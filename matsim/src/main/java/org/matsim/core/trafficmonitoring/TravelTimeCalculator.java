@@ -19,7 +19,9 @@
  * *********************************************************************** */
 package org.matsim.core.trafficmonitoring;
 
-import java.util.HashSet;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -44,6 +46,7 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.CheckpointUtils;
 import org.matsim.core.router.util.LinkToLinkTravelTime;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.collections.CollectionUtils;
@@ -60,7 +63,9 @@ import org.matsim.vehicles.Vehicle;
  * is stored in {@link TravelTimeData}-objects. If a short binSize is used, it is useful to
  * use {@link TravelTimeDataHashMap} (see {@link #setTravelTimeDataFactory(TravelTimeDataFactory)}
  * as that one does not use any memory to time bins where no traffic occurred. By default,
- * {@link TravelTimeDataArray} is used.
+ * {@link TravelTimeDataArray} is used. With the calculator type <code>TravelTimeCalculatorConcurrentArray</code>,
+ * the link travel times of all links are stored in a {@link TravelTimeDataStore} instead, which needs
+ * considerably less memory on large networks and can be updated from several threads at once.
  * 
  * @author dgrether
  * @author mrieser
@@ -82,11 +87,10 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 
 	private Map<Tuple<Id<Link>, Id<Link>>, DataContainer> linkToLinkData;
 
-	private final DataContainerProvider dataContainerProvider;
+	private DataContainerProvider dataContainerProvider;
 	
-	private final Map<Id<Vehicle>, LinkEnterEvent> linkEnterEvents;
+	private final VehicleLinkEnterTimes linkEnterTimes;
 
-	private final Set<Id<Vehicle>> vehiclesToIgnore;
 	private final Set<String> analyzedModes;
 
 	private final boolean filterAnalyzedModes;
@@ -112,6 +116,11 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 			case TravelTimeCalculatorHashMap:
 				calculator.setTravelTimeDataFactory(new TravelTimeDataHashMapFactory(network));
 				break;
+			case TravelTimeCalculatorConcurrentArray:
+				// the factory is still used for link-to-link travel times
+				calculator.setTravelTimeDataFactory(new TravelTimeDataArrayFactory(network, calculator.numSlots));
+				calculator.useTravelTimeDataStore(network);
+				break;
 			default:
 				throw new RuntimeException(config.getTravelTimeCalculatorType() + " is unknown!");
 		}
@@ -189,11 +198,9 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 			// assume that every link has 2 outgoing links as default
 			this.linkToLinkData = new ConcurrentHashMap<>((int) (network.getLinks().size() * 1.4 * 2));
 		}
-		this.linkEnterEvents = new ConcurrentHashMap<>();
-
 		// if we just look at one mode, we need to ignore all vehicles with a different mode. However, the info re the mode is only in
 		// the vehicleEntersTraffic event.  So we need to memorize the ignored vehicles from there ...
-		this.vehiclesToIgnore = new HashSet<>();
+		this.linkEnterTimes = new VehicleLinkEnterTimes();
 
 
 		this.reset(0);
@@ -204,25 +211,25 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 	public void handleEvent(final LinkEnterEvent e) {
 		/* if only some modes are analyzed, we check whether the vehicles
 		 * performs a trip with one of those modes. if not, we skip the event. */
-		if (filterAnalyzedModes && vehiclesToIgnore.contains(e.getVehicleId())) return;
+		int vehicle = VehicleLinkEnterTimes.getIndex(e.getVehicleId());
+		if (filterAnalyzedModes && this.linkEnterTimes.isIgnored(vehicle)) return;
 
-		LinkEnterEvent oldEvent = this.linkEnterEvents.remove(e.getVehicleId());
-		if ((oldEvent != null) && this.calculateLinkToLinkTravelTimes) {
-			Tuple<Id<Link>, Id<Link>> fromToLink = new Tuple<>(oldEvent.getLinkId(), e.getLinkId());
+		if (this.calculateLinkToLinkTravelTimes && this.linkEnterTimes.hasEntered(vehicle)) {
+			Tuple<Id<Link>, Id<Link>> fromToLink = new Tuple<>(this.linkEnterTimes.getLinkId(vehicle), e.getLinkId());
 			DataContainer data = getLinkToLinkTravelTimeData(fromToLink, true);
-			this.aggregator.addTravelTime(data.ttData, oldEvent.getTime(), e.getTime());
+			this.aggregator.addTravelTime(data.ttData, this.linkEnterTimes.getEnterTime(vehicle), e.getTime());
 			data.needsConsolidation = true;
 		}
-		this.linkEnterEvents.put(e.getVehicleId(), e);
+		this.linkEnterTimes.setEntered(vehicle, e.getLinkId(), e.getTime());
 	}
 
 	@Override
 	public void handleEvent(final LinkLeaveEvent e) {
 		if (this.calculateLinkTravelTimes) {
-			LinkEnterEvent oldEvent = this.linkEnterEvents.get(e.getVehicleId());
-			if (oldEvent != null) {
+			int vehicle = VehicleLinkEnterTimes.getIndex(e.getVehicleId());
+			if (this.linkEnterTimes.hasEntered(vehicle)) {
 				DataContainer data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
-				this.aggregator.addTravelTime(data.ttData, oldEvent.getTime(), e.getTime());
+				this.aggregator.addTravelTime(data.ttData, this.linkEnterTimes.getEnterTime(vehicle), e.getTime());
 				data.needsConsolidation = true;
 			}
 		}
@@ -234,7 +241,7 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		 * starts a leg on a non analyzed transport mode, add the vehicle 
 		 * to the filtered vehicles set. */
 		if (filterAnalyzedModes && !analyzedModes.contains(event.getNetworkMode())) { 
-			this.vehiclesToIgnore.add(event.getVehicleId());
+			this.linkEnterTimes.setIgnored(VehicleLinkEnterTimes.getIndex(event.getVehicleId()), true);
 		}
 	}
 
@@ -243,10 +250,11 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		/* remove EnterEvents from list when a vehicle arrives.
 		 * otherwise, the activity duration would counted as travel time, when the
 		 * vehicle departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
+		int vehicle = VehicleLinkEnterTimes.getIndex(event.getVehicleId());
+		this.linkEnterTimes.removeEntered(vehicle);
 
 		// try to remove vehicles from set with filtered vehicles
-		if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
+		if (filterAnalyzedModes) this.linkEnterTimes.setIgnored(vehicle, false);
 	}
 
 	@Override
@@ -254,16 +262,17 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		/* remove EnterEvents from list when a bus stops on a link.
 		 * otherwise, the stop time would counted as travel time, when the
 		 * bus departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
+		this.linkEnterTimes.removeEntered(VehicleLinkEnterTimes.getIndex(event.getVehicleId()));
 	}
 
 	@Override
 	public void handleEvent(VehicleAbortsEvent event) {
-		LinkEnterEvent e = this.linkEnterEvents.remove(event.getVehicleId());
-		if (e != null) {
-			DataContainer data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
+		int vehicle = VehicleLinkEnterTimes.getIndex(event.getVehicleId());
+		if (this.linkEnterTimes.hasEntered(vehicle)) {
+			DataContainer data = this.dataContainerProvider.getTravelTimeData(this.linkEnterTimes.getLinkId(vehicle), true);
 			data.needsConsolidation = true;
-			this.aggregator.addStuckEventTravelTime(data.ttData, e.getTime(), event.getTime());
+			this.aggregator.addStuckEventTravelTime(data.ttData, this.linkEnterTimes.getEnterTime(vehicle), event.getTime());
+			this.linkEnterTimes.removeEntered(vehicle);
 			if (this.calculateLinkToLinkTravelTimes){
 				log.error(ERROR_STUCK_AND_LINKTOLINK);
 				throw new IllegalStateException(ERROR_STUCK_AND_LINKTOLINK);
@@ -271,7 +280,7 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		}
 
 		// try to remove vehicle from set with filtered vehicles
-		if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
+		if (filterAnalyzedModes) this.linkEnterTimes.setIgnored(vehicle, false);
 	}
 
 	private DataContainer getLinkToLinkTravelTimeData(Tuple<Id<Link>, Id<Link>> fromLinkToLink, final boolean createIfMissing) {
@@ -321,14 +330,95 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 				data.needsConsolidation = false;
 			}
 		}
-		this.linkEnterEvents.clear();
-		this.vehiclesToIgnore.clear();
+		this.linkEnterTimes.clear();
+	}
+
+	/**
+	 * Writes the travel times of all time slots of the links and turns with data, as they are returned
+	 * after consolidation. Time slots without data are written with their free speed travel time.
+	 */
+	/*package*/ void writeTravelTimes(final DataOutput out) throws IOException {
+		out.writeInt(this.numSlots);
+		if (this.calculateLinkTravelTimes) {
+			out.writeInt(this.linkData.size());
+			for (Map.Entry<Id<Link>, DataContainer> e : this.linkData.entrySet()) {
+				CheckpointUtils.writeString(out, e.getKey().toString());
+				writeTravelTimes(out, e.getValue());
+			}
+		} else {
+			out.writeInt(0);
+		}
+		if (this.calculateLinkToLinkTravelTimes) {
+			out.writeInt(this.linkToLinkData.size());
+			for (Map.Entry<Tuple<Id<Link>, Id<Link>>, DataContainer> e : this.linkToLinkData.entrySet()) {
+				CheckpointUtils.writeString(out, e.getKey().getFirst().toString());
+				CheckpointUtils.writeString(out, e.getKey().getSecond().toString());
+				writeTravelTimes(out, e.getValue());
+			}
+		} else {
+			out.writeInt(0);
+		}
+	}
+
+	/**
+	 * Replaces all travel times by the travel times written by {@link #writeTravelTimes(DataOutput)}.
+	 */
+	/*package*/ void readTravelTimes(final DataInput in) throws IOException {
+		int slots = in.readInt();
+		if (slots != this.numSlots) {
+			throw new RuntimeException("The travel times were written with " + slots + " time slots, but " + this.numSlots + " are used now.");
+		}
+		reset(0);
+		int linkCount = in.readInt();
+		for (int i = 0; i < linkCount; i++) {
+			Id<Link> linkId = Id.create(CheckpointUtils.readString(in), Link.class);
+			readTravelTimes(in, this.dataContainerProvider.getTravelTimeData(linkId, true));
+		}
+		int turnCount = in.readInt();
+		for (int i = 0; i < turnCount; i++) {
+			Id<Link> fromLinkId = Id.create(CheckpointUtils.readString(in), Link.class);
+			Id<Link> toLinkId = Id.create(CheckpointUtils.readString(in), Link.class);
+			readTravelTimes(in, getLinkToLinkTravelTimeData(new Tuple<>(fromLinkId, toLinkId), true));
+		}
+	}
+
+	private void writeTravelTimes(final DataOutput out, final DataContainer data) throws IOException {
+		if (data.needsConsolidation) {
+			consolidateData(data);
+		}
+		for (int i = 0; i < this.numSlots; i++) {
+			out.writeDouble(data.ttData.getTravelTime(i, i * this.timeSlice));
+		}
+	}
+
+	private void readTravelTimes(final DataInput in, final DataContainer data) throws IOException {
+		for (int i = 0; i < this.numSlots; i++) {
+			double travelTime = in.readDouble();
+			// keep time slots without data empty, so they still return the free speed travel time at the requested time
+			if (travelTime != data.ttData.getTravelTime(i, i * this.timeSlice)) {
+				data.ttData.setTravelTime(i, travelTime);
+			}
+		}
+		data.needsConsolidation = false;
 	}
 
 	public void setTravelTimeDataFactory(final TravelTimeDataFactory factory) {
 		this.ttDataFactory = factory;
 	}
 
+	/**
+	 * Stores the link travel times of all links of the network in a {@link TravelTimeDataStore} instead
+	 * of one {@link TravelTimeData} object per link. This uses considerably less memory and allows to add
+	 * travel times from several threads at once.
+	 */
+	/*package*/ void useTravelTimeDataStore(final Network network) {
+		if (this.calculateLinkTravelTimes) {
+			this.linkData.clear();
+			this.dataContainerProvider = new StoreBasedDataContainerProvider(this.linkData,
+					new TravelTimeDataStore(network, this.numSlots), this.ttDataFactory);
+		}
+	}
+
 	public void setTravelTimeAggregator(final AbstractTravelTimeAggregator aggregator) {
 		this.aggregator = aggregator;
 	}
@@ -0,0 +1,60 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeCalculatorCheckpoint.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import javax.inject.Provider;
+
+import org.matsim.core.controler.Checkpointable;
+
+/**
+ * Stores the travel times collected by a {@link TravelTimeCalculator} in checkpoints, so routes in the
+ * first iteration after a restart are calculated with the travel times of the iteration before.
+ */
+/*package*/ final class TravelTimeCalculatorCheckpoint implements Checkpointable {
+
+	private final String name;
+	private final Provider<TravelTimeCalculator> calculator;
+
+	/*package*/ TravelTimeCalculatorCheckpoint(final String name, final Provider<TravelTimeCalculator> calculator) {
+		this.name = name;
+		this.calculator = calculator;
+	}
+
+	@Override
+	public String getCheckpointName() {
+		return this.name;
+	}
+
+	@Override
+	public void writeCheckpoint(final DataOutputStream out) throws IOException {
+		this.calculator.get().writeTravelTimes(out);
+	}
+
+	@Override
+	public void readCheckpoint(final DataInputStream in) throws IOException {
+		this.calculator.get().readTravelTimes(in);
+	}
+
+}
@@ -31,6 +31,7 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
 import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.Checkpointable;
 import org.matsim.core.router.util.LinkToLinkTravelTime;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.collections.CollectionUtils;
@@ -53,6 +54,7 @@ public class TravelTimeCalculatorModule extends AbstractModule {
         if (getConfig().travelTimeCalculator().getSeparateModes()) {
             for (final String mode : CollectionUtils.stringToSet(getConfig().travelTimeCalculator().getAnalyzedModes())) {
                 bind(TravelTimeCalculator.class).annotatedWith(Names.named(mode)).toProvider(new SingleModeTravelTimeCalculatorProvider(mode)).in(Singleton.class);
+                addCheckpointableBinding().toProvider(new TravelTimeCalculatorCheckpointProvider("travelTimes." + mode, Key.get(TravelTimeCalculator.class, Names.named(mode))));
                 addTravelTimeBinding(mode).toProvider(new Provider<TravelTime>() {
                     @Inject Injector injector;
                     @Override
@@ -63,6 +65,7 @@ public class TravelTimeCalculatorModule extends AbstractModule {
             }
         } else {
             bind(TravelTimeCalculator.class).in(Singleton.class);
+            addCheckpointableBinding().toProvider(new TravelTimeCalculatorCheckpointProvider("travelTimes", Key.get(TravelTimeCalculator.class)));
             if (getConfig().travelTimeCalculator().isCalculateLinkTravelTimes()) {
                 for (String mode : CollectionUtils.stringToSet(getConfig().travelTimeCalculator().getAnalyzedModes())) {
                     addTravelTimeBinding(mode).toProvider(ObservedLinkTravelTimes.class);
@@ -94,4 +97,22 @@ public class TravelTimeCalculatorModule extends AbstractModule {
         }
     }
 
+    private static class TravelTimeCalculatorCheckpointProvider implements Provider<Checkpointable> {
+
+        @Inject Injector injector;
+
+        private final String name;
+        private final Key<TravelTimeCalculator> key;
+
+        TravelTimeCalculatorCheckpointProvider(String name, Key<TravelTimeCalculator> key) {
+            this.name = name;
+            this.key = key;
+        }
+
+        @Override
+        public Checkpointable get() {
+            return new TravelTimeCalculatorCheckpoint(name, injector.getProvider(key));
+        }
+    }
+
 }
@@ -0,0 +1,136 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeDataStore.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+
+/**
+ * Stores the travel time sums and counts of all links of a network and all time slots in
+ * two flat arrays, indexed by <code>linkIndex * numSlots + timeSlot</code>. Compared to one
+ * {@link TravelTimeDataArray} per link, this saves the three arrays and the object headers
+ * per link as well as the cached travel times, which are cheap to re-calculate from the sums
+ * and counts.
+ * <p/>
+ * The sums are stored as the raw bits of the doubles in an {@link AtomicLongArray} and updated
+ * with compare-and-set, the counts in an {@link AtomicIntegerArray}, so travel times can be
+ * added from several threads at once without locking. A travel time read while other threads
+ * add travel times to the same slot is only approximate; once all updates are done, it is exact.
+ */
+/*package*/ final class TravelTimeDataStore {
+
+	private final int numSlots;
+	/** the index of each link in this store, by the index of the link's id; -1 for links not in the network */
+	private final int[] linkIndexById;
+	private final Link[] links;
+	private final AtomicLongArray timeSum;
+	private final AtomicIntegerArray timeCnt;
+
+	/*package*/ TravelTimeDataStore(final Network network, final int numSlots) {
+		this.numSlots = numSlots;
+		this.links = network.getLinks().values().toArray(new Link[network.getLinks().size()]);
+		this.linkIndexById = new int[Id.getNumberOfIds(Link.class)];
+		Arrays.fill(this.linkIndexById, -1);
+		for (int i = 0; i < this.links.length; i++) {
+			this.linkIndexById[this.links[i].getId().index()] = i;
+		}
+		this.timeSum = new AtomicLongArray(this.links.length * numSlots);
+		this.timeCnt = new AtomicIntegerArray(this.links.length * numSlots);
+	}
+
+	/**
+	 * @return the index of the link with the given id in this store, or <code>-1</code> if the link is not part of the network.
+	 */
+	/*package*/ int getLinkIndex(final Id<Link> linkId) {
+		int index = linkId.index();
+		if (Id.get(index, Link.class) != linkId) {
+			// the id was created with another type, use the link id with the same key
+			index = Id.create(linkId.toString(), Link.class).index();
+		}
+		return index < this.linkIndexById.length ? this.linkIndexById[index] : -1;
+	}
+
+	/*package*/ int getLinkCount() {
+		return this.links.length;
+	}
+
+	/**
+	 * @return a view on the data of the link with the given index in this store.
+	 */
+	/*package*/ TravelTimeData getTravelTimeData(final int linkIndex) {
+		return new LinkTravelTimeData(linkIndex);
+	}
+
+	private class LinkTravelTimeData implements TravelTimeData {
+
+		private final int linkIndex;
+		private final int offset;
+
+		/*package*/ LinkTravelTimeData(final int linkIndex) {
+			this.linkIndex = linkIndex;
+			this.offset = linkIndex * TravelTimeDataStore.this.numSlots;
+		}
+
+		@Override
+		public void resetTravelTimes() {
+			for (int i = this.offset; i < this.offset + TravelTimeDataStore.this.numSlots; i++) {
+				TravelTimeDataStore.this.timeSum.set(i, 0L); // the bits of 0.0
+				TravelTimeDataStore.this.timeCnt.set(i, 0);
+			}
+		}
+
+		@Override
+		public void addTravelTime(final int timeSlot, final double traveltime) {
+			int i = this.offset + timeSlot;
+			AtomicLongArray sums = TravelTimeDataStore.this.timeSum;
+			long bits;
+			do {
+				bits = sums.get(i);
+			} while (!sums.compareAndSet(i, bits, Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + traveltime)));
+			TravelTimeDataStore.this.timeCnt.incrementAndGet(i);
+		}
+
+		@Override
+		public void setTravelTime(final int timeSlot, final double traveltime) {
+			int i = this.offset + timeSlot;
+			TravelTimeDataStore.this.timeSum.set(i, Double.doubleToRawLongBits(traveltime));
+			TravelTimeDataStore.this.timeCnt.set(i, 1);
+		}
+
+		@Override
+		public double getTravelTime(final int timeSlot, final double now) {
+			int i = this.offset + timeSlot;
+			int cnt = TravelTimeDataStore.this.timeCnt.get(i);
+			if (cnt == 0) {
+				Link link = TravelTimeDataStore.this.links[this.linkIndex];
+				return link.getLength() / link.getFreespeed(now);
+			}
+			return Double.longBitsToDouble(TravelTimeDataStore.this.timeSum.get(i)) / cnt;
+		}
+
+	}
+
+}
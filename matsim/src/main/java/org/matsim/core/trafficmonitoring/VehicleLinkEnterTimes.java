@@ -0,0 +1,155 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * VehicleLinkEnterTimes.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Remembers for each vehicle the link it entered last and when, and whether its events are
+ * currently ignored, in primitive arrays indexed by the index of the vehicle's id. This replaces
+ * a map from vehicle ids to the last link enter event.
+ * <p/>
+ * The arrays are allocated in chunks of vehicles which are never copied once created, so the
+ * data of different vehicles can be updated from different threads at once. The events of one
+ * and the same vehicle must be handled by one thread at a time, as it is the case when the
+ * events are handled in the order they were created.
+ */
+/*package*/ final class VehicleLinkEnterTimes {
+
+	private static final int CHUNK_SHIFT = 10;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	private volatile Chunk[] chunks = new Chunk[16];
+
+	/**
+	 * @return the index of the vehicle's id, as used by the other methods.
+	 */
+	/*package*/ static int getIndex(final Id<Vehicle> vehicleId) {
+		int index = vehicleId.index();
+		if (Id.get(index, Vehicle.class) != vehicleId) {
+			// the id was created with another type, use the vehicle id with the same key
+			index = Id.create(vehicleId.toString(), Vehicle.class).index();
+		}
+		return index;
+	}
+
+	/**
+	 * @return the id of the link the vehicle entered last, or <code>null</code> if there is none.
+	 */
+	/*package*/ Id<Link> getLinkId(final int vehicle) {
+		Chunk chunk = getChunk(vehicle, false);
+		if (chunk == null) {
+			return null;
+		}
+		int link = chunk.links[vehicle & CHUNK_MASK];
+		return link < 0 ? null : Id.get(link, Link.class);
+	}
+
+	/**
+	 * @return the time the vehicle entered the link returned by {@link #getLinkId(int)}.
+	 */
+	/*package*/ double getEnterTime(final int vehicle) {
+		return getChunk(vehicle, false).times[vehicle & CHUNK_MASK];
+	}
+
+	/*package*/ boolean hasEntered(final int vehicle) {
+		Chunk chunk = getChunk(vehicle, false);
+		return chunk != null && chunk.links[vehicle & CHUNK_MASK] >= 0;
+	}
+
+	/*package*/ void setEntered(final int vehicle, final Id<Link> linkId, final double time) {
+		Chunk chunk = getChunk(vehicle, true);
+		int index = linkId.index();
+		if (Id.get(index, Link.class) != linkId) {
+			index = Id.create(linkId.toString(), Link.class).index();
+		}
+		chunk.links[vehicle & CHUNK_MASK] = index;
+		chunk.times[vehicle & CHUNK_MASK] = time;
+	}
+
+	/*package*/ void removeEntered(final int vehicle) {
+		Chunk chunk = getChunk(vehicle, false);
+		if (chunk != null) {
+			chunk.links[vehicle & CHUNK_MASK] = -1;
+		}
+	}
+
+	/*package*/ boolean isIgnored(final int vehicle) {
+		Chunk chunk = getChunk(vehicle, false);
+		return chunk != null && chunk.ignored[vehicle & CHUNK_MASK];
+	}
+
+	/*package*/ void setIgnored(final int vehicle, final boolean ignored) {
+		Chunk chunk = getChunk(vehicle, ignored);
+		if (chunk != null) {
+			chunk.ignored[vehicle & CHUNK_MASK] = ignored;
+		}
+	}
+
+	/*package*/ void clear() {
+		for (Chunk chunk : this.chunks) {
+			if (chunk != null) {
+				Arrays.fill(chunk.links, -1);
+				Arrays.fill(chunk.ignored, false);
+			}
+		}
+	}
+
+	private Chunk getChunk(final int vehicle, final boolean create) {
+		int c = vehicle >>> CHUNK_SHIFT;
+		Chunk[] chunks = this.chunks;
+		if (c < chunks.length && chunks[c] != null) {
+			return chunks[c];
+		}
+		if (!create) {
+			return null;
+		}
+		synchronized (this) {
+			chunks = this.chunks;
+			if (c >= chunks.length) {
+				chunks = Arrays.copyOf(chunks, Math.max(c + 1, chunks.length * 2));
+			}
+			if (chunks[c] == null) {
+				chunks[c] = new Chunk();
+			}
+			this.chunks = chunks;
+			return chunks[c];
+		}
+	}
+
+	private static final class Chunk {
+
+		final int[] links = new int[CHUNK_SIZE];
+		final double[] times = new double[CHUNK_SIZE];
+		final boolean[] ignored = new boolean[CHUNK_SIZE];
+
+		Chunk() {
+			Arrays.fill(this.links, -1);
+		}
+
+	}
+
+}
@@ -0,0 +1,408 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * KDTree.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A static two-dimensional tree to find data assigned to geometric points, e.g. the nearest nodes of a network.
+ * <p/>
+ * In contrast to {@link QuadTree}, all points are given at once (see {@link Builder}) and the tree is bulk
+ * loaded by recursively splitting the points at the median of the coordinate with the larger extent. The
+ * coordinates are kept in primitive arrays, sorted in the order of the tree, and up to {@value #LEAF_SIZE}
+ * points are scanned together in the leaves, so no objects are needed per point or per tree node. No bounds
+ * have to be known in advance.
+ * <p/>
+ * The tree cannot be changed after it was built, so it can be queried by several threads at the same time.
+ *
+ * @param <T> The type of data to be stored in the tree.
+ */
+public final class KDTree<T> {
+
+	private static final int LEAF_SIZE = 8;
+	private static final byte X_AXIS = 0;
+	private static final byte Y_AXIS = 1;
+
+	private final int size;
+	private final double[] x;
+	private final double[] y;
+	private final Object[] values;
+	/** the splitting axis of each inner node; an inner node is identified by the index of its own point, the median */
+	private final byte[] splitAxis;
+
+	/**
+	 * Collects the points of a {@link KDTree}.
+	 */
+	public static final class Builder<T> {
+
+		private int size = 0;
+		private double[] x = new double[16];
+		private double[] y = new double[16];
+		private Object[] values = new Object[16];
+
+		public Builder<T> add(final double x, final double y, final T value) {
+			if (this.size == this.x.length) {
+				int capacity = this.size * 2;
+				this.x = Arrays.copyOf(this.x, capacity);
+				this.y = Arrays.copyOf(this.y, capacity);
+				this.values = Arrays.copyOf(this.values, capacity);
+			}
+			this.x[this.size] = x;
+			this.y[this.size] = y;
+			this.values[this.size] = value;
+			this.size++;
+			return this;
+		}
+
+		public KDTree<T> build() {
+			return new KDTree<>(Arrays.copyOf(this.x, this.size), Arrays.copyOf(this.y, this.size),
+					Arrays.copyOf(this.values, this.size));
+		}
+	}
+
+	private KDTree(final double[] x, final double[] y, final Object[] values) {
+		this.size = values.length;
+		this.x = x;
+		this.y = y;
+		this.values = values;
+		this.splitAxis = new byte[this.size];
+		build(0, this.size);
+	}
+
+	/**
+	 * @return the number of entries in this tree.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Gets the object closest to x/y
+	 *
+	 * @param x easting, left-right location, longitude
+	 * @param y northing, up-down location, latitude
+	 * @return the object found closest to x/y, <code>null</code> if the tree is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public T getClosest(final double x, final double y) {
+		if (this.size == 0) {
+			return null;
+		}
+		double[] bestDistance2 = { Double.POSITIVE_INFINITY };
+		return (T) this.values[closest(0, this.size, x, y, -1, bestDistance2)];
+	}
+
+	/**
+	 * Gets the <code>k</code> objects closest to x/y.
+	 *
+	 * @param x easting, left-right location, longitude
+	 * @param y northing, up-down location, latitude
+	 * @param k the maximum number of objects to return
+	 * @return the objects found, sorted by increasing distance to x/y
+	 */
+	public List<T> getKNearest(final double x, final double y, final int k) {
+		return getKNearest(x, y, k, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Gets the <code>k</code> objects closest to x/y that are at most <code>maxDistance</code> away from x/y.
+	 * The search stops exploring parts of the tree as soon as they cannot contain closer objects.
+	 *
+	 * @param x easting, left-right location, longitude
+	 * @param y northing, up-down location, latitude
+	 * @param k the maximum number of objects to return
+	 * @param maxDistance the maximal distance returned objects can be away from x/y
+	 * @return the objects found, sorted by increasing distance to x/y
+	 */
+	public List<T> getKNearest(final double x, final double y, final int k, final double maxDistance) {
+		if (k <= 0 || this.size == 0) {
+			return new ArrayList<>(0);
+		}
+		NearestCollector collector = new NearestCollector(Math.min(k, this.size), maxDistance * maxDistance);
+		nearest(0, this.size, x, y, collector);
+		return collector.getResult();
+	}
+
+	/**
+	 * Gets all objects within a certain distance around x/y
+	 *
+	 * @param x left-right location, longitude
+	 * @param y up-down location, latitude
+	 * @param distance the maximal distance returned objects can be away from x/y
+	 * @return the objects found within distance to x/y
+	 */
+	public Collection<T> getDisk(final double x, final double y, final double distance) {
+		List<T> result = new ArrayList<>();
+		disk(0, this.size, x, y, distance * distance, result);
+		return result;
+	}
+
+	private void build(final int from, final int to) {
+		if (to - from <= LEAF_SIZE) {
+			return;
+		}
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = from; i < to; i++) {
+			minX = Math.min(minX, this.x[i]);
+			maxX = Math.max(maxX, this.x[i]);
+			minY = Math.min(minY, this.y[i]);
+			maxY = Math.max(maxY, this.y[i]);
+		}
+		byte axis = (maxX - minX >= maxY - minY) ? X_AXIS : Y_AXIS;
+		int median = (from + to) >>> 1;
+		select(from, to - 1, median, axis == X_AXIS ? this.x : this.y);
+		this.splitAxis[median] = axis;
+		build(from, median);
+		build(median + 1, to);
+	}
+
+	/**
+	 * Reorders the points between <code>left</code> and <code>right</code> (both inclusive), so that
+	 * the point at position <code>k</code> has no larger coordinate before it and no smaller one after it.
+	 */
+	private void select(final int left0, final int right0, final int k, final double[] coord) {
+		int left = left0;
+		int right = right0;
+		while (right > left) {
+			double pivot = coord[(left + right) >>> 1];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (coord[i] < pivot) {
+					i++;
+				}
+				while (coord[j] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					swap(i, j);
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) {
+				right = j;
+			} else if (k >= i) {
+				left = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private void swap(final int i, final int j) {
+		double tmp = this.x[i];
+		this.x[i] = this.x[j];
+		this.x[j] = tmp;
+		tmp = this.y[i];
+		this.y[i] = this.y[j];
+		this.y[j] = tmp;
+		Object value = this.values[i];
+		this.values[i] = this.values[j];
+		this.values[j] = value;
+	}
+
+	private void nearest(final int from, final int to, final double x, final double y, final NearestCollector collector) {
+		if (to - from <= LEAF_SIZE) {
+			for (int i = from; i < to; i++) {
+				double dx = this.x[i] - x;
+				double dy = this.y[i] - y;
+				collector.offer(i, dx * dx + dy * dy);
+			}
+			return;
+		}
+		int median = (from + to) >>> 1;
+		double dx = this.x[median] - x;
+		double dy = this.y[median] - y;
+		collector.offer(median, dx * dx + dy * dy);
+		double diff = this.splitAxis[median] == X_AXIS ? -dx : -dy;
+		if (diff < 0) {
+			nearest(from, median, x, y, collector);
+			if (diff * diff <= collector.bound) {
+				nearest(median + 1, to, x, y, collector);
+			}
+		} else {
+			nearest(median + 1, to, x, y, collector);
+			if (diff * diff <= collector.bound) {
+				nearest(from, median, x, y, collector);
+			}
+		}
+	}
+
+	/**
+	 * @return the index of the closest point, or <code>best</code> if there is none closer than <code>bestDistance2[0]</code>
+	 */
+	private int closest(final int from, final int to, final double x, final double y, final int best, final double[] bestDistance2) {
+		int result = best;
+		if (to - from <= LEAF_SIZE) {
+			for (int i = from; i < to; i++) {
+				double dx = this.x[i] - x;
+				double dy = this.y[i] - y;
+				double distance2 = dx * dx + dy * dy;
+				if (distance2 < bestDistance2[0]) {
+					bestDistance2[0] = distance2;
+					result = i;
+				}
+			}
+			return result;
+		}
+		int median = (from + to) >>> 1;
+		double dx = this.x[median] - x;
+		double dy = this.y[median] - y;
+		double distance2 = dx * dx + dy * dy;
+		if (distance2 < bestDistance2[0]) {
+			bestDistance2[0] = distance2;
+			result = median;
+		}
+		double diff = this.splitAxis[median] == X_AXIS ? -dx : -dy;
+		if (diff < 0) {
+			result = closest(from, median, x, y, result, bestDistance2);
+			if (diff * diff < bestDistance2[0]) {
+				result = closest(median + 1, to, x, y, result, bestDistance2);
+			}
+		} else {
+			result = closest(median + 1, to, x, y, result, bestDistance2);
+			if (diff * diff < bestDistance2[0]) {
+				result = closest(from, median, x, y, result, bestDistance2);
+			}
+		}
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void disk(final int from, final int to, final double x, final double y, final double maxDistance2, final List<T> result) {
+		if (to - from <= LEAF_SIZE) {
+			for (int i = from; i < to; i++) {
+				double dx = this.x[i] - x;
+				double dy = this.y[i] - y;
+				if (dx * dx + dy * dy <= maxDistance2) {
+					result.add((T) this.values[i]);
+				}
+			}
+			return;
+		}
+		int median = (from + to) >>> 1;
+		double dx = this.x[median] - x;
+		double dy = this.y[median] - y;
+		if (dx * dx + dy * dy <= maxDistance2) {
+			result.add((T) this.values[median]);
+		}
+		double diff = this.splitAxis[median] == X_AXIS ? -dx : -dy;
+		if (diff <= 0 || diff * diff <= maxDistance2) {
+			disk(from, median, x, y, maxDistance2, result);
+		}
+		if (diff >= 0 || diff * diff <= maxDistance2) {
+			disk(median + 1, to, x, y, maxDistance2, result);
+		}
+	}
+
+	/**
+	 * Keeps the <code>k</code> closest points found so far in a binary max-heap on the squared distance.
+	 */
+	private final class NearestCollector {
+
+		private final int k;
+		private final int[] heapIndices;
+		private final double[] heapDistances;
+		private int heapSize = 0;
+		/** the squared distance a point must not exceed to be collected */
+		/*package*/ double bound;
+
+		/*package*/ NearestCollector(final int k, final double maxDistance2) {
+			this.k = k;
+			this.heapIndices = new int[k];
+			this.heapDistances = new double[k];
+			this.bound = maxDistance2;
+		}
+
+		/*package*/ void offer(final int index, final double distance2) {
+			if (distance2 > this.bound || (this.heapSize == this.k && distance2 == this.bound)) {
+				return;
+			}
+			if (this.heapSize < this.k) {
+				// sift up
+				int pos = this.heapSize++;
+				while (pos > 0) {
+					int parent = (pos - 1) >>> 1;
+					if (this.heapDistances[parent] >= distance2) {
+						break;
+					}
+					this.heapIndices[pos] = this.heapIndices[parent];
+					this.heapDistances[pos] = this.heapDistances[parent];
+					pos = parent;
+				}
+				this.heapIndices[pos] = index;
+				this.heapDistances[pos] = distance2;
+			} else {
+				// replace the farthest point and sift down
+				int pos = 0;
+				while (true) {
+					int child = 2 * pos + 1;
+					if (child >= this.heapSize) {
+						break;
+					}
+					if (child + 1 < this.heapSize && this.heapDistances[child + 1] > this.heapDistances[child]) {
+						child++;
+					}
+					if (this.heapDistances[child] <= distance2) {
+						break;
+					}
+					this.heapIndices[pos] = this.heapIndices[child];
+					this.heapDistances[pos] = this.heapDistances[child];
+					pos = child;
+				}
+				this.heapIndices[pos] = index;
+				this.heapDistances[pos] = distance2;
+			}
+			if (this.heapSize == this.k) {
+				this.bound = this.heapDistances[0];
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		/*package*/ List<T> getResult() {
+			// sort by increasing distance; k is usually small
+			Integer[] order = new Integer[this.heapSize];
+			for (int i = 0; i < this.heapSize; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, new Comparator<Integer>() {
+				@Override
+				public int compare(final Integer o1, final Integer o2) {
+					return Double.compare(NearestCollector.this.heapDistances[o1], NearestCollector.this.heapDistances[o2]);
+				}
+			});
+			List<T> result = new ArrayList<>(this.heapSize);
+			for (Integer i : order) {
+				result.add((T) KDTree.this.values[this.heapIndices[i]]);
+			}
+			return result;
+		}
+	}
+
+}
@@ -24,7 +24,6 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.util.zip.GZIPOutputStream;
 
 
 /**
@@ -82,7 +81,7 @@ public abstract class AbstractMatsimWriter {
 			if (this.useCompression == null || this.useCompression.booleanValue()) {
 				this.writer = new BufferedWriter(new OutputStreamWriter(outputStream));
 			} else {
-				this.writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(outputStream)));
+				this.writer = new BufferedWriter(new OutputStreamWriter(IOUtils.getCompressingOutputStream(outputStream)));
 			}
 		} catch (IOException e) {
 			throw new UncheckedIOException(e);
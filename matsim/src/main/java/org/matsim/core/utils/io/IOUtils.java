@@ -57,6 +57,24 @@ public class IOUtils {
 
 	private final static Logger log = Logger.getLogger(IOUtils.class);
 
+	/**
+	 * Wraps the given gzip-compressed stream, so that it is decompressed by a separate thread while the
+	 * caller processes the data.
+	 */
+	private static InputStream getDecompressingInputStream(final InputStream stream) throws IOException {
+		return new ReadAheadInputStream(new GZIPInputStream(stream, 64 * 1024));
+	}
+
+	/**
+	 * Wraps the given stream, so that the data is gzip-compressed, by multiple threads if available.
+	 */
+	/*package*/ static OutputStream getCompressingOutputStream(final OutputStream stream) throws IOException {
+		if (Runtime.getRuntime().availableProcessors() == 1) {
+			return new GZIPOutputStream(stream);
+		}
+		return new ParallelGZIPOutputStream(stream);
+	}
+
 	public static URL getUrlFromFileOrResource(String filename) {
 		if (filename.startsWith("~" + File.separator)) {
 		    filename = System.getProperty("user.home") + filename.substring(1);
@@ -116,17 +134,17 @@ public class IOUtils {
 		try {
 			if (new File(filename).exists()) {
 				if (filename.endsWith(GZ)) {
-					infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(new GZIPInputStream(new FileInputStream(filename))), charset));
+					infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(getDecompressingInputStream(new FileInputStream(filename))), charset));
 				} else {
 					infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(new FileInputStream(filename)), charset));
 				}
 			} else if (new File(filename + GZ).exists()) {
-				infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(new GZIPInputStream(new FileInputStream(filename  + GZ))), charset));
+				infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(getDecompressingInputStream(new FileInputStream(filename  + GZ))), charset));
 			} else {
 				InputStream stream = IOUtils.class.getClassLoader().getResourceAsStream(filename);
 				if (stream != null) {
 					if (filename.endsWith(GZ)) {
-						infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(new GZIPInputStream(stream)), charset));
+						infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(getDecompressingInputStream(stream)), charset));
 						log.info("loading file from classpath: " + filename);
 					} else {
 						infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(stream), charset));
@@ -135,7 +153,7 @@ public class IOUtils {
 				} else {
 					stream = IOUtils.class.getClassLoader().getResourceAsStream(filename + GZ);
 					if (stream != null) {
-						infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(new GZIPInputStream(stream)), charset));
+						infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(getDecompressingInputStream(stream)), charset));
 						log.info("loading file from classpath: " + filename + GZ);
 					}
 				}
@@ -258,7 +276,7 @@ public class IOUtils {
 				if (append && f.exists() && (f.length() > 0)) {
 					throw new IllegalArgumentException("Appending to an existing gzip-compressed file is not supported.");
 				}
-				return new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(filename, append)), charset));
+				return new BufferedWriter(new OutputStreamWriter(getCompressingOutputStream(new FileOutputStream(filename, append)), charset));
 			}
 			return new BufferedWriter(new OutputStreamWriter(new FileOutputStream (filename, append), charset));
 		} catch (IOException e) {
@@ -550,18 +568,18 @@ public class IOUtils {
 			// search in file system
 			if (new File(filename).exists()) {
 				if (filename.endsWith(GZ)) {
-					inputStream = new GZIPInputStream(new FileInputStream(filename));
+					inputStream = getDecompressingInputStream(new FileInputStream(filename));
 				} else {
 					inputStream = new FileInputStream(filename);
 				}
 			} else if (new File(filename + GZ).exists()) {
-				inputStream = new GZIPInputStream(new FileInputStream(filename));
+				inputStream = getDecompressingInputStream(new FileInputStream(filename));
 			} else {
 				// search in classpath
 				InputStream stream = IOUtils.class.getClassLoader().getResourceAsStream(filename);
 				if (stream != null) {
 					if (filename.endsWith(GZ)) {
-						inputStream = new GZIPInputStream(stream);
+						inputStream = getDecompressingInputStream(stream);
 					}
 					else {
 						inputStream = stream;
@@ -569,7 +587,7 @@ public class IOUtils {
 				} else {
 					stream = IOUtils.class.getClassLoader().getResourceAsStream(filename + GZ);
 					if (stream != null) {
-						inputStream = new GZIPInputStream(stream);
+						inputStream = getDecompressingInputStream(stream);
 					}
 				}
 				if (inputStream != null) {
@@ -588,7 +606,7 @@ public class IOUtils {
 	public static InputStream getInputStream(URL url) throws UncheckedIOException {
 		try {
 			if (url.getFile().endsWith(".gz")) {
-				return new GZIPInputStream(url.openStream());
+				return getDecompressingInputStream(url.openStream());
 			} else {
 				return url.openStream();
 			}
@@ -612,7 +630,7 @@ public class IOUtils {
 		}
 		try {
 			if (filename.toLowerCase(Locale.ROOT).endsWith(GZ)) {
-				return new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(filename)));
+				return new BufferedOutputStream(getCompressingOutputStream(new FileOutputStream(filename)));
 			} else {
 				return new BufferedOutputStream(new FileOutputStream (filename));
 			}
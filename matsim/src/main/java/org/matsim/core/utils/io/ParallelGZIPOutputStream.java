@@ -0,0 +1,239 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelGZIPOutputStream.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * An output stream writing standard gzip-compressed data, like {@link java.util.zip.GZIPOutputStream},
+ * but compressing the data in parallel.
+ * <p/>
+ * The data is split into blocks which are compressed independently by a thread pool shared by all
+ * streams. Each block is compressed with the end of the previous block as preset dictionary and ends
+ * with a sync flush, so the compressed blocks simply concatenate to one deflate stream (the same
+ * approach is used by <code>pigz</code>). The result is a single gzip member that can be read by any
+ * gzip implementation; the compression ratio is almost the same as with a single deflater.
+ * <p/>
+ * Like {@link java.util.zip.GZIPOutputStream}, {@link #flush()} does not force out data of a block
+ * that is not yet complete. Instances are not thread-safe.
+ */
+public final class ParallelGZIPOutputStream extends OutputStream {
+
+	private static final int BLOCK_SIZE = 128 * 1024;
+	private static final int DICTIONARY_SIZE = 32 * 1024;
+	private static final int NUMBER_OF_THREADS = Runtime.getRuntime().availableProcessors();
+
+	private static final ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS, new CompressorThreadFactory());
+
+	private final OutputStream out;
+	private final int level;
+	private final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+	private final CRC32 crc = new CRC32();
+	private long uncompressedSize = 0;
+
+	private byte[] block = new byte[BLOCK_SIZE];
+	private int blockLength = 0;
+	private byte[] previousBlock = null;
+	private int previousBlockLength = 0;
+	private boolean closed = false;
+
+	public ParallelGZIPOutputStream(final OutputStream out) throws IOException {
+		this(out, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	public ParallelGZIPOutputStream(final OutputStream out, final int level) throws IOException {
+		this.out = out;
+		this.level = level;
+		// the same header as written by java.util.zip.GZIPOutputStream
+		this.out.write(new byte[] { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 });
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		ensureOpen();
+		this.block[this.blockLength++] = (byte) b;
+		if (this.blockLength == BLOCK_SIZE) {
+			submitBlock(false);
+		}
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException {
+		ensureOpen();
+		int offset = off;
+		int remaining = len;
+		while (remaining > 0) {
+			int count = Math.min(remaining, BLOCK_SIZE - this.blockLength);
+			System.arraycopy(b, offset, this.block, this.blockLength, count);
+			this.blockLength += count;
+			offset += count;
+			remaining -= count;
+			if (this.blockLength == BLOCK_SIZE) {
+				submitBlock(false);
+			}
+		}
+	}
+
+	/**
+	 * Writes all blocks that are already compressed to the underlying stream and flushes it.
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		while (!this.pendingBlocks.isEmpty()) {
+			writeFirstPendingBlock();
+		}
+		this.out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		try {
+			submitBlock(true);
+			while (!this.pendingBlocks.isEmpty()) {
+				writeFirstPendingBlock();
+			}
+			writeInt((int) this.crc.getValue());
+			writeInt((int) this.uncompressedSize);
+		} finally {
+			this.closed = true;
+			this.out.close();
+		}
+	}
+
+	private void submitBlock(final boolean last) throws IOException {
+		this.crc.update(this.block, 0, this.blockLength);
+		this.uncompressedSize += this.blockLength;
+		this.pendingBlocks.add(executor.submit(new BlockCompressor(this.level, this.block, this.blockLength,
+				this.previousBlock, this.previousBlockLength, last)));
+		// the submitted block must not be changed anymore, it may also serve as dictionary for the next one
+		this.previousBlock = this.block;
+		this.previousBlockLength = this.blockLength;
+		this.block = new byte[BLOCK_SIZE];
+		this.blockLength = 0;
+		// limit the memory used by blocks waiting to be written
+		while (this.pendingBlocks.size() > 2 * NUMBER_OF_THREADS) {
+			writeFirstPendingBlock();
+		}
+	}
+
+	private void writeFirstPendingBlock() throws IOException {
+		try {
+			this.out.write(this.pendingBlocks.removeFirst().get());
+		} catch (InterruptedException e) {
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		}
+	}
+
+	private void writeInt(final int i) throws IOException {
+		this.out.write(i & 0xff);
+		this.out.write((i >> 8) & 0xff);
+		this.out.write((i >> 16) & 0xff);
+		this.out.write((i >> 24) & 0xff);
+	}
+
+	private void ensureOpen() throws IOException {
+		if (this.closed) {
+			throw new IOException("Stream closed");
+		}
+	}
+
+	private static final class BlockCompressor implements Callable<byte[]> {
+
+		private final int level;
+		private final byte[] block;
+		private final int blockLength;
+		private final byte[] dictionary;
+		private final int dictionaryLength;
+		private final boolean last;
+
+		/*package*/ BlockCompressor(final int level, final byte[] block, final int blockLength, final byte[] dictionary,
+				final int dictionaryLength, final boolean last) {
+			this.level = level;
+			this.block = block;
+			this.blockLength = blockLength;
+			this.dictionary = dictionary;
+			this.dictionaryLength = dictionaryLength;
+			this.last = last;
+		}
+
+		@Override
+		public byte[] call() {
+			Deflater deflater = new Deflater(this.level, true);
+			try {
+				if (this.dictionary != null && this.dictionaryLength > 0) {
+					int length = Math.min(DICTIONARY_SIZE, this.dictionaryLength);
+					deflater.setDictionary(this.dictionary, this.dictionaryLength - length, length);
+				}
+				deflater.setInput(this.block, 0, this.blockLength);
+				ByteArrayOutputStream compressed = new ByteArrayOutputStream(this.blockLength / 2 + 64);
+				byte[] buffer = new byte[16 * 1024];
+				if (this.last) {
+					deflater.finish();
+					while (!deflater.finished()) {
+						int count = deflater.deflate(buffer);
+						compressed.write(buffer, 0, count);
+					}
+				} else {
+					int count;
+					do {
+						count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+						compressed.write(buffer, 0, count);
+					} while (count == buffer.length);
+				}
+				return compressed.toByteArray();
+			} finally {
+				deflater.end();
+			}
+		}
+	}
+
+	private static final class CompressorThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger(0);
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			Thread thread = new Thread(runnable, "ParallelGZIP-" + this.count.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
@@ -0,0 +1,198 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ReadAheadInputStream.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An input stream that reads the wrapped stream ahead in a background thread, e.g. to decompress a
+ * gzip-compressed file while the data read so far is parsed. At most a few blocks are read ahead.
+ * <p/>
+ * The background thread ends when the end of the wrapped stream is reached or when this stream is
+ * closed; it closes the wrapped stream. It only holds a weak reference to this stream, so it also ends,
+ * within about a second, after a stream that was neither read to its end nor closed has been garbage
+ * collected. Instances are not thread-safe.
+ */
+final class ReadAheadInputStream extends InputStream {
+
+	private static final int BLOCK_SIZE = 64 * 1024;
+	private static final int NUMBER_OF_BLOCKS = 4;
+	private static final byte[] END_OF_STREAM = new byte[0];
+	/** how long the background thread waits for the consumer before it checks whether the consumer is still there */
+	private static final long PUT_TIMEOUT_MS = 1000;
+
+	private final Reader reader;
+	private final Thread thread;
+
+	private byte[] block = null;
+	private int position = 0;
+	private boolean endOfStream = false;
+
+	ReadAheadInputStream(final InputStream in) {
+		this.reader = new Reader(in, this);
+		this.thread = new Thread(this.reader, "ReadAhead");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!ensureData()) {
+			return -1;
+		}
+		return this.block[this.position++] & 0xff;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!ensureData()) {
+			return -1;
+		}
+		int count = Math.min(len, this.block.length - this.position);
+		System.arraycopy(this.block, this.position, b, off, count);
+		this.position += count;
+		return count;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return this.block == null ? 0 : this.block.length - this.position;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!this.reader.closed) {
+			this.reader.closed = true;
+			this.thread.interrupt();
+			this.reader.blocks.clear();
+		}
+	}
+
+	/**
+	 * @return <code>false</code> if the end of the stream is reached.
+	 */
+	private boolean ensureData() throws IOException {
+		if (this.reader.closed) {
+			throw new IOException("Stream closed");
+		}
+		while (this.block == null || this.position == this.block.length) {
+			if (this.endOfStream) {
+				return false;
+			}
+			try {
+				this.block = this.reader.blocks.take();
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			}
+			this.position = 0;
+			if (this.block == END_OF_STREAM) {
+				this.endOfStream = true;
+				Throwable exception = this.reader.exception;
+				if (exception instanceof IOException) {
+					throw (IOException) exception;
+				} else if (exception != null) {
+					throw new IOException("Reading ahead failed.", exception);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The background thread, together with the state it shares with the consumer. Static, so that it does not
+	 * keep the consumer reachable.
+	 */
+	private static class Reader implements Runnable {
+
+		private final InputStream in;
+		private final WeakReference<ReadAheadInputStream> consumer;
+		/*package*/ final BlockingQueue<byte[]> blocks = new ArrayBlockingQueue<>(NUMBER_OF_BLOCKS);
+		/*package*/ volatile boolean closed = false;
+		/** what the background thread failed with, if anything */
+		/*package*/ volatile Throwable exception = null;
+
+		/*package*/ Reader(final InputStream in, final ReadAheadInputStream consumer) {
+			this.in = in;
+			this.consumer = new WeakReference<>(consumer);
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (!this.closed) {
+					byte[] buffer = new byte[BLOCK_SIZE];
+					int length = 0;
+					int count = 0;
+					while (length < BLOCK_SIZE && (count = this.in.read(buffer, length, BLOCK_SIZE - length)) >= 0) {
+						length += count;
+					}
+					if (length > 0 && !put(length < BLOCK_SIZE ? Arrays.copyOf(buffer, length) : buffer)) {
+						return;
+					}
+					if (count < 0) {
+						break;
+					}
+				}
+			} catch (Throwable e) {
+				// also runtime exceptions and errors must reach the consumer, otherwise it would wait forever
+				this.exception = e;
+			} finally {
+				try {
+					this.in.close();
+				} catch (IOException e) {
+					// nothing we could do about it
+				}
+				put(END_OF_STREAM);
+			}
+		}
+
+		/**
+		 * @return <code>false</code> if the stream was closed or garbage collected in the meantime.
+		 */
+		private boolean put(final byte[] data) {
+			try {
+				while (!this.closed) {
+					if (this.blocks.offer(data, PUT_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+						return true;
+					}
+					if (this.consumer.get() == null) {
+						// the consumer stopped reading without closing the stream
+						this.blocks.clear();
+						return false;
+					}
+				}
+			} catch (InterruptedException e) {
+				// the stream was closed
+			}
+			return false;
+		}
+	}
+
+}
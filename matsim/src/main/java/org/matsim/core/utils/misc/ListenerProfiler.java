@@ -0,0 +1,114 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ListenerProfiler.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.misc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Measures the cumulative time spent in each listener, e.g. to find the listener that slows down the
+ * mobsim steps. Listeners are told apart by identity, so two instances of the same class are reported
+ * separately. Not thread-safe; meant for listener managers that notify their listeners from one thread.
+ * <p/>
+ * Usage:
+ * <pre>
+ * long start = profiler.start();
+ * listener.notifySomething(event);
+ * profiler.stop(listener, start);
+ * </pre>
+ */
+public final class ListenerProfiler {
+
+	private final String name;
+	private final Map<Object, long[]> timings = new IdentityHashMap<>();
+
+	/**
+	 * @param name the name of the listeners, used when logging the times
+	 */
+	public ListenerProfiler(final String name) {
+		this.name = name;
+	}
+
+	public long start() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Adds the time since <code>start</code> to the cumulative time of the listener.
+	 */
+	public void stop(final Object listener, final long start) {
+		long duration = System.nanoTime() - start;
+		long[] timing = this.timings.get(listener);
+		if (timing == null) {
+			timing = new long[2];
+			this.timings.put(listener, timing);
+		}
+		timing[0] += duration;
+		timing[1]++;
+	}
+
+	/**
+	 * @return the cumulative time spent in the listener, in nanoseconds
+	 */
+	public long getTotalTime(final Object listener) {
+		long[] timing = this.timings.get(listener);
+		return timing == null ? 0 : timing[0];
+	}
+
+	/**
+	 * @return how often the listener was notified
+	 */
+	public long getCalls(final Object listener) {
+		long[] timing = this.timings.get(listener);
+		return timing == null ? 0 : timing[1];
+	}
+
+	public void reset() {
+		this.timings.clear();
+	}
+
+	/**
+	 * Logs the cumulative time of each listener, the slowest listener first.
+	 */
+	public void log(final Logger log) {
+		List<Map.Entry<Object, long[]>> entries = new ArrayList<>(this.timings.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<Object, long[]>>() {
+			@Override
+			public int compare(final Map.Entry<Object, long[]> e1, final Map.Entry<Object, long[]> e2) {
+				return Long.compare(e2.getValue()[0], e1.getValue()[0]);
+			}
+		});
+		log.info("time spent in " + this.name + ":");
+		log.info("       total[s]         calls   per call[us]  listener");
+		for (Map.Entry<Object, long[]> e : entries) {
+			long total = e.getValue()[0];
+			long calls = e.getValue()[1];
+			log.info(String.format("%15.3f %13d %14.3f  %s", total / 1e9, calls, total / 1e3 / calls, e.getKey().getClass().getName()));
+		}
+	}
+
+}
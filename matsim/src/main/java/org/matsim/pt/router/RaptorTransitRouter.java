@@ -0,0 +1,618 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitRouter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.facilities.Facility;
+import org.matsim.pt.routes.ExperimentalTransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * Transit router based on the round-based public transit routing algorithm (RAPTOR). Instead of running a
+ * Dijkstra on a {@link TransitRouterNetwork} like {@link TransitRouterImpl}, it scans the routes of the
+ * schedule directly, using the array-based {@link RaptorTransitRouterData}. Round <code>k</code> finds the
+ * journeys with <code>k</code> transit legs.
+ * <p/>
+ * Labels are compared by their generalized cost instead of their arrival time. The cost is calculated with
+ * the parameters of the {@link TransitRouterConfig} in the same way as by
+ * {@link TransitRouterNetworkTravelTimeAndDisutility}: walk time and distance for access, egress and transfers,
+ * the additional transfer time as waiting, the utility of line switches, the waiting time until the vehicle
+ * arrives at the boarding stop, and the in-vehicle time and beeline distance. The parameters are read at the
+ * beginning of each query, so changes to the config take effect immediately. The walk time and disutility to
+ * and from the stops and of the direct walk are taken from the {@link TransitTravelDisutility}. Other than with
+ * a least-cost path search, a label with a higher cost but an earlier arrival is discarded even if waiting
+ * at the next boarding stop would have made it the cheaper one.
+ * <p/>
+ * Besides the usual queries for one departure time, range queries return the journeys for all departures in a
+ * departure time window, see {@link #calcRoutes(Facility, Facility, double, double, Person)}.
+ * <p/>
+ * The labels are stored per round in arrays indexed by the stop index and are marked with an iteration id,
+ * so nothing is reset between queries. Instances are not thread-safe, but the search data can be shared by
+ * all threads.
+ */
+public class RaptorTransitRouter implements TransitRouter {
+
+	private final RaptorTransitRouterData data;
+	private final TransitRouterConfig config;
+	private final TransitTravelDisutility travelDisutility;
+
+	private int iterationID = Integer.MIN_VALUE + 1;
+	private final List<Round> rounds = new ArrayList<>();
+
+	private final int[] bestArrivalStamp;
+	private final double[] bestArrivalCost;
+	private final int[] bestBoardingStamp;
+	private final double[] bestBoardingCost;
+
+	private final int[] egressStamp;
+	private final double[] egressCost;
+
+	private final TIntArrayList markedStops = new TIntArrayList();
+	private final TIntArrayList arrivedStops = new TIntArrayList();
+	private final int[] routeScanStart;
+	private final TIntArrayList scannedRoutes = new TIntArrayList();
+
+	// the parameters of the current query, as disutilities per second or meter
+	private double inVehicleTimeCost;
+	private double inVehicleDistanceCost;
+	private double waitingTimeCost;
+	private double walkTimeCost;
+	private double walkDistanceCost;
+	private double lineSwitchCost;
+	private double additionalTransferTime;
+	private double walkSpeed;
+
+	// the result of the last search
+	private double bestCost;
+	private int bestRound;
+	private int bestStop;
+
+	public RaptorTransitRouter(final TransitRouterConfig config, final RaptorTransitRouterData data) {
+		this(config, data, new TransitRouterNetworkTravelTimeAndDisutility(config, new PreparedTransitSchedule(null)));
+	}
+
+	/**
+	 * @param travelDisutility used for the walk time and disutility from the start location to the stops,
+	 * from the stops to the destination and for the direct walk only
+	 */
+	public RaptorTransitRouter(final TransitRouterConfig config, final RaptorTransitRouterData data, final TransitTravelDisutility travelDisutility) {
+		this.data = data;
+		this.config = config;
+		this.travelDisutility = travelDisutility;
+		int stopCount = data.getStopCount();
+		this.bestArrivalStamp = new int[stopCount];
+		this.bestArrivalCost = new double[stopCount];
+		this.bestBoardingStamp = new int[stopCount];
+		this.bestBoardingCost = new double[stopCount];
+		this.egressStamp = new int[stopCount];
+		this.egressCost = new double[stopCount];
+		this.routeScanStart = new int[data.getRouteCount()];
+		Arrays.fill(this.routeScanStart, -1);
+		resetStamps();
+	}
+
+	@Override
+	public List<Leg> calcRoute(final Facility<?> fromFacility, final Facility<?> toFacility, final double departureTime, final Person person) {
+		if (this.data.getStopCount() == 0) {
+			return null;
+		}
+		readConfig();
+		Coord fromCoord = fromFacility.getCoord();
+		Coord toCoord = toFacility.getCoord();
+		StopLocations access = locateNearestStops(person, fromCoord);
+		StopLocations egress = locateNearestStops(person, toCoord);
+
+		if (!search(access, egress, departureTime)) {
+			return null;
+		}
+
+		double directWalkCost = this.travelDisutility.getTravelDisutility(person, fromCoord, toCoord);
+		if (directWalkCost < this.bestCost) {
+			return createDirectWalkLegList(person, fromCoord, toCoord);
+		}
+		return createLegs(departureTime, fromCoord, toCoord, person);
+	}
+
+	/**
+	 * Range query: calculates the journeys for all departures from the start location in the given time window.
+	 * For each time at which one could leave the start location and catch a departure at one of the stops near
+	 * it without waiting, the least-cost journey is calculated. Of these, only the journeys that arrive earlier
+	 * than all journeys leaving later are returned, so that the result contains each connection only once, with
+	 * the latest possible departure from the start location. The direct walk is not considered.
+	 * <p/>
+	 * As the cost of waiting depends on the departure time, the labels of one departure time cannot be re-used
+	 * for the next one; the per-query data is only re-used to avoid the allocation of new arrays.
+	 *
+	 * @return the journeys, sorted by increasing departure time; empty if no journey was found
+	 */
+	public List<Journey> calcRoutes(final Facility<?> fromFacility, final Facility<?> toFacility,
+			final double earliestDepartureTime, final double latestDepartureTime, final Person person) {
+		List<Journey> journeys = new ArrayList<>();
+		if (this.data.getStopCount() == 0) {
+			return journeys;
+		}
+		readConfig();
+		Coord fromCoord = fromFacility.getCoord();
+		Coord toCoord = toFacility.getCoord();
+		StopLocations access = locateNearestStops(person, fromCoord);
+		StopLocations egress = locateNearestStops(person, toCoord);
+
+		double[] departureTimes = collectDepartureTimes(access, earliestDepartureTime, latestDepartureTime);
+		double earliestArrivalTime = Double.POSITIVE_INFINITY;
+		for (int i = departureTimes.length - 1; i >= 0; i--) {
+			double departureTime = departureTimes[i];
+			if (i + 1 < departureTimes.length && departureTimes[i + 1] == departureTime) {
+				continue;
+			}
+			if (search(access, egress, departureTime)) {
+				double cost = this.bestCost;
+				List<Leg> legs = createLegs(departureTime, fromCoord, toCoord, person);
+				double arrivalTime = departureTime;
+				for (Leg leg : legs) {
+					arrivalTime += leg.getTravelTime();
+				}
+				if (arrivalTime < earliestArrivalTime) {
+					earliestArrivalTime = arrivalTime;
+					journeys.add(new Journey(departureTime, arrivalTime, cost, legs));
+				}
+			}
+		}
+		Collections.reverse(journeys);
+		return journeys;
+	}
+
+	/**
+	 * @return the times, in increasing order, at which one has to leave the start location to catch a departure
+	 * at one of the access stops without waiting.
+	 */
+	private double[] collectDepartureTimes(final StopLocations access, final double earliestDepartureTime, final double latestDepartureTime) {
+		RaptorTransitRouterData d = this.data;
+		TDoubleArrayList times = new TDoubleArrayList();
+		for (int i = 0; i < access.stops.length; i++) {
+			int stop = access.stops[i];
+			double walkTime = access.times[i];
+			for (int j = d.stopRouteStopStart[stop]; j < d.stopRouteStopStart[stop + 1]; j++) {
+				int routeStop = d.stopRouteStops[j];
+				int route = d.routeStopRoute[routeStop];
+				if (routeStop + 1 == d.routeStopStart[route + 1]) {
+					continue; // one cannot board at the last stop of a route
+				}
+				double stopDepartureTime = d.getNextDepartureTime(route, routeStop, earliestDepartureTime + walkTime) + d.departureOffsets[routeStop];
+				while (stopDepartureTime - walkTime <= latestDepartureTime) {
+					times.add(stopDepartureTime - walkTime);
+					stopDepartureTime = d.getNextDepartureTime(route, routeStop, Math.nextUp(stopDepartureTime)) + d.departureOffsets[routeStop];
+				}
+			}
+		}
+		times.sort();
+		return times.toArray();
+	}
+
+	private void readConfig() {
+		this.inVehicleTimeCost = -this.config.getMarginalUtilityOfTravelTimePt_utl_s();
+		this.inVehicleDistanceCost = -this.config.getMarginalUtilityOfTravelDistancePt_utl_m();
+		this.waitingTimeCost = -this.config.getMarginalUtilityOfWaitingPt_utl_s();
+		this.walkTimeCost = -this.config.getMarginalUtilityOfTravelTimeWalk_utl_s();
+		this.walkDistanceCost = -this.config.getMarginalUtilityOfTravelDistanceWalk_utl_m();
+		this.lineSwitchCost = -this.config.getUtilityOfLineSwitch_utl();
+		this.additionalTransferTime = this.config.getAdditionalTransferTime();
+		this.walkSpeed = this.config.getBeelineWalkSpeed();
+	}
+
+	private StopLocations locateNearestStops(final Person person, final Coord coord) {
+		Collection<TransitStopFacility> nearestStops = this.data.getNearestStops(coord, this.config.getSearchRadius());
+		if (nearestStops.size() < 2) {
+			// also enlarge search area if only one stop found, maybe a second one is near the border of the search area
+			TransitStopFacility nearestStop = this.data.getNearestStop(coord);
+			double distance = CoordUtils.calcEuclideanDistance(coord, nearestStop.getCoord());
+			nearestStops = this.data.getNearestStops(coord, distance + this.config.getExtensionRadius());
+		}
+		StopLocations locations = new StopLocations(nearestStops.size());
+		int i = 0;
+		for (TransitStopFacility stop : nearestStops) {
+			locations.stops[i] = this.data.getStopIndex(stop);
+			locations.times[i] = this.travelDisutility.getTravelTime(person, coord, stop.getCoord());
+			locations.costs[i] = this.travelDisutility.getTravelDisutility(person, coord, stop.getCoord());
+			i++;
+		}
+		return locations;
+	}
+
+	/**
+	 * Runs the rounds of the search and stores the best journey in <code>bestCost</code>, <code>bestRound</code>
+	 * and <code>bestStop</code>.
+	 *
+	 * @return <code>true</code> if a journey was found
+	 */
+	private boolean search(final StopLocations access, final StopLocations egress, final double departureTime) {
+		augmentIterationId();
+		this.bestCost = Double.POSITIVE_INFINITY;
+		this.bestRound = -1;
+		this.bestStop = -1;
+		for (int i = 0; i < egress.stops.length; i++) {
+			int stop = egress.stops[i];
+			if (this.egressStamp[stop] != this.iterationID || egress.costs[i] < this.egressCost[stop]) {
+				this.egressStamp[stop] = this.iterationID;
+				this.egressCost[stop] = egress.costs[i];
+			}
+		}
+
+		this.markedStops.resetQuick();
+		Round round0 = getRound(0);
+		for (int i = 0; i < access.stops.length; i++) {
+			relaxBoarding(round0, access.stops[i], -1, departureTime + access.times[i], access.costs[i]);
+		}
+
+		for (int k = 1; !this.markedStops.isEmpty(); k++) {
+			Round previous = getRound(k - 1);
+			Round current = getRound(k);
+			collectRoutes();
+			for (int i = 0; i < this.scannedRoutes.size(); i++) {
+				int route = this.scannedRoutes.getQuick(i);
+				scanRoute(route, this.routeScanStart[route], previous, current, k);
+				this.routeScanStart[route] = -1;
+			}
+			this.scannedRoutes.resetQuick();
+			for (int i = 0; i < this.arrivedStops.size(); i++) {
+				relaxTransfers(current, this.arrivedStops.getQuick(i));
+			}
+			this.arrivedStops.resetQuick();
+		}
+		return this.bestStop >= 0;
+	}
+
+	/**
+	 * Collects the routes serving the marked stops, together with the first marked route stop of each route,
+	 * and clears the marked stops.
+	 */
+	private void collectRoutes() {
+		RaptorTransitRouterData d = this.data;
+		for (int i = 0; i < this.markedStops.size(); i++) {
+			int stop = this.markedStops.getQuick(i);
+			for (int j = d.stopRouteStopStart[stop]; j < d.stopRouteStopStart[stop + 1]; j++) {
+				int routeStop = d.stopRouteStops[j];
+				int route = d.routeStopRoute[routeStop];
+				int start = this.routeScanStart[route];
+				if (start < 0) {
+					this.scannedRoutes.add(route);
+					this.routeScanStart[route] = routeStop;
+				} else if (routeStop < start) {
+					this.routeScanStart[route] = routeStop;
+				}
+			}
+		}
+		this.markedStops.resetQuick();
+	}
+
+	private void scanRoute(final int route, final int start, final Round previous, final Round current, final int k) {
+		RaptorTransitRouterData d = this.data;
+		int end = d.routeStopStart[route + 1];
+		boolean onTrip = false;
+		double tripDeparture = 0.0;
+		int boardRouteStop = -1;
+		double inVehicleStart = 0.0;
+		double boardCost = 0.0;
+		for (int routeStop = start; routeStop < end; routeStop++) {
+			int stop = d.routeStopStop[routeStop];
+			if (onTrip) {
+				double arrivalTime = tripDeparture + d.arrivalOffsets[routeStop];
+				double cost = boardCost + (arrivalTime - inVehicleStart) * this.inVehicleTimeCost
+						+ (d.cumulativeDistances[routeStop] - d.cumulativeDistances[boardRouteStop]) * this.inVehicleDistanceCost;
+				if (cost < this.bestCost && (this.bestArrivalStamp[stop] != this.iterationID || cost < this.bestArrivalCost[stop])) {
+					this.bestArrivalStamp[stop] = this.iterationID;
+					this.bestArrivalCost[stop] = cost;
+					if (current.arrivalStamp[stop] != this.iterationID) {
+						current.arrivalStamp[stop] = this.iterationID;
+						this.arrivedStops.add(stop);
+					}
+					current.arrivalTime[stop] = arrivalTime;
+					current.arrivalCost[stop] = cost;
+					current.boardRouteStop[stop] = boardRouteStop;
+					current.alightRouteStop[stop] = routeStop;
+					current.tripDeparture[stop] = tripDeparture;
+					if (this.egressStamp[stop] == this.iterationID && cost + this.egressCost[stop] < this.bestCost) {
+						this.bestCost = cost + this.egressCost[stop];
+						this.bestRound = k;
+						this.bestStop = stop;
+					}
+				}
+			}
+			if (previous.boardingStamp[stop] == this.iterationID && routeStop + 1 < end) {
+				// check whether boarding here is cheaper than staying on the current trip, if any
+				double time = previous.boardingTime[stop];
+				double departure = d.getNextDepartureTime(route, routeStop, time);
+				double vehicleArrival = departure + d.arrivalOffsets[routeStop];
+				double candidateStart = Math.max(time, vehicleArrival);
+				double candidateCost = previous.boardingCost[stop] + (candidateStart - time) * this.waitingTimeCost;
+				boolean board = !onTrip;
+				if (onTrip) {
+					double stayCost = boardCost + (tripDeparture + d.departureOffsets[routeStop] - inVehicleStart) * this.inVehicleTimeCost
+							+ (d.cumulativeDistances[routeStop] - d.cumulativeDistances[boardRouteStop]) * this.inVehicleDistanceCost;
+					double switchCost = candidateCost + (departure + d.departureOffsets[routeStop] - candidateStart) * this.inVehicleTimeCost;
+					board = switchCost < stayCost;
+				}
+				if (board) {
+					onTrip = true;
+					tripDeparture = departure;
+					boardRouteStop = routeStop;
+					inVehicleStart = candidateStart;
+					boardCost = candidateCost;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Relaxes the transfers from a stop reached in the current round, including the line switch at the stop itself.
+	 */
+	private void relaxTransfers(final Round current, final int stop) {
+		RaptorTransitRouterData d = this.data;
+		double arrivalTime = current.arrivalTime[stop];
+		double arrivalCost = current.arrivalCost[stop];
+		double waitCost = this.additionalTransferTime * this.waitingTimeCost + this.lineSwitchCost;
+		relaxBoarding(current, stop, stop, arrivalTime + this.additionalTransferTime, arrivalCost + waitCost);
+		for (int i = d.transferStart[stop]; i < d.transferStart[stop + 1]; i++) {
+			double distance = d.transferDistance[i];
+			double walkTime = distance / this.walkSpeed;
+			double cost = arrivalCost + walkTime * this.walkTimeCost + distance * this.walkDistanceCost + waitCost;
+			relaxBoarding(current, d.transferStop[i], stop, arrivalTime + walkTime + this.additionalTransferTime, cost);
+		}
+	}
+
+	private void relaxBoarding(final Round round, final int stop, final int fromStop, final double time, final double cost) {
+		if (cost < this.bestCost && (this.bestBoardingStamp[stop] != this.iterationID || cost < this.bestBoardingCost[stop])) {
+			this.bestBoardingStamp[stop] = this.iterationID;
+			this.bestBoardingCost[stop] = cost;
+			if (round.boardingStamp[stop] != this.iterationID) {
+				round.boardingStamp[stop] = this.iterationID;
+				this.markedStops.add(stop);
+			}
+			round.boardingTime[stop] = time;
+			round.boardingCost[stop] = cost;
+			round.boardingFromStop[stop] = fromStop;
+		}
+	}
+
+	/**
+	 * Converts the best journey of the last search into legs, in the same way as {@link TransitRouterImpl}.
+	 */
+	private List<Leg> createLegs(final double departureTime, final Coord fromCoord, final Coord toCoord, final Person person) {
+		RaptorTransitRouterData d = this.data;
+		// collect the transit legs from the destination back to the start
+		TIntArrayList boardRouteStops = new TIntArrayList();
+		TIntArrayList alightRouteStops = new TIntArrayList();
+		TDoubleArrayList tripDepartures = new TDoubleArrayList();
+		int stop = this.bestStop;
+		for (int k = this.bestRound; k > 0; k--) {
+			Round round = this.rounds.get(k);
+			int boardRouteStop = round.boardRouteStop[stop];
+			boardRouteStops.add(boardRouteStop);
+			alightRouteStops.add(round.alightRouteStop[stop]);
+			tripDepartures.add(round.tripDeparture[stop]);
+			stop = this.rounds.get(k - 1).boardingFromStop[d.routeStopStop[boardRouteStop]];
+		}
+
+		double beelineDistanceFactor = this.config.getBeelineDistanceFactor();
+		List<Leg> legs = new ArrayList<>();
+		double time = departureTime;
+		TransitStopFacility previousStop = null;
+		for (int i = boardRouteStops.size() - 1; i >= 0; i--) {
+			int boardRouteStop = boardRouteStops.get(i);
+			int alightRouteStop = alightRouteStops.get(i);
+			TransitStopFacility accessStop = d.stops[d.routeStopStop[boardRouteStop]];
+			TransitStopFacility egressStop = d.stops[d.routeStopStop[alightRouteStop]];
+			if (previousStop == null) {
+				Leg leg = PopulationUtils.createLeg(TransportMode.transit_walk);
+				double walkTime = this.travelDisutility.getTravelTime(person, fromCoord, accessStop.getCoord());
+				Route walkRoute = new GenericRouteImpl(null, accessStop.getLinkId());
+				walkRoute.setTravelTime(walkTime);
+				walkRoute.setDistance(beelineDistanceFactor * NetworkUtils.getEuclideanDistance(fromCoord, accessStop.getCoord()));
+				leg.setRoute(walkRoute);
+				leg.setTravelTime(walkTime);
+				time += walkTime;
+				legs.add(leg);
+			} else if (previousStop != accessStop) {
+				Leg leg = PopulationUtils.createLeg(TransportMode.transit_walk);
+				double transferTime = CoordUtils.calcEuclideanDistance(previousStop.getCoord(), accessStop.getCoord()) / this.walkSpeed
+						+ this.additionalTransferTime;
+				Route walkRoute = new GenericRouteImpl(previousStop.getLinkId(), accessStop.getLinkId());
+				walkRoute.setTravelTime(transferTime);
+				walkRoute.setDistance(beelineDistanceFactor * NetworkUtils.getEuclideanDistance(previousStop.getCoord(), accessStop.getCoord()));
+				leg.setRoute(walkRoute);
+				leg.setTravelTime(transferTime);
+				time += transferTime;
+				legs.add(leg);
+			}
+			int route = d.routeStopRoute[boardRouteStop];
+			Leg leg = PopulationUtils.createLeg(TransportMode.pt);
+			ExperimentalTransitRoute ptRoute = new ExperimentalTransitRoute(accessStop, d.routeLines[route], d.routes[route], egressStop);
+			double arrivalTime = tripDepartures.get(i) + d.arrivalOffsets[alightRouteStop];
+			ptRoute.setTravelTime(arrivalTime - time);
+			ptRoute.setDistance(beelineDistanceFactor * NetworkUtils.getEuclideanDistance(accessStop.getCoord(), egressStop.getCoord()));
+			leg.setRoute(ptRoute);
+			leg.setTravelTime(arrivalTime - time);
+			time = arrivalTime;
+			legs.add(leg);
+			previousStop = egressStop;
+		}
+		Leg leg = PopulationUtils.createLeg(TransportMode.transit_walk);
+		leg.setTravelTime(this.travelDisutility.getTravelTime(person, previousStop.getCoord(), toCoord));
+		legs.add(leg);
+		return legs;
+	}
+
+	private List<Leg> createDirectWalkLegList(final Person person, final Coord fromCoord, final Coord toCoord) {
+		List<Leg> legs = new ArrayList<>();
+		Leg leg = PopulationUtils.createLeg(TransportMode.transit_walk);
+		double walkTime = this.travelDisutility.getTravelTime(person, fromCoord, toCoord);
+		leg.setTravelTime(walkTime);
+		Route walkRoute = new GenericRouteImpl(null, null);
+		walkRoute.setTravelTime(walkTime);
+		leg.setRoute(walkRoute);
+		legs.add(leg);
+		return legs;
+	}
+
+	private Round getRound(final int k) {
+		while (this.rounds.size() <= k) {
+			this.rounds.add(new Round(this.data.getStopCount()));
+		}
+		return this.rounds.get(k);
+	}
+
+	/**
+	 * Augments the iterationID and checks whether the stamps have to be reset.
+	 */
+	private void augmentIterationId() {
+		if (this.iterationID == Integer.MAX_VALUE) {
+			resetStamps();
+		} else {
+			this.iterationID++;
+		}
+	}
+
+	private void resetStamps() {
+		this.iterationID = Integer.MIN_VALUE + 1;
+		Arrays.fill(this.bestArrivalStamp, Integer.MIN_VALUE);
+		Arrays.fill(this.bestBoardingStamp, Integer.MIN_VALUE);
+		Arrays.fill(this.egressStamp, Integer.MIN_VALUE);
+		for (Round round : this.rounds) {
+			Arrays.fill(round.arrivalStamp, Integer.MIN_VALUE);
+			Arrays.fill(round.boardingStamp, Integer.MIN_VALUE);
+		}
+	}
+
+	public RaptorTransitRouterData getSearchData() {
+		return this.data;
+	}
+
+	/**
+	 * One journey found by a range query.
+	 */
+	public static final class Journey {
+
+		private final double departureTime;
+		private final double arrivalTime;
+		private final double travelCost;
+		private final List<Leg> legs;
+
+		/*package*/ Journey(final double departureTime, final double arrivalTime, final double travelCost, final List<Leg> legs) {
+			this.departureTime = departureTime;
+			this.arrivalTime = arrivalTime;
+			this.travelCost = travelCost;
+			this.legs = legs;
+		}
+
+		/**
+		 * @return the time at which the start location is left
+		 */
+		public double getDepartureTime() {
+			return this.departureTime;
+		}
+
+		/**
+		 * @return the time at which the destination is reached
+		 */
+		public double getArrivalTime() {
+			return this.arrivalTime;
+		}
+
+		/**
+		 * @return the generalized cost of the journey, including access and egress walks
+		 */
+		public double getTravelCost() {
+			return this.travelCost;
+		}
+
+		public List<Leg> getLegs() {
+			return this.legs;
+		}
+
+	}
+
+	private static final class StopLocations {
+
+		final int[] stops;
+		final double[] times;
+		final double[] costs;
+
+		StopLocations(final int size) {
+			this.stops = new int[size];
+			this.times = new double[size];
+			this.costs = new double[size];
+		}
+
+	}
+
+	/**
+	 * The labels of one round. The arrival labels are set by the route scans of the round, the boarding labels
+	 * by the access to the stops in round 0 and by the transfers from the arrivals in later rounds.
+	 */
+	private static final class Round {
+
+		final int[] arrivalStamp;
+		final double[] arrivalTime;
+		final double[] arrivalCost;
+		final int[] boardRouteStop;
+		final int[] alightRouteStop;
+		final double[] tripDeparture;
+
+		final int[] boardingStamp;
+		final double[] boardingTime;
+		final double[] boardingCost;
+		/** the stop from which the stop was reached by a transfer, or <code>-1</code> if it was reached from the start location */
+		final int[] boardingFromStop;
+
+		Round(final int stopCount) {
+			this.arrivalStamp = new int[stopCount];
+			this.arrivalTime = new double[stopCount];
+			this.arrivalCost = new double[stopCount];
+			this.boardRouteStop = new int[stopCount];
+			this.alightRouteStop = new int[stopCount];
+			this.tripDeparture = new double[stopCount];
+			this.boardingStamp = new int[stopCount];
+			this.boardingTime = new double[stopCount];
+			this.boardingCost = new double[stopCount];
+			this.boardingFromStop = new int[stopCount];
+			Arrays.fill(this.arrivalStamp, Integer.MIN_VALUE);
+			Arrays.fill(this.boardingStamp, Integer.MIN_VALUE);
+		}
+
+	}
+
+}
@@ -0,0 +1,281 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitRouterData.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.collections.QuadTree;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * The search data of the {@link RaptorTransitRouter}: the transit schedule converted into flat arrays.
+ * <p/>
+ * Routes are stored as consecutive blocks of route stops, the sorted departure times at the first stop
+ * of each route as consecutive blocks of departures. For each stop, the route stops at which it is served
+ * and the stops that can be reached by walking within the beeline walk connection distance are stored as
+ * consecutive blocks as well. All blocks are addressed by start offsets, the block of element <code>i</code>
+ * ending where the block of <code>i + 1</code> starts.
+ * <p/>
+ * Only stops served by at least one route with departures are included. The data only depends on the schedule
+ * and on the beeline walk connection distance; all other parameters of the {@link TransitRouterConfig} are
+ * read by the router at query time. Instances are immutable and can be shared by all threads.
+ */
+public final class RaptorTransitRouterData {
+
+	private static final Logger log = Logger.getLogger(RaptorTransitRouterData.class);
+
+	/*package*/ final TransitStopFacility[] stops;
+	/*package*/ final Map<TransitStopFacility, Integer> stopIndices;
+	private final QuadTree<TransitStopFacility> stopsQT;
+
+	/** the global route stop indices of the route stops of stop <code>s</code>, starting at <code>stopRouteStopStart[s]</code> */
+	/*package*/ final int[] stopRouteStopStart;
+	/*package*/ final int[] stopRouteStops;
+
+	/** the stops reachable by walking from stop <code>s</code>, starting at <code>transferStart[s]</code>; does not contain <code>s</code> */
+	/*package*/ final int[] transferStart;
+	/*package*/ final int[] transferStop;
+	/*package*/ final double[] transferDistance;
+
+	/*package*/ final TransitLine[] routeLines;
+	/*package*/ final TransitRoute[] routes;
+	/** the route stops of route <code>r</code>, starting at <code>routeStopStart[r]</code> */
+	/*package*/ final int[] routeStopStart;
+	/** the departures of route <code>r</code> at its first stop, sorted, starting at <code>departureStart[r]</code> */
+	/*package*/ final int[] departureStart;
+	/*package*/ final double[] departures;
+
+	/*package*/ final int[] routeStopRoute;
+	/*package*/ final int[] routeStopStop;
+	/*package*/ final TransitRouteStop[] routeStops;
+	/*package*/ final double[] arrivalOffsets;
+	/*package*/ final double[] departureOffsets;
+	/** the beeline distance from the first stop of the route along the stops of the route */
+	/*package*/ final double[] cumulativeDistances;
+
+	public RaptorTransitRouterData(final TransitSchedule schedule, final TransitRouterConfig config) {
+		this(schedule, config.getBeelineWalkConnectionDistance());
+	}
+
+	public RaptorTransitRouterData(final TransitSchedule schedule, final double maxBeelineWalkConnectionDistance) {
+		log.info("start creating raptor search data");
+		List<TransitLine> lines = new ArrayList<>();
+		List<TransitRoute> routes = new ArrayList<>();
+		int routeStopCount = 0;
+		int departureCount = 0;
+		for (TransitLine line : schedule.getTransitLines().values()) {
+			for (TransitRoute route : line.getRoutes().values()) {
+				if (route.getStops().size() > 1 && !route.getDepartures().isEmpty()) {
+					lines.add(line);
+					routes.add(route);
+					routeStopCount += route.getStops().size();
+					departureCount += route.getDepartures().size();
+				}
+			}
+		}
+
+		this.stopIndices = new IdentityHashMap<>();
+		List<TransitStopFacility> stops = new ArrayList<>();
+		this.routeLines = lines.toArray(new TransitLine[lines.size()]);
+		this.routes = routes.toArray(new TransitRoute[routes.size()]);
+		this.routeStopStart = new int[routes.size() + 1];
+		this.departureStart = new int[routes.size() + 1];
+		this.departures = new double[departureCount];
+		this.routeStopRoute = new int[routeStopCount];
+		this.routeStopStop = new int[routeStopCount];
+		this.routeStops = new TransitRouteStop[routeStopCount];
+		this.arrivalOffsets = new double[routeStopCount];
+		this.departureOffsets = new double[routeStopCount];
+		this.cumulativeDistances = new double[routeStopCount];
+		int rs = 0;
+		int d = 0;
+		for (int r = 0; r < this.routes.length; r++) {
+			TransitRoute route = this.routes[r];
+			this.routeStopStart[r] = rs;
+			this.departureStart[r] = d;
+			for (Departure departure : route.getDepartures().values()) {
+				this.departures[d++] = departure.getDepartureTime();
+			}
+			Arrays.sort(this.departures, this.departureStart[r], d);
+			Coord prevCoord = null;
+			for (TransitRouteStop stop : route.getStops()) {
+				TransitStopFacility facility = stop.getStopFacility();
+				Integer stopIndex = this.stopIndices.get(facility);
+				if (stopIndex == null) {
+					stopIndex = stops.size();
+					stops.add(facility);
+					this.stopIndices.put(facility, stopIndex);
+				}
+				double arrivalOffset = stop.getArrivalOffset();
+				double departureOffset = stop.getDepartureOffset();
+				this.routeStopRoute[rs] = r;
+				this.routeStopStop[rs] = stopIndex;
+				this.routeStops[rs] = stop;
+				this.arrivalOffsets[rs] = (arrivalOffset != Time.UNDEFINED_TIME) ? arrivalOffset : departureOffset;
+				this.departureOffsets[rs] = (departureOffset != Time.UNDEFINED_TIME) ? departureOffset : arrivalOffset;
+				this.cumulativeDistances[rs] = (prevCoord == null) ? 0.0
+						: this.cumulativeDistances[rs - 1] + CoordUtils.calcEuclideanDistance(prevCoord, facility.getCoord());
+				prevCoord = facility.getCoord();
+				rs++;
+			}
+		}
+		this.routeStopStart[this.routes.length] = rs;
+		this.departureStart[this.routes.length] = d;
+		this.stops = stops.toArray(new TransitStopFacility[stops.size()]);
+
+		// the route stops per stop, by counting sort
+		this.stopRouteStopStart = new int[this.stops.length + 1];
+		for (int i = 0; i < routeStopCount; i++) {
+			this.stopRouteStopStart[this.routeStopStop[i] + 1]++;
+		}
+		for (int s = 0; s < this.stops.length; s++) {
+			this.stopRouteStopStart[s + 1] += this.stopRouteStopStart[s];
+		}
+		this.stopRouteStops = new int[routeStopCount];
+		int[] fill = Arrays.copyOf(this.stopRouteStopStart, this.stops.length);
+		for (int i = 0; i < routeStopCount; i++) {
+			this.stopRouteStops[fill[this.routeStopStop[i]]++] = i;
+		}
+
+		this.stopsQT = createQuadTree(this.stops);
+
+		// the transfers between stops
+		this.transferStart = new int[this.stops.length + 1];
+		List<Integer> transferStops = new ArrayList<>();
+		List<Double> transferDistances = new ArrayList<>();
+		for (int s = 0; s < this.stops.length; s++) {
+			this.transferStart[s] = transferStops.size();
+			Coord coord = this.stops[s].getCoord();
+			for (TransitStopFacility other : this.stopsQT.getDisk(coord.getX(), coord.getY(), maxBeelineWalkConnectionDistance)) {
+				if (other != this.stops[s]) {
+					transferStops.add(this.stopIndices.get(other));
+					transferDistances.add(CoordUtils.calcEuclideanDistance(coord, other.getCoord()));
+				}
+			}
+		}
+		this.transferStart[this.stops.length] = transferStops.size();
+		this.transferStop = new int[transferStops.size()];
+		this.transferDistance = new double[transferStops.size()];
+		for (int i = 0; i < this.transferStop.length; i++) {
+			this.transferStop[i] = transferStops.get(i);
+			this.transferDistance[i] = transferDistances.get(i);
+		}
+
+		log.info("raptor search data statistics:");
+		log.info(" # stops:       " + this.stops.length);
+		log.info(" # routes:      " + this.routes.length);
+		log.info(" # route stops: " + routeStopCount);
+		log.info(" # departures:  " + departureCount);
+		log.info(" # transfers:   " + this.transferStop.length);
+	}
+
+	private static QuadTree<TransitStopFacility> createQuadTree(final TransitStopFacility[] stops) {
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (TransitStopFacility stop : stops) {
+			Coord c = stop.getCoord();
+			minX = Math.min(minX, c.getX());
+			minY = Math.min(minY, c.getY());
+			maxX = Math.max(maxX, c.getX());
+			maxY = Math.max(maxY, c.getY());
+		}
+		if (stops.length == 0) {
+			minX = minY = maxX = maxY = 0.0;
+		}
+		QuadTree<TransitStopFacility> quadTree = new QuadTree<>(minX, minY, maxX, maxY);
+		for (TransitStopFacility stop : stops) {
+			quadTree.put(stop.getCoord().getX(), stop.getCoord().getY(), stop);
+		}
+		return quadTree;
+	}
+
+	public int getStopCount() {
+		return this.stops.length;
+	}
+
+	public int getRouteCount() {
+		return this.routes.length;
+	}
+
+	/**
+	 * @return the index of the given stop, or <code>-1</code> if it is not served by any route with departures.
+	 */
+	public int getStopIndex(final TransitStopFacility stop) {
+		Integer index = this.stopIndices.get(stop);
+		return index == null ? -1 : index;
+	}
+
+	public TransitStopFacility getStop(final int index) {
+		return this.stops[index];
+	}
+
+	/*package*/ Collection<TransitStopFacility> getNearestStops(final Coord coord, final double distance) {
+		return this.stopsQT.getDisk(coord.getX(), coord.getY(), distance);
+	}
+
+	/*package*/ TransitStopFacility getNearestStop(final Coord coord) {
+		return this.stopsQT.getClosest(coord.getX(), coord.getY());
+	}
+
+	/**
+	 * @return the departure time at the first stop of route <code>route</code> of the first departure that leaves
+	 * route stop <code>routeStop</code> not before <code>time</code>. As in {@link PreparedTransitSchedule}, the
+	 * schedule is assumed to repeat every day, so the returned time may be on a later day than the departures
+	 * stored in the schedule.
+	 */
+	/*package*/ double getNextDepartureTime(final int route, final int routeStop, final double time) {
+		double earliestDepartureAtTerminus = time - this.departureOffsets[routeStop];
+		double day = Math.floor(earliestDepartureAtTerminus / TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT) * TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		double timeOfDay = earliestDepartureAtTerminus - day;
+		int from = this.departureStart[route];
+		int to = this.departureStart[route + 1];
+		int pos = Arrays.binarySearch(this.departures, from, to, timeOfDay);
+		if (pos < 0) {
+			pos = -(pos + 1);
+		} else {
+			// there might be several departures at the same time
+			while (pos > from && this.departures[pos - 1] == timeOfDay) {
+				pos--;
+			}
+		}
+		if (pos == to) {
+			return day + TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT + this.departures[from];
+		}
+		return day + this.departures[pos];
+	}
+
+}
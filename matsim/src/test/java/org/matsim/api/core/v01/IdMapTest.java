@@ -0,0 +1,136 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdMapTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IdMapTest {
+
+	@Test
+	public void testPutGetRemove() {
+		Map<Id<TPerson>, String> map = new IdMap<>(TPerson.class, 2);
+		Id<TPerson> id1 = Id.create("1", TPerson.class);
+		Id<TPerson> id2 = Id.create("2", TPerson.class);
+		Id<TPerson> id3 = Id.create("3", TPerson.class);
+
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertNull(map.put(id1, "one"));
+		Assert.assertNull(map.put(id3, "three"));
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals("one", map.get(id1));
+		Assert.assertNull(map.get(id2));
+		Assert.assertEquals("three", map.get(id3));
+		Assert.assertTrue(map.containsKey(id3));
+		Assert.assertFalse(map.containsKey(id2));
+		Assert.assertTrue(map.containsValue("one"));
+
+		Assert.assertEquals("one", map.put(id1, "uno"));
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals("uno", map.remove(id1));
+		Assert.assertNull(map.remove(id1));
+		Assert.assertEquals(1, map.size());
+		Assert.assertNull(map.get(id1));
+
+		map.clear();
+		Assert.assertEquals(0, map.size());
+		Assert.assertNull(map.get(id3));
+	}
+
+	@Test
+	public void testGrowsOnPut() {
+		Map<Id<TPerson>, String> map = new IdMap<>(TPerson.class);
+		Id<TPerson> first = Id.create("grow_first", TPerson.class);
+		for (int i = 0; i < 100; i++) {
+			Id.create("grow_" + i, TPerson.class);
+		}
+		Id<TPerson> last = Id.create("grow_last", TPerson.class);
+
+		Assert.assertNull(map.put(last, "last"));
+		Assert.assertNull(map.put(first, "first"));
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals("last", map.get(last));
+		Assert.assertEquals("first", map.get(first));
+		Iterator<Id<TPerson>> iter = map.keySet().iterator();
+		Assert.assertEquals(first, iter.next());
+		Assert.assertEquals(last, iter.next());
+		Assert.assertFalse(iter.hasNext());
+	}
+
+	@Test
+	public void testNullValues() {
+		Map<Id<TPerson>, String> map = new IdMap<>(TPerson.class);
+		Id<TPerson> id1 = Id.create("1", TPerson.class);
+
+		Assert.assertNull(map.put(id1, null));
+		Assert.assertEquals(1, map.size());
+		Assert.assertTrue(map.containsKey(id1));
+		Assert.assertTrue(map.containsValue(null));
+		Assert.assertNull(map.get(id1));
+	}
+
+	@Test
+	public void testIterationOrder() {
+		Map<Id<TPerson>, String> map = new IdMap<>(TPerson.class);
+		Id<TPerson> id1 = Id.create("1", TPerson.class);
+		Id<TPerson> id2 = Id.create("2", TPerson.class);
+		Id<TPerson> id3 = Id.create("3", TPerson.class);
+		map.put(id3, "three");
+		map.put(id1, "one");
+		map.put(id2, "two");
+
+		Iterator<Map.Entry<Id<TPerson>, String>> iter = map.entrySet().iterator();
+		Assert.assertSame(id1, iter.next().getKey());
+		Map.Entry<Id<TPerson>, String> e = iter.next();
+		Assert.assertSame(id2, e.getKey());
+		Assert.assertEquals("two", e.getValue());
+		iter.remove();
+		Assert.assertSame(id3, iter.next().getKey());
+		Assert.assertFalse(iter.hasNext());
+
+		Assert.assertEquals(2, map.size());
+		Assert.assertFalse(map.containsKey(id2));
+		Assert.assertEquals(2, map.keySet().size());
+		Assert.assertTrue(map.values().contains("three"));
+	}
+
+	@Test
+	public void testKeysOfOtherType() {
+		Map<Id<TPerson>, String> map = new IdMap<>(TPerson.class);
+		Id<TOther> other = Id.create("otherFirst", TOther.class);
+		Id<TPerson> id1 = Id.create("1", TPerson.class);
+		Id<TPerson> id2 = Id.create("otherFirst", TPerson.class);
+		map.put(id1, "one");
+		map.put(id2, "two");
+
+		// ids of different types with the same key are currently equal, see Id.equals()
+		Assert.assertEquals("two", map.get(other));
+		Assert.assertNull(map.get(Id.create("unknown", TOther.class)));
+		Assert.assertNull(map.get("1"));
+	}
+
+	private static class TPerson {}
+	private static class TOther {}
+
+}
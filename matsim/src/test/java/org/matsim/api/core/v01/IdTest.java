@@ -67,7 +67,24 @@ public class IdTest {
 //		} // FIXME temporarily deactivated
 	}
 	
+	@Test
+	public void testIndex() {
+		Id<TIndexed> id1 = Id.create("1", TIndexed.class);
+		Id<TIndexed> id2 = Id.create("2", TIndexed.class);
+		Id<TIndexed> id1again = Id.create("1", TIndexed.class);
+		Id<TNode> nodeId1 = Id.create("1", TNode.class);
+		
+		Assert.assertEquals(id1.index() + 1, id2.index());
+		Assert.assertEquals(id1.index(), id1again.index());
+		Assert.assertTrue(Id.getNumberOfIds(TIndexed.class) > id2.index());
+		Assert.assertSame(id1, Id.get(id1.index(), TIndexed.class));
+		Assert.assertSame(id2, Id.get(id2.index(), TIndexed.class));
+		Assert.assertSame(nodeId1, Id.get(nodeId1.index(), TNode.class));
+		Assert.assertNull(Id.get(Id.getNumberOfIds(TIndexed.class), TIndexed.class));
+	}
+	
 	private static class TLink {}
 	private static class TNode {}
+	private static class TIndexed {}
 	
 }
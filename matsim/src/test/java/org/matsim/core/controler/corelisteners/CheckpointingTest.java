@@ -0,0 +1,227 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CheckpointingTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler.corelisteners;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.analysis.ScoreStatsControlerListener;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.analysis.IterationStopWatch;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.controler.Checkpointable;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.OutputDirectoryHierarchy.OverwriteFileSetting;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class CheckpointingTest {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	/**
+	 * Runs four iterations, then restarts the run from the checkpoint after iteration 2 and checks that
+	 * the restarted run ends with the same plans and score statistics as the original run.
+	 */
+	@Test
+	public void testRestartFromCheckpoint() {
+		Config config = createConfig("original/");
+		config.controler().setWriteCheckpointsInterval(2);
+		Controler original = new Controler(config);
+		original.run();
+
+		String checkpoint = original.getControlerIO().getIterationFilename(2, CheckpointingImpl.FILENAME_CHECKPOINT);
+		Assert.assertTrue(new File(checkpoint).exists());
+		Assert.assertFalse(new File(original.getControlerIO().getIterationFilename(1, CheckpointingImpl.FILENAME_CHECKPOINT)).exists());
+		Assert.assertTrue("the checkpoint of the last iteration must be written at shutdown",
+				new File(original.getControlerIO().getIterationFilename(4, CheckpointingImpl.FILENAME_CHECKPOINT)).exists());
+
+		Config restartConfig = createConfig("restarted/");
+		restartConfig.controler().setRestoreCheckpoint(checkpoint);
+		Controler restarted = new Controler(restartConfig);
+		restarted.run();
+
+		Assert.assertFalse("iterations before the checkpoint must not run again", new File(restarted.getControlerIO().getIterationPath(2)).exists());
+		Assert.assertTrue(new File(restarted.getControlerIO().getIterationPath(3)).exists());
+
+		Map<Id<Person>, ? extends Person> originalPersons = original.getScenario().getPopulation().getPersons();
+		Map<Id<Person>, ? extends Person> restartedPersons = restarted.getScenario().getPopulation().getPersons();
+		Assert.assertEquals(originalPersons.size(), restartedPersons.size());
+		for (Person person : originalPersons.values()) {
+			Person restartedPerson = restartedPersons.get(person.getId());
+			Assert.assertEquals(person.getPlans().size(), restartedPerson.getPlans().size());
+			Assert.assertEquals(person.getPlans().indexOf(person.getSelectedPlan()), restartedPerson.getPlans().indexOf(restartedPerson.getSelectedPlan()));
+			for (int i = 0; i < person.getPlans().size(); i++) {
+				Plan plan = person.getPlans().get(i);
+				Plan restartedPlan = restartedPerson.getPlans().get(i);
+				Assert.assertEquals(plan.getScore(), restartedPlan.getScore(), MatsimTestUtils.EPSILON);
+				Assert.assertEquals(plan.getPlanElements().size(), restartedPlan.getPlanElements().size());
+			}
+		}
+
+		double[][] originalHistory = original.getScoreStats().getHistory();
+		double[][] restartedHistory = restarted.getScoreStats().getHistory();
+		for (int i = 0; i <= 4; i++) {
+			Assert.assertEquals(originalHistory[ScoreStatsControlerListener.INDEX_EXECUTED][i],
+					restartedHistory[ScoreStatsControlerListener.INDEX_EXECUTED][i], MatsimTestUtils.EPSILON);
+			Assert.assertEquals(originalHistory[ScoreStatsControlerListener.INDEX_BEST][i],
+					restartedHistory[ScoreStatsControlerListener.INDEX_BEST][i], MatsimTestUtils.EPSILON);
+		}
+	}
+
+	/**
+	 * Restores a checkpoint of the last iteration of a run, so no iteration is left to run, and compares
+	 * the restored plans with the plans at the end of the run.
+	 */
+	@Test
+	public void testRestoreWithoutIterations() {
+		Config config = createConfig("original/");
+		config.controler().setLastIteration(1);
+		config.controler().setWriteCheckpointsInterval(1);
+		Controler original = new Controler(config);
+		original.run();
+
+		Config restartConfig = createConfig("restored/");
+		restartConfig.controler().setLastIteration(1);
+		restartConfig.controler().setRestoreCheckpoint(original.getControlerIO().getIterationFilename(1, CheckpointingImpl.FILENAME_CHECKPOINT));
+		Controler restored = new Controler(restartConfig);
+		restored.run();
+
+		Map<Id<Person>, String> originalPlans = new HashMap<>();
+		for (Person person : original.getScenario().getPopulation().getPersons().values()) {
+			originalPlans.put(person.getId(), toString(person));
+		}
+		for (Person person : restored.getScenario().getPopulation().getPersons().values()) {
+			Assert.assertEquals(originalPlans.remove(person.getId()), toString(person));
+		}
+		Assert.assertTrue(originalPlans.isEmpty());
+	}
+
+	/**
+	 * Writes parts that span many chunks, a part without a reader and a part that is not read completely,
+	 * and checks that the parts that can be restored are restored completely.
+	 */
+	@Test
+	public void testLargeAndSkippedParts() {
+		ControlerConfigGroup controlerConfigGroup = new ControlerConfigGroup();
+		controlerConfigGroup.setWriteCheckpointsInterval(1);
+		GlobalConfigGroup globalConfigGroup = new GlobalConfigGroup();
+		OutputDirectoryHierarchy controlerIO = new OutputDirectoryHierarchy(this.utils.getOutputDirectory(), OverwriteFileSetting.deleteDirectoryIfExists);
+		controlerIO.createIterationDirectory(1);
+		IterationStopWatch stopwatch = new IterationStopWatch();
+		stopwatch.beginIteration(1);
+
+		IntArrayCheckpoint large = new IntArrayCheckpoint("large", 200000);
+		IntArrayCheckpoint unknown = new IntArrayCheckpoint("unknown", 100000);
+		IntArrayCheckpoint partial = new IntArrayCheckpoint("partial", 100000);
+		IntArrayCheckpoint last = new IntArrayCheckpoint("last", 10);
+		CheckpointingImpl writer = new CheckpointingImpl(controlerConfigGroup, globalConfigGroup,
+				new HashSet<Checkpointable>(Arrays.<Checkpointable>asList(large, unknown, partial, last)), controlerIO, stopwatch);
+		writer.notifyIterationEnds(new IterationEndsEvent(null, 1));
+		writer.notifyShutdown(new ShutdownEvent(null, false));
+
+		controlerConfigGroup.setRestoreCheckpoint(controlerIO.getIterationFilename(1, CheckpointingImpl.FILENAME_CHECKPOINT));
+		IntArrayCheckpoint restoredLarge = new IntArrayCheckpoint("large", 0);
+		IntArrayCheckpoint restoredPartial = new IntArrayCheckpoint("partial", 0);
+		restoredPartial.maxValuesToRead = 10;
+		IntArrayCheckpoint restoredLast = new IntArrayCheckpoint("last", 0);
+		CheckpointingImpl reader = new CheckpointingImpl(controlerConfigGroup, globalConfigGroup,
+				new HashSet<Checkpointable>(Arrays.<Checkpointable>asList(restoredLarge, restoredPartial, restoredLast)), controlerIO, stopwatch);
+		Assert.assertEquals(2, reader.restoreCheckpoint());
+
+		Assert.assertArrayEquals(large.values, restoredLarge.values);
+		Assert.assertArrayEquals(Arrays.copyOf(partial.values, 10), restoredPartial.values);
+		Assert.assertArrayEquals(last.values, restoredLast.values);
+	}
+
+	private Config createConfig(final String outputDirectory) {
+		Config config = this.utils.loadConfig("test/scenarios/equil/config.xml");
+		config.controler().setOutputDirectory(this.utils.getOutputDirectory() + outputDirectory);
+		config.controler().setOverwriteFileSetting(OverwriteFileSetting.deleteDirectoryIfExists);
+		config.controler().setLastIteration(4);
+		config.controler().setCreateGraphs(false);
+		config.controler().setWriteEventsInterval(0);
+		config.controler().setWritePlansInterval(0);
+		return config;
+	}
+
+	private static String toString(final Person person) {
+		StringBuilder s = new StringBuilder();
+		for (Plan plan : person.getPlans()) {
+			s.append(plan == person.getSelectedPlan() ? "* " : "  ").append(plan.getScore()).append(": ");
+			s.append(plan.getPlanElements()).append('\n');
+		}
+		return s.toString();
+	}
+
+	private static class IntArrayCheckpoint implements Checkpointable {
+
+		private final String name;
+		/*package*/ int[] values;
+		/*package*/ int maxValuesToRead = Integer.MAX_VALUE;
+
+		/*package*/ IntArrayCheckpoint(final String name, final int size) {
+			this.name = name;
+			this.values = new int[size];
+			for (int i = 0; i < size; i++) {
+				this.values[i] = name.hashCode() + 31 * i;
+			}
+		}
+
+		@Override
+		public String getCheckpointName() {
+			return this.name;
+		}
+
+		@Override
+		public void writeCheckpoint(final DataOutputStream out) throws IOException {
+			out.writeInt(this.values.length);
+			for (int value : this.values) {
+				out.writeInt(value);
+			}
+		}
+
+		@Override
+		public void readCheckpoint(final DataInputStream in) throws IOException {
+			this.values = new int[Math.min(in.readInt(), this.maxValuesToRead)];
+			for (int i = 0; i < this.values.length; i++) {
+				this.values[i] = in.readInt();
+			}
+		}
+	}
+
+}
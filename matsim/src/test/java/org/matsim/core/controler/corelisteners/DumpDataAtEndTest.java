@@ -0,0 +1,57 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DumpDataAtEndTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler.corelisteners;
+
+import java.io.File;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.core.config.Config;
+import org.matsim.core.controler.Controler;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class DumpDataAtEndTest {
+
+	@Rule public MatsimTestUtils util = new MatsimTestUtils();
+
+	/**
+	 * The output files are written in parallel at shutdown. All of them must be complete when the run
+	 * ends, and the plans must be the ones at the end of the run.
+	 */
+	@Test
+	public void testDumpDataAtEnd() {
+		Config config = this.util.loadConfig("test/scenarios/equil/config.xml");
+		config.controler().setLastIteration(2);
+		config.controler().setWritePlansInterval(0);
+		config.controler().setWriteEventsInterval(0);
+		config.controler().setCreateGraphs(false);
+		Controler c = new Controler(config);
+
+		c.run();
+
+		Assert.assertTrue(new File(c.getControlerIO().getOutputFilename(Controler.FILENAME_NETWORK)).exists());
+		Assert.assertTrue(new File(c.getControlerIO().getOutputFilename(Controler.FILENAME_CONFIG)).exists());
+		Assert.assertEquals(PlansDumpingTest.toStrings(c.getScenario().getPopulation()),
+				PlansDumpingTest.readPlans(c.getControlerIO().getOutputFilename(Controler.FILENAME_POPULATION)));
+	}
+
+}
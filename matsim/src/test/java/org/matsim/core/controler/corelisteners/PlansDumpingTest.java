@@ -21,14 +21,31 @@ package org.matsim.core.controler.corelisteners;
 
 import org.junit.Rule;
 import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.controler.Controler;
+import org.matsim.core.controler.OutputDirectoryHierarchy.OverwriteFileSetting;
+import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.testcases.MatsimTestUtils;
 
 import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author mrieser
@@ -108,4 +125,95 @@ public class PlansDumpingTest {
 		assertTrue(new File(c.getControlerIO().getIterationFilename(9, "plans.xml.gz")).exists());
 		assertTrue(new File(c.getControlerIO().getIterationFilename(10, "plans.xml.gz")).exists());
 	}
+
+	/**
+	 * The plans are dumped in the background during the mobsim. The dumped plans must be the plans at the
+	 * start of the mobsim, although the plans are changed by the replanning of the next iteration.
+	 */
+	@Test
+	public void testPlansDump_plansAtDumpTime() {
+		Config config = this.util.loadConfig("test/scenarios/equil/config.xml");
+		config.controler().setLastIteration(3);
+		config.controler().setWritePlansInterval(1);
+		config.controler().setWriteEventsInterval(0);
+		config.controler().setCreateGraphs(false);
+		final Controler c = new Controler(config);
+		final Map<Integer, Map<Id<Person>, String>> plansAtDumpTime = new HashMap<>();
+		c.addOverridingModule(new AbstractModule() {
+			@Override
+			public void install() {
+				addControlerListenerBinding().toInstance(new BeforeMobsimListener() {
+					@Override
+					public void notifyBeforeMobsim(BeforeMobsimEvent event) {
+						plansAtDumpTime.put(event.getIteration(), toStrings(c.getScenario().getPopulation()));
+					}
+				});
+			}
+		});
+
+		c.run();
+
+		for (int iteration = 0; iteration <= 3; iteration++) {
+			Map<Id<Person>, String> dumped = readPlans(c.getControlerIO().getIterationFilename(iteration, "plans.xml.gz"));
+			assertEquals("wrong plans dumped in iteration " + iteration, plansAtDumpTime.get(iteration), dumped);
+		}
+		assertNotEquals("the plans should have changed", plansAtDumpTime.get(1), plansAtDumpTime.get(3));
+	}
+
+	/**
+	 * If the run crashes during the mobsim, the shutdown must wait for the pending dump to be finished.
+	 */
+	@Test
+	public void testPlansDump_shutdownWaitsForPendingDump() {
+		Config config = this.util.loadConfig("test/scenarios/equil/config.xml");
+		config.controler().setLastIteration(1);
+		config.controler().setWritePlansInterval(1);
+		config.controler().setWriteEventsInterval(0);
+		config.controler().setCreateGraphs(false);
+		config.controler().setOverwriteFileSetting(OverwriteFileSetting.deleteDirectoryIfExists);
+		final Controler c = new Controler(config);
+		final Map<Id<Person>, String> plansAtDumpTime = new HashMap<>();
+		c.addOverridingModule(new AbstractModule() {
+			@Override
+			public void install() {
+				addControlerListenerBinding().toInstance(new BeforeMobsimListener() {
+					@Override
+					public void notifyBeforeMobsim(BeforeMobsimEvent event) {
+						// the dump has just been started by the core listener
+						plansAtDumpTime.putAll(toStrings(c.getScenario().getPopulation()));
+						throw new RuntimeException("just some exception to crash the run.");
+					}
+				});
+			}
+		});
+
+		try {
+			c.run();
+			fail("expected exception, got none.");
+		} catch (RuntimeException e) {
+			// expected
+		}
+
+		assertEquals(plansAtDumpTime, readPlans(c.getControlerIO().getIterationFilename(0, "plans.xml.gz")));
+	}
+
+	/*package*/ static Map<Id<Person>, String> readPlans(final String filename) {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new PopulationReader(scenario).readFile(filename);
+		return toStrings(scenario.getPopulation());
+	}
+
+	/*package*/ static Map<Id<Person>, String> toStrings(final Population population) {
+		Map<Id<Person>, String> strings = new HashMap<>();
+		for (Person person : population.getPersons().values()) {
+			StringBuilder s = new StringBuilder();
+			for (Plan plan : person.getPlans()) {
+				s.append(plan == person.getSelectedPlan() ? "* " : "  ").append(plan.getScore()).append(": ");
+				s.append(plan.getPlanElements().size()).append('\n');
+			}
+			strings.put(person.getId(), s.toString());
+		}
+		return strings;
+	}
+
 }
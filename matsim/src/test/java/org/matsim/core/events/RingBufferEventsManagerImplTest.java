@@ -0,0 +1,233 @@
+package org.matsim.core.events;
+
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class RingBufferEventsManagerImplTest {
+
+	@Test
+	public void testEventHandlerCanProduceAdditionalEventLateInSimStep() {
+		final RingBufferEventsManagerImpl events = new RingBufferEventsManagerImpl(8);
+		events.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void handleEvent(LinkEnterEvent event) {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+				events.processEvent(new PersonStuckEvent(event.getTime(), Id.createPersonId(0), Id.createLinkId(0), "car"));
+			}
+
+			@Override
+			public void reset(int iteration) {}
+		});
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(0.0);
+		events.processEvent(new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(1.0);
+		events.finishProcessing();
+
+		assertThat(collector.getEvents(),
+			contains(
+					new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(0.0, Id.createPersonId(0), Id.createLinkId(0), "car"),
+					new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(1.0, Id.createPersonId(0), Id.createLinkId(0), "car")));
+	}
+
+	@Test
+	public void testAllEventsProcessedWhenRingBufferWrapsAround() {
+		RingBufferEventsManagerImpl events = new RingBufferEventsManagerImpl(3, 16);
+		CountingHandler[] handlers = new CountingHandler[5];
+		for (int i = 0; i < handlers.length; i++) {
+			handlers[i] = new CountingHandler();
+			events.addHandler(handlers[i]);
+		}
+		for (int iteration = 0; iteration < 2; iteration++) {
+			events.resetHandlers(iteration);
+			events.initProcessing();
+			for (int time = 0; time < 100; time++) {
+				for (int i = 0; i < 37; i++) {
+					events.processEvent(new LinkEnterEvent(time, Id.createVehicleId(i), Id.createLinkId(i)));
+					events.processEvent(new LinkLeaveEvent(time, Id.createVehicleId(i), Id.createLinkId(i)));
+				}
+				events.afterSimStep(time);
+				for (CountingHandler handler : handlers) {
+					assertEquals((time + 1) * 37, handler.enterCount);
+					assertEquals((time + 1) * 37, handler.leaveCount);
+				}
+			}
+			events.finishProcessing();
+		}
+	}
+
+	@Test
+	public void testEventsFromMultipleThreads() throws InterruptedException {
+		final RingBufferEventsManagerImpl events = new RingBufferEventsManagerImpl(2, 64);
+		CountingHandler handler = new CountingHandler();
+		events.addHandler(handler);
+		events.addHandler(new CountingHandler());
+		events.initProcessing();
+		Thread[] producers = new Thread[4];
+		for (int p = 0; p < producers.length; p++) {
+			producers[p] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 10000; i++) {
+						events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(i), Id.createLinkId(i)));
+					}
+				}
+			});
+			producers[p].start();
+		}
+		for (Thread producer : producers) {
+			producer.join();
+		}
+		events.afterSimStep(0.0);
+		assertEquals(40000, handler.enterCount);
+		events.finishProcessing();
+	}
+
+	@Test
+	public void testCustomEventAndSequentialModeOutsideMobsim() {
+		RingBufferEventsManagerImpl events = new RingBufferEventsManagerImpl(2);
+		final List<Event> collected = new ArrayList<>();
+		events.addHandler(new RainEventHandler() {
+			@Override
+			public void handleEvent(RainEvent event) {
+				collected.add(event);
+			}
+
+			@Override
+			public void reset(int iteration) {}
+		});
+		events.processEvent(new RainEvent(1.0));
+		events.initProcessing();
+		events.processEvent(new RainEvent(2.0));
+		events.processEvent(new LinkEnterEvent(2.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(2.0);
+		events.finishProcessing();
+		events.processEvent(new RainEvent(3.0));
+
+		assertEquals(3, collected.size());
+		assertEquals(1.0, collected.get(0).getTime(), 0.0);
+		assertEquals(2.0, collected.get(1).getTime(), 0.0);
+		assertEquals(3.0, collected.get(2).getTime(), 0.0);
+	}
+
+	@Test
+	public void testExceptionInHandlerIsRethrown() {
+		RingBufferEventsManagerImpl events = new RingBufferEventsManagerImpl(2, 16);
+		events.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void handleEvent(LinkEnterEvent event) {
+				throw new IllegalStateException("expected");
+			}
+
+			@Override
+			public void reset(int iteration) {}
+		});
+		events.addHandler(new CountingHandler());
+		events.initProcessing();
+		for (int i = 0; i < 100; i++) {
+			events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(i), Id.createLinkId(i)));
+		}
+		events.afterSimStep(0.0);
+		try {
+			events.finishProcessing();
+			fail("expected exception, got none.");
+		} catch (RuntimeException e) {
+			assertEquals(IllegalStateException.class, e.getCause().getClass());
+		}
+	}
+
+	@Test
+	public void testCoreEventHandledThroughCustomInterface() {
+		RingBufferEventsManagerImpl events = new RingBufferEventsManagerImpl(2, 16);
+		final List<Event> collected = new ArrayList<>();
+		events.addHandler(new LinkLeaveListener() {
+			@Override
+			public void handleEvent(LinkLeaveEvent event) {
+				collected.add(event);
+			}
+
+			@Override
+			public void reset(int iteration) {}
+		});
+		events.processEvent(new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.initProcessing();
+		events.processEvent(new LinkLeaveEvent(2.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(2.0);
+		events.finishProcessing();
+
+		assertEquals(2, collected.size());
+		assertEquals(1.0, collected.get(0).getTime(), 0.0);
+		assertEquals(2.0, collected.get(1).getTime(), 0.0);
+	}
+
+	private static class CountingHandler implements LinkEnterEventHandler, LinkLeaveEventHandler {
+		/*package*/ int enterCount = 0;
+		/*package*/ int leaveCount = 0;
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			this.enterCount++;
+		}
+
+		@Override
+		public void handleEvent(LinkLeaveEvent event) {
+			this.leaveCount++;
+		}
+
+		@Override
+		public void reset(int iteration) {
+			this.enterCount = 0;
+			this.leaveCount = 0;
+		}
+	}
+
+	/*package*/ static class RainEvent extends Event {
+		RainEvent(double time) {
+			super(time);
+		}
+
+		@Override
+		public String getEventType() {
+			return "rain";
+		}
+	}
+
+	/*package*/ interface RainEventHandler extends EventHandler {
+		void handleEvent(RainEvent event);
+	}
+
+	/** declares the handler method of a core event without extending {@link LinkLeaveEventHandler} */
+	/*package*/ interface LinkLeaveListener extends EventHandler {
+		void handleEvent(LinkLeaveEvent event);
+	}
+
+}
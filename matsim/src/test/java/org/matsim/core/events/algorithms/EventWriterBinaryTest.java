@@ -0,0 +1,165 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinaryTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.events.VehicleAbortsEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
+import org.matsim.core.api.experimental.events.BoardingDeniedEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.core.events.EventsReaderBinary;
+import org.matsim.core.events.EventsReaderXMLv1.CustomEventMapper;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+import org.matsim.vehicles.Vehicle;
+
+public class EventWriterBinaryTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testAllCoreEventTypes() {
+		Id<Person> person = Id.create("p 1", Person.class);
+		Id<Vehicle> vehicle = Id.create("v<1>", Vehicle.class);
+		Id<Link> link = Id.create("1", Link.class);
+		Id<TransitStopFacility> stop1 = Id.create("s1", TransitStopFacility.class);
+		Id<TransitStopFacility> stop2 = Id.create("s2", TransitStopFacility.class);
+
+		List<Event> expected = new ArrayList<>();
+		expected.add(new ActivityEndEvent(21600.0, person, link, Id.create("f1", ActivityFacility.class), "home"));
+		expected.add(new PersonDepartureEvent(21600.0, person, link, "car"));
+		expected.add(new PersonEntersVehicleEvent(21600.0, person, vehicle));
+		expected.add(new VehicleEntersTrafficEvent(21600.0, person, link, vehicle, "car", 1.0));
+		expected.add(new LinkLeaveEvent(21601.0, vehicle, link));
+		expected.add(new LinkEnterEvent(21601.0, vehicle, Id.create("2", Link.class)));
+		expected.add(new VehicleLeavesTrafficEvent(21590.0, person, Id.create("2", Link.class), vehicle, "car", 0.5));
+		expected.add(new PersonLeavesVehicleEvent(21700.25, person, vehicle));
+		expected.add(new PersonArrivalEvent(21700.25, person, Id.create("2", Link.class), "car"));
+		expected.add(new ActivityStartEvent(21700.25, person, Id.create("2", Link.class), null, "work"));
+		expected.add(new PersonMoneyEvent(21800.0, person, -3.5));
+		expected.add(new TeleportationArrivalEvent(21800.0, person, 1234.5));
+		expected.add(new PersonStuckEvent(Time.UNDEFINED_TIME, person, null, null));
+		expected.add(new VehicleAbortsEvent(3600.0, vehicle, link));
+		expected.add(new TransitDriverStartsEvent(3600.0, Id.create("pt", Person.class), vehicle,
+				Id.create("l1", TransitLine.class), Id.create("r1", TransitRoute.class), Id.create("d1", Departure.class)));
+		expected.add(new VehicleArrivesAtFacilityEvent(3700.0, vehicle, stop1, -10.0));
+		expected.add(new AgentWaitingForPtEvent(3700.0, person, stop1, stop2));
+		expected.add(new BoardingDeniedEvent(3700.0, person, vehicle));
+		expected.add(new VehicleDepartsAtFacilityEvent(3710.0, vehicle, stop1, 0.0));
+
+		List<Event> events = writeAndRead(expected, 5);
+		Assert.assertEquals(expected, events);
+		Assert.assertEquals(LinkEnterEvent.class, events.get(5).getClass());
+		Assert.assertSame(vehicle, ((LinkEnterEvent) events.get(5)).getVehicleId());
+		Assert.assertNull(((PersonStuckEvent) events.get(12)).getLinkId());
+	}
+
+	@Test
+	public void testGenericEvents() {
+		GenericEvent event1 = new GenericEvent("rain", 10.0);
+		event1.getAttributes().put("intensity", "heavy");
+		event1.getAttributes().put("dummy", null);
+		GenericEvent event2 = new GenericEvent("sunshine", 20.0);
+		GenericEvent event3 = new GenericEvent("rain", 30.0);
+		event3.getAttributes().put("intensity", "light");
+
+		List<Event> expected = new ArrayList<>();
+		expected.add(event1);
+		expected.add(event2);
+		expected.add(event3);
+		Assert.assertEquals(expected, writeAndRead(expected, 2));
+	}
+
+	@Test
+	public void testCustomEventMapper() {
+		String filename = this.utils.getOutputDirectory() + "events.bin";
+		EventWriterBinary writer = new EventWriterBinary(filename);
+		GenericEvent rain = new GenericEvent("rain", 10.0);
+		rain.getAttributes().put("person", "1");
+		writer.handleEvent(rain);
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		EventsReaderBinary reader = new EventsReaderBinary(events);
+		reader.addCustomEventMapper("rain", new CustomEventMapper<PersonStuckEvent>() {
+			@Override
+			public PersonStuckEvent apply(GenericEvent event) {
+				return new PersonStuckEvent(event.getTime(), Id.create(event.getAttributes().get("person"), Person.class), null, "rain");
+			}
+		});
+		reader.readFile(filename);
+
+		Assert.assertEquals(1, collector.getEvents().size());
+		Assert.assertEquals(new PersonStuckEvent(10.0, Id.create("1", Person.class), null, "rain"), collector.getEvents().get(0));
+	}
+
+	private List<Event> writeAndRead(final List<Event> events, final int eventsPerBlock) {
+		String filename = this.utils.getOutputDirectory() + "events.bin";
+		EventWriterBinary writer = new EventWriterBinary(filename, eventsPerBlock);
+		for (Event event : events) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		eventsManager.addHandler(collector);
+		new MatsimEventsReader(eventsManager).readFile(filename);
+		return collector.getEvents();
+	}
+
+}
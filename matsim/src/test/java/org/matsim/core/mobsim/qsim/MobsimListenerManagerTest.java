@@ -21,7 +21,11 @@ package org.matsim.core.mobsim.qsim;
 
 import org.junit.Assert;
 import org.junit.Test;
+import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
 import org.matsim.core.mobsim.framework.events.MobsimInitializedEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimAfterSimStepListener;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
 import org.matsim.core.mobsim.framework.listeners.MobsimInitializedListener;
 
 /**
@@ -75,6 +79,47 @@ public class MobsimListenerManagerTest {
 		Assert.assertEquals(1, doubleListener.count);
 	}
 
+	@Test
+	public void testAddQueueSimulationListenerAfterFiring() {
+		MobsimListenerManager manager = new MobsimListenerManager(null);
+		TestSimStepListener listener1 = new TestSimStepListener();
+		TestSimStepListener listener2 = new TestSimStepListener();
+		manager.enableProfiling();
+		manager.addQueueSimulationListener(listener1);
+		manager.fireQueueSimulationBeforeSimStepEvent(1.0);
+		manager.fireQueueSimulationAfterSimStepEvent(1.0);
+		Assert.assertEquals(2, listener1.count);
+
+		// the listeners must not be taken from an outdated cache
+		manager.addQueueSimulationListener(listener2);
+		manager.fireQueueSimulationBeforeSimStepEvent(2.0);
+		manager.fireQueueSimulationAfterSimStepEvent(2.0);
+		Assert.assertEquals(4, listener1.count);
+		Assert.assertEquals(2, listener2.count);
+		Assert.assertEquals(2.0, listener2.time, 0.0);
+
+		manager.removeQueueSimulationListener(listener1);
+		manager.fireQueueSimulationBeforeSimStepEvent(3.0);
+		Assert.assertEquals(4, listener1.count);
+		Assert.assertEquals(3, listener2.count);
+		manager.logProfile();
+	}
+
+	/*package*/ static class TestSimStepListener implements MobsimBeforeSimStepListener, MobsimAfterSimStepListener {
+		public int count = 0;
+		public double time = Double.NaN;
+		@Override
+		public void notifyMobsimBeforeSimStep(MobsimBeforeSimStepEvent e) {
+			this.count++;
+			this.time = e.getSimulationTime();
+		}
+		@Override
+		public void notifyMobsimAfterSimStep(MobsimAfterSimStepEvent e) {
+			this.count++;
+			this.time = e.getSimulationTime();
+		}
+	}
+
 	/*package*/ static class TestSimListener implements MobsimInitializedListener {
 		public int count = 0;
 		@Override
@@ -70,6 +70,8 @@ import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
 import org.matsim.core.mobsim.qsim.agents.AgentFactory;
 import org.matsim.core.mobsim.qsim.agents.DefaultAgentFactory;
 import org.matsim.core.mobsim.qsim.agents.PersonDriverAgentImpl;
@@ -538,6 +540,64 @@ public class QSimTest {
 		Assert.assertEquals("wrong number of link enter events.", 0, collector.events.size());
 	}
 
+	/**
+	 * Tests that skipping idle time steps leads to exactly the same events, but simulates only
+	 * the time steps in which something happens.
+	 */
+	@Test
+	public void testSkippingIdleTimeSteps() {
+		List<Event> allSteps = new ArrayList<>();
+		int allStepsCount = runForSkippingIdleTimeSteps(false, allSteps);
+		List<Event> skipped = new ArrayList<>();
+		int skippedStepsCount = runForSkippingIdleTimeSteps(true, skipped);
+
+		Assert.assertEquals(allSteps.size(), skipped.size());
+		for (int i = 0; i < allSteps.size(); i++) {
+			Assert.assertEquals(allSteps.get(i).toString(), skipped.get(i).toString());
+		}
+		Assert.assertTrue("expected more than 11 hours of simulated time steps, got " + allStepsCount, allStepsCount > 11 * 3600);
+		Assert.assertTrue("expected only few simulated time steps, got " + skippedStepsCount, skippedStepsCount < 100);
+	}
+
+	private int runForSkippingIdleTimeSteps(boolean skipping, List<Event> eventsList) {
+		Fixture f = new Fixture(isUsingFastCapacityUpdate);
+		f.config.qsim().setSkippingIdleTimeSteps(skipping);
+
+		// a car leg at 6am, and a teleported leg back at a time that is not a full second
+		Person person = PopulationUtils.getFactory().createPerson(Id.create(1, Person.class));
+		Plan plan = PersonUtils.createAndAddPlan(person, true);
+		Activity act = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+		act.setEndTime(6.0 * 3600);
+		Leg leg = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+		NetworkRoute route = ((PopulationFactory) f.scenario.getPopulation().getFactory()).getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+		route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+		leg.setRoute(route);
+		act = PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+		act.setEndTime(17.0 * 3600 + 0.5);
+		leg = PopulationUtils.createAndAddLeg( plan, TransportMode.walk );
+		leg.setRoute(new GenericRouteImpl(f.link3.getId(), f.link1.getId()));
+		leg.getRoute().setTravelTime(1234.5);
+		PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+		f.plans.addPerson(person);
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+
+		QSim sim = createQSim(f, events);
+		final int[] steps = new int[1];
+		sim.addQueueSimulationListeners(new MobsimBeforeSimStepListener() {
+			@Override
+			public void notifyMobsimBeforeSimStep(@SuppressWarnings("rawtypes") MobsimBeforeSimStepEvent e) {
+				steps[0]++;
+			}
+		});
+		sim.run();
+
+		eventsList.addAll(collector.getEvents());
+		return steps[0];
+	}
+
 	/**
 	 * Tests that the flow capacity can be reached (but not exceeded) by
 	 * agents driving over a link.
@@ -598,6 +658,49 @@ public class QSimTest {
 		}
 	}
 
+
+	/**
+	 * Tests that the flow capacity is reached in the same way when the QNetsimEngineRunners
+	 * steal active nodes and links from each other.
+	 */
+	@Test
+	public void testFlowCapacityDriving_WorkStealing() {
+		Fixture f = new Fixture(isUsingFastCapacityUpdate);
+		f.config.qsim().setNumberOfThreads(3);
+		f.config.qsim().setUsingWorkStealing(true);
+
+		// add a lot of persons with legs from link1 to link3, starting at 6:30, see testFlowCapacityDriving()
+		for (int i = 1; i <= 10000; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			Plan plan = PersonUtils.createAndAddPlan(person, true);
+			Activity a = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+			a.setEndTime(7*3600 - 1812);
+			Leg leg = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+			NetworkRoute route = ((PopulationFactory) f.scenario.getPopulation().getFactory()).getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+			route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+			leg.setRoute(route);
+			PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+			f.plans.addPerson(person);
+		}
+
+		EventsManager events = EventsUtils.createEventsManager();
+		VolumesAnalyzer vAnalyzer = new VolumesAnalyzer(3600, 9*3600, f.network);
+		events.addHandler(vAnalyzer);
+
+		QSim sim = createQSim(f, events);
+		sim.run();
+
+		int[] volume = vAnalyzer.getVolumesForLink(f.link2.getId());
+		if(this.isUsingFastCapacityUpdate) {
+			Assert.assertEquals(3001, volume[6]);
+			Assert.assertEquals(6000, volume[7]);
+			Assert.assertEquals(999, volume[8]);
+		} else {
+			Assert.assertEquals(3000, volume[6]);
+			Assert.assertEquals(6000, volume[7]);
+			Assert.assertEquals(1000, volume[8]);
+		}
+	}
 	
 	/**
 	 * Tests that on a link with a flow capacity of 0.25 vehicles per time step, after the first vehicle
@@ -230,4 +230,36 @@ public class NetworkImplTest extends AbstractNetworkTest {
 		Assert.assertEquals(node2, n);
 	}
 
+	@Test
+	public void testGetNearestNode_afterChanges() {
+		Network network = new NetworkImpl();
+		for (int i = 0; i < 100; i++) {
+			network.addNode(NetworkUtils.createNode(Id.create(i, Node.class), new Coord((double) (i % 10) * 100, (double) (i / 10) * 100)));
+		}
+		Node n = NetworkUtils.getNearestNode(network, new Coord((double) 110, (double) 110));
+		Assert.assertEquals(Id.create(11, Node.class), n.getId());
+
+		network.removeNode(Id.create(11, Node.class));
+		n = NetworkUtils.getNearestNode(network, new Coord((double) 110, (double) 110));
+		Assert.assertTrue(n.getId().equals(Id.create(12, Node.class)) || n.getId().equals(Id.create(21, Node.class)));
+		Assert.assertEquals(4, NetworkUtils.getNearestNodes(network, new Coord((double) 100, (double) 100), 100.0).size());
+
+		Node added = NetworkUtils.createNode(Id.create("new", Node.class), new Coord((double) 105, (double) 105));
+		network.addNode(added);
+		n = NetworkUtils.getNearestNode(network, new Coord((double) 110, (double) 110));
+		Assert.assertEquals(added, n);
+		Assert.assertEquals(5, NetworkUtils.getNearestNodes(network, new Coord((double) 100, (double) 100), 100.0).size());
+
+		network.removeNode(added.getId());
+		Assert.assertEquals(4, NetworkUtils.getNearestNodes(network, new Coord((double) 100, (double) 100), 100.0).size());
+
+		// many changes, so the index gets rebuilt
+		for (int i = 0; i < 100; i++) {
+			network.removeNode(Id.create(i, Node.class));
+		}
+		network.addNode(added);
+		n = NetworkUtils.getNearestNode(network, new Coord((double) 900, (double) 900));
+		Assert.assertEquals(added, n);
+	}
+
 }
@@ -0,0 +1,198 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PackedPlanTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.LinkNetworkRouteImpl;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.pt.routes.ExperimentalTransitRouteFactory;
+import org.matsim.vehicles.Vehicle;
+
+public class PackedPlanTest {
+
+	@Test
+	public void testPackAndUnpack() {
+		Person person = PopulationUtils.getFactory().createPerson(Id.create("1", Person.class));
+		Plan plan = PopulationUtils.createPlan(person);
+		plan.setScore(-12.5);
+		plan.setType("test");
+		plan.getCustomAttributes().put("attr", "value");
+
+		Activity home = PopulationUtils.createActivityFromCoordAndLinkId("home", new Coord(1.5, -2.25), Id.create("1", Link.class));
+		plan.addActivity(home);
+		home.setFacilityId(Id.create("f1", ActivityFacility.class));
+		home.setEndTime(7.5 * 3600);
+		Leg car = PopulationUtils.createAndAddLeg(plan, "car");
+		car.setDepartureTime(27000.0);
+		car.setTravelTime(1234.56);
+		List<Id<Link>> linkIds = new ArrayList<>();
+		linkIds.add(Id.create("2", Link.class));
+		linkIds.add(Id.create("3", Link.class));
+		NetworkRoute networkRoute = new LinkNetworkRouteImpl(Id.create("1", Link.class), linkIds, Id.create("4", Link.class));
+		networkRoute.setDistance(3456.7);
+		networkRoute.setTravelTime(1234.0);
+		networkRoute.setTravelCost(17.25);
+		networkRoute.setVehicleId(Id.create("v1", Vehicle.class));
+		car.setRoute(networkRoute);
+		Activity work = PopulationUtils.createAndAddActivityFromLinkId(plan, "work", Id.create("4", Link.class));
+		work.setStartTime(28234.0);
+		work.setMaximumDuration(8 * 3600);
+		Leg walk = PopulationUtils.createAndAddLeg(plan, "walk");
+		GenericRouteImpl genericRoute = new GenericRouteImpl(Id.create("4", Link.class), Id.create("1", Link.class));
+		genericRoute.setDistance(500.0);
+		genericRoute.setRouteDescription("some description");
+		walk.setRoute(genericRoute);
+		PopulationUtils.createAndAddActivityFromLinkId(plan, "shop", Id.create("1", Link.class));
+		PopulationUtils.createAndAddLeg(plan, "bike");
+		PopulationUtils.createAndAddActivityFromCoord(plan, "home", new Coord(1.5, -2.25));
+
+		String expected = plan.getPlanElements().toString();
+		PackedPlan packed = new PackedPlan(plan);
+		Assert.assertTrue(packed.isPacked());
+		Assert.assertEquals(-12.5, packed.getScore(), 0.0);
+		Assert.assertEquals("test", packed.getType());
+		Assert.assertSame(person, packed.getPerson());
+		Assert.assertEquals("value", packed.getCustomAttributes().get("attr"));
+		Assert.assertTrue(packed.isPacked());
+
+		Assert.assertEquals(expected, packed.getPlanElements().toString());
+		Assert.assertFalse(packed.isPacked());
+		Assert.assertEquals(7, packed.getPlanElements().size());
+
+		Activity act = (Activity) packed.getPlanElements().get(0);
+		Assert.assertEquals(1.5, act.getCoord().getX(), 0.0);
+		Assert.assertEquals(-2.25, act.getCoord().getY(), 0.0);
+		Assert.assertSame(Id.create("f1", ActivityFacility.class), act.getFacilityId());
+		Assert.assertEquals(Time.UNDEFINED_TIME, act.getStartTime(), 0.0);
+		Assert.assertEquals(7.5 * 3600, act.getEndTime(), 0.0);
+
+		Leg leg = (Leg) packed.getPlanElements().get(1);
+		Assert.assertEquals(1234.56, leg.getTravelTime(), 0.0);
+		NetworkRoute route = (NetworkRoute) leg.getRoute();
+		Assert.assertEquals(linkIds, route.getLinkIds());
+		Assert.assertSame(Id.create("4", Link.class), route.getEndLinkId());
+		Assert.assertEquals(3456.7, route.getDistance(), 0.0);
+		Assert.assertEquals(1234.0, route.getTravelTime(), 0.0);
+		Assert.assertEquals(17.25, route.getTravelCost(), 0.0);
+		Assert.assertEquals(Id.create("v1", Vehicle.class), route.getVehicleId());
+
+		act = (Activity) packed.getPlanElements().get(2);
+		Assert.assertNull(act.getCoord());
+		Assert.assertNull(act.getFacilityId());
+		Assert.assertEquals(8 * 3600, act.getMaximumDuration(), 0.0);
+
+		Route generic = ((Leg) packed.getPlanElements().get(3)).getRoute();
+		Assert.assertEquals(GenericRouteImpl.class, generic.getClass());
+		Assert.assertEquals("some description", ((GenericRouteImpl) generic).getRouteDescription());
+		Assert.assertEquals(Time.UNDEFINED_TIME, generic.getTravelTime(), 0.0);
+		Assert.assertNull(((Leg) packed.getPlanElements().get(5)).getRoute());
+
+		packed.pack();
+		Assert.assertTrue(packed.isPacked());
+		Assert.assertEquals(expected, packed.getPlanElements().toString());
+	}
+
+	@Test
+	public void testIdsCreatedWithOtherTypes() {
+		// ids created with another type have other indices than the ids of the same key of the type they are used as
+		for (int i = 0; i < 10; i++) {
+			Id.create("otherTypeDummy" + i, Node.class);
+		}
+		Id<Link> linkId = asId(Id.create("otherTypeLink", Node.class));
+		Id<Link> routeLinkId = asId(Id.create("otherTypeRouteLink", Node.class));
+		Id<ActivityFacility> facilityId = asId(Id.create("otherTypeFacility", Object.class));
+		Id<Vehicle> vehicleId = asId(Id.create("otherTypeVehicle", Node.class));
+
+		Plan plan = PopulationUtils.createPlan();
+		Activity home = PopulationUtils.createAndAddActivityFromLinkId(plan, "home", linkId);
+		home.setFacilityId(facilityId);
+		Leg leg = PopulationUtils.createAndAddLeg(plan, "car");
+		List<Id<Link>> linkIds = new ArrayList<>();
+		linkIds.add(routeLinkId);
+		NetworkRoute route = new LinkNetworkRouteImpl(linkId, linkIds, linkId);
+		route.setVehicleId(vehicleId);
+		leg.setRoute(route);
+		PopulationUtils.createAndAddActivityFromLinkId(plan, "work", linkId);
+
+		PackedPlan packed = new PackedPlan(plan);
+		Assert.assertTrue(packed.isPacked());
+		Activity act = (Activity) packed.getPlanElements().get(0);
+		Assert.assertSame(Id.create("otherTypeLink", Link.class), act.getLinkId());
+		Assert.assertSame(Id.create("otherTypeFacility", ActivityFacility.class), act.getFacilityId());
+		NetworkRoute unpackedRoute = (NetworkRoute) ((Leg) packed.getPlanElements().get(1)).getRoute();
+		Assert.assertSame(Id.create("otherTypeLink", Link.class), unpackedRoute.getStartLinkId());
+		Assert.assertSame(Id.create("otherTypeLink", Link.class), unpackedRoute.getEndLinkId());
+		Assert.assertEquals(1, unpackedRoute.getLinkIds().size());
+		Assert.assertSame(Id.create("otherTypeRouteLink", Link.class), unpackedRoute.getLinkIds().get(0));
+		Assert.assertSame(Id.create("otherTypeVehicle", Vehicle.class), unpackedRoute.getVehicleId());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> Id<T> asId(final Id<?> id) {
+		return (Id<T>) id;
+	}
+
+	@Test
+	public void testModifyUnpacked() {
+		Plan plan = PopulationUtils.createPlan();
+		PopulationUtils.createAndAddActivityFromLinkId(plan, "home", Id.create("1", Link.class));
+		PackedPlan packed = new PackedPlan(plan);
+
+		PopulationUtils.createAndAddLeg(packed, "car");
+		PopulationUtils.createAndAddActivityFromLinkId(packed, "work", Id.create("2", Link.class));
+		Assert.assertFalse(packed.isPacked());
+		packed.pack();
+		Assert.assertTrue(packed.isPacked());
+		Assert.assertEquals(3, packed.getPlanElements().size());
+		Assert.assertEquals("work", ((Activity) packed.getPlanElements().get(2)).getType());
+	}
+
+	@Test
+	public void testNotPackable() {
+		Plan plan = PopulationUtils.createPlan();
+		PopulationUtils.createAndAddActivityFromLinkId(plan, "home", Id.create("1", Link.class));
+		Assert.assertTrue(PackedPlan.isPackable(plan));
+		Leg leg = PopulationUtils.createAndAddLeg(plan, "pt");
+		leg.setRoute(new ExperimentalTransitRouteFactory().createRoute(Id.create("1", Link.class), Id.create("2", Link.class)));
+		Assert.assertFalse(PackedPlan.isPackable(plan));
+
+		PackedPlan packed = new PackedPlan(plan);
+		Assert.assertFalse(packed.isPacked());
+		Assert.assertSame(leg, packed.getPlanElements().get(1));
+	}
+
+}
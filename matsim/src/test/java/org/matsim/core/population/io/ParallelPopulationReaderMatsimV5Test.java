@@ -0,0 +1,200 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV5Test.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PersonUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.algorithms.PersonAlgorithm;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class ParallelPopulationReaderMatsimV5Test {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testReadManyPersonsInOrder() {
+		String filename = this.utils.getOutputDirectory() + "population.xml.gz";
+		new PopulationWriter(createPopulation(5000)).write(filename);
+		Population original = readSequentially(filename);
+
+		Scenario scenario = ScenarioUtils.createScenario(createConfig(4));
+		new PopulationReader(scenario).readFileInParallel(filename);
+
+		Population population = scenario.getPopulation();
+		Assert.assertEquals("test population", population.getName());
+		Assert.assertEquals(original.getPersons().size(), population.getPersons().size());
+		Iterator<? extends Person> iter = population.getPersons().values().iterator();
+		for (Person expected : original.getPersons().values()) {
+			Person actual = iter.next();
+			Assert.assertEquals(expected.getId(), actual.getId());
+			Assert.assertEquals(PersonUtils.getAge(expected), PersonUtils.getAge(actual));
+			Assert.assertEquals(2, actual.getPlans().size());
+			Plan plan = actual.getSelectedPlan();
+			Assert.assertEquals(expected.getSelectedPlan().getScore(), plan.getScore());
+			Assert.assertEquals(3, plan.getPlanElements().size());
+			Activity home = (Activity) plan.getPlanElements().get(0);
+			Assert.assertEquals("h", home.getType());
+			Assert.assertEquals(((Activity) expected.getSelectedPlan().getPlanElements().get(0)).getEndTime(), home.getEndTime(), 0.0);
+			Leg leg = (Leg) plan.getPlanElements().get(1);
+			Assert.assertEquals("walk", leg.getMode());
+			Assert.assertEquals("1", leg.getRoute().getStartLinkId().toString());
+			Assert.assertEquals("2", leg.getRoute().getEndLinkId().toString());
+		}
+	}
+
+	@Test
+	public void testStreaming() {
+		String filename = this.utils.getOutputDirectory() + "population.xml";
+		new PopulationWriter(createPopulation(3000)).write(filename);
+		Population original = readSequentially(filename);
+
+		Scenario scenario = ScenarioUtils.createScenario(createConfig(3));
+		StreamingPopulationReader reader = new StreamingPopulationReader(scenario);
+		final List<Id<Person>> ids = new ArrayList<>();
+		reader.addAlgorithm(new PersonAlgorithm() {
+			@Override
+			public void run(Person person) {
+				ids.add(person.getId());
+			}
+		});
+		reader.readFile(filename);
+
+		Assert.assertEquals(new ArrayList<>(original.getPersons().keySet()), ids);
+	}
+
+	@Test
+	public void testValidatesUnlessReadInParallel() throws IOException {
+		String filename = this.utils.getOutputDirectory() + "invalid_population.xml";
+		try (Writer writer = IOUtils.getBufferedWriter(filename)) {
+			writer.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+					+ "<!DOCTYPE population SYSTEM \"http://www.matsim.org/files/dtd/population_v5.dtd\">\n"
+					+ "<population>\n"
+					+ "<person id=\"1\" unknownAttribute=\"not in the dtd\"><plan selected=\"yes\"><act type=\"h\" link=\"1\"/></plan></person>\n"
+					+ "</population>\n");
+		}
+
+		try {
+			new PopulationReader(ScenarioUtils.createScenario(createConfig(2))).readFile(filename);
+			Assert.fail("expected the default reader to validate against the dtd");
+		} catch (UncheckedIOException expected) {
+		}
+
+		Scenario scenario = ScenarioUtils.createScenario(createConfig(2));
+		new PopulationReader(scenario).readFileInParallel(filename);
+		Assert.assertEquals(1, scenario.getPopulation().getPersons().size());
+	}
+
+	@Test
+	public void testCommentsAndEntities() throws UnsupportedEncodingException {
+		String xml = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+				+ "<population desc=\"a &amp; b\">\n"
+				+ "<!-- <person id=\"commented\"> -->\n"
+				+ "<person id=\"1&lt;2\">\n"
+				+ "\t<plan selected=\"yes\">\n"
+				+ "\t\t<act type=\"h\" link=\"1\" end_time=\"08:00:00\" />\n"
+				+ "\t</plan>\n"
+				+ "</person>\n"
+				+ "<!-- </person> <person id=\"also commented\"> -->\n"
+				+ "<person id=\"2\"><plan selected=\"yes\"><act type=\"w\" link=\"1\"/></plan></person>\n"
+				+ "</population>\n";
+
+		Scenario scenario = ScenarioUtils.createScenario(createConfig(2));
+		new ParallelPopulationReaderMatsimV5(new IdentityTransformation(), scenario).parse(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+
+		Population population = scenario.getPopulation();
+		Assert.assertEquals("a & b", population.getName());
+		Assert.assertEquals(2, population.getPersons().size());
+		Iterator<? extends Person> iter = population.getPersons().values().iterator();
+		Assert.assertEquals("1<2", iter.next().getId().toString());
+		Assert.assertEquals("2", iter.next().getId().toString());
+	}
+
+	@Test
+	public void testEmptyPopulation() throws UnsupportedEncodingException {
+		String xml = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<population desc=\"empty\"></population>\n";
+		Scenario scenario = ScenarioUtils.createScenario(createConfig(2));
+		new ParallelPopulationReaderMatsimV5(new IdentityTransformation(), scenario).parse(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+		Assert.assertEquals("empty", scenario.getPopulation().getName());
+		Assert.assertEquals(0, scenario.getPopulation().getPersons().size());
+	}
+
+	private static Population readSequentially(final String filename) {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new PopulationReaderMatsimV5(scenario).readFile(filename);
+		return scenario.getPopulation();
+	}
+
+	private static Config createConfig(final int numberOfThreads) {
+		Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads(numberOfThreads);
+		config.plans().setUsingParallelPopulationReader(true);
+		return config;
+	}
+
+	private static Population createPopulation(final int size) {
+		Population population = ScenarioUtils.createScenario(ConfigUtils.createConfig()).getPopulation();
+		population.setName("test population");
+		Id<Link> link1 = Id.create("1", Link.class);
+		Id<Link> link2 = Id.create("2", Link.class);
+		for (int i = 0; i < size; i++) {
+			Person person = population.getFactory().createPerson(Id.create("person_" + (size - i), Person.class));
+			PersonUtils.setAge(person, i % 90);
+			for (int p = 0; p < 2; p++) {
+				Plan plan = PersonUtils.createAndAddPlan(person, p == 1);
+				plan.setScore((double) i + p);
+				Activity home = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", link1);
+				home.setEndTime(6 * 3600 + i);
+				Leg leg = PopulationUtils.createAndAddLeg(plan, "walk");
+				leg.setRoute(new GenericRouteImpl(link1, link2));
+				PopulationUtils.createAndAddActivityFromLinkId(plan, "w", link2);
+			}
+			population.addPerson(person);
+		}
+		return population;
+	}
+
+}
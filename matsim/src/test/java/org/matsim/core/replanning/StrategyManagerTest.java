@@ -34,11 +34,18 @@ import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.PersonUtils;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.replanning.selectors.BestPlanSelector;
+import org.matsim.core.replanning.selectors.ExpBetaPlanChanger;
 import org.matsim.core.replanning.selectors.PlanSelector;
 import org.matsim.core.replanning.selectors.RandomPlanSelector;
 import org.matsim.core.scenario.ScenarioUtils;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
 
 import static org.junit.Assert.*;
 
@@ -288,6 +295,151 @@ public class StrategyManagerTest {
 		assertTrue("plan should not have been removed.", p.getPlans().contains(plans[plans.length - 3]));
 	}
 
+	/**
+	 * Tests that the per-person seeds of the batch plan selection are distinct and that the first random numbers
+	 * of persons with adjacent ids are not correlated.
+	 */
+	@Test
+	public void testBatchPlanSelectionSeeds() {
+		int n = 10000;
+		Set<Long> seeds = new HashSet<>();
+		double[] first = new double[n];
+		for (int i = 0; i < n; i++) {
+			long seed = GenericStrategyManager.mixSeed(4711L, GenericStrategyManager.hashId(Id.create(i, Person.class)));
+			assertTrue("duplicate seed for id " + i, seeds.add(seed));
+			first[i] = new Random(seed).nextDouble();
+		}
+		double sum = 0.0;
+		double lagSum = 0.0;
+		for (int i = 0; i < n; i++) {
+			sum += first[i];
+			if (i > 0) {
+				lagSum += (first[i] - 0.5) * (first[i - 1] - 0.5);
+			}
+		}
+		assertEquals(0.5, sum / n, 0.02);
+		// the correlation of independent uniform numbers has a standard deviation of about 1/sqrt(n)
+		assertEquals(0.0, lagSum / (n - 1) * 12, 0.05);
+	}
+
+	/**
+	 * Tests that the batch plan selection removes plans and runs all strategies, and that its results do not
+	 * depend on the number of threads.
+	 */
+	@Test
+	public void testBatchPlanSelection() {
+		Population population1 = createBatchTestPopulation();
+		Population population2 = createBatchTestPopulation();
+		StrategyCounter counter1 = runBatchTestIteration(population1, 1);
+		StrategyCounter counter2 = runBatchTestIteration(population2, 3);
+
+		assertTrue(counter1.getCounter() > 0);
+		assertEquals(counter1.getCounter(), counter2.getCounter());
+		for (Person person1 : population1.getPersons().values()) {
+			Person person2 = population2.getPersons().get(person1.getId());
+			assertTrue("too many plans for person " + person1.getId(), person1.getPlans().size() <= 5);
+			assertEquals(person1.getPlans().size(), person2.getPlans().size());
+			assertEquals(person1.getPlans().indexOf(person1.getSelectedPlan()), person2.getPlans().indexOf(person2.getSelectedPlan()));
+			for (int i = 0; i < person1.getPlans().size(); i++) {
+				assertEquals(person1.getPlans().get(i).getScore(), person2.getPlans().get(i).getScore());
+			}
+		}
+	}
+
+	/**
+	 * Tests that the batch plan selection does not depend on the order in which the person ids were created, e.g.
+	 * by a parallel population reader. Ids of the same type cannot be created twice in one JVM, so the second
+	 * population uses ids of another type, created in reverse order, which thus have other indices.
+	 */
+	@Test
+	public void testBatchPlanSelectionIndependentOfIdCreationOrder() {
+		List<Id<Person>> ids1 = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			ids1.add(Id.create("idOrder" + i, Person.class));
+		}
+		List<Id<Person>> ids2 = new ArrayList<>(Collections.<Id<Person>>nCopies(200, null));
+		for (int i = 199; i >= 0; i--) {
+			ids2.set(i, asPersonId(Id.create("idOrder" + i, IdOrderTestType.class)));
+		}
+		assertNotEquals(ids1.get(0).index() - ids1.get(1).index(), ids2.get(0).index() - ids2.get(1).index());
+
+		Population population1 = createBatchTestPopulation(ids1);
+		Population population2 = createBatchTestPopulation(ids2);
+		runBatchTestIteration(population1, 1);
+		runBatchTestIteration(population2, 1);
+
+		Iterator<? extends Person> iter2 = population2.getPersons().values().iterator();
+		for (Person person1 : population1.getPersons().values()) {
+			Person person2 = iter2.next();
+			assertEquals(person1.getId().toString(), person2.getId().toString());
+			assertEquals(person1.getPlans().size(), person2.getPlans().size());
+			assertEquals("different selection for person " + person1.getId(),
+					person1.getPlans().indexOf(person1.getSelectedPlan()), person2.getPlans().indexOf(person2.getSelectedPlan()));
+			for (int i = 0; i < person1.getPlans().size(); i++) {
+				assertEquals(person1.getPlans().get(i).getScore(), person2.getPlans().get(i).getScore());
+			}
+		}
+	}
+
+	private static final class IdOrderTestType {
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Id<Person> asPersonId(final Id<?> id) {
+		return (Id<Person>) id;
+	}
+
+	private static StrategyCounter runBatchTestIteration(final Population population, final int numberOfThreads) {
+		MatsimRandom.reset(4711);
+		StrategyManager manager = new StrategyManager();
+		manager.setMaxPlansPerAgent(4);
+		manager.setBatchPlanSelection(numberOfThreads);
+		manager.addStrategyForDefaultSubpopulation(new PlanStrategyImpl.Builder(new ExpBetaPlanChanger<Plan, Person>(1.0)).build(), 0.5);
+		manager.addStrategyForDefaultSubpopulation(new PlanStrategyImpl.Builder(new BestPlanSelector<Plan, Person>())
+				.addStrategyModule(new PlanStrategyModule() {
+					@Override
+					public void prepareReplanning(ReplanningContext replanningContext) {
+					}
+					@Override
+					public void handlePlan(Plan plan) {
+						plan.setScore(null);
+					}
+					@Override
+					public void finishReplanning() {
+					}
+				}).build(), 0.3);
+		// not supported by the batch plan selection, must still be run
+		StrategyCounter counter = new StrategyCounter(new RandomPlanSelector<Plan, Person>());
+		manager.addStrategyForDefaultSubpopulation(counter, 0.2);
+		for (int iteration = 0; iteration < 3; iteration++) {
+			manager.run(population, iteration, null);
+		}
+		return counter;
+	}
+
+	private static Population createBatchTestPopulation() {
+		List<Id<Person>> ids = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			ids.add(Id.create(i, Person.class));
+		}
+		return createBatchTestPopulation(ids);
+	}
+
+	private static Population createBatchTestPopulation(final List<Id<Person>> ids) {
+		Random random = new Random(42);
+		Population population = ScenarioUtils.createScenario(ConfigUtils.createConfig()).getPopulation();
+		for (Id<Person> id : ids) {
+			Person person = PopulationUtils.getFactory().createPerson(id);
+			int nOfPlans = 1 + random.nextInt(6);
+			for (int p = 0; p < nOfPlans; p++) {
+				Plan plan = PersonUtils.createAndAddPlan(person, p == 0);
+				plan.setScore(random.nextDouble() < 0.1 ? null : Double.valueOf(random.nextInt(20)));
+			}
+			population.addPerson(person);
+		}
+		return population;
+	}
+
 	@Test
 	public void testGetStrategies() {
 		// init StrategyManager
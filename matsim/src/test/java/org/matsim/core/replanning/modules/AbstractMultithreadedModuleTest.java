@@ -26,8 +26,15 @@ import org.junit.Test;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * @author mrieser
  */
@@ -60,6 +67,57 @@ public class AbstractMultithreadedModuleTest {
 
 	}
 
+	@Test
+	public void testAllPlansHandledOnce() {
+		assertAllPlansHandledOnce(new CountingModule(4));
+	}
+
+	@Test
+	public void testAllPlansHandledOnce_workStealing() {
+		Config config = new Config();
+		config.addCoreModules();
+		config.global().setNumberOfThreads(4);
+		config.global().setUsingWorkStealingInReplanning(true);
+		assertAllPlansHandledOnce(new CountingModule(config.global()));
+	}
+
+	@Test
+	public void testPlansDistributedReproducibly() {
+		CountingModule testee = new CountingModule(3);
+		testee.prepareReplanning(null);
+		List<Plan> plans = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			Plan plan = PopulationUtils.createPlan();
+			plans.add(plan);
+			testee.handlePlan(plan);
+		}
+		testee.finishReplanning();
+		Assert.assertEquals(3, testee.algos.size());
+		for (int i = 0; i < plans.size(); i++) {
+			Assert.assertTrue(testee.algos.get(i % 3).plans.contains(plans.get(i)));
+		}
+	}
+
+	private static void assertAllPlansHandledOnce(CountingModule testee) {
+		for (int iteration = 0; iteration < 3; iteration++) {
+			testee.prepareReplanning(null);
+			List<Plan> plans = new ArrayList<>();
+			for (int i = 0; i < 1000; i++) {
+				Plan plan = PopulationUtils.createPlan();
+				plans.add(plan);
+				testee.handlePlan(plan);
+			}
+			testee.finishReplanning();
+			Assert.assertEquals(4, testee.algos.size());
+			Assert.assertEquals(1000, testee.handled.size());
+			for (Plan plan : plans) {
+				Assert.assertEquals(Integer.valueOf(1), testee.handled.get(plan));
+			}
+			testee.algos.clear();
+			testee.handled.clear();
+		}
+	}
+
 	private static class DummyAbstractMultithreadedModule extends AbstractMultithreadedModule {
 		public DummyAbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 			super(globalConfigGroup);
@@ -80,6 +138,41 @@ public class AbstractMultithreadedModuleTest {
 		}
 	}
 
+	private static class CountingModule extends AbstractMultithreadedModule {
+		/*package*/ final List<CountingPlanAlgo> algos = new ArrayList<>();
+		/*package*/ final Map<Plan, Integer> handled = new ConcurrentHashMap<>();
+		public CountingModule(final int nOfThreads) {
+			super(nOfThreads);
+		}
+		public CountingModule(GlobalConfigGroup globalConfigGroup) {
+			super(globalConfigGroup);
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			CountingPlanAlgo algo = new CountingPlanAlgo(this.handled);
+			this.algos.add(algo);
+			return algo;
+		}
+	}
+
+	private static class CountingPlanAlgo implements PlanAlgorithm {
+		private final Map<Plan, Integer> handled;
+		/*package*/ final List<Plan> plans = new ArrayList<>();
+		private final AtomicBoolean running = new AtomicBoolean(false);
+		public CountingPlanAlgo(final Map<Plan, Integer> handled) {
+			this.handled = handled;
+		}
+		@Override
+		public void run(Plan plan) {
+			// the same instance must never be used by two threads at the same time
+			Assert.assertTrue(this.running.compareAndSet(false, true));
+			Integer count = this.handled.get(plan);
+			this.handled.put(plan, count == null ? 1 : count + 1);
+			this.plans.add(plan);
+			this.running.set(false);
+		}
+	}
+
 	private static class CrashingPlanAlgo implements PlanAlgorithm {
 		@Override
 		public void run(Plan plan) {
@@ -0,0 +1,136 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BatchPlanSelectionTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.replanning.selectors;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.population.PersonUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.replanning.selectors.BatchPlanSelection.PlanScores;
+
+/**
+ * Tests that {@link BatchPlanSelection} selects the same plans as the selectors themselves.
+ */
+public class BatchPlanSelectionTest {
+
+	@Test
+	public void testExpBetaPlanSelector() {
+		assertSameSelection(new ExpBetaPlanSelector<Plan, Person>(2.0));
+	}
+
+	@Test
+	public void testExpBetaPlanChanger() {
+		assertSameSelection(new ExpBetaPlanChanger<Plan, Person>(2.0));
+	}
+
+	@Test
+	public void testBestPlanSelector() {
+		assertSameSelection(new BestPlanSelector<Plan, Person>());
+	}
+
+	@Test
+	public void testRandomPlanSelector() {
+		assertSameSelection(new RandomPlanSelector<Plan, Person>());
+	}
+
+	@Test
+	public void testRandomUnscoredPlanSelector() {
+		assertSameSelection(new RandomUnscoredPlanSelector<Plan, Person>());
+	}
+
+	@Test
+	public void testKeepSelected() {
+		assertSameSelection(new KeepSelected<Plan, Person>());
+	}
+
+	@Test
+	public void testGenericWorstPlanForRemovalSelector() {
+		assertSameSelection(new GenericWorstPlanForRemovalSelector<Plan, Person>());
+	}
+
+	@Test
+	public void testWorstPlanForRemovalSelector() {
+		assertSameSelection(new WorstPlanForRemovalSelector());
+	}
+
+	@Test
+	public void testUnsupportedSelector() {
+		Assert.assertFalse(BatchPlanSelection.isSupported(new PathSizeLogitSelector(0.5, 2.0, null)));
+		Assert.assertFalse(BatchPlanSelection.isSupported(new BestPlanSelector<Plan, Person>() {}));
+		try {
+			BatchPlanSelection.selectPlan(new BestPlanSelector<Plan, Person>() {}, new PlanScores(), new Random(1));
+			Assert.fail("expected exception for unsupported selector");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Compares the selections for many persons with random plans, some of them unscored, with invalid scores or of different types.
+	 */
+	private static void assertSameSelection(final PlanSelector<Plan, Person> selector) {
+		Assert.assertTrue(BatchPlanSelection.isSupported(selector));
+		Random plansRandom = new Random(4711);
+		PlanScores scores = new PlanScores();
+		for (int i = 0; i < 500; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			int nOfPlans = 1 + plansRandom.nextInt(8);
+			int selected = plansRandom.nextInt(nOfPlans + 1) - 1;
+			for (int p = 0; p < nOfPlans; p++) {
+				Plan plan = PersonUtils.createAndAddPlan(person, p == selected);
+				double r = plansRandom.nextDouble();
+				if (r < 0.1) {
+					plan.setScore(null);
+				} else if (r < 0.15) {
+					plan.setScore(Double.NaN);
+				} else if (r < 0.2) {
+					plan.setScore(Double.NEGATIVE_INFINITY);
+				} else {
+					plan.setScore((double) (plansRandom.nextInt(100) - 50));
+				}
+				if (plansRandom.nextDouble() < 0.3) {
+					plan.setType(plansRandom.nextBoolean() ? "a" : "b");
+				}
+			}
+			if (selected < 0) {
+				person.setSelectedPlan(null);
+			}
+
+			MatsimRandom.reset(i);
+			Plan expected = selector.selectPlan(person);
+			double expectedNext = MatsimRandom.getRandom().nextDouble();
+
+			Random random = new Random(i);
+			scores.set(person.getPlans(), person.getSelectedPlan());
+			int index = BatchPlanSelection.selectPlan(selector, scores, random);
+			Assert.assertEquals(nOfPlans, scores.getCount());
+			Assert.assertEquals("wrong plan selected for person " + i, expected, index < 0 ? null : person.getPlans().get(index));
+			Assert.assertEquals("different number of random draws for person " + i, expectedNext, random.nextDouble(), 0.0);
+		}
+	}
+
+}
@@ -20,12 +20,14 @@
 
 package org.matsim.core.router;
 
+import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.config.Config;
+import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculator.Path;
@@ -35,6 +37,7 @@ import org.xml.sax.SAXException;
 
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
+import java.util.Random;
 
 /**
  * @author mrieser
@@ -81,4 +84,32 @@ public abstract class AbstractLeastCostPathCalculatorTest extends MatsimTestCase
 		assertEquals(network.getNodes().get(Id.create("12", Node.class)), path.nodes.get(0));
 	}
 
+	/**
+	 * Creates a grid of <code>size</code> x <code>size</code> nodes, 1000m apart, with links in both
+	 * directions between neighbouring nodes. Lengths and free speeds of the links are random.
+	 */
+	protected static Network createGridNetwork(final int size, final Random random) {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class), new Coord(x * 1000, y * 1000));
+			}
+		}
+		int linkId = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x][y], nodes[x + 1][y], 1000 + random.nextInt(500), 5 + random.nextInt(25), 1000, 1);
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x + 1][y], nodes[x][y], 1000 + random.nextInt(500), 5 + random.nextInt(25), 1000, 1);
+				}
+				if (y + 1 < size) {
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x][y], nodes[x][y + 1], 1000 + random.nextInt(500), 5 + random.nextInt(25), 1000, 1);
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x][y + 1], nodes[x][y], 1000 + random.nextInt(500), 5 + random.nextInt(25), 1000, 1);
+				}
+			}
+		}
+		return network;
+	}
+
 }
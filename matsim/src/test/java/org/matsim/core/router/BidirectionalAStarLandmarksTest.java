@@ -0,0 +1,168 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BidirectionalAStarLandmarksTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.BidirectionalAStarLandmarksFactory;
+import org.matsim.core.router.util.LandmarkDistances;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.PieSlicesLandmarker;
+import org.matsim.core.router.util.RoutingGraph;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class BidirectionalAStarLandmarksTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new BidirectionalAStarLandmarksFactory(4, 2).createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	public void testSameCostsAsDijkstra_TimeDependent() {
+		Network network = createGridNetwork(25, new Random(4711));
+		TimeDependentTravelTime travelTime = new TimeDependentTravelTime();
+		Dijkstra dijkstra = new Dijkstra(network, travelTime, travelTime);
+		LeastCostPathCalculator router = new BidirectionalAStarLandmarksFactory(8, 2).createPathCalculator(network, travelTime, travelTime);
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		Random random = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			double time = random.nextDouble() * 24 * 3600;
+			Path expected = dijkstra.calcLeastCostPath(from, to, time, null, null);
+			Path path = router.calcLeastCostPath(from, to, time, null, null);
+			assertEquals("wrong cost from " + from.getId() + " to " + to.getId(), expected.travelCost, path.travelCost, 1e-6 * expected.travelCost);
+			assertEquals(expected.travelTime, path.travelTime, 1e-6 * expected.travelTime);
+			assertEquals(from, path.nodes.get(0));
+			assertEquals(to, path.nodes.get(path.nodes.size() - 1));
+			assertEquals(path.links.size() + 1, path.nodes.size());
+			double cost = 0.0;
+			double t = time;
+			for (Link link : path.links) {
+				cost += travelTime.getLinkTravelDisutility(link, t, null, null);
+				t += travelTime.getLinkTravelTime(link, t, null, null);
+			}
+			assertEquals(path.travelCost, cost, 1e-6 * cost);
+		}
+	}
+
+	public void testLandmarkDistancesAreLowerBounds() {
+		Network network = createGridNetwork(12, new Random(4711));
+		TimeDependentTravelTime travelTime = new TimeDependentTravelTime();
+		RoutingGraph graph = new RoutingGraph(network);
+		LandmarkDistances landmarks = new LandmarkDistances(graph, travelTime,
+				new PieSlicesLandmarker(new Rectangle2D.Double()), 8, 2);
+		// the least-cost paths with the minimum link disutilities the landmark distances are based on
+		MinimumTravelTime minimumTravelTime = new MinimumTravelTime(travelTime);
+		Dijkstra dijkstra = new Dijkstra(network, minimumTravelTime, minimumTravelTime);
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		Random random = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			double cost = dijkstra.calcLeastCostPath(from, to, 0.0, null, null).travelCost;
+			for (int l = 0; l < landmarks.getLandmarkCount(); l++) {
+				double bound = landmarks.getLowerBound(graph.getNodeIndex(from), graph.getNodeIndex(to), l);
+				assertTrue("bound " + bound + " exceeds cost " + cost + " from " + from.getId() + " to " + to.getId(),
+						bound <= cost * (1 + 1e-12));
+			}
+		}
+	}
+
+	public void testNoRoute() {
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.create("3", Node.class), new Coord(2000, 0));
+		NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), node1, node2, 1000, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create("2", Link.class), node3, node2, 1000, 10, 1000, 1);
+
+		LeastCostPathCalculator router = getLeastCostPathCalculator(network);
+		assertNull(router.calcLeastCostPath(node1, node3, 0.0, null, null));
+		assertEquals(1, router.calcLeastCostPath(node3, node2, 0.0, null, null).links.size());
+	}
+
+	/**
+	 * Free speed travel times, up to three times as long depending on the time of day.
+	 */
+	private static class TimeDependentTravelTime implements TravelTime, TravelDisutility {
+
+		@Override
+		public double getLinkTravelTime(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			double freeSpeedTravelTime = link.getLength() / link.getFreespeed();
+			return freeSpeedTravelTime * (2.0 + Math.sin(time * 2 * Math.PI / (24 * 3600) + link.getLength()));
+		}
+
+		@Override
+		public double getLinkTravelDisutility(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			return getLinkTravelTime(link, time, person, vehicle);
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(final Link link) {
+			return link.getLength() / link.getFreespeed();
+		}
+	}
+
+	/**
+	 * The minimum travel disutility of the given travel time at all times of day.
+	 */
+	private static class MinimumTravelTime implements TravelTime, TravelDisutility {
+
+		private final TravelDisutility delegate;
+
+		/*package*/ MinimumTravelTime(final TravelDisutility delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public double getLinkTravelTime(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			return this.delegate.getLinkMinimumTravelDisutility(link);
+		}
+
+		@Override
+		public double getLinkTravelDisutility(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			return this.delegate.getLinkMinimumTravelDisutility(link);
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(final Link link) {
+			return this.delegate.getLinkMinimumTravelDisutility(link);
+		}
+	}
+
+}
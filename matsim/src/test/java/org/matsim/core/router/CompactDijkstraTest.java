@@ -0,0 +1,130 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactDijkstraTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.CompactDijkstraFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.RoutingGraph;
+
+public class CompactDijkstraTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new CompactDijkstraFactory().createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	public void testSameCostsAsDijkstra() {
+		Network network = createGridNetwork(20, new Random(4711));
+		FreespeedTravelTimeAndDisutility travelTime = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		Dijkstra dijkstra = new Dijkstra(network, travelTime, travelTime);
+		LeastCostPathCalculator router = new CompactDijkstraFactory().createPathCalculator(network, travelTime, travelTime);
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		Random random = new Random(42);
+		for (int i = 0; i < 300; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			double time = random.nextDouble() * 24 * 3600;
+			Path expected = dijkstra.calcLeastCostPath(from, to, time, null, null);
+			Path path = router.calcLeastCostPath(from, to, time, null, null);
+			assertEquals(expected.travelCost, path.travelCost, 1e-8);
+			assertEquals(expected.travelTime, path.travelTime, 1e-8);
+			assertEquals(from, path.nodes.get(0));
+			assertEquals(to, path.nodes.get(path.nodes.size() - 1));
+			assertEquals(path.links.size() + 1, path.nodes.size());
+		}
+	}
+
+	/**
+	 * Routers created by one factory share the routing graph; each thread only needs its own router.
+	 */
+	public void testSharedGraph_MultipleThreads() throws Exception {
+		final Network network = createGridNetwork(20, new Random(4711));
+		final FreespeedTravelTimeAndDisutility travelTime = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		final CompactDijkstraFactory factory = new CompactDijkstraFactory();
+		RoutingGraph graph = ((CompactDijkstra) factory.createPathCalculator(network, travelTime, travelTime)).getRoutingGraph();
+		final Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		Dijkstra dijkstra = new Dijkstra(network, travelTime, travelTime);
+		final double[] expected = new double[200];
+		for (int i = 0; i < expected.length; i++) {
+			expected[i] = dijkstra.calcLeastCostPath(nodes[i % nodes.length], nodes[(i * 7) % nodes.length], 0.0, null, null).travelCost;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<double[]>> futures = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				final LeastCostPathCalculator router = factory.createPathCalculator(network, travelTime, travelTime);
+				assertSame(graph, ((CompactDijkstra) router).getRoutingGraph());
+				futures.add(executor.submit(new Callable<double[]>() {
+					@Override
+					public double[] call() {
+						double[] costs = new double[expected.length];
+						for (int i = 0; i < costs.length; i++) {
+							costs[i] = router.calcLeastCostPath(nodes[i % nodes.length], nodes[(i * 7) % nodes.length], 0.0, null, null).travelCost;
+						}
+						return costs;
+					}
+				}));
+			}
+			for (Future<double[]> future : futures) {
+				double[] costs = future.get();
+				for (int i = 0; i < costs.length; i++) {
+					assertEquals(expected[i], costs[i], 1e-8);
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public void testNoRoute() {
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.create("3", Node.class), new Coord(2000, 0));
+		NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), node1, node2, 1000, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create("2", Link.class), node3, node2, 1000, 10, 1000, 1);
+
+		LeastCostPathCalculator router = getLeastCostPathCalculator(network);
+		assertNull(router.calcLeastCostPath(node1, node3, 0.0, null, null));
+		assertEquals(1, router.calcLeastCostPath(node3, node2, 0.0, null, null).links.size());
+	}
+
+}
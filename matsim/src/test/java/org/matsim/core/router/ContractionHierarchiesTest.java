@@ -0,0 +1,235 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.costcalculators.RandomizingTimeDistanceTravelDisutilityFactory;
+import org.matsim.core.router.util.ContractionHierarchiesFactory;
+import org.matsim.core.router.util.ContractionHierarchy;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.RoutingGraph;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class ContractionHierarchiesTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new ContractionHierarchiesFactory().createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	public void testSameCostsAsDijkstra() {
+		Network network = createNetwork(30, new Random(4711));
+		FreespeedTravelTimeAndDisutility travelTime = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		Dijkstra dijkstra = new Dijkstra(network, travelTime, travelTime);
+		LeastCostPathCalculator router = new ContractionHierarchiesFactory().createPathCalculator(network, travelTime, travelTime);
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		Random random = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			Path expected = dijkstra.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			Path path = router.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			if (expected == null) {
+				assertNull(path);
+				continue;
+			}
+			assertEquals("wrong cost from " + from.getId() + " to " + to.getId(), expected.travelCost, path.travelCost, 1e-8 * expected.travelCost);
+			assertEquals(expected.travelTime, path.travelTime, 1e-8 * expected.travelTime);
+			assertPathIsConnected(path, from, to);
+		}
+	}
+
+	public void testTimeBins() {
+		Network network = createNetwork(20, new Random(815));
+		HourlyTravelTime travelTime = new HourlyTravelTime();
+		LeastCostPathCalculator router = new ContractionHierarchiesFactory(3600, 30).createPathCalculator(network, travelTime, travelTime);
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		Random random = new Random(42);
+		for (int i = 0; i < 200; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			double time = random.nextInt(30 * 3600);
+			// the route must be the least-cost route for the travel times at the time of departure
+			FrozenTravelTime frozen = new FrozenTravelTime(travelTime, time);
+			Path expected = new Dijkstra(network, frozen, frozen).calcLeastCostPath(from, to, time, null, null);
+			Path path = router.calcLeastCostPath(from, to, time, null, null);
+			if (expected == null) {
+				assertNull(path);
+				continue;
+			}
+			double frozenCost = 0.0;
+			double cost = 0.0;
+			double t = time;
+			for (Link link : path.links) {
+				frozenCost += frozen.getLinkTravelDisutility(link, t, null, null);
+				cost += travelTime.getLinkTravelDisutility(link, t, null, null);
+				t += travelTime.getLinkTravelTime(link, t, null, null);
+			}
+			assertEquals(expected.travelCost, frozenCost, 1e-8 * frozenCost);
+			assertEquals(cost, path.travelCost, 1e-8 * cost);
+			assertEquals(t - time, path.travelTime, 1e-8 * cost);
+			assertPathIsConnected(path, from, to);
+		}
+	}
+
+	public void testMetricsAreShared() {
+		Network network = createNetwork(10, new Random(815));
+		ContractionHierarchy hierarchy = new ContractionHierarchy(new RoutingGraph(network));
+
+		ContractionHierarchy.Metric metric = hierarchy.getMetric(new HourlyTravelTime(), 3600);
+		// another instance with the same link disutilities, e.g. of a router in another thread
+		assertSame(metric, hierarchy.getMetric(new HourlyTravelTime(), 3600));
+		// other link disutilities
+		assertNotSame(metric, hierarchy.getMetric(new HourlyTravelTime(), 7200));
+		assertNotSame(metric, hierarchy.getMetric(new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup()), 3600));
+		assertSame(metric, hierarchy.getMetric(new HourlyTravelTime(), 3600));
+	}
+
+	public void testRandomizedDisutilityIsRefused() {
+		Network network = createNetwork(10, new Random(815));
+		FreespeedTravelTimeAndDisutility travelTime = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		TravelDisutility randomized = new RandomizingTimeDistanceTravelDisutilityFactory(TransportMode.car, new PlanCalcScoreConfigGroup())
+				.setSigma(3.0).createTravelDisutility(travelTime);
+		LeastCostPathCalculator router = new ContractionHierarchiesFactory().createPathCalculator(network, randomized, travelTime);
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		Person person = PopulationUtils.getFactory().createPerson(Id.create("ch_person", Person.class));
+		try {
+			router.calcLeastCostPath(nodes[0], nodes[1], 8 * 3600, person, null);
+			fail("expected the person-specific disutility to be refused");
+		} catch (RuntimeException expected) {
+			assertTrue(expected.getMessage(), expected.getMessage().contains("routingRandomness"));
+		}
+	}
+
+	private static void assertPathIsConnected(final Path path, final Node from, final Node to) {
+		assertEquals(path.links.size() + 1, path.nodes.size());
+		assertEquals(from, path.nodes.get(0));
+		for (int i = 0; i < path.links.size(); i++) {
+			assertEquals(path.nodes.get(i), path.links.get(i).getFromNode());
+			assertEquals(path.nodes.get(i + 1), path.links.get(i).getToNode());
+		}
+		assertEquals(to, path.nodes.get(path.nodes.size() - 1));
+	}
+
+	/**
+	 * Creates a grid network with random speeds, some one-way links and some parallel links.
+	 */
+	private static Network createNetwork(final int size, final Random random) {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.create("ch_" + x + "_" + y, Node.class),
+						new Coord(x * 1000 + random.nextInt(300), y * 1000 + random.nextInt(300)));
+			}
+		}
+		int linkId = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				for (int d = 0; d < 2; d++) {
+					int nx = x + 1 - d;
+					int ny = y + d;
+					if (nx >= size || ny >= size) {
+						continue;
+					}
+					int lanes = random.nextInt(10);
+					if (lanes > 0) {
+						NetworkUtils.createAndAddLink(network, Id.create("ch_" + linkId++, Link.class), nodes[x][y], nodes[nx][ny], 1000 + random.nextInt(500), 5 + random.nextInt(25), 1000, 1);
+					}
+					if (lanes != 1) {
+						NetworkUtils.createAndAddLink(network, Id.create("ch_" + linkId++, Link.class), nodes[nx][ny], nodes[x][y], 1000 + random.nextInt(500), 5 + random.nextInt(25), 1000, 1);
+					}
+					if (lanes == 9) {
+						NetworkUtils.createAndAddLink(network, Id.create("ch_" + linkId++, Link.class), nodes[x][y], nodes[nx][ny], 1000 + random.nextInt(500), 5 + random.nextInt(25), 1000, 1);
+					}
+				}
+			}
+		}
+		return network;
+	}
+
+	/**
+	 * Travel times that change every hour, differently for every link.
+	 */
+	private static class HourlyTravelTime implements TravelTime, TravelDisutility {
+
+		@Override
+		public double getLinkTravelTime(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			int hour = (int) (time / 3600);
+			return link.getLength() / link.getFreespeed() * (1.0 + ((hour * 31 + link.getId().index() * 17) % 7) / 2.0);
+		}
+
+		@Override
+		public double getLinkTravelDisutility(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			return getLinkTravelTime(link, time, person, vehicle);
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(final Link link) {
+			return link.getLength() / link.getFreespeed();
+		}
+	}
+
+	private static class FrozenTravelTime implements TravelTime, TravelDisutility {
+		private final HourlyTravelTime delegate;
+		private final double time;
+
+		FrozenTravelTime(final HourlyTravelTime delegate, final double time) {
+			this.delegate = delegate;
+			this.time = time;
+		}
+
+		@Override
+		public double getLinkTravelTime(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			return this.delegate.getLinkTravelTime(link, this.time, person, vehicle);
+		}
+
+		@Override
+		public double getLinkTravelDisutility(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			return this.delegate.getLinkTravelDisutility(link, this.time, person, vehicle);
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(final Link link) {
+			return this.delegate.getLinkMinimumTravelDisutility(link);
+		}
+	}
+
+}
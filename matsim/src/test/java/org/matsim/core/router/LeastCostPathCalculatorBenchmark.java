@@ -0,0 +1,188 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LeastCostPathCalculatorBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.BidirectionalAStarLandmarksFactory;
+import org.matsim.core.router.util.CompactDijkstraFactory;
+import org.matsim.core.router.util.ContractionHierarchiesFactory;
+import org.matsim.core.router.util.DijkstraFactory;
+import org.matsim.core.router.util.FastAStarLandmarksFactory;
+import org.matsim.core.router.util.FastDijkstraFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark comparing the least-cost path calculators on a large network. By default, a grid
+ * network with 90'000 nodes is generated; set the parameter <code>networkFile</code> to use a real network:
+ * <pre>
+ * java -cp ... org.openjdk.jmh.Main LeastCostPathCalculatorBenchmark -p networkFile=network.xml.gz
+ * </pre>
+ * This is not a unit test and is not run by the build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LeastCostPathCalculatorBenchmark {
+
+	private static final int QUERIES = 1000;
+
+	@Param({"Dijkstra", "FastDijkstra", "FastAStarLandmarks", "BidirectionalAStarLandmarks", "ContractionHierarchies", "CompactDijkstra"})
+	public String router;
+
+	@Param({""})
+	public String networkFile;
+
+	private LeastCostPathCalculator calculator;
+	private Node[] fromNodes;
+	private Node[] toNodes;
+	private double[] departureTimes;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Network network;
+		if (this.networkFile.isEmpty()) {
+			network = createGridNetwork(300);
+		} else {
+			Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+			new MatsimNetworkReader(scenario.getNetwork()).readFile(this.networkFile);
+			network = scenario.getNetwork();
+		}
+		FreespeedTravelTimeAndDisutility travelTime = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+
+		LeastCostPathCalculatorFactory factory;
+		switch (this.router) {
+		case "Dijkstra":
+			factory = new DijkstraFactory();
+			break;
+		case "FastDijkstra":
+			factory = new FastDijkstraFactory();
+			break;
+		case "FastAStarLandmarks":
+			factory = new FastAStarLandmarksFactory(network, travelTime);
+			break;
+		case "BidirectionalAStarLandmarks":
+			factory = new BidirectionalAStarLandmarksFactory();
+			break;
+		case "ContractionHierarchies":
+			factory = new ContractionHierarchiesFactory();
+			break;
+		case "CompactDijkstra":
+			factory = new CompactDijkstraFactory();
+			break;
+		default:
+			throw new IllegalArgumentException("unknown router: " + this.router);
+		}
+		this.calculator = factory.createPathCalculator(network, travelTime, travelTime);
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[network.getNodes().size()]);
+		Random random = new Random(4711);
+		this.fromNodes = new Node[QUERIES];
+		this.toNodes = new Node[QUERIES];
+		this.departureTimes = new double[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			this.fromNodes[i] = nodes[random.nextInt(nodes.length)];
+			this.toNodes[i] = nodes[random.nextInt(nodes.length)];
+			this.departureTimes[i] = 6 * 3600 + random.nextInt(12 * 3600);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public double route() {
+		double sum = 0.0;
+		for (int i = 0; i < QUERIES; i++) {
+			Path path = this.calculator.calcLeastCostPath(this.fromNodes[i], this.toNodes[i], this.departureTimes[i], null, null);
+			if (path != null) {
+				sum += path.travelCost;
+			}
+		}
+		return sum;
+	}
+
+	private static Network createGridNetwork(final int size) {
+		Network network = NetworkUtils.createNetwork();
+		Random random = new Random(42);
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class), new Coord(x * 500, y * 500));
+			}
+		}
+		int linkId = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					double speed = 8.0 + random.nextInt(28);
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x][y], nodes[x + 1][y], 500, speed, 2000, 1);
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x + 1][y], nodes[x][y], 500, speed, 2000, 1);
+				}
+				if (y + 1 < size) {
+					double speed = 8.0 + random.nextInt(28);
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x][y], nodes[x][y + 1], 500, speed, 2000, 1);
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x][y + 1], nodes[x][y], 500, speed, 2000, 1);
+				}
+			}
+		}
+		return network;
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+		Options options = new OptionsBuilder().include(LeastCostPathCalculatorBenchmark.class.getSimpleName()).build();
+		new Runner(options).run();
+	}
+
+}
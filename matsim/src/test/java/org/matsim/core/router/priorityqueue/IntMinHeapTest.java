@@ -0,0 +1,94 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IntMinHeapTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.priorityqueue;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IntMinHeapTest {
+
+	@Test
+	public void testInsertOrDecreaseKey() {
+		IntMinHeap heap = new IntMinHeap(10);
+		Assert.assertTrue(heap.isEmpty());
+		heap.insertOrDecreaseKey(5, 3.0);
+		heap.insertOrDecreaseKey(2, 1.0);
+		heap.insertOrDecreaseKey(7, 2.0);
+		Assert.assertEquals(3, heap.size());
+		heap.insertOrDecreaseKey(7, 5.0); // larger key, must be ignored
+		heap.insertOrDecreaseKey(5, 0.5);
+		Assert.assertEquals(3, heap.size());
+		Assert.assertTrue(heap.contains(7));
+		Assert.assertFalse(heap.contains(3));
+
+		Assert.assertEquals(0.5, heap.peekKey(), 0.0);
+		Assert.assertEquals(5, heap.poll());
+		Assert.assertFalse(heap.contains(5));
+		Assert.assertEquals(2, heap.poll());
+		Assert.assertEquals(7, heap.poll());
+		Assert.assertTrue(heap.isEmpty());
+		Assert.assertEquals(Double.POSITIVE_INFINITY, heap.peekKey(), 0.0);
+		try {
+			heap.poll();
+			Assert.fail("missing NoSuchElementException.");
+		} catch (NoSuchElementException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testClear() {
+		IntMinHeap heap = new IntMinHeap(10);
+		heap.insertOrDecreaseKey(1, 1.0);
+		heap.insertOrDecreaseKey(9, 2.0);
+		heap.clear();
+		Assert.assertTrue(heap.isEmpty());
+		Assert.assertFalse(heap.contains(1));
+		Assert.assertFalse(heap.contains(9));
+		heap.insertOrDecreaseKey(9, 3.0);
+		Assert.assertEquals(9, heap.poll());
+	}
+
+	@Test
+	public void testSorting() {
+		Random random = new Random(4711);
+		int n = 1000;
+		double[] keys = new double[n];
+		IntMinHeap heap = new IntMinHeap(n);
+		for (int i = 0; i < n; i++) {
+			keys[i] = random.nextDouble();
+			heap.insertOrDecreaseKey(i, keys[i] + 1.0);
+		}
+		for (int i = 0; i < n; i++) {
+			heap.insertOrDecreaseKey(i, keys[i]);
+		}
+		double[] sorted = keys.clone();
+		Arrays.sort(sorted);
+		for (int i = 0; i < n; i++) {
+			Assert.assertEquals(sorted[i], keys[heap.poll()], 0.0);
+		}
+	}
+
+}
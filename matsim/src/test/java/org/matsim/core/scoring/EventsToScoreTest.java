@@ -20,9 +20,20 @@
 
 package org.matsim.core.scoring;
 
+import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
 import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
@@ -30,11 +41,14 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.events.EventsUtils;
+import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.scenario.MutableScenario;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.core.scoring.functions.CharyparNagelScoringFunctionFactory;
 import org.matsim.testcases.MatsimTestCase;
+import org.matsim.vehicles.Vehicle;
 
 /**
  * @author mrieser
@@ -142,6 +156,51 @@ public class EventsToScoreTest extends MatsimTestCase {
 		}
 	}
 
+	/**
+	 * Tests that the persons are scored correctly when the scoring is split into several shards
+	 * which are run by different events threads.
+	 */
+	public void testShardedScoring() {
+		Config config = ConfigUtils.createConfig();
+		config.parallelEventHandling().setNumberOfThreads(3);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Node node1 = NetworkUtils.createAndAddNode(scenario.getNetwork(), Id.create(1, Node.class), new Coord(0.0, 0.0));
+		Node node2 = NetworkUtils.createAndAddNode(scenario.getNetwork(), Id.create(2, Node.class), new Coord(100.0, 0.0));
+		Node node3 = NetworkUtils.createAndAddNode(scenario.getNetwork(), Id.create(3, Node.class), new Coord(200.0, 0.0));
+		Id<Link> link1 = Id.create(1, Link.class);
+		Id<Link> link2 = Id.create(2, Link.class);
+		NetworkUtils.createAndAddLink(scenario.getNetwork(), link1, node1, node2, 100.0, 10.0, 1000.0, 1.0);
+		NetworkUtils.createAndAddLink(scenario.getNetwork(), link2, node2, node3, 100.0, 10.0, 1000.0, 1.0);
+		int nOfPersons = 20;
+		for (int i = 0; i < nOfPersons; i++) {
+			scenario.getPopulation().addPerson(PopulationUtils.getFactory().createPerson(Id.create(i, Person.class)));
+		}
+
+		EventsManager events = EventsUtils.createEventsManager(config);
+		EventsToScore e2s = EventsToScore.createWithoutScoreUpdating(scenario, new MockScoringFunctionFactory(), events);
+		e2s.beginIteration(0);
+		events.initProcessing();
+		for (int i = 0; i < nOfPersons; i++) {
+			Id<Person> personId = Id.create(i, Person.class);
+			Id<Vehicle> vehicleId = Id.create(i, Vehicle.class);
+			double time = 100.0 * i;
+			events.processEvent(new ActivityEndEvent(time, personId, link1, null, "home"));
+			events.processEvent(new PersonDepartureEvent(time, personId, link1, "car"));
+			events.processEvent(new VehicleEntersTrafficEvent(time, personId, link1, vehicleId, "car", 1.0));
+			events.processEvent(new LinkEnterEvent(time + 10.0, vehicleId, link2));
+			events.processEvent(new VehicleLeavesTrafficEvent(time + 10.0 + i, personId, link2, vehicleId, "car", 1.0));
+			events.processEvent(new PersonArrivalEvent(time + 10.0 + i, personId, link2, "car"));
+			events.processEvent(new ActivityStartEvent(time + 10.0 + i, personId, link2, null, "work"));
+			events.processEvent(new PersonMoneyEvent(time + 10.0 + i, personId, 1000.0 * i));
+		}
+		events.finishProcessing();
+		e2s.finish();
+		for (int i = 0; i < nOfPersons; i++) {
+			// money, plus the travel time of the network route built from the link events
+			assertEquals(1000.0 * i + 10.0 + i, e2s.getAgentScore(Id.create(i, Person.class)), 1e-8);
+		}
+	}
+
 	private static class MockScoringFunctionFactory implements ScoringFunctionFactory {
 
 		@Override
@@ -160,6 +219,21 @@ public class EventsToScoreTest extends MatsimTestCase {
 					return money;
 				}
 			});
+			sumScoringFunction.addScoringFunction(new SumScoringFunction.LegScoring() {
+				double travelTime = 0.0;
+				@Override
+				public void handleLeg(Leg leg) {
+					if (leg.getRoute() instanceof NetworkRoute) {
+						travelTime += leg.getTravelTime();
+					}
+				}
+				@Override
+				public void finish() {}
+				@Override
+				public double getScore() {
+					return travelTime;
+				}
+			});
 			return sumScoringFunction;
 		}
 
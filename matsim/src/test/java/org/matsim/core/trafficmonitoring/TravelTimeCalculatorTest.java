@@ -585,4 +585,73 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 		assertEquals(14.0 * 60, ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, linkEnterTime3, null, null));
 		assertEquals(19.0 * 60, ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, 7.0 * 3600.0 + 11.0 * 60, null, null));
 	}
+
+	public void testTravelTimeCalculator_ConcurrentArray_Optimistic() throws IOException {
+		String networkFile = getClassInputDirectory() + "link10_network.xml";
+		String eventsFile = getClassInputDirectory() + "link10_events.xml";
+		String compareFile = getClassInputDirectory() + "link10_ttimes.txt";
+		int binSize = 15*60;
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new MatsimNetworkReader(scenario.getNetwork()).readFile(networkFile);
+		TravelTimeCalculatorConfigGroup ttConfig = scenario.getConfig().travelTimeCalculator();
+		ttConfig.setTravelTimeCalculatorType(TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType.TravelTimeCalculatorConcurrentArray.toString());
+		ttConfig.setTraveltimeBinSize(binSize);
+		TravelTimeCalculator ttcalc = TravelTimeCalculator.create(scenario.getNetwork(), ttConfig);
+
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler(ttcalc);
+		new MatsimEventsReader(events).readFile(eventsFile);
+
+		BufferedReader infile = IOUtils.getBufferedReader(compareFile);
+		try {
+			Link link10 = scenario.getNetwork().getLinks().get(Id.create("10", Link.class));
+			for (int i = 0; i < 4*24; i++) {
+				double ttime = ttcalc.getLinkTravelTimes().getLinkTravelTime(link10, i*binSize, null, null);
+				assertEquals(infile.readLine(), Double.toString(ttime));
+			}
+		} finally {
+			infile.close();
+		}
+	}
+
+	public void testTravelTimeCalculator_ConcurrentArray_ConcurrentUpdates() throws InterruptedException {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+		final Link link1 = NetworkUtils.createAndAddLink(network,Id.create("1", Link.class), node1, node2, 1000.0, 100.0, 3600.0, 1.0 );
+
+		TravelTimeCalculatorConfigGroup ttConfig = scenario.getConfig().travelTimeCalculator();
+		ttConfig.setTravelTimeCalculatorType(TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType.TravelTimeCalculatorConcurrentArray.toString());
+		final TravelTimeCalculator ttcalc = TravelTimeCalculator.create(network, ttConfig);
+
+		// every thread handles the events of its own vehicles, all on the same link and in the same time bin
+		final int vehiclesPerThread = 5000;
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int thread = t;
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int v = 0; v < vehiclesPerThread; v++) {
+						Id<Vehicle> vehId = Id.create("t" + thread + "_" + v, Vehicle.class);
+						ttcalc.handleEvent(new LinkEnterEvent(8 * 3600, vehId, link1.getId()));
+						ttcalc.handleEvent(new LinkLeaveEvent(8 * 3600 + 10 + 10 * thread, vehId, link1.getId()));
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		// (10 + 20 + 30 + 40) / 4
+		assertEquals(25.0, ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, 8 * 3600, null, null), EPSILON);
+		assertEquals(10.0, ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, 7 * 3600, null, null), EPSILON); // freespeed
+
+		ttcalc.reset(1);
+		assertEquals(10.0, ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, 8 * 3600, null, null), EPSILON);
+	}
 }
@@ -0,0 +1,143 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * KDTreeTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for {@link KDTree}.
+ */
+public class KDTreeTest {
+
+	private static final int N_POINTS = 2000;
+
+	@Test
+	public void testEmpty() {
+		KDTree<String> tree = new KDTree.Builder<String>().build();
+		Assert.assertEquals(0, tree.size());
+		Assert.assertNull(tree.getClosest(0.0, 0.0));
+		Assert.assertTrue(tree.getKNearest(0.0, 0.0, 3).isEmpty());
+		Assert.assertTrue(tree.getDisk(0.0, 0.0, 100.0).isEmpty());
+	}
+
+	@Test
+	public void testSmallTree() {
+		KDTree<String> tree = new KDTree.Builder<String>()
+				.add(10.0, 10.0, "10.0, 10.0")
+				.add(15.0, 15.0, "15.0, 15.0")
+				.add(-15.0, 0.0, "-15.0, 0.0")
+				.add(20.0, 10.0, "20.0, 10.0")
+				.add(100.0, 0.0, "100.0, 0.0")
+				.build();
+		Assert.assertEquals(5, tree.size());
+		Assert.assertEquals("10.0, 10.0", tree.getClosest(0.0, 0.0));
+		Assert.assertEquals("100.0, 0.0", tree.getClosest(80.0, 0.0));
+		List<String> nearest = tree.getKNearest(12.0, 12.0, 2);
+		Assert.assertEquals(2, nearest.size());
+		Assert.assertEquals("10.0, 10.0", nearest.get(0));
+		Assert.assertEquals("15.0, 15.0", nearest.get(1));
+		Assert.assertEquals(1, tree.getKNearest(12.0, 12.0, 5, 3.0).size());
+		Collection<String> disk = tree.getDisk(15.0, 10.0, 5.0);
+		Assert.assertEquals(3, disk.size());
+		Assert.assertTrue(disk.contains("10.0, 10.0"));
+		Assert.assertTrue(disk.contains("15.0, 15.0"));
+		Assert.assertTrue(disk.contains("20.0, 10.0"));
+	}
+
+	@Test
+	public void testDuplicateCoordinates() {
+		KDTree.Builder<Integer> builder = new KDTree.Builder<>();
+		for (int i = 0; i < 100; i++) {
+			builder.add(5.0, 5.0, i);
+		}
+		builder.add(6.0, 5.0, 100);
+		KDTree<Integer> tree = builder.build();
+		Assert.assertEquals(101, tree.size());
+		Assert.assertEquals(100, tree.getDisk(5.0, 5.0, 0.0).size());
+		Assert.assertEquals(Integer.valueOf(100), tree.getClosest(7.0, 5.0));
+		Assert.assertEquals(new HashSet<>(tree.getKNearest(5.0, 5.0, 100)).size(), 100);
+		Assert.assertFalse(tree.getKNearest(5.0, 5.0, 100).contains(100));
+	}
+
+	/**
+	 * Compares the results of the queries with the ones of a linear search on random points.
+	 */
+	@Test
+	public void testQueries_randomPoints() {
+		Random random = new Random(4711);
+		double[][] points = new double[N_POINTS][];
+		KDTree.Builder<Integer> builder = new KDTree.Builder<>();
+		for (int i = 0; i < N_POINTS; i++) {
+			// use a coarse grid to get some equal coordinates
+			points[i] = new double[] { random.nextInt(500) * 2.0, random.nextInt(300) * 3.0 };
+			builder.add(points[i][0], points[i][1], i);
+		}
+		KDTree<Integer> tree = builder.build();
+		Assert.assertEquals(N_POINTS, tree.size());
+
+		for (int q = 0; q < 200; q++) {
+			double x = random.nextDouble() * 1200.0 - 100.0;
+			double y = random.nextDouble() * 1100.0 - 100.0;
+
+			double[] distances = new double[N_POINTS];
+			for (int i = 0; i < N_POINTS; i++) {
+				distances[i] = Math.hypot(points[i][0] - x, points[i][1] - y);
+			}
+			double[] sorted = distances.clone();
+			Arrays.sort(sorted);
+
+			Integer closest = tree.getClosest(x, y);
+			Assert.assertEquals(sorted[0], distances[closest], 1e-9);
+
+			List<Integer> nearest = tree.getKNearest(x, y, 10);
+			Assert.assertEquals(10, nearest.size());
+			for (int i = 0; i < 10; i++) {
+				Assert.assertEquals(sorted[i], distances[nearest.get(i)], 1e-9);
+			}
+
+			double maxDistance = 30.0;
+			List<Integer> limited = tree.getKNearest(x, y, 1000, maxDistance);
+			List<Integer> expected = new ArrayList<>();
+			for (int i = 0; i < N_POINTS; i++) {
+				if (distances[i] <= maxDistance) {
+					expected.add(i);
+				}
+			}
+			Assert.assertEquals(Math.min(1000, expected.size()), limited.size());
+			for (Integer i : limited) {
+				Assert.assertTrue(distances[i] <= maxDistance);
+			}
+
+			Collection<Integer> disk = tree.getDisk(x, y, maxDistance);
+			Assert.assertEquals(expected.size(), disk.size());
+			Assert.assertTrue(disk.containsAll(expected));
+		}
+	}
+
+}
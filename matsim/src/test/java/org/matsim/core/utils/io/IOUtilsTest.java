@@ -22,14 +22,21 @@ package org.matsim.core.utils.io;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
 
 import org.apache.log4j.Logger;
 import org.junit.Assert;
@@ -471,4 +478,114 @@ public class IOUtilsTest {
 		System.out.println(url.toString());
 	}
 
+	@Test
+	public void testParallelGZIPOutputStream() throws IOException {
+		String filename = this.utils.getOutputDirectory() + "large.txt.gz";
+		// several blocks of compressed data, with some repetitions to check the dictionaries
+		StringBuilder expected = new StringBuilder();
+		BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new ParallelGZIPOutputStream(new FileOutputStream(filename)), IOUtils.CHARSET_UTF8));
+		for (int i = 0; i < 100000; i++) {
+			String line = "<event time=\"" + i + "\" type=\"entered link\" link=\"" + (i * 7919 % 1000) + "\" />\n";
+			writer.write(line);
+			expected.append(line);
+		}
+		writer.close();
+
+		// must be readable by a standard gzip implementation
+		StringBuilder content = new StringBuilder();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(filename)), IOUtils.CHARSET_UTF8))) {
+			char[] buffer = new char[8192];
+			int count;
+			while ((count = reader.read(buffer)) >= 0) {
+				content.append(buffer, 0, count);
+			}
+		}
+		Assert.assertEquals(expected.toString(), content.toString());
+		Assert.assertTrue(new File(filename).length() < expected.length() / 5);
+
+		// and by our own reader
+		content.setLength(0);
+		try (BufferedReader reader = IOUtils.getBufferedReader(filename)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				content.append(line).append('\n');
+			}
+		}
+		Assert.assertEquals(expected.toString(), content.toString());
+	}
+
+	@Test
+	public void testParallelGZIPOutputStream_empty() throws IOException {
+		String filename = this.utils.getOutputDirectory() + "empty.txt.gz";
+		new ParallelGZIPOutputStream(new FileOutputStream(filename)).close();
+		try (InputStream in = new GZIPInputStream(new FileInputStream(filename))) {
+			Assert.assertEquals(-1, in.read());
+		}
+		try (BufferedReader reader = IOUtils.getBufferedReader(filename)) {
+			Assert.assertNull(reader.readLine());
+		}
+	}
+
+	/**
+	 * A runtime exception of the stream read ahead in the background must reach the reader instead of
+	 * leaving it waiting for data forever.
+	 */
+	@Test(timeout = 10000)
+	public void testReadAheadInputStream_runtimeException() throws IOException {
+		InputStream failing = new InputStream() {
+			private int count = 0;
+			@Override
+			public int read() {
+				if (this.count++ < 10) {
+					return 'a';
+				}
+				throw new IllegalStateException("just some exception");
+			}
+		};
+		try (InputStream in = new ReadAheadInputStream(failing)) {
+			while (in.read() >= 0) {
+				// read until the end or the exception
+			}
+			Assert.fail("expected exception, got none.");
+		} catch (IOException e) {
+			Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	@Test
+	public void testReadAheadInputStream_notClosed() throws IOException, InterruptedException {
+		final AtomicBoolean wrappedClosed = new AtomicBoolean(false);
+		InputStream endless = new InputStream() {
+			@Override
+			public int read() {
+				return 'a';
+			}
+			@Override
+			public void close() {
+				wrappedClosed.set(true);
+			}
+		};
+		Set<Thread> threadsBefore = Thread.getAllStackTraces().keySet();
+		InputStream in = new ReadAheadInputStream(endless);
+		Set<Thread> threads = new HashSet<>(Thread.getAllStackTraces().keySet());
+		threads.removeAll(threadsBefore);
+		Thread readAhead = null;
+		for (Thread thread : threads) {
+			if (thread.getName().equals("ReadAhead")) {
+				readAhead = thread;
+			}
+		}
+		Assert.assertNotNull(readAhead);
+		Assert.assertEquals('a', in.read());
+
+		// stop reading without closing the stream
+		in = null;
+		for (int i = 0; i < 50 && readAhead.isAlive(); i++) {
+			System.gc();
+			readAhead.join(200);
+		}
+		Assert.assertFalse("the read-ahead thread should end once the stream is garbage collected", readAhead.isAlive());
+		Assert.assertTrue(wrappedClosed.get());
+	}
+
 }
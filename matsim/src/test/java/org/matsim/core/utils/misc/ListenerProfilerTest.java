@@ -0,0 +1,55 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ListenerProfilerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.misc;
+
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ListenerProfilerTest {
+
+	@Test
+	public void testCumulativeTimes() throws InterruptedException {
+		ListenerProfiler profiler = new ListenerProfiler("test listeners");
+		Object listener1 = new Object();
+		Object listener2 = new Object();
+
+		for (int i = 0; i < 3; i++) {
+			long start = profiler.start();
+			Thread.sleep(2);
+			profiler.stop(listener1, start);
+		}
+		long start = profiler.start();
+		profiler.stop(listener2, start);
+
+		Assert.assertEquals(3, profiler.getCalls(listener1));
+		Assert.assertEquals(1, profiler.getCalls(listener2));
+		Assert.assertTrue(profiler.getTotalTime(listener1) >= 6000000L);
+		Assert.assertTrue(profiler.getTotalTime(listener1) > profiler.getTotalTime(listener2));
+		Assert.assertEquals(0, profiler.getCalls(new Object()));
+		profiler.log(Logger.getLogger(ListenerProfilerTest.class));
+
+		profiler.reset();
+		Assert.assertEquals(0, profiler.getCalls(listener1));
+		Assert.assertEquals(0, profiler.getTotalTime(listener1));
+	}
+
+}
@@ -0,0 +1,197 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TransitRouterBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitScheduleReader;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark comparing {@link TransitRouterImpl} with {@link RaptorTransitRouter} on a large schedule.
+ * By default, a schedule with 120 lines on a grid of 3'600 stops, with departures every 10 minutes in both
+ * directions during the whole day, is generated; set the parameter <code>scheduleFile</code> to use a
+ * real schedule:
+ * <pre>
+ * java -cp ... org.openjdk.jmh.Main TransitRouterBenchmark -p scheduleFile=transitSchedule.xml.gz
+ * </pre>
+ * The preparation of the router data is not part of the measured time.
+ * This is not a unit test and is not run by the build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TransitRouterBenchmark {
+
+	private static final int QUERIES = 200;
+
+	@Param({"TransitRouterImpl", "Raptor"})
+	public String router;
+
+	@Param({""})
+	public String scheduleFile;
+
+	private TransitRouter transitRouter;
+	private FakeFacility[] fromFacilities;
+	private FakeFacility[] toFacilities;
+	private double[] departureTimes;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Config config = ConfigUtils.createConfig();
+		config.transit().setUseTransit(true);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		if (this.scheduleFile.isEmpty()) {
+			createGridSchedule(scenario.getTransitSchedule(), 60);
+		} else {
+			new TransitScheduleReader(scenario).readFile(this.scheduleFile);
+		}
+		TransitSchedule schedule = scenario.getTransitSchedule();
+		TransitRouterConfig routerConfig = new TransitRouterConfig(config);
+
+		switch (this.router) {
+		case "TransitRouterImpl":
+			this.transitRouter = new TransitRouterImplFactory(schedule, routerConfig).get();
+			break;
+		case "Raptor":
+			this.transitRouter = new RaptorTransitRouterFactory(schedule, routerConfig).get();
+			break;
+		default:
+			throw new IllegalArgumentException("unknown router: " + this.router);
+		}
+
+		List<TransitStopFacility> stops = new ArrayList<>(schedule.getFacilities().values());
+		Random random = new Random(4711);
+		this.fromFacilities = new FakeFacility[QUERIES];
+		this.toFacilities = new FakeFacility[QUERIES];
+		this.departureTimes = new double[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			this.fromFacilities[i] = new FakeFacility(randomCoordNear(stops.get(random.nextInt(stops.size())), random));
+			this.toFacilities[i] = new FakeFacility(randomCoordNear(stops.get(random.nextInt(stops.size())), random));
+			this.departureTimes[i] = 6 * 3600 + random.nextInt(12 * 3600);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public double route() {
+		double sum = 0.0;
+		for (int i = 0; i < QUERIES; i++) {
+			List<Leg> legs = this.transitRouter.calcRoute(this.fromFacilities[i], this.toFacilities[i], this.departureTimes[i], null);
+			if (legs != null) {
+				for (Leg leg : legs) {
+					sum += leg.getTravelTime();
+				}
+			}
+		}
+		return sum;
+	}
+
+	private static Coord randomCoordNear(final TransitStopFacility stop, final Random random) {
+		return new Coord(stop.getCoord().getX() + random.nextInt(400) - 200, stop.getCoord().getY() + random.nextInt(400) - 200);
+	}
+
+	/**
+	 * Creates a line in both directions along each row and each column of a grid of stops 500 meters apart.
+	 * The vehicles need one minute from stop to stop; the departures of the lines are spread over the first ten minutes.
+	 */
+	private static void createGridSchedule(final TransitSchedule schedule, final int size) {
+		TransitScheduleFactory factory = schedule.getFactory();
+		TransitStopFacility[][] stops = new TransitStopFacility[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				stops[x][y] = factory.createTransitStopFacility(Id.create(x + "_" + y, TransitStopFacility.class), new Coord(x * 500, y * 500), false);
+				schedule.addStopFacility(stops[x][y]);
+			}
+		}
+		Random random = new Random(42);
+		for (int i = 0; i < size; i++) {
+			TransitLine row = factory.createTransitLine(Id.create("row" + i, TransitLine.class));
+			TransitLine column = factory.createTransitLine(Id.create("column" + i, TransitLine.class));
+			for (int direction = 0; direction < 2; direction++) {
+				List<TransitRouteStop> rowStops = new ArrayList<>();
+				List<TransitRouteStop> columnStops = new ArrayList<>();
+				for (int j = 0; j < size; j++) {
+					int k = direction == 0 ? j : size - 1 - j;
+					rowStops.add(factory.createTransitRouteStop(stops[k][i], j * 60, j * 60));
+					columnStops.add(factory.createTransitRouteStop(stops[i][k], j * 60, j * 60));
+				}
+				TransitRoute rowRoute = factory.createTransitRoute(Id.create("row" + i + "_" + direction, TransitRoute.class), null, rowStops, "bus");
+				TransitRoute columnRoute = factory.createTransitRoute(Id.create("column" + i + "_" + direction, TransitRoute.class), null, columnStops, "bus");
+				addDepartures(factory, rowRoute, random.nextInt(10) * 60);
+				addDepartures(factory, columnRoute, random.nextInt(10) * 60);
+				row.addRoute(rowRoute);
+				column.addRoute(columnRoute);
+			}
+			schedule.addTransitLine(row);
+			schedule.addTransitLine(column);
+		}
+	}
+
+	private static void addDepartures(final TransitScheduleFactory factory, final TransitRoute route, final double offset) {
+		int i = 0;
+		for (double time = 5 * 3600 + offset; time < 24 * 3600; time += 600) {
+			route.addDeparture(factory.createDeparture(Id.create(i++, Departure.class), time));
+		}
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+		Options options = new OptionsBuilder().include(TransitRouterBenchmark.class.getSimpleName()).build();
+		new Runner(options).run();
+	}
+
+}